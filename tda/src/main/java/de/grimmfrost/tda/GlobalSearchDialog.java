@@ -0,0 +1,189 @@
+/*
+ * GlobalSearchDialog.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda;
+
+import de.grimmfrost.tda.parser.ThreadSearchIndex;
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.AbstractListModel;
+import javax.swing.BorderFactory;
+import javax.swing.JDialog;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+/**
+ * search dialog for the threads of all loaded dumps. The search runs on the
+ * thread search index while typing, a hit is shown in the tree by double clicking
+ * it or pressing enter.
+ *
+ * @author irockel
+ */
+public class GlobalSearchDialog extends JDialog {
+    private final TDA backRef;
+    private final ThreadSearchIndex index;
+    private final JTextField searchField;
+    private final JList<ThreadSearchIndex.Hit> hitList;
+    private final JLabel statusLabel;
+    private final HitListModel hits = new HitListModel();
+    private boolean indexing;
+
+    /**
+     * list model on the hits of the last search, doesn't copy them.
+     */
+    private static class HitListModel extends AbstractListModel<ThreadSearchIndex.Hit> {
+        private List<ThreadSearchIndex.Hit> hits = new ArrayList<>();
+
+        void setHits(List<ThreadSearchIndex.Hit> hits) {
+            int oldSize = this.hits.size();
+            this.hits = hits;
+            if (oldSize > 0) {
+                fireIntervalRemoved(this, 0, oldSize - 1);
+            }
+            if (!hits.isEmpty()) {
+                fireIntervalAdded(this, 0, hits.size() - 1);
+            }
+        }
+
+        public int getSize() {
+            return hits.size();
+        }
+
+        public ThreadSearchIndex.Hit getElementAt(int index) {
+            return hits.get(index);
+        }
+    }
+
+    public GlobalSearchDialog(JFrame owner, TDA backRef, ThreadSearchIndex index) {
+        super(owner, "Search all dumps", false);
+        this.backRef = backRef;
+        this.index = index;
+        setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        getContentPane().setLayout(new BorderLayout());
+
+        hitList = new JList<>(hits);
+        statusLabel = new JLabel(" ");
+        searchField = new JTextField(30);
+        searchField.setToolTipText("Thread names, classes, methods or lock classes, several terms have to match all.");
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) {
+                search();
+            }
+
+            public void removeUpdate(DocumentEvent e) {
+                search();
+            }
+
+            public void changedUpdate(DocumentEvent e) {
+                search();
+            }
+        });
+        searchField.addActionListener(e -> {
+            if (hits.getSize() > 0) {
+                hitList.setSelectedIndex(0);
+                showHit();
+            }
+        });
+        JLabel label = new JLabel("Find threads: ");
+        label.setLabelFor(searchField);
+        JPanel searchPane = new JPanel(new FlowLayout(FlowLayout.LEADING));
+        searchPane.add(label);
+        searchPane.add(searchField);
+        getContentPane().add(searchPane, BorderLayout.NORTH);
+
+        hitList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        hitList.addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    showHit();
+                }
+            }
+        });
+        hitList.addKeyListener(new KeyAdapter() {
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_ENTER) {
+                    showHit();
+                }
+            }
+        });
+        JScrollPane scrollPane = new JScrollPane(hitList);
+        scrollPane.setPreferredSize(new Dimension(500, 300));
+        getContentPane().add(scrollPane, BorderLayout.CENTER);
+
+        statusLabel.setBorder(BorderFactory.createEmptyBorder(2, 5, 2, 5));
+        getContentPane().add(statusLabel, BorderLayout.SOUTH);
+    }
+
+    /**
+     * the index is (re-)built in background, searches until then only find the
+     * threads of the dumps indexed so far.
+     */
+    public void setIndexing(boolean indexing) {
+        this.indexing = indexing;
+        search();
+    }
+
+    private void search() {
+        String query = searchField.getText();
+        long start = System.nanoTime();
+        List<ThreadSearchIndex.Hit> result = index.search(query);
+        long micros = (System.nanoTime() - start) / 1000;
+        hits.setHits(result);
+
+        StringBuilder status = new StringBuilder();
+        if (query.trim().length() > 0) {
+            int dumps = 0;
+            for (int i = 0; i < result.size(); i++) {
+                if (i == 0 || result.get(i).getDump() != result.get(i - 1).getDump()) {
+                    dumps++;
+                }
+            }
+            status.append(result.size()).append(" threads in ").append(dumps).append(" dumps found in ")
+                    .append(micros / 1000).append('.').append(micros / 100 % 10).append(" ms");
+        } else {
+            status.append(index.getDumpCount()).append(" dumps indexed");
+        }
+        if (indexing) {
+            status.append(", indexing...");
+        }
+        statusLabel.setText(status.toString());
+    }
+
+    private void showHit() {
+        ThreadSearchIndex.Hit hit = hitList.getSelectedValue();
+        if (hit != null) {
+            backRef.navigateToThread(hit);
+        }
+    }
+}
@@ -29,7 +29,6 @@ import java.awt.FlowLayout;
 import java.awt.Font;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.Map;
 import javax.swing.JButton;
 import javax.swing.JDialog;
 import javax.swing.JLabel;
@@ -53,16 +52,14 @@ public class LongThreadDialog extends JDialog {
     private TDA backRef;
     private TreePath[] dumps;
     private DefaultMutableTreeNode top;
-    private Map threadDumps;
     
     /** 
      * Creates a new instance of PreferencesDialog 
      */
-    public LongThreadDialog(TDA owner, TreePath[] dumps, DefaultMutableTreeNode top, Map threadDumps) {        
+    public LongThreadDialog(TDA owner, TreePath[] dumps, DefaultMutableTreeNode top) {        
         super(TDA.frame, "Detect long running Threads", true);
         backRef = owner;
         this.dumps = dumps;
-        this.threadDumps = threadDumps;
         this.top = top;
         this.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
         getContentPane().setLayout(new BorderLayout());
@@ -89,7 +86,7 @@ public class LongThreadDialog extends JDialog {
                     divider = backRef.topSplitPane.getDividerLocation();
                 }
 
-                ((Logfile) top.getUserObject()).getUsedParser().findLongRunningThreads(top, threadDumps, dumps, Integer.parseInt(settingsPanel.minOccurenceField.getText()), settingsPanel.threadRegExField.getText());
+                ((Logfile) top.getUserObject()).getUsedParser().findLongRunningThreads(top, dumps, Integer.parseInt(settingsPanel.minOccurenceField.getText()), settingsPanel.threadRegExField.getText());
                 backRef.createTree();
                 backRef.tree.expandRow(1);
 
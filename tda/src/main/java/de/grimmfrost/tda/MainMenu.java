@@ -282,6 +282,15 @@ public class MainMenu extends JMenuBar {
         longMenuItem.addActionListener(listener);
         longMenuItem.setEnabled(false);
         menu.add(longMenuItem);
+
+        menuItem = new JMenuItem(ResourceManager.translate("tools.searchall"),
+                KeyStroke.getKeyStroke(ResourceManager.translate("tools.searchall.mnem")).getKeyCode());
+        menuItem.setAccelerator(KeyStroke.getKeyStroke(
+                KeyEvent.VK_S, InputEvent.ALT_MASK));
+        menuItem.getAccessibleContext().setAccessibleDescription(
+                ResourceManager.translate("tools.searchall.description"));
+        menuItem.addActionListener(listener);
+        menu.add(menuItem);
         menu.addSeparator();
 
         menuItem = new JMenuItem("Filters",
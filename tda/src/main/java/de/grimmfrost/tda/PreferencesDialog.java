@@ -104,6 +104,11 @@ public class PreferencesDialog extends JDialog {
         generalPanel.bufferField.setText(String.valueOf(PrefManager.get().getStreamResetBuffer()));
         generalPanel.showHotspotClasses.setSelected(PrefManager.get().getShowHotspotClasses());
         generalPanel.maxLogfileSizeField.setText(String.valueOf(PrefManager.get().getMaxLogfileSize()));
+        generalPanel.parallelParsing.setSelected(PrefManager.get().getParallelParsing());
+        generalPanel.dumpIndex.setSelected(PrefManager.get().getDumpIndex());
+        generalPanel.lazyDumpLoading.setSelected(PrefManager.get().getLazyDumpLoading());
+        generalPanel.virtualThreadGroupField.setText(String.valueOf(PrefManager.get().getVirtualThreadGroupThreshold()));
+        generalPanel.clusterIgnoreVersions.setSelected(PrefManager.get().getClusterIgnoreVersions());
         
         DefaultComboBoxModel<String> boxModel = new DefaultComboBoxModel<>();
         String[] regexs = PrefManager.get().getDateParsingRegexs();
@@ -127,6 +132,11 @@ public class PreferencesDialog extends JDialog {
         PrefManager.get().setMillisTimeStamp(regExPanel.isMillisTimeStamp.isSelected());
         PrefManager.get().setJDK16DefaultParsing(regExPanel.isJDK16DefaultParsing.isSelected());
         PrefManager.get().setMaxLogfileSize(Integer.parseInt(generalPanel.maxLogfileSizeField.getText()));
+        PrefManager.get().setParallelParsing(generalPanel.parallelParsing.isSelected());
+        PrefManager.get().setDumpIndex(generalPanel.dumpIndex.isSelected());
+        PrefManager.get().setLazyDumpLoading(generalPanel.lazyDumpLoading.isSelected());
+        PrefManager.get().setVirtualThreadGroupThreshold(Integer.parseInt(generalPanel.virtualThreadGroupField.getText()));
+        PrefManager.get().setClusterIgnoreVersions(generalPanel.clusterIgnoreVersions.isSelected());
         dispose();
     }
     
@@ -136,6 +146,11 @@ public class PreferencesDialog extends JDialog {
         JTextField maxLogfileSizeField;
         JCheckBox forceLoggcLoading;
         JCheckBox showHotspotClasses;
+        JCheckBox parallelParsing;
+        JCheckBox dumpIndex;
+        JCheckBox lazyDumpLoading;
+        JTextField virtualThreadGroupField;
+        JCheckBox clusterIgnoreVersions;
 
         public GeneralPanel() {
             setLayout(new FlowLayout(FlowLayout.RIGHT));
@@ -175,6 +190,37 @@ public class PreferencesDialog extends JDialog {
             layoutPanel.add(showHotspotClasses);
             innerPanel.add(layoutPanel);
 
+            layoutPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+            layoutPanel.add(new JLabel("Parse thread dumps of large logfiles in parallel"));
+            parallelParsing = new JCheckBox();
+            layoutPanel.add(parallelParsing);
+            innerPanel.add(layoutPanel);
+
+            layoutPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+            layoutPanel.add(new JLabel("Store an index of large logfiles for faster reopening"));
+            dumpIndex = new JCheckBox();
+            layoutPanel.add(dumpIndex);
+            innerPanel.add(layoutPanel);
+
+            layoutPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+            layoutPanel.add(new JLabel("Parse the thread dumps of large logfiles only when selected"));
+            lazyDumpLoading = new JCheckBox();
+            layoutPanel.add(lazyDumpLoading);
+            innerPanel.add(layoutPanel);
+
+            layoutPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+            layoutPanel.add(new JLabel("Group virtual threads by stack if a dump has more virtual threads than\n (set to 0 to never group)"));
+            virtualThreadGroupField = new JTextField(10);
+            virtualThreadGroupField.setHorizontalAlignment(JTextField.RIGHT);
+            layoutPanel.add(virtualThreadGroupField);
+            innerPanel.add(layoutPanel);
+
+            layoutPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+            layoutPanel.add(new JLabel("Ignore line numbers and module versions when clustering stacks"));
+            clusterIgnoreVersions = new JCheckBox();
+            layoutPanel.add(clusterIgnoreVersions);
+            innerPanel.add(layoutPanel);
+
             // add preferences to parent panel.
             add(innerPanel);
         }
@@ -23,8 +23,13 @@ package de.grimmfrost.tda;
 import com.formdev.flatlaf.FlatLightLaf;
 import de.grimmfrost.tda.jconsole.MBeanDumper;
 import de.grimmfrost.tda.model.*;
+import de.grimmfrost.tda.parser.AbstractDumpParser;
 import de.grimmfrost.tda.parser.DumpParser;
 import de.grimmfrost.tda.parser.DumpParserFactory;
+import de.grimmfrost.tda.parser.LazyDumpNode;
+import de.grimmfrost.tda.parser.ParallelSunJDKParser;
+import de.grimmfrost.tda.parser.SessionFile;
+import de.grimmfrost.tda.parser.ThreadSearchIndex;
 import de.grimmfrost.tda.utils.AppInfo;
 import de.grimmfrost.tda.utils.Browser;
 import de.grimmfrost.tda.utils.HistogramTableModel;
@@ -85,11 +90,15 @@ import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
 import java.text.NumberFormat;
 import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 import javax.swing.BorderFactory;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
@@ -111,6 +120,8 @@ import javax.swing.event.CaretListener;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import javax.swing.event.ListSelectionListener;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeWillExpandListener;
 import javax.swing.filechooser.FileFilter;
 import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreeNode;
@@ -138,7 +149,6 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
     protected DefaultTreeModel treeModel;
     private JSplitPane splitPane;
     protected JSplitPane topSplitPane;
-    private DumpStore dumpStore;
     private Vector<DefaultMutableTreeNode> topNodes;
     private ViewScrollPane htmlView;
     private ViewScrollPane tableView;
@@ -156,6 +166,22 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
     private MBeanDumper mBeanDumper;
     private MainMenu pluginMainMenu;
     private boolean isFoundClassHistogram = false;
+
+    /**
+     * ratio of the heap still used after garbage collection to the maximum heap, from which on
+     * dumps parsed on request are dropped again.
+     */
+    private static final double MEMORY_PRESSURE_RATIO = 0.75;
+
+    /**
+     * dumps parsed on request, the least recently used first.
+     */
+    private final LinkedList<LazyDumpNode> loadedDumps = new LinkedList<>();
+
+    /**
+     * dumps currently parsed in background with their workers.
+     */
+    private final Map<LazyDumpNode, SwingWorker> loadingDumps = new HashMap<>();
     private DropTarget dt = null;
     private DropTarget hdt = null;
     private int dumpCounter;
@@ -165,6 +191,16 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
 
     private SearchDialog searchDialog;
 
+    /**
+     * index of the threads of the loaded dumps for the global search, it is kept up to
+     * date in background from the first global search on.
+     */
+    private final ThreadSearchIndex searchIndex = new ThreadSearchIndex();
+    private GlobalSearchDialog globalSearchDialog;
+    private boolean searchIndexEnabled;
+    private boolean searchIndexing;
+    private boolean searchIndexOutdated;
+
     /**
      * constructor (needs to be public for plugin)
      */
@@ -695,21 +731,14 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
                         null, options, options[0]);
             }
             if (selectValue == 0) {
-                ObjectOutputStream oos = null;
                 try {
-                    oos = new ObjectOutputStream(new GZIPOutputStream(new FileOutputStream(file)));
-
-                    oos.writeObject(dumpFile);
-                    oos.writeObject(topNodes);
-                    oos.writeObject(dumpStore);
+                    SessionFile.write(file, dumpFile, topNodes);
                 } catch (IOException ex) {
                     ex.printStackTrace();
-                } finally {
-                    try {
-                        oos.close();
-                    } catch (IOException ex) {
-                        ex.printStackTrace();
-                    }
+                    JOptionPane.showMessageDialog(this.getRootPane(),
+                            "Error saving session " + file + ": " + ex.getMessage() + ".",
+                            "Error saving session", JOptionPane.ERROR_MESSAGE);
+                    return;
                 }
                 PrefManager.get().addToRecentSessions(file.getAbsolutePath());
             }
@@ -752,6 +781,12 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
     }
 
     private void loadSession(File file, boolean isRecent) throws IOException {
+        if (SessionFile.isSessionFile(file)) {
+            loadBinarySession(file, isRecent);
+            return;
+        }
+
+        // sessions written by older versions of TDA are serialized objects.
         final ObjectInputStream ois = new ObjectInputStream(new ProgressMonitorInputStream(this, "Opening session " + file,
                 new GZIPInputStream(new FileInputStream(file))));
 
@@ -767,7 +802,8 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
                     try {
                         dumpFile = (String) ois.readObject();
                         topNodes = (Vector) ois.readObject();
-                        dumpStore = (DumpStore) ois.readObject();
+                        // the thread store of old sessions isn't needed any more.
+                        ois.readObject();
                         ois.close();
                     } catch (IOException | ClassNotFoundException ex) {
                         ex.printStackTrace();
@@ -790,6 +826,28 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
         }
     }
 
+    /**
+     * load a session in the binary format, only the table of contents is read,
+     * the dumps are read when they are selected.
+     */
+    private void loadBinarySession(File file, boolean isRecent) throws IOException {
+        final SessionFile session = SessionFile.read(file);
+
+        setFileOpen(true);
+        firstFile = false;
+        resetMainPanel();
+        initDumpDisplay(null);
+
+        synchronized (syncObject) {
+            dumpFile = session.getDumpFile();
+            topNodes = session.getTopNodes();
+            createTree();
+        }
+        if (!isRecent) {
+            PrefManager.get().addToRecentSessions(file.getAbsolutePath());
+        }
+    }
+
     private void setShowToolbar(boolean state) {
         if (state) {
             add(getMainMenu().getToolBar(), BorderLayout.PAGE_START);
@@ -819,8 +877,6 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
      */
     public void initDumpDisplay(String content) {
         // clear tree
-        dumpStore = new DumpStore();
-
         topNodes = new Vector();
         if (!runningAsJConsolePlugin && !runningAsVisualVMPlugin) {
             getMainMenu().getLongMenuItem().setEnabled(true);
@@ -933,7 +989,7 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
                 synchronized (syncObject) {
                     capturedDivider = topSplitPane.getDividerLocation();
                     capturedMaxDivider = topSplitPane.getMaximumDividerLocation();
-                    addThreadDumps(top, parseFileStream);
+                    addThreadDumps(top, parseFileStream, withLogfile ? new File(file) : null);
                 }
 
                 return null;
@@ -944,6 +1000,7 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
                 synchronized (syncObject) {
                     createTree();
                     tree.expandRow(1);
+                    updateSearchIndex();
 
                     SwingUtilities.invokeLater(() -> {
                         if (currentTopNodesCount > 1 && capturedDivider > 0 && capturedDivider < capturedMaxDivider - DIVIDER_MAX_THRESHOLD) {
@@ -989,6 +1046,17 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
         }
 
         tree.setShowsRootHandles(true);
+        tree.addTreeWillExpandListener(new TreeWillExpandListener() {
+            public void treeWillExpand(TreeExpansionEvent event) {
+                Object node = event.getPath().getLastPathComponent();
+                if (node instanceof LazyDumpNode && !((LazyDumpNode) node).isLoaded()) {
+                    loadDump((LazyDumpNode) node, true);
+                }
+            }
+
+            public void treeWillCollapse(TreeExpansionEvent event) {
+            }
+        });
         tree.getSelectionModel().setSelectionMode
                 (TreeSelectionModel.DISCONTIGUOUS_TREE_SELECTION);
 
@@ -1080,13 +1148,19 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
         if (node == null) {
             return;
         }
+        touchLoadedDumps(e.getPath());
 
         Object nodeInfo = node.getUserObject();
         if (nodeInfo instanceof ThreadInfo) {
             displayThreadInfo(nodeInfo);
             setThreadDisplay(true);
         } else if (nodeInfo instanceof ThreadDumpInfo) {
-            displayThreadDumpInfo(nodeInfo);
+            if (node instanceof LazyDumpNode && !((LazyDumpNode) node).isLoaded()) {
+                displayContent("<html><body>Parsing " + nodeInfo + " ...</body></html>");
+                loadDump((LazyDumpNode) node, false);
+            } else {
+                displayThreadDumpInfo(nodeInfo);
+            }
         } else if (nodeInfo instanceof HistogramInfo) {
             HistogramInfo tdi = (HistogramInfo) nodeInfo;
             displayTable((HistogramTableModel) tdi.content);
@@ -1130,6 +1204,7 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
     }
 
     private void appendThreadInfo(StringBuffer sb, Object nodeInfo) {
+        // threads only keep their raw stack, getContent() renders the html (cached).
         ThreadInfo ti = (ThreadInfo) nodeInfo;
         if (ti.getInfo() != null) {
             sb.append(ti.getInfo());
@@ -1370,20 +1445,26 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
     }
 
     private void addThreadDumps(DefaultMutableTreeNode top, InputStream dumpFileStream) {
+        addThreadDumps(top, dumpFileStream, null);
+    }
+
+    /**
+     * add the thread dumps of the passed stream to the passed top node.
+     * @param top the top node to add the dumps to.
+     * @param dumpFileStream the stream to parse.
+     * @param dumpFile the file the stream was opened for, null if not read from a file.
+     */
+    private void addThreadDumps(DefaultMutableTreeNode top, InputStream dumpFileStream, File dumpFile) {
         DumpParser dp = null;
         try {
-            String fileName = top.getUserObject().toString();
-            Map dumpMap = null;
-            if(runningAsJConsolePlugin || runningAsVisualVMPlugin) {
-                dumpMap = dumpStore.getFromDumpFiles(fileName);
+            if (dumpFile != null && !runningAsJConsolePlugin) {
+                dp = DumpParserFactory.get().getDumpParserForFile(dumpFile, dumpFileStream, dumpCounter);
+            } else {
+                dp = DumpParserFactory.get().getDumpParserForLogfile(dumpFileStream, runningAsJConsolePlugin, dumpCounter);
             }
-
-            if (dumpMap == null) {
-                dumpMap = new HashMap<>();
-                dumpStore.addFileToDumpFiles(fileName, dumpMap);
+            if (dp instanceof ParallelSunJDKParser && PrefManager.get().getLazyDumpLoading()) {
+                ((ParallelSunJDKParser) dp).setLazy(true);
             }
-            dp = DumpParserFactory.get().getDumpParserForLogfile(dumpFileStream, dumpMap, runningAsJConsolePlugin,
-                    dumpCounter);
             ((Logfile) top.getUserObject()).setUsedParser(dp);
 
             while ((dp != null) && dp.hasMoreDumps()) {
@@ -1392,6 +1473,8 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
                     isFoundClassHistogram = dp.isFoundClassHistograms();
                 }
             }
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "IO error parsing logfile " + dumpFile, ex);
         } finally {
             if (dp != null) {
                 try {
@@ -1403,6 +1486,235 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
         }
     }
 
+    /**
+     * parse the dump of the passed node in background, if it isn't parsed yet.
+     * @param node the node of the dump.
+     * @param expand true, if the node should be expanded after parsing.
+     */
+    private void loadDump(final LazyDumpNode node, final boolean expand) {
+        if (node.isLoaded() || loadingDumps.containsKey(node)) {
+            return;
+        }
+
+        final SwingWorker worker = new SwingWorker() {
+            public Object construct() {
+                try {
+                    return node.parseDump();
+                } catch (IOException ex) {
+                    LOGGER.log(Level.SEVERE, "IO error parsing " + node, ex);
+                    return ex;
+                }
+            }
+
+            @Override
+            public void finished() {
+                // the logfile might have been closed meanwhile.
+                if (!loadingDumps.remove(node, this)) {
+                    return;
+                }
+                Object result = get();
+                if (!(result instanceof DefaultMutableTreeNode)) {
+                    JOptionPane.showMessageDialog(getRootPane(),
+                            "Error parsing " + node + ":\n" + result,
+                            "Error parsing dump", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                setLoadedDump(node, (DefaultMutableTreeNode) result, Collections.singletonList(node));
+
+                TreePath path = new TreePath(node.getPath());
+                if (expand) {
+                    tree.expandPath(path);
+                }
+                if (path.equals(tree.getSelectionPath())) {
+                    displayThreadDumpInfo(node.getUserObject());
+                }
+            }
+        };
+        loadingDumps.put(node, worker);
+        worker.start();
+    }
+
+    /**
+     * parse the not yet parsed dumps of the passed paths in background and run the passed action
+     * on the event dispatch thread afterwards. Dumps already parsed by another worker are waited
+     * for instead of being parsed again.
+     * @param paths the selected paths.
+     * @param loaded the action to run after all dumps are parsed.
+     */
+    private void loadDumps(TreePath[] paths, Runnable loaded) {
+        loadDumps(paths, null, loaded);
+    }
+
+    /**
+     * parse the not yet parsed dumps of the passed paths in background and run the passed action
+     * on the event dispatch thread afterwards. Dumps already parsed by another worker are waited
+     * for instead of being parsed again.
+     * @param paths the selected paths.
+     * @param dumpLoaded called on the event dispatch thread with every dump of the paths as soon
+     *                   as it is parsed, might be null.
+     * @param loaded the action to run after all dumps are parsed.
+     */
+    private void loadDumps(TreePath[] paths, final Consumer<DefaultMutableTreeNode> dumpLoaded, final Runnable loaded) {
+        final List<LazyDumpNode> missing = new ArrayList<>();
+        final List<DefaultMutableTreeNode> others = new ArrayList<>();
+        final Set<SwingWorker> pending = new HashSet<>();
+        for (TreePath path : paths) {
+            touchLoadedDumps(path);
+            DefaultMutableTreeNode node = (DefaultMutableTreeNode) path.getLastPathComponent();
+            if (node instanceof LazyDumpNode && !((LazyDumpNode) node).isLoaded()) {
+                SwingWorker worker = loadingDumps.get(node);
+                if (worker != null) {
+                    pending.add(worker);
+                    others.add(node);
+                } else {
+                    missing.add((LazyDumpNode) node);
+                }
+            } else if (dumpLoaded != null && node.getUserObject() instanceof ThreadDumpInfo) {
+                dumpLoaded.accept(node);
+            }
+        }
+        if (missing.isEmpty() && pending.isEmpty()) {
+            loaded.run();
+            return;
+        }
+
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        final StringBuilder errors = new StringBuilder();
+        final SwingWorker worker = new SwingWorker() {
+            public Object construct() {
+                for (int i = 0; i < missing.size(); i++) {
+                    final LazyDumpNode node = missing.get(i);
+                    final String progress = "Parsing " + node + " (" + (i + 1) + " of " + missing.size() + ") ...";
+                    SwingUtilities.invokeLater(() -> statusBar.setInfoText(progress));
+                    Object result;
+                    try {
+                        result = node.parseDump();
+                    } catch (IOException ex) {
+                        LOGGER.log(Level.SEVERE, "IO error parsing " + node, ex);
+                        result = ex;
+                    }
+                    final Object parsed = result;
+                    SwingUtilities.invokeLater(() -> takeOverDump(node, parsed));
+                }
+                // the other workers take over their dumps before this worker is finished.
+                for (SwingWorker other : pending) {
+                    other.get();
+                }
+                return null;
+            }
+
+            /**
+             * take over a parsed dump into the tree, unless the logfile was closed meanwhile.
+             */
+            private void takeOverDump(LazyDumpNode node, Object result) {
+                if (!loadingDumps.remove(node, this)) {
+                    return;
+                }
+                if (result instanceof DefaultMutableTreeNode) {
+                    setLoadedDump(node, (DefaultMutableTreeNode) result, missing);
+                    if (dumpLoaded != null) {
+                        dumpLoaded.accept(node);
+                    }
+                } else {
+                    errors.append(node).append(": ").append(result).append('\n');
+                }
+            }
+
+            @Override
+            public void finished() {
+                setCursor(Cursor.getDefaultCursor());
+                statusBar.setInfoText(AppInfo.getStatusBarInfo());
+                for (DefaultMutableTreeNode node : others) {
+                    if (dumpLoaded != null && ((LazyDumpNode) node).isLoaded()) {
+                        dumpLoaded.accept(node);
+                    }
+                }
+                if (errors.length() > 0) {
+                    JOptionPane.showMessageDialog(getRootPane(), "Error parsing dumps:\n" + errors,
+                            "Error parsing dump", JOptionPane.ERROR_MESSAGE);
+                }
+                loaded.run();
+            }
+        };
+        for (LazyDumpNode node : missing) {
+            loadingDumps.put(node, worker);
+        }
+        worker.start();
+    }
+
+    /**
+     * mark the parsed dumps on the passed path as used most recently, so they are dropped last.
+     */
+    private void touchLoadedDumps(TreePath path) {
+        for (Object node : path.getPath()) {
+            if (node instanceof LazyDumpNode && loadedDumps.remove(node)) {
+                loadedDumps.add((LazyDumpNode) node);
+            }
+        }
+    }
+
+    /**
+     * check if the heap still used after the last garbage collection exceeds the memory pressure
+     * ratio. Garbage which can be collected doesn't count this way.
+     */
+    private static boolean isMemoryLow() {
+        long used = 0;
+        boolean collected = false;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage usage = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+            if (usage != null) {
+                used += usage.getUsed();
+                collected = true;
+            }
+        }
+        Runtime rt = Runtime.getRuntime();
+        if (!collected) {
+            // no collection usage available, fall back to the current usage.
+            used = rt.totalMemory() - rt.freeMemory();
+        }
+        return used >= rt.maxMemory() * MEMORY_PRESSURE_RATIO;
+    }
+
+    /**
+     * take over the parsed dump into the tree and drop the dump used least recently, if
+     * memory gets low.
+     * @param keep the dumps which must not be dropped, e.g. as they are about to be analyzed.
+     */
+    private void setLoadedDump(LazyDumpNode node, DefaultMutableTreeNode dump, Collection<LazyDumpNode> keep) {
+        node.setDump(dump);
+        ((DefaultTreeModel) tree.getModel()).nodeStructureChanged(node);
+        loadedDumps.add(node);
+
+        if (!isMemoryLow()) {
+            updateSearchIndex();
+            return;
+        }
+        TreePath[] selection = tree.getSelectionPaths();
+        Iterator<LazyDumpNode> iter = loadedDumps.iterator();
+        while (iter.hasNext()) {
+            LazyDumpNode evict = iter.next();
+            if (evict.getRoot() != tree.getModel().getRoot()) {
+                // logfile was closed.
+                iter.remove();
+                continue;
+            }
+            TreePath path = new TreePath(evict.getPath());
+            boolean selected = keep.contains(evict);
+            for (int i = 0; selection != null && i < selection.length; i++) {
+                selected |= path.isDescendant(selection[i]);
+            }
+            if (!selected) {
+                tree.collapsePath(path);
+                evict.unload();
+                ((DefaultTreeModel) tree.getModel()).nodeStructureChanged(evict);
+                iter.remove();
+                LOGGER.log(Level.INFO, "dropped parsed " + evict + " as memory gets low");
+                break;
+            }
+        }
+        updateSearchIndex();
+    }
+
     /**
      * navigate to the currently selected dump in logfile
      */
@@ -1549,6 +1861,21 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
         menuItem = new JMenuItem("Find long running threads...");
         menuItem.addActionListener(this);
         popup.add(menuItem);
+        menuItem = new JMenuItem("Find top blockers");
+        menuItem.addActionListener(this);
+        popup.add(menuItem);
+        menuItem = new JMenuItem("Find hottest threads");
+        menuItem.addActionListener(this);
+        popup.add(menuItem);
+        menuItem = new JMenuItem("Cluster stacks");
+        menuItem.addActionListener(this);
+        popup.add(menuItem);
+        menuItem = new JMenuItem("Build call tree");
+        menuItem.addActionListener(this);
+        popup.add(menuItem);
+        menuItem = new JMenuItem("Show thread states over time");
+        menuItem.addActionListener(this);
+        popup.add(menuItem);
 
         showDumpMenuItem = new JMenuItem("Show selected Dump in logfile");
         showDumpMenuItem.addActionListener(this);
@@ -1733,6 +2060,8 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
                 showInfo();
             } else if ("Search...".equals(source.getText())) {
                 showSearchDialog();
+            } else if ("Search all dumps...".equals(source.getText())) {
+                showGlobalSearchDialog();
             } else if ("Parse loggc-logfile...".equals(source.getText())) {
                 parseLoggcLogfile();
             } else if ("Find long running threads...".equals(source.getText())) {
@@ -1749,13 +2078,18 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
                             "Error", JOptionPane.ERROR_MESSAGE);
 
                 } else {
-                    DefaultMutableTreeNode mergeRoot = fetchTop(tree.getSelectionPath());
-                    Map dumpMap = dumpStore.getFromDumpFiles(mergeRoot.getUserObject().toString());
-                    ((Logfile) mergeRoot.getUserObject()).getUsedParser().mergeDumps(mergeRoot,
-                            dumpMap, paths, paths.length, null);
-                    createTree();
-                    this.getRootPane().revalidate();
+                    analyzeDumps(paths, (parser, mergeRoot) -> parser.mergeDumps(mergeRoot, paths, paths.length, null));
                 }
+            } else if ("Find top blockers".equals(source.getText())) {
+                findTopBlockers();
+            } else if ("Find hottest threads".equals(source.getText())) {
+                findHotThreads();
+            } else if ("Cluster stacks".equals(source.getText())) {
+                findStackClusters();
+            } else if ("Build call tree".equals(source.getText())) {
+                findCallTree();
+            } else if ("Show thread states over time".equals(source.getText())) {
+                findStateSeries();
             } else if ("Show selected Dump in logfile".equals(source.getText())) {
                 navigateToDumpInLogfile();
             } else if ("Show Toolbar".equals(source.getText())) {
@@ -2101,6 +2435,7 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
                 getMainMenu().getCloseToolBarButton().setEnabled(false);
                 createTree();
             }
+            updateSearchIndex();
             revalidate();
         }
 
@@ -2133,6 +2468,9 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
         if (selectValue == 0) {
             // remove stuff from the top nodes
             topNodes = new Vector<>();
+            loadedDumps.clear();
+            loadingDumps.clear();
+            updateSearchIndex();
 
             // simply do a reinit, as there is anything to display
             resetMainPanel();
@@ -2237,25 +2575,128 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
      * dump range.
      */
     private void findLongRunningThreads() {
-        TreePath[] paths = tree.getSelectionPaths();
-        if ((paths == null) || (paths.length < 2)) {
-            JOptionPane.showMessageDialog(this.getRootPane(),
-                    "You must select at least two dumps for long thread run detection!\n",
-                    "Error", JOptionPane.ERROR_MESSAGE);
+        TreePath[] paths = getSelectedDumps(2, "long thread run detection");
+        if (paths != null) {
+            final DefaultMutableTreeNode mergeRoot = fetchTop(tree.getSelectionPath());
+            loadDumps(paths, () -> {
+                if (mergeRoot.getRoot() != tree.getModel().getRoot()) {
+                    // logfile was closed.
+                    return;
+                }
+                LongThreadDialog longThreadDialog = new LongThreadDialog(this, paths, mergeRoot);
 
-        } else {
-            DefaultMutableTreeNode mergeRoot = fetchTop(tree.getSelectionPath());
-            Map dumpMap = dumpStore.getFromDumpFiles(mergeRoot.getUserObject().toString());
+                //Display the window.
+                longThreadDialog.reset();
+                longThreadDialog.pack();
+                longThreadDialog.setLocationRelativeTo(frame);
+                longThreadDialog.setVisible(true);
+            });
+        }
+    }
 
-            LongThreadDialog longThreadDialog = new LongThreadDialog(this, paths, mergeRoot, dumpMap);
+    /**
+     * rank the threads blocking other threads in the selected thread dumps.
+     */
+    private void findTopBlockers() {
+        TreePath[] paths = getSelectedDumps(1, "finding top blockers");
+        analyzeDumps(paths, (parser, mergeRoot) -> parser.findTopBlockers(mergeRoot, paths));
+    }
+
+    /**
+     * rank the threads by the cpu time they consumed between the selected thread dumps.
+     */
+    private void findHotThreads() {
+        TreePath[] paths = getSelectedDumps(2, "finding the hottest threads");
+        analyzeDumps(paths, (parser, mergeRoot) -> parser.findHotThreads(mergeRoot, paths));
+    }
+
+    /**
+     * group the threads of the selected thread dumps by their stacks.
+     */
+    private void findStackClusters() {
+        TreePath[] paths = getSelectedDumps(1, "clustering the stacks");
+        analyzeDumps(paths, (parser, mergeRoot) -> parser.findStackClusters(mergeRoot, paths));
+    }
 
-            //Display the window.
-            longThreadDialog.reset();
-            longThreadDialog.pack();
-            longThreadDialog.setLocationRelativeTo(frame);
-            longThreadDialog.setVisible(true);
+    /**
+     * merge the stacks of the selected thread dumps into a call tree, optionally only
+     * of the threads in one state.
+     */
+    private void findCallTree() {
+        TreePath[] paths = getSelectedDumps(1, "building a call tree");
+        if (paths == null) {
+            return;
+        }
+        String[] states = {"All threads", "RUNNABLE", "BLOCKED", "WAITING", "TIMED_WAITING"};
+        Object state = JOptionPane.showInputDialog(this.getRootPane(), "Build the call tree of",
+                "Build call tree", JOptionPane.QUESTION_MESSAGE, null, states, states[1]);
+        if (state == null) {
+            return;
+        }
+
+        // the call tree grows while the dumps are parsed.
+        final DefaultMutableTreeNode mergeRoot = fetchTop(tree.getSelectionPath());
+        final CallTreeCategory callTree = ((Logfile) mergeRoot.getUserObject()).getUsedParser().createCallTree(paths,
+                state == states[0] ? null : (String) state);
+        if (callTree == null) {
+            return;
+        }
+        mergeRoot.add(new DefaultMutableTreeNode(callTree));
+        createTree();
+        this.getRootPane().revalidate();
+        loadDumps(paths, dump -> {
+            AbstractDumpParser.addToCallTree(callTree.getTree(), (ThreadDumpInfo) dump.getUserObject());
+            callTree.refresh();
+        }, () -> {
+        });
+    }
+
+    /**
+     * count the thread states of the selected thread dumps and show them as chart.
+     */
+    private void findStateSeries() {
+        TreePath[] paths = getSelectedDumps(1, "showing the thread states");
+        analyzeDumps(paths, (parser, mergeRoot) -> parser.findStateSeries(mergeRoot, paths));
+    }
+
+    /**
+     * get the selected thread dumps for an analysis, an error is shown if not enough
+     * dumps are selected.
+     * @param minDumps the minimum amount of selected dumps.
+     * @param purpose what the dumps are selected for, used in the error message.
+     * @return the selected paths, null if not enough dumps are selected.
+     */
+    private TreePath[] getSelectedDumps(int minDumps, String purpose) {
+        TreePath[] paths = tree.getSelectionPaths();
+        if ((paths == null) || (paths.length < minDumps)) {
+            JOptionPane.showMessageDialog(this.getRootPane(),
+                    "You must select at least " + (minDumps == 1 ? "one dump" : minDumps + " dumps") + " for " + purpose + "!\n",
+                    "Error", JOptionPane.ERROR_MESSAGE);
+            return (null);
+        }
+        return (paths);
+    }
 
+    /**
+     * load the selected thread dumps in background and run an analysis on them afterwards, the
+     * analysis adds its result to the logfile of the dumps.
+     * @param paths the selected dumps, nothing is done if null.
+     * @param analysis gets the parser and the root node of the logfile.
+     */
+    private void analyzeDumps(TreePath[] paths, BiConsumer<DumpParser, DefaultMutableTreeNode> analysis) {
+        if (paths == null) {
+            return;
         }
+        final DefaultMutableTreeNode mergeRoot = fetchTop(tree.getSelectionPath());
+        loadDumps(paths, () -> {
+            if (mergeRoot.getRoot() != tree.getModel().getRoot()) {
+                // logfile was closed.
+                return;
+            }
+            analysis.accept(((Logfile) mergeRoot.getUserObject()).getUsedParser(), mergeRoot);
+            createTree();
+            this.getRootPane().revalidate();
+        });
     }
 
     private int rootNodeLevel = 0;
@@ -2390,6 +2831,132 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
         });
     }
 
+    /**
+     * display the search dialog for the threads of all loaded dumps.
+     */
+    private void showGlobalSearchDialog() {
+        if (globalSearchDialog == null) {
+            globalSearchDialog = new GlobalSearchDialog(getFrame(), this, searchIndex);
+            globalSearchDialog.pack();
+            globalSearchDialog.setLocationRelativeTo(getFrame());
+            globalSearchDialog.addWindowListener(new WindowAdapter() {
+                public void windowClosed(WindowEvent e) {
+                    globalSearchDialog = null;
+                }
+            });
+        }
+        searchIndexEnabled = true;
+        updateSearchIndex();
+        globalSearchDialog.setVisible(true);
+        globalSearchDialog.toFront();
+    }
+
+    /**
+     * index the threads of the loaded dumps in background, dumps closed or unloaded
+     * in the meantime are dropped from the index.
+     */
+    private void updateSearchIndex() {
+        if (!searchIndexEnabled) {
+            return;
+        }
+        if (searchIndexing) {
+            searchIndexOutdated = true;
+            return;
+        }
+        final List<DefaultMutableTreeNode> dumps = searchIndex.update(getLoadedDumps());
+        if (dumps.isEmpty()) {
+            if (globalSearchDialog != null) {
+                globalSearchDialog.setIndexing(false);
+            }
+            return;
+        }
+        searchIndexing = true;
+        if (globalSearchDialog != null) {
+            globalSearchDialog.setIndexing(true);
+        }
+        final SwingWorker worker = new SwingWorker() {
+            public Object construct() {
+                for (DefaultMutableTreeNode dump : dumps) {
+                    searchIndex.addDump(dump);
+                }
+                return null;
+            }
+
+            @Override
+            public void finished() {
+                searchIndexing = false;
+                if (searchIndexOutdated) {
+                    searchIndexOutdated = false;
+                    updateSearchIndex();
+                } else if (globalSearchDialog != null) {
+                    globalSearchDialog.setIndexing(false);
+                }
+            }
+        };
+        worker.start();
+    }
+
+    /**
+     * get the dumps of all open logfiles, which are parsed.
+     */
+    private List<DefaultMutableTreeNode> getLoadedDumps() {
+        List<DefaultMutableTreeNode> dumps = new ArrayList<>();
+        for (int i = 0; topNodes != null && i < topNodes.size(); i++) {
+            DefaultMutableTreeNode top = topNodes.get(i);
+            for (int j = 0; j < top.getChildCount(); j++) {
+                DefaultMutableTreeNode dump = (DefaultMutableTreeNode) top.getChildAt(j);
+                if (dump.getUserObject() instanceof ThreadDumpInfo
+                        && !(dump instanceof LazyDumpNode && !((LazyDumpNode) dump).isLoaded())) {
+                    dumps.add(dump);
+                }
+            }
+        }
+        return (dumps);
+    }
+
+    /**
+     * select a thread found by the global search in the threads category of its dump.
+     */
+    void navigateToThread(ThreadSearchIndex.Hit hit) {
+        DefaultMutableTreeNode dumpNode = hit.getDump();
+        if (tree == null || dumpNode.getRoot() != tree.getModel().getRoot()
+                || !(dumpNode.getUserObject() instanceof ThreadDumpInfo)) {
+            JOptionPane.showMessageDialog(this.getRootPane(), "The dump of " + hit + " isn't loaded anymore!",
+                    "Search Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        Category threads = ((ThreadDumpInfo) dumpNode.getUserObject()).getThreads();
+        DefaultMutableTreeNode threadsNode = null;
+        for (int i = 0; threadsNode == null && i < dumpNode.getChildCount(); i++) {
+            if (((DefaultMutableTreeNode) dumpNode.getChildAt(i)).getUserObject() == threads) {
+                threadsNode = (DefaultMutableTreeNode) dumpNode.getChildAt(i);
+            }
+        }
+        TreePath path = new TreePath(threadsNode != null ? threadsNode.getPath() : dumpNode.getPath());
+        tree.makeVisible(path);
+        tree.setSelectionPath(path);
+        tree.scrollPathToVisible(path);
+        if (threadsNode == null) {
+            return;
+        }
+
+        JComponent catComp = threads.getCatComponent(this);
+        if (catComp instanceof JTable && ((JTable) catComp).getModel() instanceof TableSorter) {
+            JTable table = (JTable) catComp;
+            TableSorter ts = (TableSorter) table.getModel();
+            ThreadsTableModel ttm = (ThreadsTableModel) ts.getTableModel();
+            for (int row = 0; row < table.getRowCount(); row++) {
+                if (ttm.getInfoObjectAtRow(ts.modelIndex(row)) == hit.getThread()) {
+                    table.getSelectionModel().setSelectionInterval(row, row);
+                    table.scrollRectToVisible(table.getCellRect(row, 0, true));
+                    return;
+                }
+            }
+        }
+        // the thread is filtered out of the category.
+        displayThreadInfo(hit.getThread());
+    }
+
     /**
      * main startup method for TDA
      */
@@ -2401,6 +2968,12 @@ public class TDA extends JPanel implements ListSelectionListener, TreeSelectionL
             de.grimmfrost.tda.mcp.MCPServer.main(mcpArgs);
             return;
         }
+        if (args.length > 0 && "--folded".equals(args[0])) {
+            String[] foldedArgs = new String[args.length - 1];
+            System.arraycopy(args, 1, foldedArgs, 0, args.length - 1);
+            de.grimmfrost.tda.mcp.FoldedStackExporter.main(foldedArgs);
+            return;
+        }
 
         if (args.length > 0) {
             dumpFile = args[0];
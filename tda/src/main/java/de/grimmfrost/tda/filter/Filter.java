@@ -197,36 +197,10 @@ public class Filter {
     public boolean matches(ThreadInfo ti, boolean forceEnabled) {
         boolean result = true;
         if(forceEnabled || isEnabled()) {
-            switch(getFilterRule()) {
-                case HAS_IN_TITLE_RULE :
-                    result = getFilterExpressionPattern().matcher(ti.getName()).find();
-                    break;
-                case MATCHES_TITLE_RULE :
-                    result = getFilterExpressionPattern().matcher(ti.getName()).matches();
-                    break;
-                case HAS_IN_STACK_RULE : 
-                    result = getFilterExpressionPattern().matcher(ti.getContent()).find();
-                    break;
-                case MATCHES_STACK_RULE :
-                    result = getFilterExpressionPattern().matcher(ti.getContent()).matches();
-                    break;
-                case WAITING_ON_RULE :
-                    result = (ti.getContent().contains("- waiting on")) && checkLine(ti, "- waiting on", '<', ')');
-                    break;
-                case WAITING_FOR_RULE :
-                    result = (ti.getName().contains("waiting for monitor entry")) &&
-                            checkLine(ti, "- waiting to lock", '<', ')');
-                    break;
-                case LOCKING_RULE :
-                    result = (ti.getContent().contains("- locked")) && checkLine(ti, "- locked", '<', ')');
-                    break;
-                case SLEEPING_RULE :
-                    result = (ti.getName().contains("Object.wait()"));
-                    break;
-                case STACK_IS_LONGER_THAN_RULE :
-                    result = (ti.getStackLines() == 0) || ((ti.getStackLines() -2) > Integer.parseInt(filterExpression));
-                    break;
-            }
+            int rule = getFilterRule();
+            result = matchesRule(rule, needsPattern(rule) ? getFilterExpressionPattern() : null,
+                    rule == STACK_IS_LONGER_THAN_RULE ? Integer.parseInt(filterExpression) : 0,
+                    ti, needsStackText(rule) ? ti.getStackText() : null);
             
             // invert if it is exclusion filter
             if(isExclusionFilter()) {
@@ -236,16 +210,69 @@ public class Filter {
         return(result);
     }
     
+    /**
+     * checks the given rule for a thread, exclusion isn't applied.
+     * @param pattern the compiled expression, only used by rules which need a pattern.
+     * @param minLength the stack length for the stack length rule.
+     * @param stackText the stack text of the thread, only used by rules which need the stack text.
+     */
+    static boolean matchesRule(int rule, Pattern pattern, int minLength, ThreadInfo ti, String stackText) {
+        switch(rule) {
+            case HAS_IN_TITLE_RULE :
+                return(pattern.matcher(ti.getName()).find());
+            case MATCHES_TITLE_RULE :
+                return(pattern.matcher(ti.getName()).matches());
+            case HAS_IN_STACK_RULE : 
+                return(pattern.matcher(stackText).find());
+            case MATCHES_STACK_RULE :
+                return(pattern.matcher(stackText).matches());
+            case WAITING_ON_RULE :
+                return(checkLine(pattern, stackText, "- waiting on", '<', ')'));
+            case WAITING_FOR_RULE :
+                return(ti.getName().contains("waiting for monitor entry") &&
+                        checkLine(pattern, stackText, "- waiting to lock", '<', ')'));
+            case LOCKING_RULE :
+                return(checkLine(pattern, stackText, "- locked", '<', ')'));
+            case SLEEPING_RULE :
+                return(ti.getName().contains("Object.wait()"));
+            case STACK_IS_LONGER_THAN_RULE :
+                return((ti.getStackLines() == 0) || ((ti.getStackLines() -2) > minLength));
+            default :
+                return(true);
+        }
+    }
+    
+    /**
+     * @return true, if the given rule matches the filter expression as regular expression.
+     */
+    static boolean needsPattern(int rule) {
+        return(rule != SLEEPING_RULE && rule != STACK_IS_LONGER_THAN_RULE);
+    }
+    
+    /**
+     * @return true, if the given rule checks the stack of the thread and not only its title.
+     */
+    static boolean needsStackText(int rule) {
+        return(rule != HAS_IN_TITLE_RULE && rule != MATCHES_TITLE_RULE && rule != SLEEPING_RULE
+                && rule != STACK_IS_LONGER_THAN_RULE);
+    }
+    
     /**
      * checks a sub line for a lock handler (for waiting, locking, monitor entry)
      */
-    private boolean checkLine(ThreadInfo ti, String contains, char beginChar, char endChar) {
-        int beginFrom = ti.getContent().indexOf(contains);
-        int beginIndex = ti.getContent().indexOf(beginChar, beginFrom);
-        int endIndex = ti.getContent().indexOf(endChar, beginIndex);
-        String matchLine = ti.getContent().substring(beginIndex, endIndex);
+    private static boolean checkLine(Pattern pattern, String stackText, String contains, char beginChar, char endChar) {
+        int beginFrom = stackText != null ? stackText.indexOf(contains) : -1;
+        if(beginFrom < 0) {
+            return(false);
+        }
+        int beginIndex = stackText.indexOf(beginChar, beginFrom);
+        int endIndex = beginIndex >= 0 ? stackText.indexOf(endChar, beginIndex) : -1;
+        if(endIndex < 0) {
+            return(false);
+        }
+        String matchLine = stackText.substring(beginIndex, endIndex);
         
-        return getFilterExpressionPattern().matcher(matchLine).matches();
+        return pattern.matcher(matchLine).matches();
     }
 
     public String toString() {
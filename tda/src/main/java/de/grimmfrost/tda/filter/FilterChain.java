@@ -0,0 +1,150 @@
+/*
+ * FilterChain.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.filter;
+
+import de.grimmfrost.tda.model.ThreadInfo;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable snapshot of a set of filters, compiled once per refresh of a category
+ * instead of looking up the filters for every thread. The rule, pattern and flags of
+ * every filter are copied, so later changes of the filters don't affect the chain.
+ * Cheap rules (stack length, thread title flags) are checked before the regular
+ * expressions, rules on the stack go last, and the stack text of a thread is
+ * created at most once per check.
+ *
+ * @author irockel
+ */
+public class FilterChain {
+    private static final FilterChain EMPTY = new FilterChain(new ArrayList<>());
+
+    private final List<Step> steps;
+
+    private FilterChain(List<Step> steps) {
+        this.steps = steps;
+    }
+
+    /**
+     * compile the given filters to a chain, a thread passes the chain if it passes all filters.
+     * @param filters the filters to compile, iterated in the order they should be checked if their costs are equal.
+     * @param forceEnabled if true, also disabled filters are compiled, otherwise they are skipped.
+     * @return the compiled chain.
+     */
+    public static FilterChain compile(Collection<?> filters, boolean forceEnabled) {
+        if (filters == null || filters.isEmpty()) {
+            return EMPTY;
+        }
+        List<Step> steps = new ArrayList<>();
+        for (Object element : filters) {
+            Filter filter = (Filter) element;
+            if (forceEnabled || filter.isEnabled()) {
+                steps.add(new Step(filter));
+            }
+        }
+        // stable sort, filters of equal cost keep their order.
+        steps.sort(Comparator.comparingInt(step -> step.cost));
+        return new FilterChain(Collections.unmodifiableList(steps));
+    }
+
+    /**
+     * checks if the given thread passes all filters of the chain.
+     */
+    public boolean check(ThreadInfo ti) {
+        String stackText = null;
+        for (Step step : steps) {
+            if (step.needsStackText && stackText == null) {
+                stackText = ti.getStackText();
+                if (stackText == null) {
+                    stackText = "";
+                }
+            }
+            if (Filter.matchesRule(step.rule, step.pattern, step.minLength, ti, stackText) == step.exclusion) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * get the amount of filters in the chain.
+     */
+    public int size() {
+        return steps.size();
+    }
+
+    /**
+     * get the rules of the filters in the order they are checked.
+     */
+    public int[] getRules() {
+        int[] rules = new int[steps.size()];
+        for (int i = 0; i < rules.length; i++) {
+            rules[i] = steps.get(i).rule;
+        }
+        return rules;
+    }
+
+    /**
+     * cost of a rule, the title is shorter than the stack and contains checks are cheaper than expressions.
+     */
+    private static int getCost(int rule) {
+        switch (rule) {
+            case Filter.STACK_IS_LONGER_THAN_RULE:
+                return 0;
+            case Filter.SLEEPING_RULE:
+                return 1;
+            case Filter.HAS_IN_TITLE_RULE:
+            case Filter.MATCHES_TITLE_RULE:
+                return 2;
+            case Filter.WAITING_FOR_RULE:
+            case Filter.WAITING_ON_RULE:
+            case Filter.LOCKING_RULE:
+                return 3;
+            default:
+                return 4;
+        }
+    }
+
+    /**
+     * a single compiled filter of the chain.
+     */
+    private static class Step {
+        private final int rule;
+        private final Pattern pattern;
+        private final int minLength;
+        private final boolean exclusion;
+        private final boolean needsStackText;
+        private final int cost;
+
+        Step(Filter filter) {
+            rule = filter.getFilterRule();
+            pattern = Filter.needsPattern(rule) ? filter.getFilterExpressionPattern() : null;
+            minLength = rule == Filter.STACK_IS_LONGER_THAN_RULE ? Integer.parseInt(filter.getFilterExpression().trim()) : 0;
+            exclusion = filter.isExclusionFilter();
+            needsStackText = Filter.needsStackText(rule);
+            cost = getCost(rule);
+        }
+    }
+}
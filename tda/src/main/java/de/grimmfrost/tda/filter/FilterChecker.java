@@ -23,13 +23,14 @@ package de.grimmfrost.tda.filter;
 
 import de.grimmfrost.tda.model.ThreadInfo;
 import de.grimmfrost.tda.utils.PrefManager;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import javax.swing.ListModel;
 
 /**
  * has a list of filters and checks for a given thread if it matches any of the filters.
+ * The filters are compiled to a {@link FilterChain} on the first check.
  * @author irockel
  */
 public class FilterChecker {
@@ -38,7 +39,10 @@ public class FilterChecker {
      */
     private Map filters = null;
     
-    private static Map generalFilters = null;
+    /**
+     * the compiled filters, null if the filters changed since the last check.
+     */
+    private FilterChain chain = null;
     
     /** 
      * Creates a new instance of FilterChecker 
@@ -48,18 +52,16 @@ public class FilterChecker {
     }
     
     /**
-     * return a filter checker for all general filters
+     * return a filter checker for all general filters, which are currently enabled.
+     * The filters are read from the preferences on each call, so get a new
+     * checker if the filters might have changed.
      */
     public static FilterChecker getFilterChecker() {
-        if(generalFilters == null) {
-            setGeneralFilters();
-        }
-        
-        return(new FilterChecker(generalFilters));
+        return(new FilterChecker(getGeneralFilters()));
     }
     
-    private static void setGeneralFilters() {
-        generalFilters = new HashMap();
+    private static Map getGeneralFilters() {
+        Map generalFilters = new LinkedHashMap();
         ListModel filters = PrefManager.get().getFilters();
         for(int i = 0; i < filters.getSize(); i++) {
             Filter currentFilter = (Filter) filters.getElementAt(i);
@@ -67,6 +69,7 @@ public class FilterChecker {
                 generalFilters.put(currentFilter.getName(), currentFilter);
             }
         }
+        return(generalFilters);
     }
     
     /**
@@ -74,10 +77,22 @@ public class FilterChecker {
      */
     public void addToFilters(Filter filter) {
         if(filters == null) {
-            filters = new HashMap();
+            filters = new LinkedHashMap();
         }
         
         filters.put(filter.getName(), filter);
+        chain = null;
+    }
+    
+    /**
+     * get the compiled filters of this checker, filters which were disabled
+     * when the chain was compiled are skipped.
+     */
+    public FilterChain getFilterChain() {
+        if(chain == null) {
+            chain = FilterChain.compile(filters != null ? filters.values() : null, false);
+        }
+        return(chain);
     }
     
     /**
@@ -85,36 +100,31 @@ public class FilterChecker {
      * this filter checker instance
      */
     public boolean check(ThreadInfo ti) {
-        boolean result = true;
-        Iterator filterIter = filters.values().iterator();
-        while(result && filterIter.hasNext()) {
-            Filter filter = (Filter) filterIter.next();
-            result = filter.matches(ti);
-        }
-        return(result);
+        return(getFilterChain().check(ti));
     }
     
+    /**
+     * refreshes the filters with the current general filters from the preferences
+     * and checks the given thread info. This compiles the filters again, for checking
+     * a lot of threads get a new checker and use {@link #check(ThreadInfo)} instead.
+     */
     public boolean recheck(ThreadInfo ti) {
-        // reset general filters
-        setGeneralFilters();
-        Iterator iter = filters.values().iterator();
-        
-        // remove disabled filters
-        while(iter.hasNext()) {
-            Filter filter = (Filter) iter.next();
-            if(!filter.isEnabled()) {
-                filters.remove(filter.getName());
-                iter = filters.values().iterator();
-                
+        Map refreshed = new LinkedHashMap();
+        if(filters != null) {
+            // remove disabled filters
+            Iterator iter = filters.values().iterator();
+            while(iter.hasNext()) {
+                Filter filter = (Filter) iter.next();
+                if(filter.isEnabled()) {
+                    refreshed.put(filter.getName(), filter);
+                }
             }
         }
-
+        
         // add new or enabled filters
-        iter = generalFilters.values().iterator();
-        while(iter.hasNext()) {
-            Filter filter = (Filter) iter.next();
-            addToFilters(filter);
-        }
+        refreshed.putAll(getGeneralFilters());
+        filters = refreshed;
+        chain = null;
         return(check(ti));
     }
 }
@@ -0,0 +1,66 @@
+package de.grimmfrost.tda.mcp;
+
+import de.grimmfrost.tda.model.CallTree;
+import de.grimmfrost.tda.utils.LogManager;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Command line export of the stacks of thread dump logs in the folded format of
+ * flame graph tools, e.g. for piping into flamegraph.pl:
+ * <pre>
+ * java -jar tda.jar --folded [--state RUNNABLE] [--output out.folded] dumps.log...
+ * </pre>
+ * The folded stacks are written to stdout if no output file is given.
+ */
+public class FoldedStackExporter {
+    private static final Logger LOGGER = LogManager.getLogger(FoldedStackExporter.class);
+
+    public static void main(String[] args) {
+        LogManager.init();
+        System.setProperty("java.awt.headless", "true");
+
+        String state = null;
+        String output = null;
+        List<String> logFiles = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--state".equals(args[i]) && i + 1 < args.length) {
+                state = args[++i];
+            } else if ("--output".equals(args[i]) && i + 1 < args.length) {
+                output = args[++i];
+            } else {
+                logFiles.add(args[i]);
+            }
+        }
+        if (logFiles.isEmpty()) {
+            System.err.println("usage: --folded [--state <thread state>] [--output <file>] <logfile>...");
+            System.exit(1);
+        }
+
+        try {
+            HeadlessAnalysisProvider provider = new HeadlessAnalysisProvider();
+            for (String logFile : logFiles) {
+                provider.parseLogFile(logFile);
+            }
+            OutputStream stream = output != null ? new FileOutputStream(output) : System.out;
+            Writer out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+            CallTree tree = provider.exportFoldedStacks(out, state);
+            if (output != null) {
+                out.close();
+            }
+            LOGGER.info("Exported " + tree.getThreadCount() + " samples with " + (tree.size() - 1) + " frames");
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error exporting folded stacks", e);
+            System.exit(1);
+        }
+    }
+}
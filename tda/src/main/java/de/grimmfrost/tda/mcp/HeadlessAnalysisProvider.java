@@ -1,17 +1,27 @@
 package de.grimmfrost.tda.mcp;
 
 import de.grimmfrost.tda.*;
+import de.grimmfrost.tda.model.BlockerInfo;
+import de.grimmfrost.tda.model.CallTree;
 import de.grimmfrost.tda.model.Category;
+import de.grimmfrost.tda.model.HotThreadInfo;
+import de.grimmfrost.tda.model.StackCluster;
 import de.grimmfrost.tda.model.ThreadDumpInfo;
 import de.grimmfrost.tda.model.ThreadInfo;
+import de.grimmfrost.tda.model.ThreadStateCounts;
+import de.grimmfrost.tda.model.ThreadTimeline;
+import de.grimmfrost.tda.model.VirtualThreadGroup;
+import de.grimmfrost.tda.parser.AbstractDumpParser;
 import de.grimmfrost.tda.parser.DumpParser;
 import de.grimmfrost.tda.parser.DumpParserFactory;
 import de.grimmfrost.tda.parser.SunJDKParser;
+import de.grimmfrost.tda.parser.ThreadSearchIndex;
 import de.grimmfrost.tda.utils.DateMatcher;
 import de.grimmfrost.tda.utils.LogManager;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.TreePath;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -21,8 +31,16 @@ import java.util.logging.Logger;
  */
 public class HeadlessAnalysisProvider {
     private static final Logger LOGGER = LogManager.getLogger(HeadlessAnalysisProvider.class);
-    private final Map<String, Map<String, String>> threadStore = new HashMap<>();
+    private static final int MAX_VIRTUAL_THREAD_GROUPS = 20;
+    private static final int MAX_TOP_BLOCKERS = 10;
+    private static final int MAX_HOT_THREADS = 10;
+    private static final int MAX_STACK_CLUSTERS = 20;
+    private static final int MAX_CLUSTER_MEMBERS = 20;
+    private static final int MAX_HOT_FRAMES = 20;
+    private static final int MAX_CALL_PATH = 10;
+    private static final int MAX_SEARCH_HITS = 200;
     private final List<DefaultMutableTreeNode> topNodes = new ArrayList<>();
+    private final ThreadSearchIndex searchIndex = new ThreadSearchIndex();
     private String currentLogFile;
 
     public void parseLogFile(String filePath) throws IOException {
@@ -34,14 +52,18 @@ public class HeadlessAnalysisProvider {
         }
 
         try (FileInputStream fis = new FileInputStream(file)) {
-            DumpParser parser = DumpParserFactory.get().getDumpParserForLogfile(fis, threadStore, false, 0);
+            DumpParser parser = DumpParserFactory.get().getDumpParserForFile(file, fis, 0);
             if (parser == null) {
                 throw new IOException("No suitable parser found for log file: " + filePath);
             }
 
-            while (parser.hasMoreDumps()) {
-                DefaultMutableTreeNode node = (DefaultMutableTreeNode) parser.parseNext();
-                topNodes.add(node);
+            try {
+                while (parser.hasMoreDumps()) {
+                    DefaultMutableTreeNode node = (DefaultMutableTreeNode) parser.parseNext();
+                    topNodes.add(node);
+                }
+            } finally {
+                parser.close();
             }
         }
     }
@@ -57,6 +79,7 @@ public class HeadlessAnalysisProvider {
             info.put("time", tdi.getStartTime());
             info.put("threadCount", tdi.getThreads() != null ? tdi.getThreads().getNodeCount() : 0);
             info.put("deadlockCount", tdi.getDeadlocks() != null ? tdi.getDeadlocks().getNodeCount() : 0);
+            info.put("lockCycleCount", tdi.getLockCycles() != null ? tdi.getLockCycles().getNodeCount() : 0);
             if (tdi.getSmrInfo() != null) {
                 info.put("smrInfo", tdi.getSmrInfo());
             }
@@ -72,6 +95,11 @@ public class HeadlessAnalysisProvider {
             if (tdi.getDeadlocks() != null && tdi.getDeadlocks().getNodeCount() > 0) {
                 results.add("Deadlock found in dump '" + tdi.getName() + "': " + tdi.getDeadlocks().getName());
             }
+            if (tdi.getLockCycles() != null) {
+                for (int i = 0; i < tdi.getLockCycles().getNodeCount(); i++) {
+                    results.add("Lock cycle found in dump '" + tdi.getName() + "': " + getLockCycleDescription(tdi.getLockCycles().getNodeAt(i)));
+                }
+            }
         }
         if (results.isEmpty()) {
             results.add("No deadlocks found in " + topNodes.size() + " dumps.");
@@ -79,6 +107,18 @@ public class HeadlessAnalysisProvider {
         return results;
     }
 
+    /**
+     * describe a cycle found in the wait-for graph by the names of the threads in the cycle.
+     */
+    private String getLockCycleDescription(DefaultMutableTreeNode cycleNode) {
+        StringBuilder description = new StringBuilder(cycleNode.getUserObject().toString()).append(" (");
+        for (int i = 0; i < cycleNode.getChildCount(); i++) {
+            ThreadInfo ti = (ThreadInfo) ((DefaultMutableTreeNode) cycleNode.getChildAt(i)).getUserObject();
+            description.append(i > 0 ? " -> " : "").append(ti.getName());
+        }
+        return description.append(")").toString();
+    }
+
     public List<String> findLongRunningThreads() {
         if (topNodes.size() < 2) {
             return Collections.singletonList("At least two dumps are required to find long running threads.");
@@ -101,10 +141,10 @@ public class HeadlessAnalysisProvider {
         
         // We need a parser instance to call findLongRunningThreads
         // Let's use any SunJDKParser
-        SunJDKParser dummyParser = new SunJDKParser(null, threadStore, 0, false, 0, new DateMatcher());
+        SunJDKParser dummyParser = new SunJDKParser(null, 0, false, 0, new DateMatcher());
         
         DefaultMutableTreeNode longRunningRoot = new DefaultMutableTreeNode("Long Running Threads");
-        dummyParser.findLongRunningThreads(longRunningRoot, threadStore, paths, topNodes.size(), null);
+        dummyParser.findLongRunningThreads(longRunningRoot, paths, topNodes.size(), null);
 
         List<String> results = new ArrayList<>();
         if (longRunningRoot.getChildCount() == 0) {
@@ -132,13 +172,22 @@ public class HeadlessAnalysisProvider {
                 for (int i = 0; i < threadCount; i++) {
                     DefaultMutableTreeNode threadNode = (DefaultMutableTreeNode) threadsCat.getNodeAt(i);
                     ThreadInfo ti = (ThreadInfo) threadNode.getUserObject();
-                    if (ti.getContent().contains("carrier thread seems to be stuck in application code")) {
+                    if (ti.getStackText().contains("carrier thread seems to be stuck in application code")) {
                         stuckCarrierThreads++;
                         results.add("Stuck carrier thread in dump '" + tdi.getName() + "': " + ti.getName());
                     }
                 }
             }
             totalStuck += stuckCarrierThreads;
+
+            Category groupsCat = tdi.getVirtualThreadGroups();
+            if (groupsCat != null) {
+                int groupCount = Math.min(groupsCat.getNodeCount(), MAX_VIRTUAL_THREAD_GROUPS);
+                for (int i = 0; i < groupCount; i++) {
+                    VirtualThreadGroup group = (VirtualThreadGroup) groupsCat.getNodeAt(i).getUserObject();
+                    results.add("Virtual thread group in dump '" + tdi.getName() + "': " + group.getName());
+                }
+            }
         }
 
         if (totalStuck == 0) {
@@ -147,6 +196,267 @@ public class HeadlessAnalysisProvider {
         return results;
     }
 
+    /**
+     * rank the threads blocking other threads per dump and over all parsed dumps.
+     */
+    public List<Map<String, Object>> findTopBlockers() {
+        List<Map<String, Object>> results = new ArrayList<>();
+        List<ThreadDumpInfo> tdis = getDumps();
+        for (ThreadDumpInfo tdi : tdis) {
+            Category topBlockers = tdi.getTopBlockers();
+            int count = topBlockers != null ? Math.min(topBlockers.getNodeCount(), MAX_TOP_BLOCKERS) : 0;
+            for (int i = 0; i < count; i++) {
+                results.add(getBlockerInfo(tdi.getName(), (BlockerInfo) topBlockers.getNodeAt(i).getUserObject()));
+            }
+        }
+        if (tdis.size() > 1) {
+            List<BlockerInfo> series = AbstractDumpParser.rankBlockers(tdis);
+            for (int i = 0; i < Math.min(series.size(), MAX_TOP_BLOCKERS); i++) {
+                results.add(getBlockerInfo("all dumps", series.get(i)));
+            }
+        }
+        return results;
+    }
+
+    private Map<String, Object> getBlockerInfo(String dump, BlockerInfo blocker) {
+        Map<String, Object> info = new HashMap<>();
+        info.put("dump", dump);
+        info.put("thread", blocker.getThread());
+        info.put("blockedThreads", blocker.getBlockedCount());
+        info.put("directlyBlockedThreads", blocker.getDirectlyBlockedCount());
+        if (blocker.getDumpCount() > 0) {
+            info.put("dumpCount", blocker.getDumpCount());
+        }
+        return info;
+    }
+
+    /**
+     * rank the threads by the cpu time they consumed between consecutive dumps, the
+     * threads using the most cpu per interval first.
+     */
+    public List<Map<String, Object>> findHotThreads() {
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (HotThreadInfo hotThread : AbstractDumpParser.rankHotThreads(getDumps(), MAX_HOT_THREADS)) {
+            Map<String, Object> info = new HashMap<>();
+            info.put("interval", hotThread.getInterval());
+            info.put("thread", hotThread.getThread());
+            info.put("cpuMillis", hotThread.getCpuMillis());
+            info.put("elapsedSeconds", hotThread.getElapsedSeconds());
+            info.put("cpuUsagePercent", hotThread.getCpuUsage());
+            results.add(info);
+        }
+        return results;
+    }
+
+    /**
+     * group the threads of a dump or of all parsed dumps by their stacks, the biggest clusters first.
+     * @param dumpIndex the index of the dump, -1 for all dumps.
+     * @param ignoreVersions if true, line numbers, class loaders and module versions of the frames are ignored.
+     */
+    public List<Map<String, Object>> clusterStacks(int dumpIndex, boolean ignoreVersions) {
+        if (dumpIndex < -1 || dumpIndex >= topNodes.size()) {
+            throw new IllegalArgumentException("Invalid dump index: " + dumpIndex);
+        }
+        List<ThreadDumpInfo> tdis = new ArrayList<>();
+        for (int i = 0; i < topNodes.size(); i++) {
+            if (dumpIndex < 0 || dumpIndex == i) {
+                tdis.add((ThreadDumpInfo) topNodes.get(i).getUserObject());
+            }
+        }
+        List<StackCluster> clusters = AbstractDumpParser.clusterStacks(tdis, ignoreVersions, ignoreVersions);
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (StackCluster cluster : clusters.subList(0, Math.min(clusters.size(), MAX_STACK_CLUSTERS))) {
+            Map<String, Object> info = new HashMap<>();
+            info.put("threads", cluster.getThreadCount());
+            info.put("dumps", cluster.getDumpCount());
+            info.put("states", cluster.getStates());
+            info.put("topFrame", cluster.getTopFrame());
+            info.put("members", new ArrayList<>(cluster.getMembers().keySet()).subList(0, Math.min(cluster.getMembers().size(), MAX_CLUSTER_MEMBERS)));
+            info.put("stack", cluster.getStack() != null ? cluster.getStack().toString() : "");
+            results.add(info);
+        }
+        return results;
+    }
+
+    /**
+     * merge the stacks of all parsed dumps into a call tree and get the frames most
+     * samples end in, with the callers leading to them.
+     * @param state only threads in this state (e.g. RUNNABLE) are sampled, null for all threads.
+     */
+    public List<Map<String, Object>> getHotFrames(String state) {
+        CallTree tree = AbstractDumpParser.buildCallTree(getDumps(), state);
+        Integer[] nodes = new Integer[tree.size() - 1];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = i + 1;
+        }
+        Arrays.sort(nodes, (n1, n2) -> Integer.compare(tree.getExclusiveCount(n2), tree.getExclusiveCount(n1)));
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (int i = 0; i < Math.min(nodes.length, MAX_HOT_FRAMES) && tree.getExclusiveCount(nodes[i]) > 0; i++) {
+            int node = nodes[i];
+            Map<String, Object> info = new HashMap<>();
+            info.put("frame", tree.getFrame(node));
+            info.put("selfSamples", tree.getExclusiveCount(node));
+            info.put("samples", tree.getInclusiveCount(node));
+            info.put("selfPercent", tree.getExclusiveCount(node) * 100.0 / tree.getThreadCount());
+            List<String> callers = new ArrayList<>();
+            for (int caller = tree.getParent(node); caller != CallTree.ROOT && callers.size() < MAX_CALL_PATH; caller = tree.getParent(caller)) {
+                callers.add(tree.getFrame(caller));
+            }
+            info.put("callers", callers);
+            results.add(info);
+        }
+        return results;
+    }
+
+    /**
+     * write the stacks of all parsed dumps in the collapsed ("folded") format of flame
+     * graph tools. Identical call paths are merged in a call tree first, so the memory
+     * needed depends on the amount of different call paths, not on the amount of threads.
+     * @param out the writer to stream the lines to.
+     * @param state only threads in this state (e.g. RUNNABLE) are exported, null for all threads.
+     * @return the call tree which was written.
+     */
+    public CallTree exportFoldedStacks(Writer out, String state) throws IOException {
+        CallTree tree = AbstractDumpParser.buildCallTree(getDumps(), state);
+        tree.writeFolded(out);
+        out.flush();
+        return tree;
+    }
+
+    /**
+     * write the stacks of all parsed dumps as folded stacks into a file.
+     * @param path the file to write.
+     * @param state only threads in this state are exported, null for all threads.
+     */
+    public Map<String, Object> exportFoldedStacks(String path, String state) throws IOException {
+        CallTree tree;
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8))) {
+            tree = exportFoldedStacks(out, state);
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("file", path);
+        result.put("samples", tree.getThreadCount());
+        result.put("frames", tree.size() - 1);
+        return result;
+    }
+
+    /**
+     * find the threads of all parsed dumps by their names, the classes and methods of
+     * their frames and the classes of their locks. The dumps are indexed on the first
+     * search, all terms of the query have to match the start of a token.
+     * @param query the search terms separated by whitespace, e.g. "pool SocketInputStream.read".
+     */
+    public List<Map<String, Object>> searchThreads(String query) {
+        for (DefaultMutableTreeNode dump : searchIndex.update(topNodes)) {
+            searchIndex.addDump(dump);
+        }
+        List<ThreadSearchIndex.Hit> hits = searchIndex.search(query);
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (int i = 0; i < Math.min(hits.size(), MAX_SEARCH_HITS); i++) {
+            ThreadInfo thread = hits.get(i).getThread();
+            Map<String, Object> info = new HashMap<>();
+            info.put("dumpName", ((ThreadDumpInfo) hits.get(i).getDump().getUserObject()).getName());
+            info.put("dumpIndex", topNodes.indexOf(hits.get(i).getDump()));
+            info.put("threadName", thread.getHeader() != null ? thread.getHeader().getName() : thread.getName());
+            info.put("state", ThreadStateCounts.getThreadState(thread));
+            results.add(info);
+        }
+        return results;
+    }
+
+    /**
+     * get the thread states and the other counts of every parsed dump, in dump order.
+     */
+    public List<Map<String, Object>> getStateSeries() {
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (ThreadStateCounts counts : AbstractDumpParser.countStates(getDumps())) {
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("dump", counts.getDump());
+            info.put("time", counts.getTime());
+            long millis = counts.getTimeMillis();
+            info.put("timeMillis", millis >= 0 ? millis : null);
+            for (int i = 0; i < ThreadStateCounts.COUNT_NAMES.length; i++) {
+                info.put(ThreadStateCounts.COUNT_NAMES[i], counts.getCount(i));
+            }
+            results.add(info);
+        }
+        return results;
+    }
+
+    /**
+     * write the thread states of all parsed dumps as csv or json.
+     * @param out the writer to write to.
+     * @param format "json" or "csv".
+     */
+    public void exportStateSeries(Writer out, String format) throws IOException {
+        List<ThreadStateCounts> series = AbstractDumpParser.countStates(getDumps());
+        if ("json".equalsIgnoreCase(format)) {
+            ThreadStateCounts.writeJson(series, out);
+        } else {
+            ThreadStateCounts.writeCsv(series, out);
+        }
+        out.flush();
+    }
+
+    /**
+     * write the thread states of all parsed dumps into a file.
+     * @param path the file to write.
+     * @param format "json" or "csv", null for choosing it by the suffix of the file.
+     */
+    public Map<String, Object> exportStateSeries(String path, String format) throws IOException {
+        if (format == null) {
+            format = path.toLowerCase(Locale.ROOT).endsWith(".json") ? "json" : "csv";
+        }
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8))) {
+            exportStateSeries(out, format);
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("file", path);
+        result.put("format", format.toLowerCase(Locale.ROOT));
+        result.put("dumps", topNodes.size());
+        return result;
+    }
+
+    private List<ThreadDumpInfo> getDumps() {
+        List<ThreadDumpInfo> tdis = new ArrayList<>();
+        for (DefaultMutableTreeNode node : topNodes) {
+            tdis.add((ThreadDumpInfo) node.getUserObject());
+        }
+        return tdis;
+    }
+
+    /**
+     * get what the threads with the passed name did over all parsed dumps. Threads are
+     * identified by their thread id and native id, so a thread renamed in between is
+     * still followed and threads sharing the name are listed separately.
+     */
+    public List<Map<String, Object>> getThreadTimeline(String threadName) {
+        List<ThreadDumpInfo> tdis = getDumps();
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (ThreadTimeline timeline : AbstractDumpParser.buildTimelines(tdis).values()) {
+            boolean found = false;
+            for (int i = 0; i < timeline.size() && !found; i++) {
+                found = threadName.equals(timeline.getName(i));
+            }
+            for (int i = 0; found && i < timeline.size(); i++) {
+                Map<String, Object> entry = new HashMap<>();
+                entry.put("thread", timeline.getIdentity());
+                entry.put("dump", tdis.get(timeline.getDump(i)).getName());
+                entry.put("name", timeline.getName(i));
+                entry.put("state", timeline.getState(i));
+                if (timeline.getCpuMillis(i) >= 0) {
+                    entry.put("cpuMillis", timeline.getCpuMillis(i));
+                }
+                if (timeline.getElapsedSeconds(i) >= 0) {
+                    entry.put("elapsedSeconds", timeline.getElapsedSeconds(i));
+                }
+                entry.put("stackChanged", i > 0 && timeline.getFingerprint(i) != timeline.getFingerprint(i - 1));
+                results.add(entry);
+            }
+        }
+        return results;
+    }
+
     public List<Map<String, String>> getNativeThreads(int dumpIndex) {
         if (dumpIndex < 0 || dumpIndex >= topNodes.size()) {
             throw new IllegalArgumentException("Invalid dump index: " + dumpIndex);
@@ -187,7 +497,7 @@ public class HeadlessAnalysisProvider {
                 DefaultMutableTreeNode threadNode = cat.getNodeAt(i);
                 if (threadNode != null) {
                     ThreadInfo ti = (ThreadInfo) threadNode.getUserObject();
-                    String content = ti.getContent();
+                    String content = ti.getStackText();
                     
                     if (content.contains("Native Method")) {
                         Map<String, String> threadMap = new HashMap<>();
@@ -214,7 +524,6 @@ public class HeadlessAnalysisProvider {
     }
 
     public void clear() {
-        threadStore.clear();
         topNodes.clear();
         currentLogFile = null;
     }
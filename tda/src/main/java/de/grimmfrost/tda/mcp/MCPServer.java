@@ -94,11 +94,41 @@ public class MCPServer {
             
         tools.add(createTool("get_summary", "Returns a summary of all parsed thread dumps.", new JsonObject()));
         
-        tools.add(createTool("check_deadlocks", "Checks for deadlocks in the parsed thread dumps.", new JsonObject()));
+        tools.add(createTool("check_deadlocks", "Checks for deadlocks in the parsed thread dumps, including lock cycles found in the wait-for graph of the monitors.", new JsonObject()));
+        
+        tools.add(createTool("find_top_blockers", "Ranks the threads blocking other threads by the amount of threads they block directly or transitively, per thread dump and over all thread dumps.", new JsonObject()));
         
         tools.add(createTool("find_long_running", "Identifies threads that appear in multiple consecutive thread dumps.", new JsonObject()));
         
-        tools.add(createTool("analyze_virtual_threads", "Detects virtual threads where the carrier thread is stuck in application code.", new JsonObject()));
+        tools.add(createTool("find_hot_threads", "Ranks the threads by the cpu time they consumed between consecutive thread dumps, computed from the cpu= and elapsed= values of the thread titles (JDK 11 and later). Finds spinning threads without a profiler.", new JsonObject()));
+        
+        JsonObject clusterProperties = createProperty("dump_index", "integer", "The index of the thread dump as retrieved from get_summary, omit to cluster all thread dumps together.");
+        clusterProperties.add("ignore_versions", createProperty("ignore_versions", "boolean", "Ignore line numbers, class loaders and module versions of the frames (default true).").get("ignore_versions"));
+        tools.add(createTool("cluster_stacks", "Groups the threads by their stacks (without lock annotations) and returns the biggest clusters with thread count, states and member threads. Shows what most threads are doing at a glance.",
+            clusterProperties));
+        
+        tools.add(createTool("get_hot_frames", "Merges the stacks of all thread dumps into a call tree, every thread being a sample, and returns the frames most samples end in with their callers. A series of dumps taken every few seconds shows where the cpu time goes without a profiler.",
+            createProperty("state", "string", "Only sample threads in this state, e.g. RUNNABLE. Omit to sample all threads.")));
+        
+        JsonObject exportProperties = createProperty("path", "string", "The absolute path of the file to write.");
+        exportProperties.add("state", createProperty("state", "string", "Only export threads in this state, e.g. RUNNABLE. Omit to export all threads.").get("state"));
+        tools.add(createTool("export_folded_stacks", "Writes the stacks of all threads of the parsed thread dumps in the folded format (frameA;frameB;frameC count) used by flame graph tools into a file.",
+            exportProperties));
+        
+        tools.add(createTool("search_threads", "Finds the threads of all thread dumps by their name, the classes and methods of their frames or the classes of their locks. Every search term has to match the start of a name, a class (also without package), a method (e.g. SocketInputStream.read) or a lock address. Returns at most 200 threads.",
+            createProperty("query", "string", "The search terms separated by whitespace, the case is ignored.")));
+        
+        tools.add(createTool("get_state_series", "Returns per thread dump the time and the amount of RUNNABLE, BLOCKED, WAITING and TIMED_WAITING threads, of virtual threads, of monitors without owner and of deadlocks. Useful for correlating a capture with latency spikes.", new JsonObject()));
+        
+        JsonObject seriesProperties = createProperty("path", "string", "The absolute path of the file to write.");
+        seriesProperties.add("format", createProperty("format", "string", "csv or json. Omit to choose it by the suffix of the file.").get("format"));
+        tools.add(createTool("export_state_series", "Writes the thread state counts of all parsed thread dumps as csv or json into a file, one row per thread dump.",
+            seriesProperties));
+        
+        tools.add(createTool("get_thread_timeline", "Returns state, cpu time, elapsed time and whether the stack changed for every thread dump a thread appears in. Threads are followed by their thread id and native id, also if they are renamed.",
+            createProperty("thread_name", "string", "The name of the thread as shown in the thread dump.")));
+        
+        tools.add(createTool("analyze_virtual_threads", "Detects virtual threads where the carrier thread is stuck in application code and lists the biggest groups of virtual threads with the same stack.", new JsonObject()));
         
         tools.add(createTool("get_native_threads", "Returns a list of all threads currently in a native method for a specific thread dump.", 
             createProperty("dump_index", "integer", "The index of the thread dump as retrieved from get_summary.")));
@@ -158,8 +188,29 @@ public class MCPServer {
                 return provider.getDumpsSummary();
             case "check_deadlocks":
                 return provider.checkForDeadlocks();
+            case "find_top_blockers":
+                return provider.findTopBlockers();
             case "find_long_running":
                 return provider.findLongRunningThreads();
+            case "find_hot_threads":
+                return provider.findHotThreads();
+            case "cluster_stacks":
+                return provider.clusterStacks(params.has("dump_index") ? params.get("dump_index").getAsInt() : -1,
+                        !params.has("ignore_versions") || params.get("ignore_versions").getAsBoolean());
+            case "get_hot_frames":
+                return provider.getHotFrames(params.has("state") ? params.get("state").getAsString() : null);
+            case "export_folded_stacks":
+                return provider.exportFoldedStacks(params.get("path").getAsString(),
+                        params.has("state") ? params.get("state").getAsString() : null);
+            case "search_threads":
+                return provider.searchThreads(params.get("query").getAsString());
+            case "get_state_series":
+                return provider.getStateSeries();
+            case "export_state_series":
+                return provider.exportStateSeries(params.get("path").getAsString(),
+                        params.has("format") ? params.get("format").getAsString() : null);
+            case "get_thread_timeline":
+                return provider.getThreadTimeline(params.get("thread_name").getAsString());
             case "analyze_virtual_threads":
                 return provider.analyzeVirtualThreads();
             case "get_native_threads":
@@ -19,6 +19,7 @@
  */
 package de.grimmfrost.tda.model;
 
+import de.grimmfrost.tda.filter.FilterChain;
 import de.grimmfrost.tda.filter.FilterChecker;
 import de.grimmfrost.tda.utils.IconFactory;
 import de.grimmfrost.tda.utils.PrefManager;
@@ -74,6 +75,10 @@ public abstract class AbstractCategory extends AbstractInfo implements Category
         return(IconFactory.get().getIconFor(iconID));
     }
     
+    public int getIconID() {
+        return(iconID);
+    }
+
     public void setIconID(int iconID) {
         this.iconID = iconID;
     }
@@ -145,9 +150,11 @@ public abstract class AbstractCategory extends AbstractInfo implements Category
     protected DefaultMutableTreeNode filterNodes(DefaultMutableTreeNode rootNode) {
         setFilteredRootNode(new DefaultMutableTreeNode("root"));
         if(rootNode != null) {
+            // the filters are compiled once and not looked up again for every thread.
+            FilterChain chain = getFilterChecker().getFilterChain();
             for(int i = 0; i < rootNode.getChildCount(); i++) {
                 DefaultMutableTreeNode childNode = (DefaultMutableTreeNode) rootNode.getChildAt(i);
-                if(getFilterChecker().recheck((ThreadInfo) childNode.getUserObject())) {
+                if(chain.check((ThreadInfo) childNode.getUserObject())) {
                     // node needs to be cloned as it is otherwise removed from rootNode.
                     DefaultMutableTreeNode newChild = new DefaultMutableTreeNode(childNode.getUserObject());    
                     getFilteredRootNode().add(newChild);
@@ -168,7 +175,7 @@ public abstract class AbstractCategory extends AbstractInfo implements Category
         this.filterChecker = filterChecker;
     }
 
-    protected boolean isFilterEnabled() {
+    public boolean isFilterEnabled() {
         return filterEnabled;
     }
 
@@ -0,0 +1,104 @@
+/*
+ * BlockerInfo.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.model;
+
+/**
+ * A thread owning monitors other threads wait for, with the amount of threads
+ * it blocks directly and transitively (threads waiting for threads it blocks).
+ * For a series of dumps the counts of all dumps are summed up.
+ *
+ * @author irockel
+ */
+public class BlockerInfo extends ThreadInfo {
+    private final String thread;
+    private int blockedCount;
+    private int directlyBlockedCount;
+    private int dumpCount;
+
+    /**
+     * @param thread the title of the blocking thread.
+     * @param header the parsed title, identifies the thread in a series of dumps.
+     * @param stack the stack of the blocking thread.
+     * @param blockedCount the amount of threads blocked directly or transitively.
+     * @param directlyBlockedCount the amount of threads waiting for monitors owned by the thread.
+     */
+    public BlockerInfo(String thread, ThreadHeader header, ThreadStack stack, int blockedCount, int directlyBlockedCount) {
+        super(thread, null, null, stack != null ? stack.getLineCount() + 1 : 0, null);
+        this.thread = thread;
+        this.blockedCount = blockedCount;
+        this.directlyBlockedCount = directlyBlockedCount;
+        setHeader(header);
+        setStack(stack);
+    }
+
+    /**
+     * add the counts of the same thread in another dump of a series.
+     * @param blocker the thread in the other dump, its stack is displayed from now on.
+     */
+    public void addDump(BlockerInfo blocker) {
+        blockedCount += blocker.blockedCount;
+        directlyBlockedCount += blocker.directlyBlockedCount;
+        dumpCount++;
+        if (blocker.getStack() != null) {
+            setStack(blocker.getStack());
+            setStackLines(blocker.getStackLines());
+        }
+    }
+
+    public String getThread() {
+        return thread;
+    }
+
+    public int getBlockedCount() {
+        return blockedCount;
+    }
+
+    public int getDirectlyBlockedCount() {
+        return directlyBlockedCount;
+    }
+
+    /**
+     * get the amount of dumps of a series the thread blocked other threads in.
+     * @return 0 if this is the info of a single dump.
+     */
+    public int getDumpCount() {
+        return dumpCount;
+    }
+
+    /**
+     * the table shows the thread name and the counts, for a series also the amount of dumps.
+     */
+    public String[] getTokens() {
+        String name = getQuotedName(thread);
+        if (dumpCount > 0) {
+            return new String[] {name, String.valueOf(blockedCount), String.valueOf(directlyBlockedCount), String.valueOf(dumpCount)};
+        }
+        return new String[] {name, String.valueOf(blockedCount), String.valueOf(directlyBlockedCount)};
+    }
+
+    /**
+     * the name is created on request, as the counts change while summing up a series.
+     */
+    public String getName() {
+        return thread + ": blocks " + blockedCount + " thread(s), " + directlyBlockedCount + " directly"
+                + (dumpCount > 0 ? " in " + dumpCount + " dump(s)" : "");
+    }
+}
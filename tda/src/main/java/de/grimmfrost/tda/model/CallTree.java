@@ -0,0 +1,352 @@
+/*
+ * CallTree.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.model;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Frame trie of the stacks of a series of dumps. A series of dumps taken every
+ * few seconds is a sampling profile with a low frequency: every thread is a
+ * sample, its frames are added from the bottom (Thread.run()) to the top, so
+ * threads sharing their callers share their nodes. Every node counts the samples
+ * passing it (inclusive) and the samples ending in it (exclusive).
+ * <p>
+ * The nodes are stored in primitive arrays, the children of a node are found
+ * in an open addressing index of (parent, frame id), so dumps can be added one
+ * after the other while they are parsed. Node 0 is the root without a frame.
+ *
+ * @author irockel
+ */
+public class CallTree {
+    public static final int ROOT = 0;
+
+    private static final String STATE_PREFIX = "java.lang.Thread.State:";
+
+    private static final byte LINE_UNKNOWN = 0;
+    private static final byte LINE_FRAME = 1;
+    private static final byte LINE_STATE = 2;
+    private static final byte LINE_OTHER = 3;
+
+    private final FrameDictionary dictionary;
+    private final String state;
+
+    private int[] parents = new int[64];
+    private int[] frames = new int[64];
+    private int[] inclusive = new int[64];
+    private int[] exclusive = new int[64];
+    private int[] depths = new int[64];
+    // children are linked from their parent, 0 terminates as the root is nobody's child.
+    private int[] firstChildren = new int[64];
+    private int[] nextSiblings = new int[64];
+    private int nodeCount = 1;
+    private int maxDepth;
+    private int threadCount;
+
+    // open addressing index of the children, slots contain node + 1.
+    private int[] slots = new int[128];
+
+    // kind of the lines of the dictionary by id, to classify every line only once.
+    private byte[] lineKinds = new byte[1024];
+    private int[] path = new int[64];
+
+    /**
+     * @param dictionary the dictionary of the frames, stacks of other dictionaries are interned into it.
+     * @param state only threads in this state (e.g. RUNNABLE) are added, null for all threads.
+     */
+    public CallTree(FrameDictionary dictionary, String state) {
+        this.dictionary = dictionary;
+        this.state = state;
+        frames[ROOT] = -1;
+    }
+
+    /**
+     * get the dictionary of the frames of the tree.
+     */
+    public FrameDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * get the state threads are filtered by, null if all threads are added.
+     */
+    public String getState() {
+        return state;
+    }
+
+    /**
+     * add a thread as sample, if it matches the state of the tree.
+     * @param thread the thread to add.
+     * @return true if the thread was added.
+     */
+    public boolean addThread(ThreadInfo thread) {
+        ThreadStack stack = thread.getStack();
+        if (stack == null) {
+            return false;
+        }
+        int frameCount = 0;
+        String threadState = null;
+        for (int i = 0; i < stack.getLineCount(); i++) {
+            int id = stack.getLineId(i);
+            if (id < 0) {
+                continue;
+            }
+            if (stack.getDictionary() != dictionary) {
+                id = dictionary.intern(stack.getLine(i));
+            }
+            byte kind = getLineKind(id);
+            if (kind == LINE_FRAME) {
+                if (frameCount == path.length) {
+                    path = Arrays.copyOf(path, frameCount * 2);
+                }
+                path[frameCount++] = id;
+            } else if (kind == LINE_STATE && threadState == null) {
+                threadState = parseState(dictionary.getFrame(id));
+            }
+        }
+        if (threadState == null && thread.getHeader() != null && thread.getHeader().isShortFormat()) {
+            threadState = thread.getHeader().getState();
+        }
+        if (state != null && !state.equalsIgnoreCase(threadState)) {
+            return false;
+        }
+
+        // the frames are printed from the top, the trie starts at the bottom.
+        int node = ROOT;
+        inclusive[ROOT]++;
+        for (int i = frameCount - 1; i >= 0; i--) {
+            node = getChild(node, path[i]);
+            inclusive[node]++;
+        }
+        exclusive[node]++;
+        threadCount++;
+        return true;
+    }
+
+    /**
+     * restore a node, e.g. from a session. The parent has to be restored before its children.
+     * @param parent the parent node.
+     * @param frame the frame as returned by {@link #getFrame(int)}.
+     * @param inclusiveCount the amount of samples passing the node.
+     * @param exclusiveCount the amount of samples ending in the node.
+     * @return the node.
+     */
+    public int restoreNode(int parent, String frame, int inclusiveCount, int exclusiveCount) {
+        int node = getChild(parent, dictionary.intern("\tat " + frame));
+        inclusive[node] = inclusiveCount;
+        exclusive[node] = exclusiveCount;
+        return node;
+    }
+
+    /**
+     * restore the sample counts of the root, e.g. from a session.
+     */
+    public void restoreRoot(int threadCount, int exclusiveCount) {
+        this.threadCount = threadCount;
+        inclusive[ROOT] = threadCount;
+        exclusive[ROOT] = exclusiveCount;
+    }
+
+    /**
+     * get the amount of added threads (samples).
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * get the amount of nodes including the root.
+     */
+    public int size() {
+        return nodeCount;
+    }
+
+    /**
+     * get the depth of the deepest node, the root has depth 0.
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public int getParent(int node) {
+        return parents[node];
+    }
+
+    public int getDepth(int node) {
+        return depths[node];
+    }
+
+    /**
+     * get the frame of a node without the leading "at ".
+     * @return the frame or null for the root.
+     */
+    public String getFrame(int node) {
+        if (node == ROOT) {
+            return null;
+        }
+        String line = dictionary.getFrame(frames[node]).trim();
+        return line.substring(3);
+    }
+
+    /**
+     * get the amount of samples passing the node.
+     */
+    public int getInclusiveCount(int node) {
+        return inclusive[node];
+    }
+
+    /**
+     * get the amount of samples ending in the node.
+     */
+    public int getExclusiveCount(int node) {
+        return exclusive[node];
+    }
+
+    /**
+     * get the children of a node, the child with the most samples first.
+     */
+    public int[] getChildren(int node) {
+        int count = 0;
+        for (int child = firstChildren[node]; child != 0; child = nextSiblings[child]) {
+            count++;
+        }
+        Integer[] children = new Integer[count];
+        count = 0;
+        for (int child = firstChildren[node]; child != 0; child = nextSiblings[child]) {
+            children[count++] = child;
+        }
+        Arrays.sort(children, (c1, c2) -> Integer.compare(inclusive[c2], inclusive[c1]));
+        int[] sorted = new int[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = children[i];
+        }
+        return sorted;
+    }
+
+    /**
+     * write the tree in the collapsed ("folded") format of flame graph tools, one line
+     * per call path samples end in: the frames from the bottom to the top separated by
+     * semicolons, followed by the amount of samples. The lines are written while walking
+     * the tree, samples without frames are left out.
+     * @param out the writer to write to.
+     * @return the amount of lines written.
+     */
+    public int writeFolded(Writer out) throws IOException {
+        int lines = 0;
+        StringBuilder path = new StringBuilder();
+        int[] pathLengths = new int[maxDepth + 1];
+        int node = firstChildren[ROOT];
+        while (node != 0) {
+            int depth = depths[node];
+            path.setLength(depth > 1 ? pathLengths[depth - 1] : 0);
+            if (depth > 1) {
+                path.append(';');
+            }
+            path.append(getFrame(node).replace(';', ','));
+            pathLengths[depth] = path.length();
+            if (exclusive[node] > 0) {
+                out.append(path).append(' ').append(String.valueOf(exclusive[node])).append('\n');
+                lines++;
+            }
+
+            // depth first: the children, then the siblings of the node or of its callers.
+            if (firstChildren[node] != 0) {
+                node = firstChildren[node];
+            } else {
+                while (node != ROOT && nextSiblings[node] == 0) {
+                    node = parents[node];
+                }
+                node = node != ROOT ? nextSiblings[node] : 0;
+            }
+        }
+        return lines;
+    }
+
+    private int getChild(int parent, int frame) {
+        int mask = slots.length - 1;
+        int slot = hash(parent, frame) & mask;
+        while (slots[slot] != 0) {
+            int node = slots[slot] - 1;
+            if (parents[node] == parent && frames[node] == frame) {
+                return node;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (nodeCount == parents.length) {
+            parents = Arrays.copyOf(parents, nodeCount * 2);
+            frames = Arrays.copyOf(frames, nodeCount * 2);
+            inclusive = Arrays.copyOf(inclusive, nodeCount * 2);
+            exclusive = Arrays.copyOf(exclusive, nodeCount * 2);
+            depths = Arrays.copyOf(depths, nodeCount * 2);
+            firstChildren = Arrays.copyOf(firstChildren, nodeCount * 2);
+            nextSiblings = Arrays.copyOf(nextSiblings, nodeCount * 2);
+        }
+        int node = nodeCount++;
+        parents[node] = parent;
+        frames[node] = frame;
+        depths[node] = depths[parent] + 1;
+        nextSiblings[node] = firstChildren[parent];
+        firstChildren[parent] = node;
+        maxDepth = Math.max(maxDepth, depths[node]);
+        slots[slot] = node + 1;
+        if (nodeCount * 2 > slots.length) {
+            rehash();
+        }
+        return node;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int node = 1; node < nodeCount; node++) {
+            int slot = hash(parents[node], frames[node]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = node + 1;
+        }
+    }
+
+    private static int hash(int parent, int frame) {
+        long h = (((long) parent << 32) | (frame & 0xffffffffL)) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private byte getLineKind(int id) {
+        if (id >= lineKinds.length) {
+            lineKinds = Arrays.copyOf(lineKinds, Math.max(id + 1, lineKinds.length * 2));
+        }
+        if (lineKinds[id] == LINE_UNKNOWN) {
+            String line = dictionary.getFrame(id).trim();
+            lineKinds[id] = line.startsWith("at ") ? LINE_FRAME : line.startsWith(STATE_PREFIX) ? LINE_STATE : LINE_OTHER;
+        }
+        return lineKinds[id];
+    }
+
+    /**
+     * get the state of a "java.lang.Thread.State: WAITING (on object monitor)" line.
+     */
+    private static String parseState(String line) {
+        String text = line.trim().substring(STATE_PREFIX.length()).trim();
+        return text.indexOf(' ') > 0 ? text.substring(0, text.indexOf(' ')) : text;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * CallTreeCategory.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.model;
+
+import de.grimmfrost.tda.utils.FlameGraphPanel;
+import java.util.EventListener;
+import java.util.Locale;
+import javax.swing.JComponent;
+import javax.swing.JScrollPane;
+import javax.swing.JTree;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
+
+/**
+ * Category showing a call tree as tree and as icicle (flame graph). Frames with
+ * less than a thousandth of the samples are left out of the tree.
+ *
+ * @author irockel
+ */
+public class CallTreeCategory extends TreeCategory {
+    private static final double MIN_SHARE = 0.001;
+
+    private final CallTree tree;
+    private transient JComponent view;
+    private transient JTree callTreeView;
+    private transient FlameGraphPanel flameGraph;
+
+    /**
+     * @param name the name of the category.
+     * @param iconID the icon of the category.
+     * @param tree the call tree to show.
+     */
+    public CallTreeCategory(String name, int iconID, CallTree tree) {
+        super(name, iconID, false);
+        this.tree = tree;
+        addNodes();
+    }
+
+    /**
+     * rebuild the nodes after threads were added to the call tree, an already shown
+     * view is updated.
+     */
+    public void refresh() {
+        addNodes();
+        if (view != null) {
+            ((DefaultTreeModel) callTreeView.getModel()).setRoot(getRootNode());
+            flameGraph.revalidate();
+            flameGraph.repaint();
+        }
+    }
+
+    private void addNodes() {
+        setRootNode(new DefaultMutableTreeNode("root"));
+        int minCount = Math.max(1, (int) (tree.getThreadCount() * MIN_SHARE));
+        for (int child : tree.getChildren(CallTree.ROOT)) {
+            if (tree.getInclusiveCount(child) >= minCount) {
+                addToCatNodes(createNode(child, minCount));
+            }
+        }
+        setInfo(String.format(Locale.ROOT, "<body bgcolor=\"ffffff\"><font size=-1>%d samples%s in %d frames, "
+                + "frames with less than %d samples are only shown in the flame graph.</font>", tree.getThreadCount(),
+                tree.getState() != null ? " in state " + tree.getState() : "", tree.size() - 1, minCount));
+    }
+
+    public CallTree getTree() {
+        return tree;
+    }
+
+    private DefaultMutableTreeNode createNode(int node, int minCount) {
+        DefaultMutableTreeNode treeNode = new DefaultMutableTreeNode(new CallTreeNode(tree, node));
+        for (int child : tree.getChildren(node)) {
+            if (tree.getInclusiveCount(child) < minCount) {
+                break;
+            }
+            treeNode.add(createNode(child, minCount));
+        }
+        return treeNode;
+    }
+
+    /**
+     * the call tree and the flame graph are shown in tabs.
+     */
+    public JComponent getCatComponent(EventListener listener) {
+        if (view == null) {
+            callTreeView = (JTree) super.getCatComponent(listener);
+            callTreeView.setShowsRootHandles(true);
+            flameGraph = new FlameGraphPanel(tree);
+            ViewTabs tabs = new ViewTabs();
+            tabs.addTab("Call Tree", new JScrollPane(callTreeView));
+            tabs.addTab("Flame Graph", new JScrollPane(flameGraph));
+            view = tabs;
+        }
+        return view;
+    }
+}
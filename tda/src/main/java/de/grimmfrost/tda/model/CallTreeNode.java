@@ -0,0 +1,96 @@
+/*
+ * CallTreeNode.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.model;
+
+import de.grimmfrost.tda.utils.StackRenderer;
+import java.util.Locale;
+
+/**
+ * A node of a call tree in the tree of a call tree category. The call path from
+ * the root to the node is shown as stack of the node.
+ *
+ * @author irockel
+ */
+public class CallTreeNode extends ThreadInfo {
+    private final CallTree tree;
+    private final int node;
+
+    /**
+     * @param tree the call tree.
+     * @param node the node in the call tree.
+     */
+    public CallTreeNode(CallTree tree, int node) {
+        super(null, null, null, tree.getDepth(node) + 1, null);
+        this.tree = tree;
+        this.node = node;
+    }
+
+    public CallTree getTree() {
+        return tree;
+    }
+
+    public int getNode() {
+        return node;
+    }
+
+    /**
+     * get the share of the samples passing this node of all samples in percent.
+     */
+    public double getShare() {
+        return tree.getThreadCount() > 0 ? tree.getInclusiveCount(node) * 100.0 / tree.getThreadCount() : 0;
+    }
+
+    /**
+     * the name is created on request, as the counts change while dumps are added.
+     */
+    public String getName() {
+        return String.format(Locale.ROOT, "%.1f%% %s (%d samples, %d self)", getShare(), tree.getFrame(node),
+                tree.getInclusiveCount(node), tree.getExclusiveCount(node));
+    }
+
+    public String getInfo() {
+        int parentCount = tree.getInclusiveCount(tree.getParent(node));
+        return String.format(Locale.ROOT, "<body bgcolor=\"ffffff\"><font size=-1><b>%s</b><br>"
+                + "%d of %d samples (%.1f%%) pass this frame, %.1f%% of the samples of its caller, "
+                + "%d samples end in it.<hr></font>", tree.getFrame(node).replace("<", "&lt;").replace(">", "&gt;"),
+                tree.getInclusiveCount(node), tree.getThreadCount(), getShare(),
+                parentCount > 0 ? tree.getInclusiveCount(node) * 100.0 / parentCount : 0, tree.getExclusiveCount(node));
+    }
+
+    /**
+     * the stack is the call path from the root to this node, created on request.
+     */
+    public ThreadStack getStack() {
+        ThreadStack.Builder stack = new ThreadStack.Builder(tree.getDictionary(), "Call path", tree.getDepth(node));
+        for (int current = node; current != CallTree.ROOT; current = tree.getParent(current)) {
+            stack.addFrame("\tat " + tree.getFrame(current));
+        }
+        return stack.build();
+    }
+
+    public String getContent() {
+        return StackRenderer.render(getStack());
+    }
+
+    public String getStackText() {
+        return getStack().toString();
+    }
+}
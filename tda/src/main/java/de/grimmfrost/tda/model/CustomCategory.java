@@ -22,6 +22,7 @@
 package de.grimmfrost.tda.model;
 
 import de.grimmfrost.tda.filter.Filter;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -55,6 +56,14 @@ public class CustomCategory {
         return filters != null ? filters.values().iterator() : null;
     }
 
+    /**
+     * get the filters of this custom category.
+     * @return the filters, null if there are no filters.
+     */
+    public Collection getFilters() {
+        return filters != null ? filters.values() : null;
+    }
+
     /**
      * add filter to category filters
      * @param filter
@@ -27,7 +27,8 @@ import java.util.Iterator;
 import java.util.Map;
 
 /**
- * stores a tree of dump files
+ * stores a tree of dump files. The threads of the dumps aren't stored any more,
+ * this class is only kept to be able to read sessions in the old serialized format.
  * @author irockel
  */
 public class DumpStore implements Serializable {
@@ -0,0 +1,85 @@
+/*
+ * FrameDictionary.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary of the stack lines found in the parsed thread dumps. Every unique
+ * line is stored once and referenced by an int id from the thread stacks, as the
+ * same frames occur in thousands of threads over all dumps of a log file. Every
+ * log file and session has a dictionary of its own, which is dropped with it.
+ * Lines can be interned concurrently by parsers running in parallel, reading
+ * lines doesn't lock.
+ *
+ * @author irockel
+ */
+public class FrameDictionary implements Serializable {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+    // only appended to, the array is published through the volatile field after every add.
+    private volatile String[] frames = new String[1024];
+
+    private volatile int size = 0;
+
+    /**
+     * get the id of the passed line, the line is added if it isn't yet in the dictionary.
+     * @param frame the stack line.
+     * @return id of the line.
+     */
+    public int intern(String frame) {
+        Integer id = ids.get(frame);
+        if (id == null) {
+            id = ids.computeIfAbsent(frame, this::add);
+        }
+        return (id);
+    }
+
+    /**
+     * get the line with the passed id.
+     * @param id the id of the line.
+     * @return the stack line.
+     */
+    public String getFrame(int id) {
+        return (frames[id]);
+    }
+
+    /**
+     * get the number of unique lines in the dictionary.
+     */
+    public int size() {
+        return (size);
+    }
+
+    private synchronized int add(String frame) {
+        String[] lines = frames;
+        if (size == lines.length) {
+            lines = Arrays.copyOf(lines, size * 2);
+        }
+        lines[size] = frame;
+        frames = lines;
+        return (size++);
+    }
+}
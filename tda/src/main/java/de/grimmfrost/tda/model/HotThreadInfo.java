@@ -0,0 +1,90 @@
+/*
+ * HotThreadInfo.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.model;
+
+import java.util.Locale;
+
+/**
+ * A thread with the cpu time it consumed between two consecutive dumps, computed
+ * from the cpu= and elapsed= values of the thread titles (JDK 11 and later).
+ *
+ * @author irockel
+ */
+public class HotThreadInfo extends ThreadInfo {
+    private final String thread;
+    private final String interval;
+    private final double cpuMillis;
+    private final double elapsedSeconds;
+
+    /**
+     * @param thread the title of the thread.
+     * @param stack the stack of the thread in the later dump.
+     * @param interval the names of the two dumps.
+     * @param cpuMillis the cpu time consumed between the dumps in milliseconds.
+     * @param elapsedSeconds the time between the dumps in seconds.
+     */
+    public HotThreadInfo(String thread, ThreadStack stack, String interval, double cpuMillis, double elapsedSeconds) {
+        super(thread, null, null, stack != null ? stack.getLineCount() + 1 : 0, null);
+        this.thread = thread;
+        this.interval = interval;
+        this.cpuMillis = cpuMillis;
+        this.elapsedSeconds = elapsedSeconds;
+        setStack(stack);
+    }
+
+    public String getThread() {
+        return thread;
+    }
+
+    public String getInterval() {
+        return interval;
+    }
+
+    public double getCpuMillis() {
+        return cpuMillis;
+    }
+
+    public double getElapsedSeconds() {
+        return elapsedSeconds;
+    }
+
+    /**
+     * get the share of one cpu the thread used between the dumps.
+     * @return the usage in percent, more than 100 isn't possible for a single thread.
+     */
+    public double getCpuUsage() {
+        return elapsedSeconds > 0 ? cpuMillis / (elapsedSeconds * 10) : 0;
+    }
+
+    /**
+     * the table shows the thread name, the interval, the cpu time and the usage.
+     */
+    public String[] getTokens() {
+        String name = getQuotedName(thread);
+        return new String[] {name, interval, String.format(Locale.ROOT, "%.2f", cpuMillis),
+            String.format(Locale.ROOT, "%.1f", getCpuUsage())};
+    }
+
+    public String getName() {
+        return thread + ": " + String.format(Locale.ROOT, "%.2f", cpuMillis) + "ms cpu in " + interval
+                + String.format(Locale.ROOT, " (%.1f%%)", getCpuUsage());
+    }
+}
@@ -19,16 +19,20 @@
  *
  * $Id: MonitorMap.java,v 1.7 2008-11-21 21:17:51 irockel Exp $
  */
-
 package de.grimmfrost.tda.model;
 
 import java.io.Serializable;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
- * map for saving monitor-thread relation in a thread dump.
+ * map for saving monitor-thread relation in a thread dump. Monitors are indexed
+ * by their address, threads by the order they were added, the relations are
+ * stored in primitive arrays, so neither the monitor texts nor the stacks are
+ * copied per monitor.
  *
  * @author irockel
  */
@@ -50,91 +54,303 @@ public class MonitorMap implements Serializable {
      */
     public static final int SLEEP_THREAD_POS = 2;
     
-    private Map monitorMap = null;    
-    
+    private final List<String> threadTitles = new ArrayList<>();
+    private final List<ThreadHeader> threadHeaders = new ArrayList<>();
+    private final List<ThreadStack> threadStacks = new ArrayList<>();
+
+    // the monitors, the class part is interned as it's the same for many monitors.
+    private long[] addresses = new long[16];
+    private byte[] digits = new byte[16];
+    private String[] classNames = new String[16];
+    private int monitorCount;
+
+    // open addressing index of the monitor addresses, slots contain monitor + 1.
+    private int[] slots = new int[32];
+    // monitors which can't be parsed to an address, e.g. "<no object reference available>".
+    private Map<String, Integer> otherMonitors;
+
+    private int[] relMonitors = new int[16];
+    private int[] relThreads = new int[16];
+    private byte[] relPositions = new byte[16];
+    private int relCount;
+
+    // the relations grouped by monitor and position, created on request.
+    private transient int[] groupStart;
+    private transient int[] groupThreads;
+
     /** 
      * Creates a new instance of MonitorMap 
      */
     public MonitorMap() {
     }
-    
-    public void addToMonitorMap(String key, Map[] objectSet) {
-        if(monitorMap == null) {
-            monitorMap = new HashMap();
-        }
-        
-        monitorMap.put(key, objectSet);
+
+    /**
+     * add a thread which locks, waits or sleeps on monitors.
+     * @param threadTitle the title of the thread.
+     * @param stack the stack of the thread.
+     * @return the index of the thread.
+     */
+    public int addThread(String threadTitle, ThreadStack stack) {
+        return addThread(threadTitle, null, stack);
     }
-    
-    public boolean hasInMonitorMap(String key) {
-        return(monitorMap != null && monitorMap.containsKey(key));
+
+    /**
+     * add a thread which locks, waits or sleeps on monitors.
+     * @param threadTitle the title of the thread.
+     * @param header the parsed title of the thread, might be null.
+     * @param stack the stack of the thread.
+     * @return the index of the thread.
+     */
+    public int addThread(String threadTitle, ThreadHeader header, ThreadStack stack) {
+        threadTitles.add(threadTitle);
+        threadHeaders.add(header);
+        threadStacks.add(stack);
+        return threadTitles.size() - 1;
     }
-    
-    public Map[] getFromMonitorMap(String key) {
-        return(monitorMap != null && hasInMonitorMap(key)? (Map[])monitorMap.get(key) : null);
+
+    public int getThreadCount() {
+        return threadTitles.size();
+    }
+
+    public String getThreadTitle(int thread) {
+        return threadTitles.get(thread);
+    }
+
+    /**
+     * get the parsed title of the thread.
+     * @return the header, null if it wasn't passed.
+     */
+    public ThreadHeader getThreadHeader(int thread) {
+        return threadHeaders.get(thread);
+    }
+
+    public ThreadStack getThreadStack(int thread) {
+        return threadStacks.get(thread);
     }
     
-    public void addWaitToMonitor(String key, String waitThread, String threadContent) {
-        addToMonitorValue(key, WAIT_THREAD_POS, waitThread, threadContent);
+    public void addWaitToMonitor(String monitor, int thread) {
+        addToMonitorValue(getMonitorIndex(monitor), WAIT_THREAD_POS, thread);
     }
     
-    public void addLockToMonitor(String key, String lockThread, String threadContent) {
-        addToMonitorValue(key, LOCK_THREAD_POS, lockThread, threadContent);
+    public void addLockToMonitor(String monitor, int thread) {
+        addToMonitorValue(getMonitorIndex(monitor), LOCK_THREAD_POS, thread);
     }
     
-    public void addSleepToMonitor(String key, String sleepThread, String threadContent) {
-        addToMonitorValue(key, SLEEP_THREAD_POS, sleepThread, threadContent);
+    public void addSleepToMonitor(String monitor, int thread) {
+        addToMonitorValue(getMonitorIndex(monitor), SLEEP_THREAD_POS, thread);
     }
     
-    private void addToMonitorValue(String key, int pos, String threadTitle, String thread) {
-        Map[] objectSet = null;
-
-        if(hasInMonitorMap(key)) {
-            objectSet = getFromMonitorMap(key);
-        } else {
-            objectSet = new HashMap[3];
-            objectSet[0] = new HashMap();
-            objectSet[1] = new HashMap();
-            objectSet[2] = new HashMap();
-            addToMonitorMap(key, objectSet);
+    private void addToMonitorValue(int monitor, int pos, int thread) {
+        // the relations of a thread are added together, so a monitor locked
+        // several times by the same thread is found by looking back.
+        for (int i = relCount - 1; i >= 0 && relThreads[i] == thread; i--) {
+            if (relMonitors[i] == monitor && relPositions[i] == pos) {
+                return;
+            }
+        }
+        if (relCount == relThreads.length) {
+            relMonitors = Arrays.copyOf(relMonitors, relCount * 2);
+            relThreads = Arrays.copyOf(relThreads, relCount * 2);
+            relPositions = Arrays.copyOf(relPositions, relCount * 2);
         }
-        
-        objectSet[pos].put(threadTitle, thread);
+        relMonitors[relCount] = monitor;
+        relThreads[relCount] = thread;
+        relPositions[relCount++] = (byte) pos;
+        groupStart = null;
     }
     
-    public void parseAndAddThread(String line, String threadTitle, String currentThread) {
+    /**
+     * parse a monitor line of a thread stack and add the relation to the monitor.
+     * @param line the monitor line, e.g. "- locked <0x...> (a java.lang.Object)".
+     * @param thread the index of the thread, see {@link #addThread(String, ThreadStack)}.
+     */
+    public void parseAndAddThread(String line, int thread) {
         if (line == null) {
             return;
         }
-        if((line.indexOf('<') > 0)) {
-            String monitor = line.substring(line.indexOf('<'));
-            if (line.trim().startsWith("- waiting to lock") || line.trim().startsWith("- parking to wait")) {
-                addWaitToMonitor(monitor, threadTitle, currentThread);
-            } else if (line.trim().startsWith("- waiting on")) {
-                addSleepToMonitor(monitor, threadTitle, currentThread);
-            } else {
-                addLockToMonitor(monitor, threadTitle, currentThread);
-            }
-        } else if(line.indexOf('@') > 0) {
-            String monitor = "<" + line.substring(line.indexOf('@')+1) + "> (a " +
+        String monitor;
+        if (line.indexOf('<') > 0) {
+            monitor = line.substring(line.indexOf('<'));
+        } else if (line.indexOf('@') > 0) {
+            monitor = "<" + line.substring(line.indexOf('@')+1) + "> (a " +
                     line.substring(line.lastIndexOf(' '),line.indexOf('@')) + ")";
-            if (line.trim().startsWith("- waiting to lock") || line.trim().startsWith("- parking to wait")) {
-                addWaitToMonitor(monitor, threadTitle, currentThread);
-            } else if (line.trim().startsWith("- waiting on")) {
-                addSleepToMonitor(monitor, threadTitle, currentThread);
-            } else {
-                addLockToMonitor(monitor, threadTitle, currentThread);
+        } else {
+            return;
+        }
+        String trimmed = line.trim();
+        if (trimmed.startsWith("- waiting to lock") || trimmed.startsWith("- parking to wait")) {
+            addWaitToMonitor(monitor, thread);
+        } else if (trimmed.startsWith("- waiting on")) {
+            addSleepToMonitor(monitor, thread);
+        } else {
+            addLockToMonitor(monitor, thread);
+        }
+    }
+
+    /**
+     * get the index of the passed monitor, the monitor is added if it's not known yet.
+     * @param monitor the monitor as printed in the dump, e.g. "&lt;0x...&gt; (a java.lang.Object)".
+     */
+    private int getMonitorIndex(String monitor) {
+        int end = monitor.indexOf('>');
+        int start = monitor.startsWith("<0x") ? 3 : 1;
+        int length = end - start;
+        long address = 0;
+        if (monitor.startsWith("<") && length > 0 && length <= 16) {
+            for (int i = start; i < end && length > 0; i++) {
+                char c = monitor.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    address = (address << 4) | (c - '0');
+                } else if (c >= 'a' && c <= 'f') {
+                    address = (address << 4) | (c - 'a' + 10);
+                } else {
+                    length = 0;
+                }
+            }
+        } else {
+            length = 0;
+        }
+
+        if (length == 0) {
+            if (otherMonitors == null) {
+                otherMonitors = new HashMap<>();
+            }
+            Integer index = otherMonitors.get(monitor);
+            if (index == null) {
+                index = addMonitor(0, (byte) 0, monitor);
+                otherMonitors.put(monitor, index);
+            }
+            return index;
+        }
+
+        // the digit count keeps the address as printed, a negative count marks the "0x" prefix.
+        byte printed = (byte) (start == 3 ? -length : length);
+        int mask = slots.length - 1;
+        int slot = hash(address) & mask;
+        while (slots[slot] != 0) {
+            int index = slots[slot] - 1;
+            if (addresses[index] == address && digits[index] == printed) {
+                return index;
             }
+            slot = (slot + 1) & mask;
         }
+        int index = addMonitor(address, printed, monitor.substring(end + 1).intern());
+        slots[slot] = index + 1;
+        if (monitorCount * 2 > slots.length) {
+            rehash();
+        }
+        return index;
     }
-    
-    public Iterator iterOfKeys() {
-        return(monitorMap == null? null : monitorMap.keySet().iterator());
+
+    private int addMonitor(long address, byte printed, String className) {
+        if (monitorCount == addresses.length) {
+            addresses = Arrays.copyOf(addresses, monitorCount * 2);
+            digits = Arrays.copyOf(digits, monitorCount * 2);
+            classNames = Arrays.copyOf(classNames, monitorCount * 2);
+        }
+        addresses[monitorCount] = address;
+        digits[monitorCount] = printed;
+        classNames[monitorCount] = className;
+        return monitorCount++;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int index = 0; index < monitorCount; index++) {
+            if (digits[index] != 0) {
+                int slot = hash(addresses[index]) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = index + 1;
+            }
+        }
+    }
+
+    private static int hash(long address) {
+        long h = address * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * get the monitor as printed in the dump.
+     * @param monitor the index of the monitor.
+     */
+    public String getMonitor(int monitor) {
+        int printed = digits[monitor];
+        if (printed == 0) {
+            return classNames[monitor];
+        }
+        StringBuilder text = new StringBuilder(classNames[monitor].length() + 20).append('<');
+        if (printed < 0) {
+            text.append("0x");
+            printed = -printed;
+        }
+        String hex = Long.toHexString(addresses[monitor]);
+        for (int i = hex.length(); i < printed; i++) {
+            text.append('0');
+        }
+        return text.append(hex).append('>').append(classNames[monitor]).toString();
+    }
+
+    /**
+     * get the address of the monitor.
+     * @param monitor the index of the monitor.
+     * @return the address or 0, if the monitor has no address.
+     */
+    public long getAddress(int monitor) {
+        return addresses[monitor];
+    }
+
+    /**
+     * get the threads of the monitor at the passed position.
+     * @param monitor the index of the monitor.
+     * @param pos LOCK_THREAD_POS, WAIT_THREAD_POS or SLEEP_THREAD_POS.
+     * @return the indexes of the threads in the order they were added.
+     */
+    public int[] getThreads(int monitor, int pos) {
+        if (groupStart == null) {
+            groupRelations();
+        }
+        int group = monitor * 3 + pos;
+        return Arrays.copyOfRange(groupThreads, groupStart[group], groupStart[group + 1]);
+    }
+
+    /**
+     * check if the passed thread is at the passed position of the monitor.
+     */
+    public boolean hasThread(int monitor, int pos, int thread) {
+        if (groupStart == null) {
+            groupRelations();
+        }
+        int group = monitor * 3 + pos;
+        for (int i = groupStart[group]; i < groupStart[group + 1]; i++) {
+            if (groupThreads[i] == thread) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void groupRelations() {
+        int[] start = new int[monitorCount * 3 + 1];
+        for (int i = 0; i < relCount; i++) {
+            start[relMonitors[i] * 3 + relPositions[i] + 1]++;
+        }
+        for (int i = 0; i < monitorCount * 3; i++) {
+            start[i + 1] += start[i];
+        }
+        int[] threads = new int[relCount];
+        int[] next = Arrays.copyOf(start, start.length - 1);
+        for (int i = 0; i < relCount; i++) {
+            threads[next[relMonitors[i] * 3 + relPositions[i]]++] = relThreads[i];
+        }
+        groupThreads = threads;
+        groupStart = start;
     }
     
     public int size() {
-        return(monitorMap == null? 0: monitorMap.size());
+        return monitorCount;
     }
-    
-    
 }
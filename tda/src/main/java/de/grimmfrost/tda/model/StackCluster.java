@@ -0,0 +1,169 @@
+/*
+ * StackCluster.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cluster of threads with the same stack in one or more dumps. The stack of
+ * the first thread is kept as example, the states and the members are counted.
+ *
+ * @author irockel
+ */
+public class StackCluster extends ThreadInfo {
+    private static final int MAX_LISTED_MEMBERS = 100;
+
+    private final Map<String, Integer> states = new LinkedHashMap<>();
+    private final Map<String, Integer> members = new LinkedHashMap<>();
+    private int threadCount;
+    private int dumpCount;
+    private int lastDump = -1;
+
+    /**
+     * @param exemplar the stack of the first thread of the cluster.
+     */
+    public StackCluster(ThreadStack exemplar) {
+        super(null, null, null, exemplar != null ? exemplar.getLineCount() + 1 : 0, null);
+        setStack(exemplar);
+    }
+
+    /**
+     * restore a cluster, e.g. from a session.
+     * @param exemplar the stack of the first thread of the cluster.
+     * @param threadCount the amount of threads.
+     * @param dumpCount the amount of dumps with threads in this cluster.
+     * @param states the amount of threads per state.
+     * @param members the names of the threads with the amount of dumps they are in.
+     */
+    public StackCluster(ThreadStack exemplar, int threadCount, int dumpCount, Map<String, Integer> states, Map<String, Integer> members) {
+        this(exemplar);
+        this.threadCount = threadCount;
+        this.dumpCount = dumpCount;
+        this.states.putAll(states);
+        this.members.putAll(members);
+    }
+
+    /**
+     * add a thread to the cluster, the threads have to be added in dump order.
+     * @param dump the index of the dump of the thread.
+     * @param name the name of the thread, the same thread in several dumps is listed once.
+     * @param state the state of the thread.
+     */
+    public void addThread(int dump, String name, String state) {
+        threadCount++;
+        if (dump != lastDump) {
+            dumpCount++;
+            lastDump = dump;
+        }
+        states.merge(state, 1, Integer::sum);
+        members.merge(name, 1, Integer::sum);
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * get the amount of dumps with threads in this cluster.
+     */
+    public int getDumpCount() {
+        return dumpCount;
+    }
+
+    /**
+     * get the amount of threads per state.
+     */
+    public Map<String, Integer> getStates() {
+        return states;
+    }
+
+    /**
+     * get the names of the threads of the cluster with the amount of dumps they are in.
+     */
+    public Map<String, Integer> getMembers() {
+        return members;
+    }
+
+    /**
+     * get the top frame of the stack shared by the threads of this cluster.
+     * @return the frame without the leading "at " or null if the stack has no frames.
+     */
+    public String getTopFrame() {
+        ThreadStack stack = getStack();
+        for (int i = 0; stack != null && i < stack.getLineCount(); i++) {
+            String line = stack.getLine(i).trim();
+            if (line.startsWith("at ")) {
+                return line.substring(3);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * get the states as text, the most frequent state first.
+     */
+    public String getStateSummary() {
+        StringBuilder summary = new StringBuilder();
+        states.entrySet().stream().sorted((s1, s2) -> Integer.compare(s2.getValue(), s1.getValue())).forEach(state -> {
+            summary.append(summary.length() > 0 ? ", " : "").append(state.getValue()).append(" ").append(state.getKey());
+        });
+        return summary.toString();
+    }
+
+    /**
+     * the table shows the cluster name, the thread count, the dump count and the states.
+     */
+    public String[] getTokens() {
+        return new String[] {getName(), String.valueOf(threadCount), String.valueOf(dumpCount), getStateSummary()};
+    }
+
+    /**
+     * the name is created on request, as the thread count changes while clustering.
+     */
+    public String getName() {
+        String topFrame = getTopFrame();
+        return threadCount + " threads " + (topFrame != null ? "at " + topFrame : "without stack");
+    }
+
+    /**
+     * the info lists the counts, the states and the members of the cluster, the
+     * content shows the stack of the first thread.
+     */
+    public String getInfo() {
+        StringBuilder info = new StringBuilder("<body bgcolor=\"ffffff\"><font size=-1><b>");
+        info.append(threadCount).append(" thread(s) in ").append(dumpCount).append(" dump(s): ")
+                .append(getStateSummary()).append("</b><hr><pre>");
+        int listed = 0;
+        for (Map.Entry<String, Integer> member : members.entrySet()) {
+            if (listed++ == MAX_LISTED_MEMBERS) {
+                info.append("... and ").append(members.size() - MAX_LISTED_MEMBERS).append(" more\n");
+                break;
+            }
+            info.append(member.getKey().replace("<", "&lt;").replace(">", "&gt;"));
+            if (member.getValue() > 1) {
+                info.append(" (").append(member.getValue()).append(" times)");
+            }
+            info.append("\n");
+        }
+        return info.append("</pre><hr></font>").toString();
+    }
+}
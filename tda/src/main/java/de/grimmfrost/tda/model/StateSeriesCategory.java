@@ -0,0 +1,76 @@
+/*
+ * StateSeriesCategory.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.model;
+
+import de.grimmfrost.tda.utils.StateSeriesChart;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EventListener;
+import java.util.List;
+import javax.swing.JComponent;
+import javax.swing.JScrollPane;
+import javax.swing.tree.DefaultMutableTreeNode;
+
+/**
+ * Category showing the thread states of a series of dumps as chart and as
+ * list of the counts per dump.
+ *
+ * @author irockel
+ */
+public class StateSeriesCategory extends TreeCategory {
+    private final List<ThreadStateCounts> series;
+    private transient JComponent view;
+
+    /**
+     * @param name the name of the category.
+     * @param iconID the icon of the category.
+     * @param series the counts of the dumps in dump order.
+     */
+    public StateSeriesCategory(String name, int iconID, List<ThreadStateCounts> series) {
+        super(name, iconID, false);
+        this.series = new ArrayList<>(series);
+        for (ThreadStateCounts counts : series) {
+            addToCatNodes(new DefaultMutableTreeNode(counts));
+        }
+        setInfo("<body bgcolor=\"ffffff\"><font size=-1>Thread states of " + series.size()
+                + " dumps, right click the chart for exporting them as csv or json.</font>");
+    }
+
+    /**
+     * get the counts of the dumps in dump order.
+     */
+    public List<ThreadStateCounts> getSeries() {
+        return Collections.unmodifiableList(series);
+    }
+
+    /**
+     * the chart and the counts per dump are shown in tabs.
+     */
+    public JComponent getCatComponent(EventListener listener) {
+        if (view == null) {
+            ViewTabs tabs = new ViewTabs();
+            tabs.addTab("Chart", new StateSeriesChart(getSeries()));
+            tabs.addTab("Dumps", new JScrollPane(super.getCatComponent(listener)));
+            view = tabs;
+        }
+        return view;
+    }
+}
@@ -25,7 +25,9 @@ import de.grimmfrost.tda.utils.PrefManager;
 import de.grimmfrost.tda.utils.TableSorter;
 import de.grimmfrost.tda.utils.ThreadsTableModel;
 import de.grimmfrost.tda.utils.ThreadsTableSelectionModel;
+import java.util.BitSet;
 import java.util.EventListener;
+import java.util.List;
 import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JTable;
@@ -40,6 +42,16 @@ import javax.swing.tree.DefaultMutableTreeNode;
  */
 public class TableCategory extends AbstractCategory {
     private transient JTable filteredTable;
+
+    /**
+     * the threads of the dump, shared by all thread categories of the dump.
+     */
+    private List<ThreadInfo> threads;
+
+    /**
+     * the indexes of the threads in this category.
+     */
+    private BitSet members;
     
     /** 
      * Creates a new instance of TableCategory 
@@ -57,6 +69,73 @@ public class TableCategory extends AbstractCategory {
         setIconID(iconID);
     }
 
+    /** 
+     * Creates a new instance of TableCategory which is a view on the passed
+     * threads, the tree nodes are only created if the category is displayed.
+     * @param threads the threads of the dump, threads are added with addThread.
+     */
+    public TableCategory(String name, int iconID, List<ThreadInfo> threads) {
+        this(name, iconID, true);
+        this.threads = threads;
+        this.members = new BitSet();
+    }
+
+    /**
+     * add the thread with the passed index to this category.
+     * @param index the index of the thread in the thread list of the dump.
+     */
+    public void addThread(int index) {
+        members.set(index);
+        if (super.getRootNode() != null) {
+            super.getRootNode().add(new DefaultMutableTreeNode(threads.get(index)));
+        }
+    }
+
+    /**
+     * check if the thread with the passed index is part of this category.
+     * @param index the index of the thread in the thread list of the dump.
+     */
+    public boolean containsThread(int index) {
+        return(members != null && members.get(index));
+    }
+
+    /**
+     * get the threads of the dump this category is a view on.
+     * @return the threads, null if the nodes of the category were added directly.
+     */
+    public List<ThreadInfo> getThreadList() {
+        return(threads);
+    }
+
+    /**
+     * get the indexes of the threads in this category.
+     * @return the indexes, null if the nodes of the category were added directly.
+     */
+    public BitSet getMembers() {
+        return(members);
+    }
+
+    public int getNodeCount() {
+        if (members != null && super.getRootNode() == null) {
+            return(members.cardinality());
+        }
+        return(super.getNodeCount());
+    }
+
+    /**
+     * create the nodes for the threads of this category on first access.
+     */
+    protected DefaultMutableTreeNode getRootNode() {
+        if (members != null && super.getRootNode() == null && !members.isEmpty()) {
+            DefaultMutableTreeNode root = new DefaultMutableTreeNode("root");
+            for (int i = members.nextSetBit(0); i >= 0; i = members.nextSetBit(i + 1)) {
+                root.add(new DefaultMutableTreeNode(threads.get(i)));
+            }
+            setRootNode(root);
+        }
+        return(super.getRootNode());
+    }
+
     /**
      * {@inheritDoc}
      */
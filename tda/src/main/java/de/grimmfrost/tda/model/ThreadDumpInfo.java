@@ -46,10 +46,15 @@ public class ThreadDumpInfo extends AbstractInfo {
     private Category monitors;
     private Category monitorsWithoutLocks;
     private Category virtualThreads;
+    private Category virtualThreadGroups;
     private Category blockingMonitors;
     private Category threads;
+    private java.util.List<ThreadInfo> threadInfos;
     private Category deadlocks;
+    private Category lockCycles;
+    private Category topBlockers;
     private HeapInfo heapInfo;
+    private transient ThreadStateCounts stateCounts;
     
     
     public ThreadDumpInfo(String name, int lineCount) {
@@ -103,6 +108,17 @@ public class ThreadDumpInfo extends AbstractInfo {
         return overview;
     }
 
+    /**
+     * get the amount of threads per state and the other counts of this dump,
+     * they are counted on first request.
+     */
+    public ThreadStateCounts getStateCounts() {
+        if (stateCounts == null) {
+            stateCounts = ThreadStateCounts.count(this);
+        }
+        return stateCounts;
+    }
+
     /**
      * creates the overview information for this thread dump.
      */
@@ -143,47 +159,28 @@ public class ThreadDumpInfo extends AbstractInfo {
                 ThreadInfo ti = (ThreadInfo) node.getUserObject();
                 
                 // Build tid map for SMR resolution
-                String[] tokens = ti.getTokens();
-                if (tokens != null && tokens.length > 3 && tokens[3] != null && tokens[3].length() > 0) {
+                ThreadHeader header = ti.getHeader();
+                String[] tokens = header == null ? ti.getTokens() : null;
+                long tid = -1;
+                if (header != null) {
+                    tid = header.isShortFormat() ? -1 : header.getTid();
+                } else if (tokens != null && tokens.length > 3 && tokens[3] != null && tokens[3].length() > 0) {
                     try {
-                        String hexTid = "0x" + Long.toHexString(Long.parseLong(tokens[3]));
-                        // Pad to 18 chars ("0x" + 16 hex digits) to match SMR info format often seen
-                        while (hexTid.length() < 18) {
-                            hexTid = "0x0" + hexTid.substring(2);
-                        }
-                        tidMap.put(hexTid, ti);
+                        tid = Long.parseLong(tokens[3]);
                     } catch (NumberFormatException nfe) {
                         // Invalid tid format; skip this thread when building the SMR tid mapping
                     }
                 }
-
-                String state = "UNKNOWN";
-                if (tokens != null) {
-                    if (tokens.length >= 7) {
-                        state = tokens.length == 3 ? tokens[2] : "OTHER";
-                    } else if (tokens.length == 3) {
-                        state = tokens[2];
-                    }
-                }
-                
-                if ("UNKNOWN".equals(state) || "OTHER".equals(state)) {
-                    String name = ti.getName();
-                    if (name.contains("state=")) {
-                        int start = name.indexOf("state=") + 6;
-                        int end = name.indexOf(' ', start);
-                        state = end > start ? name.substring(start, end) : name.substring(start);
-                    } else if (ti.getContent().contains("java.lang.Thread.State: ")) {
-                        String content = ti.getContent();
-                        int start = content.indexOf("java.lang.Thread.State: ") + 24;
-                        int end = content.indexOf('\n', start);
-                        state = content.substring(start, end).trim();
-                        if (state.indexOf(' ') > 0) {
-                            state = state.substring(0, state.indexOf(' '));
-                        }
+                if (tid >= 0) {
+                    String hexTid = "0x" + Long.toHexString(tid);
+                    // Pad to 18 chars ("0x" + 16 hex digits) to match SMR info format often seen
+                    while (hexTid.length() < 18) {
+                        hexTid = "0x0" + hexTid.substring(2);
                     }
+                    tidMap.put(hexTid, ti);
                 }
-                
-                state = state.toUpperCase();
+
+                String state = ThreadStateCounts.getThreadState(ti);
                 stateDistribution.put(state, stateDistribution.getOrDefault(state, 0) + 1);
             }
 
@@ -438,6 +435,18 @@ public class ThreadDumpInfo extends AbstractInfo {
         this.virtualThreads = virtualThreads;
     }
 
+    /**
+     * get the category with the grouped virtual threads, null if the virtual
+     * threads of this dump weren't grouped.
+     */
+    public Category getVirtualThreadGroups() {
+        return virtualThreadGroups;
+    }
+
+    public void setVirtualThreadGroups(Category virtualThreadGroups) {
+        this.virtualThreadGroups = virtualThreadGroups;
+    }
+
     public Category getBlockingMonitors() {
       return blockingMonitors;
     }
@@ -462,6 +471,18 @@ public class ThreadDumpInfo extends AbstractInfo {
         this.threads = threads;
     }
 
+    /**
+     * get the threads of this dump in dump order, the thread categories are
+     * views on this list. Null if the parser doesn't provide it.
+     */
+    public java.util.List<ThreadInfo> getThreadInfos() {
+        return threadInfos;
+    }
+
+    public void setThreadInfos(java.util.List<ThreadInfo> threadInfos) {
+        this.threadInfos = threadInfos;
+    }
+
     public Category getDeadlocks() {
         return deadlocks;
     }
@@ -470,6 +491,29 @@ public class ThreadDumpInfo extends AbstractInfo {
         this.deadlocks = deadlocks;
     }
 
+    /**
+     * get the deadlocks found in the wait-for graph of the monitors, also if the
+     * jvm didn't report them.
+     */
+    public Category getLockCycles() {
+        return lockCycles;
+    }
+
+    public void setLockCycles(Category lockCycles) {
+        this.lockCycles = lockCycles;
+    }
+
+    /**
+     * get the threads blocking other threads, ranked by the amount of blocked threads.
+     */
+    public Category getTopBlockers() {
+        return topBlockers;
+    }
+
+    public void setTopBlockers(Category topBlockers) {
+        this.topBlockers = topBlockers;
+    }
+
     private Analyzer getDumpAnalyzer() {
         if(dumpAnalyzer == null) {
             setDumpAnalyzer(new Analyzer(this));
@@ -0,0 +1,163 @@
+/*
+ * ThreadHeader.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.model;
+
+import java.io.Serializable;
+
+/**
+ * The parsed title line of a thread. Parsed once per thread and shared by all
+ * categories the thread is listed in. Numeric values which are not contained in
+ * the title are -1.
+ *
+ * @author irockel
+ */
+public final class ThreadHeader implements Serializable {
+
+    /**
+     * address range used if the title doesn't contain one.
+     */
+    public static final String NO_ADDRESS_RANGE = "<no address range>";
+
+    private final String name;
+    private final String normalizedTitle;
+    private final boolean shortFormat;
+    private final boolean daemon;
+    private final int prio;
+    private final int osPrio;
+    private final double cpuMillis;
+    private final double elapsedSeconds;
+    private final long tid;
+    private final long nid;
+    private final String state;
+    private final String addressRange;
+    private transient String identity;
+
+    /**
+     * @param name the name of the thread.
+     * @param normalizedTitle the title without the cpu and elapsed time, used as key of the thread in a dump.
+     * @param shortFormat true, if the title only has a thread id and a state (e.g. JRockit or "t@" dumps).
+     * @param daemon true, if the thread is a daemon thread.
+     * @param prio java priority of the thread.
+     * @param osPrio native priority of the thread.
+     * @param cpuMillis consumed cpu time in milliseconds.
+     * @param elapsedSeconds time since the thread was started in seconds.
+     * @param tid the thread id (for the short format the only id of the thread).
+     * @param nid the native thread id.
+     * @param state the state text of the title.
+     * @param addressRange the address range of the thread stack.
+     */
+    public ThreadHeader(String name, String normalizedTitle, boolean shortFormat, boolean daemon, int prio, int osPrio,
+            double cpuMillis, double elapsedSeconds, long tid, long nid, String state, String addressRange) {
+        this.name = name;
+        this.normalizedTitle = normalizedTitle;
+        this.shortFormat = shortFormat;
+        this.daemon = daemon;
+        this.prio = prio;
+        this.osPrio = osPrio;
+        this.cpuMillis = cpuMillis;
+        this.elapsedSeconds = elapsedSeconds;
+        this.tid = tid;
+        this.nid = nid;
+        this.state = state;
+        this.addressRange = addressRange;
+    }
+
+    public String getName() {
+        return (name);
+    }
+
+    public String getNormalizedTitle() {
+        return (normalizedTitle);
+    }
+
+    public boolean isShortFormat() {
+        return (shortFormat);
+    }
+
+    public boolean isDaemon() {
+        return (daemon);
+    }
+
+    public int getPrio() {
+        return (prio);
+    }
+
+    public int getOsPrio() {
+        return (osPrio);
+    }
+
+    /**
+     * get the priority shown in the thread table, the native priority if the
+     * thread has no java priority (e.g. gc threads).
+     */
+    public int getDisplayPrio() {
+        return (prio >= 0 ? prio : osPrio);
+    }
+
+    public double getCpuMillis() {
+        return (cpuMillis);
+    }
+
+    public double getElapsedSeconds() {
+        return (elapsedSeconds);
+    }
+
+    public long getTid() {
+        return (tid);
+    }
+
+    public long getNid() {
+        return (nid);
+    }
+
+    public String getState() {
+        return (state);
+    }
+
+    public String getAddressRange() {
+        return (addressRange);
+    }
+
+    /**
+     * get the identity of the thread over several dumps, built from the thread id and
+     * the native id. A thread keeps it if it is renamed, threads sharing a name are
+     * distinguished. The name is used if the title doesn't contain any id.
+     */
+    public String getIdentity() {
+        if (identity == null) {
+            identity = tid >= 0 || nid >= 0 ? "tid=0x" + Long.toHexString(tid) + " nid=0x" + Long.toHexString(nid) : name;
+        }
+        return (identity);
+    }
+
+    /**
+     * get the header as table tokens, either name, type, prio, tid, nid, state and
+     * address range or name, id and state for the short format.
+     */
+    public String[] toTokens() {
+        if (shortFormat) {
+            return (new String[] {name, tid >= 0 ? String.valueOf(tid) : "", state});
+        }
+        int displayPrio = getDisplayPrio();
+        return (new String[] {name, daemon ? "Daemon" : "Task", displayPrio >= 0 ? String.valueOf(displayPrio) : "",
+            tid >= 0 ? String.valueOf(tid) : "", nid >= 0 ? String.valueOf(nid) : "", state, addressRange});
+    }
+}
@@ -22,6 +22,8 @@
 
 package de.grimmfrost.tda.model;
 
+import de.grimmfrost.tda.utils.StackRenderer;
+
 /**
  * Info (name, content tuple) for thread dump display tree.
  *
@@ -29,9 +31,11 @@ package de.grimmfrost.tda.model;
  */
 public class ThreadInfo extends AbstractInfo {
     private String content;
+    private ThreadStack stack;
     private String info;
     private int stackLines;
     private String[] tokens;
+    private ThreadHeader header;
     private boolean aLotOfWaiting;
     private int childCount;
     
@@ -47,7 +51,14 @@ public class ThreadInfo extends AbstractInfo {
         return getName();
     }
 
+    /**
+     * get the html content of this node. For threads only the raw stack is stored,
+     * the html is rendered from it on request.
+     */
     public String getContent() {
+        if (content == null && stack != null) {
+            return StackRenderer.render(stack);
+        }
         return content;
     }
 
@@ -55,6 +66,25 @@ public class ThreadInfo extends AbstractInfo {
         this.content = content;
     }
 
+    /**
+     * get the stack of the thread, null if this node isn't a thread.
+     */
+    public ThreadStack getStack() {
+        return stack;
+    }
+
+    public void setStack(ThreadStack stack) {
+        this.stack = stack;
+    }
+
+    /**
+     * get the plain text of this node, the raw stack for threads, the content otherwise.
+     * Use this for searching in the stack instead of the rendered content.
+     */
+    public String getStackText() {
+        return stack != null ? stack.toString() : content;
+    }
+
     public String getInfo() {
         return info;
     }
@@ -71,8 +101,34 @@ public class ThreadInfo extends AbstractInfo {
         this.stackLines = stackLines;
     }
     
+    /**
+     * get the tokens for the table view, derived from the header for parsed threads.
+     */
     public String[] getTokens() {
-        return(tokens);
+        return(tokens == null && header != null ? header.toTokens() : tokens);
+    }
+
+    /**
+     * get the name of a thread from its title, the part between the leading quotes.
+     * @param title the title of the thread, e.g. "main" prio=5 ...
+     * @return the name, the title itself if it doesn't start with a quoted name.
+     */
+    protected static String getQuotedName(String title) {
+        if (title.startsWith("\"") && title.indexOf('"', 1) > 0) {
+            return(title.substring(1, title.indexOf('"', 1)));
+        }
+        return(title);
+    }
+
+    /**
+     * get the parsed title of the thread, null if the tokens were set directly.
+     */
+    public ThreadHeader getHeader() {
+        return(header);
+    }
+
+    public void setHeader(ThreadHeader header) {
+        this.header = header;
     }
 
     public void setALotOfWaiting(boolean b) {
@@ -0,0 +1,301 @@
+/*
+ * ThreadStack.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The stack of a thread in compact form. Frames and other recurring lines are
+ * stored as ids of the frame dictionary, lines with lock annotations referencing
+ * a monitor are kept per thread. The text is only rebuilt for display.
+ *
+ * @author irockel
+ */
+public class ThreadStack implements Serializable {
+
+    private static final String[] NO_ANNOTATIONS = new String[0];
+
+    private static final long FINGERPRINT_SEED = 0xcbf29ce484222325L;
+
+    private final FrameDictionary dictionary;
+
+    private final String title;
+
+    /**
+     * ids of the lines, a negative id -(n+1) references the n-th annotation.
+     */
+    private final int[] lines;
+
+    private final String[] annotations;
+
+    private transient int hash;
+
+    private transient long fingerprint;
+
+    private ThreadStack(FrameDictionary dictionary, String title, int[] lines, String[] annotations, long fingerprint) {
+        this.dictionary = dictionary;
+        this.title = title;
+        this.lines = lines;
+        this.annotations = annotations;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * get the title line of the stack.
+     */
+    public String getTitle() {
+        return (title);
+    }
+
+    /**
+     * get the number of lines of the stack without the title.
+     */
+    public int getLineCount() {
+        return (lines.length);
+    }
+
+    /**
+     * get the line at the passed position (without the title line).
+     */
+    public String getLine(int index) {
+        int id = lines[index];
+        return (id >= 0 ? dictionary.getFrame(id) : annotations[-id - 1]);
+    }
+
+    /**
+     * get the dictionary id of the line at the passed position.
+     * @return the id or a negative value if the line is an annotation of this thread.
+     */
+    public int getLineId(int index) {
+        return (lines[index]);
+    }
+
+    /**
+     * get the dictionary the line ids of this stack refer to.
+     */
+    public FrameDictionary getDictionary() {
+        return (dictionary);
+    }
+
+    /**
+     * get the 64 bit fingerprint of the lines of the stack (without the title). It is
+     * computed while parsing from the (cached) hash codes of the lines, so stacks can
+     * be compared across dumps without touching their lines. Stacks with different
+     * fingerprints never have the same lines.
+     */
+    public long getFingerprint() {
+        long f = fingerprint;
+        if (f == 0) {
+            // stacks restored by serialization.
+            f = FINGERPRINT_SEED;
+            for (int i = 0; i < lines.length; i++) {
+                f = fingerprint(f, getLine(i));
+            }
+            fingerprint = f;
+        }
+        return (f);
+    }
+
+    /**
+     * rebuild the text of the stack, title line first and each line terminated by a line feed.
+     */
+    public String toString() {
+        StringBuilder text = new StringBuilder(title.length() + lines.length * 64);
+        text.append(title).append('\n');
+        for (int i = 0; i < lines.length; i++) {
+            text.append(getLine(i)).append('\n');
+        }
+        return (text.toString());
+    }
+
+    /**
+     * stacks are equal if their text is equal. For stacks of the same dictionary
+     * only the line ids are compared.
+     */
+    public boolean equals(Object o) {
+        if (this == o) {
+            return (true);
+        }
+        if (!(o instanceof ThreadStack)) {
+            return (false);
+        }
+        ThreadStack other = (ThreadStack) o;
+        return (title.equals(other.title) && hasSameLines(other));
+    }
+
+    /**
+     * check if the passed stack has the same lines, the title is ignored. This
+     * is the case for a thread which didn't move between two dumps.
+     */
+    public boolean hasSameLines(ThreadStack other) {
+        if (getFingerprint() != other.getFingerprint() || lines.length != other.lines.length) {
+            return (false);
+        }
+        if (dictionary == other.dictionary) {
+            return (Arrays.equals(lines, other.lines) && Arrays.equals(annotations, other.annotations));
+        }
+        for (int i = 0; i < lines.length; i++) {
+            if (!getLine(i).equals(other.getLine(i))) {
+                return (false);
+            }
+        }
+        return (true);
+    }
+
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            // same as the hash code of the text, so stacks of different dictionaries are consistent.
+            h = hash(0, title);
+            for (int i = 0; i < lines.length; i++) {
+                h = hash(h, getLine(i));
+            }
+            hash = h;
+        }
+        return (h);
+    }
+
+    /**
+     * check if the passed stack has the same frames. The title and the annotations
+     * (which usually contain monitor addresses) are ignored.
+     */
+    public boolean hasSameFrames(ThreadStack other) {
+        int i = nextFrame(0);
+        int j = other.nextFrame(0);
+        while (i < lines.length && j < other.lines.length) {
+            if (dictionary == other.dictionary ? lines[i] != other.lines[j] : !getLine(i).equals(other.getLine(j))) {
+                return (false);
+            }
+            i = nextFrame(i + 1);
+            j = other.nextFrame(j + 1);
+        }
+        return (i >= lines.length && j >= other.lines.length);
+    }
+
+    /**
+     * hash code of the frames, consistent with hasSameFrames.
+     */
+    public int frameHashCode() {
+        int h = 0;
+        for (int i = nextFrame(0); i < lines.length; i = nextFrame(i + 1)) {
+            h = 31 * h + getLine(i).hashCode();
+        }
+        return (h);
+    }
+
+    /**
+     * get the position of the next line which isn't an annotation, starting at the passed position.
+     */
+    private int nextFrame(int index) {
+        while (index < lines.length && lines[index] < 0) {
+            index++;
+        }
+        return (index);
+    }
+
+    private static long fingerprint(long f, String line) {
+        f = (f ^ (line.hashCode() & 0xffffffffL) ^ ((long) line.length() << 32)) * 0x9E3779B97F4A7C15L;
+        return (f ^ (f >>> 29));
+    }
+
+    private static int hash(int h, String line) {
+        for (int i = 0; i < line.length(); i++) {
+            h = 31 * h + line.charAt(i);
+        }
+        return (31 * h + '\n');
+    }
+
+    /**
+     * collects the lines of a thread while parsing.
+     */
+    public static class Builder {
+        private final FrameDictionary dictionary;
+        private final String title;
+        private int[] lines;
+        private int size = 0;
+        private List<String> annotations = null;
+        private long fingerprint;
+
+        /**
+         * @param dictionary the dictionary to intern the lines in.
+         * @param title the title line of the thread.
+         * @param capacity the expected line count.
+         */
+        public Builder(FrameDictionary dictionary, String title, int capacity) {
+            this.dictionary = dictionary;
+            this.title = title;
+            this.lines = new int[Math.max(capacity, 4)];
+            this.fingerprint = FINGERPRINT_SEED;
+        }
+
+        /**
+         * add a recurring line like a stack frame, it is stored in the dictionary.
+         */
+        public Builder addFrame(String line) {
+            add(dictionary.intern(line));
+            fingerprint = fingerprint(fingerprint, line);
+            return (this);
+        }
+
+        /**
+         * add a line specific to this thread, like a lock annotation with a monitor address.
+         */
+        public Builder addAnnotation(String line) {
+            if (annotations == null) {
+                annotations = new ArrayList<>();
+            }
+            annotations.add(line);
+            add(-annotations.size());
+            fingerprint = fingerprint(fingerprint, line);
+            return (this);
+        }
+
+        /**
+         * get the number of lines added so far.
+         */
+        public int getLineCount() {
+            return (size);
+        }
+
+        /**
+         * get the line at the passed position.
+         */
+        public String getLine(int index) {
+            int id = lines[index];
+            return (id >= 0 ? dictionary.getFrame(id) : annotations.get(-id - 1));
+        }
+
+        public ThreadStack build() {
+            return (new ThreadStack(dictionary, title, Arrays.copyOf(lines, size),
+                    annotations != null ? annotations.toArray(new String[0]) : NO_ANNOTATIONS, fingerprint));
+        }
+
+        private void add(int id) {
+            if (size == lines.length) {
+                lines = Arrays.copyOf(lines, size * 2);
+            }
+            lines[size++] = id;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * ThreadStateCounts.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.model;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The amount of threads per state, of virtual threads, of monitors without owner
+ * and of deadlocks of one dump. They are counted once per dump from the parsed
+ * stacks, a series of them shows how a capture developed over time.
+ *
+ * @author irockel
+ */
+public class ThreadStateCounts extends ThreadInfo {
+    public static final int THREADS = 0;
+    public static final int RUNNABLE = 1;
+    public static final int BLOCKED = 2;
+    public static final int WAITING = 3;
+    public static final int TIMED_WAITING = 4;
+    public static final int OTHER = 5;
+    public static final int VIRTUAL_THREADS = 6;
+    public static final int MONITORS_WITHOUT_OWNER = 7;
+    public static final int DEADLOCKS = 8;
+
+    /**
+     * the column names of the counts in the csv and json export.
+     */
+    public static final String[] COUNT_NAMES = {"threads", "runnable", "blocked", "waiting", "timed_waiting", "other",
+            "virtual_threads", "monitors_without_owner", "deadlocks"};
+
+    private static final String STATE_PREFIX = "java.lang.Thread.State:";
+    private static final DateTimeFormatter DUMP_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss", Locale.ROOT);
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US);
+
+    private final String dump;
+    private final String time;
+    private final int[] counts;
+
+    /**
+     * @param dump the name of the dump.
+     * @param time the time of the dump as parsed from the log file, null if unknown.
+     * @param counts the counts, indexed by {@link #THREADS} to {@link #DEADLOCKS}.
+     */
+    public ThreadStateCounts(String dump, String time, int[] counts) {
+        super(dump, null, null, 0, null);
+        this.dump = dump;
+        this.time = time;
+        this.counts = counts.clone();
+    }
+
+    /**
+     * count the threads of a dump by their state. The states are taken from the
+     * threads category, virtual threads also include the grouped ones.
+     */
+    public static ThreadStateCounts count(ThreadDumpInfo tdi) {
+        int[] counts = new int[COUNT_NAMES.length];
+        Category threads = tdi.getThreads();
+        for (int i = 0; threads != null && i < threads.getNodeCount(); i++) {
+            counts[THREADS]++;
+            String state = getThreadState((ThreadInfo) threads.getNodeAt(i).getUserObject());
+            if ("RUNNABLE".equals(state)) {
+                counts[RUNNABLE]++;
+            } else if ("BLOCKED".equals(state)) {
+                counts[BLOCKED]++;
+            } else if ("WAITING".equals(state)) {
+                counts[WAITING]++;
+            } else if ("TIMED_WAITING".equals(state)) {
+                counts[TIMED_WAITING]++;
+            } else {
+                counts[OTHER]++;
+            }
+        }
+        counts[VIRTUAL_THREADS] = getNodeCount(tdi.getVirtualThreads());
+        Category groups = tdi.getVirtualThreadGroups();
+        for (int i = 0; groups != null && i < groups.getNodeCount(); i++) {
+            Object group = groups.getNodeAt(i).getUserObject();
+            if (group instanceof VirtualThreadGroup) {
+                counts[VIRTUAL_THREADS] += ((VirtualThreadGroup) group).getThreadCount();
+            }
+        }
+        counts[MONITORS_WITHOUT_OWNER] = getNodeCount(tdi.getMonitorsWithoutLocks());
+        // the wait-for graph also finds the deadlocks reported by the jvm.
+        counts[DEADLOCKS] = Math.max(getNodeCount(tdi.getDeadlocks()), getNodeCount(tdi.getLockCycles()));
+        return new ThreadStateCounts(tdi.getName(), tdi.getStartTime(), counts);
+    }
+
+    private static int getNodeCount(Category category) {
+        return category != null ? category.getNodeCount() : 0;
+    }
+
+    /**
+     * get the state of a thread in upper case, from the short format header, from
+     * "state=" in the name or from the "java.lang.Thread.State:" line of the stack.
+     * @return the state, "OTHER" if the thread has no known state.
+     */
+    public static String getThreadState(ThreadInfo ti) {
+        ThreadHeader header = ti.getHeader();
+        String state = "UNKNOWN";
+        if (header != null) {
+            state = header.isShortFormat() ? header.getState() : "OTHER";
+        } else {
+            String[] tokens = ti.getTokens();
+            if (tokens != null && tokens.length == 3) {
+                state = tokens[2];
+            } else if (tokens != null && tokens.length >= 7) {
+                state = "OTHER";
+            }
+        }
+
+        if ("UNKNOWN".equals(state) || "OTHER".equals(state)) {
+            String name = ti.getName();
+            if (name.contains("state=")) {
+                int start = name.indexOf("state=") + 6;
+                int end = name.indexOf(' ', start);
+                state = end > start ? name.substring(start, end) : name.substring(start);
+            } else {
+                String line = findStateLine(ti);
+                if (line != null) {
+                    state = line.substring(line.indexOf(STATE_PREFIX) + STATE_PREFIX.length()).trim();
+                    if (state.indexOf(' ') > 0) {
+                        state = state.substring(0, state.indexOf(' '));
+                    }
+                }
+            }
+        }
+        return state.toUpperCase();
+    }
+
+    /**
+     * find the state line in the lines of the stack, without rebuilding the stack text.
+     */
+    private static String findStateLine(ThreadInfo ti) {
+        ThreadStack stack = ti.getStack();
+        if (stack != null) {
+            for (int i = 0; i < stack.getLineCount(); i++) {
+                String line = stack.getLine(i);
+                if (line.contains(STATE_PREFIX + " ")) {
+                    return line;
+                }
+            }
+            return null;
+        }
+        String content = ti.getStackText();
+        if (content == null || !content.contains(STATE_PREFIX + " ")) {
+            return null;
+        }
+        int start = content.indexOf(STATE_PREFIX + " ");
+        int end = content.indexOf('\n', start);
+        return end > start ? content.substring(start, end) : content.substring(start);
+    }
+
+    public String getDump() {
+        return dump;
+    }
+
+    /**
+     * get the time of the dump as parsed from the log file.
+     * @return the time in the format of the log file, null if unknown.
+     */
+    public String getTime() {
+        return time;
+    }
+
+    /**
+     * get the time of the dump in milliseconds since the epoch, if it is in the
+     * format of the jvm ("2024-01-31 12:34:56") or of a date ("Wed Jan 31 12:34:56 CET 2024").
+     * @return the time or -1 if it is unknown or in another format.
+     */
+    public long getTimeMillis() {
+        if (time == null) {
+            return -1;
+        }
+        String text = time.trim();
+        try {
+            return LocalDateTime.parse(text, DUMP_TIME).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            // not the format of the jvm, try the date format.
+        }
+        try {
+            return ZonedDateTime.parse(text, DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * get a count of this dump.
+     * @param index one of {@link #THREADS} to {@link #DEADLOCKS}.
+     */
+    public int getCount(int index) {
+        return counts[index];
+    }
+
+    /**
+     * the table shows the dump, its time and the counts.
+     */
+    public String[] getTokens() {
+        String[] tokens = new String[counts.length + 2];
+        tokens[0] = dump;
+        tokens[1] = time != null ? time : "";
+        for (int i = 0; i < counts.length; i++) {
+            tokens[i + 2] = String.valueOf(counts[i]);
+        }
+        return tokens;
+    }
+
+    public String getName() {
+        return dump + (time != null ? " around " + time : "") + ": " + counts[RUNNABLE] + " runnable, "
+                + counts[BLOCKED] + " blocked, " + counts[WAITING] + " waiting, " + counts[TIMED_WAITING] + " timed waiting";
+    }
+
+    public String getInfo() {
+        StringBuilder info = new StringBuilder("<body bgcolor=\"ffffff\"><font size=-1><b>");
+        info.append(dump).append("</b>");
+        if (time != null) {
+            info.append(" around ").append(time);
+        }
+        info.append("<table>");
+        for (int i = 0; i < counts.length; i++) {
+            info.append("<tr><td>").append(COUNT_NAMES[i].replace('_', ' ')).append("</td><td align=\"right\">")
+                    .append(counts[i]).append("</td></tr>");
+        }
+        return info.append("</table></font>").toString();
+    }
+
+    /**
+     * the counts are shown in the info, there is no stack.
+     */
+    public String getContent() {
+        return getInfo();
+    }
+
+    /**
+     * write a series of counts as csv with a header line, one line per dump.
+     */
+    public static void writeCsv(List<ThreadStateCounts> series, Writer out) throws IOException {
+        out.write("dump,time,time_millis");
+        for (String name : COUNT_NAMES) {
+            out.write(',');
+            out.write(name);
+        }
+        out.write('\n');
+        for (ThreadStateCounts counts : series) {
+            out.write(quoteCsv(counts.dump));
+            out.write(',');
+            out.write(counts.time != null ? quoteCsv(counts.time) : "");
+            out.write(',');
+            long millis = counts.getTimeMillis();
+            out.write(millis >= 0 ? String.valueOf(millis) : "");
+            for (int count : counts.counts) {
+                out.write(',');
+                out.write(String.valueOf(count));
+            }
+            out.write('\n');
+        }
+    }
+
+    private static String quoteCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * write a series of counts as json array, one object per dump.
+     */
+    public static void writeJson(List<ThreadStateCounts> series, Writer out) throws IOException {
+        JsonWriter json = new JsonWriter(out);
+        json.setIndent("  ");
+        json.beginArray();
+        for (ThreadStateCounts counts : series) {
+            json.beginObject();
+            json.name("dump").value(counts.dump);
+            json.name("time").value(counts.time);
+            long millis = counts.getTimeMillis();
+            json.name("time_millis");
+            if (millis >= 0) {
+                json.value(millis);
+            } else {
+                json.nullValue();
+            }
+            for (int i = 0; i < counts.counts.length; i++) {
+                json.name(COUNT_NAMES[i]).value(counts.counts[i]);
+            }
+            json.endObject();
+        }
+        json.endArray();
+        json.flush();
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * ThreadTimeline.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.model;
+
+import java.util.Arrays;
+
+/**
+ * The occurrences of a thread in a series of dumps, identified by its thread
+ * id and native id (see {@link ThreadHeader#getIdentity()}). State, stack
+ * fingerprint, cpu and elapsed time are stored per dump in primitive arrays,
+ * so the history of a thread is available without going through the dumps
+ * again. The entries are in dump order.
+ *
+ * @author irockel
+ */
+public class ThreadTimeline {
+    private final String identity;
+    private int size;
+    private int[] dumps = new int[4];
+    private String[] names = new String[4];
+    private String[] states = new String[4];
+    private long[] fingerprints = new long[4];
+    private double[] cpuMillis = new double[4];
+    private double[] elapsedSeconds = new double[4];
+    private ThreadInfo[] threads = new ThreadInfo[4];
+
+    /**
+     * @param identity the identity of the thread.
+     */
+    public ThreadTimeline(String identity) {
+        this.identity = identity;
+    }
+
+    /**
+     * add the occurrence of the thread in the next dump.
+     * @param dump the index of the dump in the series.
+     * @param thread the thread in the dump.
+     * @param header the parsed title of the thread.
+     */
+    public void add(int dump, ThreadInfo thread, ThreadHeader header) {
+        if (size == dumps.length) {
+            int capacity = size * 2;
+            dumps = Arrays.copyOf(dumps, capacity);
+            names = Arrays.copyOf(names, capacity);
+            states = Arrays.copyOf(states, capacity);
+            fingerprints = Arrays.copyOf(fingerprints, capacity);
+            cpuMillis = Arrays.copyOf(cpuMillis, capacity);
+            elapsedSeconds = Arrays.copyOf(elapsedSeconds, capacity);
+            threads = Arrays.copyOf(threads, capacity);
+        }
+        dumps[size] = dump;
+        names[size] = header.getName();
+        states[size] = header.getState().trim().intern();
+        fingerprints[size] = thread.getStack() != null ? thread.getStack().getFingerprint() : 0;
+        cpuMillis[size] = header.getCpuMillis();
+        elapsedSeconds[size] = header.getElapsedSeconds();
+        threads[size++] = thread;
+    }
+
+    public String getIdentity() {
+        return (identity);
+    }
+
+    /**
+     * get the amount of dumps the thread occurs in.
+     */
+    public int size() {
+        return (size);
+    }
+
+    /**
+     * get the index of the dump of the passed entry.
+     */
+    public int getDump(int entry) {
+        return (dumps[entry]);
+    }
+
+    /**
+     * get the entry of the passed dump.
+     * @return the entry or a negative value, if the thread doesn't occur in the dump.
+     */
+    public int indexOf(int dump) {
+        return (Arrays.binarySearch(dumps, 0, size, dump));
+    }
+
+    /**
+     * get the name of the thread in the dump of the passed entry, it might be renamed in between.
+     */
+    public String getName(int entry) {
+        return (names[entry]);
+    }
+
+    public String getState(int entry) {
+        return (states[entry]);
+    }
+
+    public long getFingerprint(int entry) {
+        return (fingerprints[entry]);
+    }
+
+    /**
+     * get the consumed cpu time of the thread, -1 if the dump doesn't contain it.
+     */
+    public double getCpuMillis(int entry) {
+        return (cpuMillis[entry]);
+    }
+
+    /**
+     * get the time since the thread was started, -1 if the dump doesn't contain it.
+     */
+    public double getElapsedSeconds(int entry) {
+        return (elapsedSeconds[entry]);
+    }
+
+    /**
+     * get the thread of the passed entry, e.g. to display its stack.
+     */
+    public ThreadInfo getThread(int entry) {
+        return (threads[entry]);
+    }
+
+    /**
+     * get the name of the thread in its last dump.
+     */
+    public String getName() {
+        return (names[size - 1]);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * VirtualThreadGroup.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.model;
+
+/**
+ * A group of virtual threads with the same stack in the same thread container.
+ * Only the number of threads and the stack of the first thread of the group
+ * are kept, the stack is displayed as example for the whole group.
+ *
+ * @author irockel
+ */
+public class VirtualThreadGroup extends ThreadInfo {
+    private final String container;
+    private final String state;
+    private int threadCount;
+
+    /**
+     * @param container the thread container of the threads, null if unknown.
+     * @param exemplar the stack of the first thread of the group.
+     * @param state the state of the first thread of the group.
+     */
+    public VirtualThreadGroup(String container, ThreadStack exemplar, String state) {
+        super(null, null, null, exemplar.getLineCount() + 1, null);
+        this.container = container;
+        this.state = state != null ? state : "";
+        setStack(exemplar);
+    }
+
+    /**
+     * count another thread of this group.
+     */
+    public void addThread() {
+        threadCount++;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public String getContainer() {
+        return container;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    /**
+     * get the top frame of the stack shared by the threads of this group.
+     * @return the frame without the leading "at " or null if the stack has no frames.
+     */
+    public String getTopFrame() {
+        ThreadStack stack = getStack();
+        for (int i = 0; i < stack.getLineCount(); i++) {
+            String line = stack.getLine(i).trim();
+            if (line.startsWith("at ")) {
+                return line.substring(3);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * the table shows the group name, the thread count and the state.
+     */
+    public String[] getTokens() {
+        return new String[] {getName(), String.valueOf(threadCount), state};
+    }
+
+    /**
+     * the name is created on request, as the thread count changes while parsing.
+     */
+    public String getName() {
+        String topFrame = getTopFrame();
+        return threadCount + " virtual threads " + (topFrame != null ? "at " + topFrame : "without stack")
+                + (container != null ? " (" + container + ")" : "");
+    }
+}
@@ -19,16 +19,21 @@
 package de.grimmfrost.tda.parser;
 
 import de.grimmfrost.tda.TDA;
-import de.grimmfrost.tda.filter.Filter;
+import de.grimmfrost.tda.filter.FilterChain;
 import de.grimmfrost.tda.model.*;
 import de.grimmfrost.tda.utils.DateMatcher;
 import de.grimmfrost.tda.utils.IconFactory;
 import de.grimmfrost.tda.utils.PrefManager;
+import de.grimmfrost.tda.utils.StackRenderer;
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Vector;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 import javax.swing.ListModel;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.TreePath;
@@ -43,18 +48,23 @@ import javax.swing.tree.TreePath;
  * @author irockel
  */
 public abstract class AbstractDumpParser implements DumpParser {
+    private static final int MAX_HOT_THREADS = 20;
+
     private BufferedReader bis = null;
     
     private int markSize = 16384;
     private int maxCheckLines = 10;
     private boolean millisTimeStamp = false;
+    private int virtualThreadGroupThreshold = 1000;
     private DateMatcher dm = null;
+    private FrameDictionary dictionary = new FrameDictionary();
     
 
     protected AbstractDumpParser(BufferedReader bis, DateMatcher dm) {
         maxCheckLines = PrefManager.get().getMaxRows();
         markSize = PrefManager.get().getStreamResetBuffer();   
         millisTimeStamp = PrefManager.get().getMillisTimeStamp();
+        virtualThreadGroupThreshold = PrefManager.get().getVirtualThreadGroupThreshold();
         setBis(bis);
         setDm(dm);
     }
@@ -65,43 +75,346 @@ public abstract class AbstractDumpParser implements DumpParser {
      * @return dump string, if proper tree path, null otherwise.
      */
     protected String getDumpStringFromTreePath(TreePath path) {
-        String[] elems = path.toString().split(",");
-        if (elems.length > 1) {
-            return (elems[elems.length-1].substring(0, elems[elems.length-1].lastIndexOf(']')).trim());
+        if (path.getPathCount() > 1) {
+            return (path.getLastPathComponent().toString().trim());
         } else {
             return null;
         }
     }
     
+    /**
+     * get the dumps the passed paths point to, paths to other nodes are skipped.
+     * @param paths the selected paths.
+     * @return the dumps in the order of the paths.
+     */
+    public static List<ThreadDumpInfo> getDumps(TreePath[] paths) {
+        List<ThreadDumpInfo> tdis = new ArrayList<>(paths.length);
+        for (TreePath path : paths) {
+            Object userObject = ((DefaultMutableTreeNode) path.getLastPathComponent()).getUserObject();
+            if (userObject instanceof ThreadDumpInfo) {
+                tdis.add((ThreadDumpInfo) userObject);
+            }
+        }
+        return (tdis);
+    }
+
     /**
      * find long running threads.
      * @param root the root node to use for the result.
-     * @param dumpStore the dump store to use
      * @param paths paths to the dumps to check
      * @param minOccurence the min occurrence of a long running thread
      * @param regex regex to be applied to the thread titles.
      */
-    public void findLongRunningThreads(DefaultMutableTreeNode root, Map dumpStore, TreePath[] paths, int minOccurence, String regex) {
-        diffDumps("Long running thread detection", root, dumpStore, paths, minOccurence, regex);
+    public void findLongRunningThreads(DefaultMutableTreeNode root, TreePath[] paths, int minOccurence, String regex) {
+        diffDumps("Long running thread detection", root, paths, minOccurence, regex);
     }
     
     /**
      * merge the given dumps.
      * @param root the root node to use for the result.
-     * @param dumpStore the dump store tu use
      * @param dumps paths to the dumps to check
      * @param minOccurence the min occurrence of a long running thread
      * @param regex regex to be applied to the thread titles.
      */
-    public void mergeDumps(DefaultMutableTreeNode root, Map dumpStore, TreePath[] dumps, int minOccurence, String regex) {
-        diffDumps("Merge", root, dumpStore, dumps, minOccurence, regex);
+    public void mergeDumps(DefaultMutableTreeNode root, TreePath[] dumps, int minOccurence, String regex) {
+        diffDumps("Merge", root, dumps, minOccurence, regex);
     }
     
-    protected void diffDumps(String prefix, DefaultMutableTreeNode root, Map dumpStore, TreePath[] dumps, int minOccurence, String regex) {
-        Vector keys = new Vector(dumps.length);        
-        
-        for(int i = 0; i < dumps.length; i++) {
-            String dumpName = getDumpStringFromTreePath(dumps[i]);
+    /**
+     * rank the threads blocking other threads over the given dumps.
+     * @param root the root node to use for the result.
+     * @param dumps paths to the dumps to check
+     */
+    public void findTopBlockers(DefaultMutableTreeNode root, TreePath[] dumps) {
+        List<ThreadDumpInfo> tdis = getDumps(dumps);
+        if (tdis.isEmpty()) {
+            return;
+        }
+        List<BlockerInfo> blockers = rankBlockers(tdis);
+        TableCategory cat = new TableCategory("Top Blockers between " + tdis.get(0).getName() + " and "
+                + tdis.get(tdis.size() - 1).getName(), IconFactory.DIFF_DUMPS);
+        for (BlockerInfo blocker : blockers) {
+            cat.addToCatNodes(new DefaultMutableTreeNode(blocker));
+        }
+        root.add(new DefaultMutableTreeNode(cat));
+    }
+
+    /**
+     * sum up the top blockers of a series of dumps. Threads are identified like in the
+     * thread timelines, so the same thread in different dumps is counted once.
+     * @param dumps the dumps of the series.
+     * @return the blocking threads, the thread blocking the most threads overall first.
+     */
+    public static List<BlockerInfo> rankBlockers(List<ThreadDumpInfo> dumps) {
+        Map<String, BlockerInfo> series = new LinkedHashMap<>();
+        for (ThreadDumpInfo tdi : dumps) {
+            Category topBlockers = tdi.getTopBlockers();
+            for (int i = 0; topBlockers != null && i < topBlockers.getNodeCount(); i++) {
+                BlockerInfo blocker = (BlockerInfo) topBlockers.getNodeAt(i).getUserObject();
+                ThreadHeader header = blocker.getHeader() != null ? blocker.getHeader() : ThreadHeaderParser.parse(blocker.getThread());
+                String key = header.getIdentity();
+                BlockerInfo seriesBlocker = series.get(key);
+                if (seriesBlocker == null) {
+                    seriesBlocker = new BlockerInfo(blocker.getThread(), header, blocker.getStack(), 0, 0);
+                    series.put(key, seriesBlocker);
+                }
+                seriesBlocker.addDump(blocker);
+            }
+        }
+        List<BlockerInfo> ranked = new ArrayList<>(series.values());
+        ranked.sort((b1, b2) -> Integer.compare(b2.getBlockedCount(), b1.getBlockedCount()));
+        return (ranked);
+    }
+
+    /**
+     * rank the threads by the cpu time they consumed between consecutive dumps.
+     * @param root the root node to use for the result.
+     * @param dumps paths to the dumps to check
+     */
+    public void findHotThreads(DefaultMutableTreeNode root, TreePath[] dumps) {
+        List<ThreadDumpInfo> tdis = getDumps(dumps);
+        if (tdis.size() < 2) {
+            return;
+        }
+        List<HotThreadInfo> hotThreads = rankHotThreads(tdis, MAX_HOT_THREADS);
+        TableCategory cat = new TableCategory("Hottest Threads between " + tdis.get(0).getName() + " and "
+                + tdis.get(tdis.size() - 1).getName(), IconFactory.DIFF_DUMPS);
+        for (HotThreadInfo hotThread : hotThreads) {
+            cat.addToCatNodes(new DefaultMutableTreeNode(hotThread));
+        }
+        root.add(new DefaultMutableTreeNode(cat));
+    }
+
+    /**
+     * compute the cpu time each thread consumed between two consecutive dumps of a series
+     * from the cpu= and elapsed= values of the thread titles. Threads are matched by their
+     * timelines, threads without cpu time in their title (before JDK 11) are skipped.
+     * @param dumps the dumps of the series.
+     * @param maxPerInterval the maximum amount of threads per interval.
+     * @return the threads with the most cpu time first, grouped by interval in dump order.
+     */
+    public static List<HotThreadInfo> rankHotThreads(List<ThreadDumpInfo> dumps, int maxPerInterval) {
+        List<List<HotThreadInfo>> intervals = new ArrayList<>();
+        for (int i = 1; i < dumps.size(); i++) {
+            intervals.add(new ArrayList<>());
+        }
+        for (ThreadTimeline timeline : buildTimelines(dumps).values()) {
+            for (int i = 1; i < timeline.size(); i++) {
+                int dump = timeline.getDump(i);
+                if (timeline.getDump(i - 1) != dump - 1 || timeline.getCpuMillis(i - 1) < 0 || timeline.getCpuMillis(i) < 0) {
+                    continue;
+                }
+                double cpuMillis = timeline.getCpuMillis(i) - timeline.getCpuMillis(i - 1);
+                double elapsedSeconds = timeline.getElapsedSeconds(i) - timeline.getElapsedSeconds(i - 1);
+                // a negative elapsed time is a new thread which got the ids of a terminated one.
+                if (cpuMillis > 0 && elapsedSeconds > 0) {
+                    ThreadInfo thread = timeline.getThread(i);
+                    String title = thread.getStack() != null ? thread.getStack().getTitle() : thread.getName();
+                    intervals.get(dump - 1).add(new HotThreadInfo(title, thread.getStack(),
+                            dumps.get(dump - 1).getName() + " - " + dumps.get(dump).getName(), cpuMillis, elapsedSeconds));
+                }
+            }
+        }
+        List<HotThreadInfo> ranked = new ArrayList<>();
+        for (List<HotThreadInfo> interval : intervals) {
+            interval.sort((t1, t2) -> Double.compare(t2.getCpuMillis(), t1.getCpuMillis()));
+            ranked.addAll(interval.subList(0, Math.min(interval.size(), maxPerInterval)));
+        }
+        return (ranked);
+    }
+
+    /**
+     * build the timelines of the threads of a series of dumps. Threads are identified
+     * by their thread id and native id, so renamed threads and threads sharing a name
+     * are tracked correctly. Threads sharing an identity in one dump (only possible
+     * for threads identified by name) get a running number.
+     * @param dumps the dumps of the series.
+     * @return the timelines by identity in order of the first occurrence of the threads.
+     */
+    public static Map<String, ThreadTimeline> buildTimelines(List<ThreadDumpInfo> dumps) {
+        Map<String, ThreadTimeline> timelines = new LinkedHashMap<>();
+        for (int dump = 0; dump < dumps.size(); dump++) {
+            ThreadDumpInfo tdi = dumps.get(dump);
+            for (ThreadInfo thread : getThreads(tdi)) {
+                ThreadHeader header = thread.getHeader() != null ? thread.getHeader() : ThreadHeaderParser.parse(thread.getName());
+                String identity = header.getIdentity();
+                ThreadTimeline timeline = timelines.get(identity);
+                for (int no = 2; timeline != null && timeline.getDump(timeline.size() - 1) == dump; no++) {
+                    identity = header.getIdentity() + " #" + no;
+                    timeline = timelines.get(identity);
+                }
+                if (timeline == null) {
+                    timeline = new ThreadTimeline(identity);
+                    timelines.put(identity, timeline);
+                }
+                timeline.add(dump, thread, header);
+            }
+        }
+        return (timelines);
+    }
+
+    /**
+     * get the threads of a dump, also of dumps restored from a session.
+     */
+    static List<ThreadInfo> getThreads(ThreadDumpInfo tdi) {
+        List<ThreadInfo> threads = tdi.getThreadInfos();
+        if (threads == null) {
+            threads = new ArrayList<>();
+            for (int i = 0; tdi.getThreads() != null && i < tdi.getThreads().getNodeCount(); i++) {
+                threads.add((ThreadInfo) tdi.getThreads().getNodeAt(i).getUserObject());
+            }
+        }
+        return (threads);
+    }
+
+    /**
+     * group the threads of the given dumps by their stacks.
+     * @param root the root node to use for the result.
+     * @param dumps paths to the dumps to check
+     */
+    public void findStackClusters(DefaultMutableTreeNode root, TreePath[] dumps) {
+        List<ThreadDumpInfo> tdis = getDumps(dumps);
+        if (tdis.isEmpty()) {
+            return;
+        }
+        boolean ignoreVersions = PrefManager.get().getClusterIgnoreVersions();
+        List<StackCluster> clusters = clusterStacks(tdis, ignoreVersions, ignoreVersions);
+        String name = tdis.size() == 1 ? "Stack Clusters of " + tdis.get(0).getName()
+                : "Stack Clusters between " + tdis.get(0).getName() + " and " + tdis.get(tdis.size() - 1).getName();
+        TableCategory cat = new TableCategory(name + " (" + clusters.size() + " clusters)", IconFactory.DIFF_DUMPS);
+        for (StackCluster cluster : clusters) {
+            cat.addToCatNodes(new DefaultMutableTreeNode(cluster));
+        }
+        root.add(new DefaultMutableTreeNode(cat));
+    }
+
+    /**
+     * group the threads of a dump or a series of dumps by their stacks.
+     * @param dumps the dumps to check.
+     * @param ignoreLineNumbers if true, frames only differing in line numbers are the same.
+     * @param ignoreModules if true, frames only differing in class loader and module are the same.
+     * @return the clusters, the biggest cluster first.
+     */
+    public static List<StackCluster> clusterStacks(List<ThreadDumpInfo> dumps, boolean ignoreLineNumbers, boolean ignoreModules) {
+        StackClusterer clusterer = new StackClusterer(ignoreLineNumbers, ignoreModules);
+        for (int dump = 0; dump < dumps.size(); dump++) {
+            for (ThreadInfo thread : getThreads(dumps.get(dump))) {
+                clusterer.add(dump, thread);
+            }
+        }
+        return (clusterer.getClusters());
+    }
+
+    /**
+     * merge the stacks of the given dumps into a call tree, every thread is a sample.
+     * @param root the root node to use for the result.
+     * @param dumps paths to the dumps to check
+     * @param state only threads in this state are added, null for all threads.
+     */
+    public void findCallTree(DefaultMutableTreeNode root, TreePath[] dumps, String state) {
+        List<ThreadDumpInfo> tdis = getDumps(dumps);
+        if (tdis.isEmpty()) {
+            return;
+        }
+        root.add(new DefaultMutableTreeNode(new CallTreeCategory(getCallTreeName(tdis, state), IconFactory.DIFF_DUMPS,
+                buildCallTree(tdis, state))));
+    }
+
+    /**
+     * create an empty call tree for the given dumps, the threads of the dumps are added with
+     * {@link #addToCallTree(CallTree, ThreadDumpInfo)} as soon as the dumps are parsed.
+     * @param dumps paths to the dumps to check
+     * @param state only threads in this state are added, null for all threads.
+     * @return the category showing the call tree, null if no dump was passed.
+     */
+    public CallTreeCategory createCallTree(TreePath[] dumps, String state) {
+        List<ThreadDumpInfo> tdis = getDumps(dumps);
+        if (tdis.isEmpty()) {
+            return (null);
+        }
+        return (new CallTreeCategory(getCallTreeName(tdis, state), IconFactory.DIFF_DUMPS, new CallTree(getDictionary(), state)));
+    }
+
+    private static String getCallTreeName(List<ThreadDumpInfo> tdis, String state) {
+        return ((tdis.size() == 1 ? "Call Tree of " + tdis.get(0).getName()
+                : "Call Tree between " + tdis.get(0).getName() + " and " + tdis.get(tdis.size() - 1).getName())
+                + (state != null ? " (" + state + ")" : ""));
+    }
+
+    /**
+     * add the threads of a dump to a call tree.
+     * @param tree the call tree.
+     * @param tdi the parsed dump.
+     */
+    public static void addToCallTree(CallTree tree, ThreadDumpInfo tdi) {
+        for (ThreadInfo thread : getThreads(tdi)) {
+            tree.addThread(thread);
+        }
+    }
+
+    /**
+     * merge the stacks of a dump or a series of dumps into a call tree.
+     * @param dumps the dumps, they are added one after the other.
+     * @param state only threads in this state (e.g. RUNNABLE) are added, null for all threads.
+     * @return the call tree.
+     */
+    public static CallTree buildCallTree(List<ThreadDumpInfo> dumps, String state) {
+        CallTree tree = null;
+        for (ThreadDumpInfo tdi : dumps) {
+            for (ThreadInfo thread : getThreads(tdi)) {
+                // the tree shares the dictionary of the stacks, so their lines needn't be interned again.
+                if (tree == null && thread.getStack() != null) {
+                    tree = new CallTree(thread.getStack().getDictionary(), state);
+                }
+                if (tree != null) {
+                    tree.addThread(thread);
+                }
+            }
+        }
+        return (tree != null ? tree : new CallTree(new FrameDictionary(), state));
+    }
+
+    /**
+     * count the thread states of the given dumps, one point of the series per dump.
+     * @param root the root node to use for the result.
+     * @param dumps paths to the dumps to count.
+     */
+    public void findStateSeries(DefaultMutableTreeNode root, TreePath[] dumps) {
+        List<ThreadDumpInfo> tdis = getDumps(dumps);
+        if (tdis.isEmpty()) {
+            return;
+        }
+        String name = tdis.size() == 1 ? "Thread States of " + tdis.get(0).getName()
+                : "Thread States between " + tdis.get(0).getName() + " and " + tdis.get(tdis.size() - 1).getName();
+        root.add(new DefaultMutableTreeNode(new StateSeriesCategory(name, IconFactory.DIFF_DUMPS, countStates(tdis))));
+    }
+
+    /**
+     * get the thread state counts of the given dumps, the counts of a dump are only
+     * computed once.
+     * @param dumps the dumps in dump order.
+     */
+    public static List<ThreadStateCounts> countStates(List<ThreadDumpInfo> dumps) {
+        List<ThreadStateCounts> series = new ArrayList<>(dumps.size());
+        for (ThreadDumpInfo tdi : dumps) {
+            series.add(tdi.getStateCounts());
+        }
+        return (series);
+    }
+
+    /**
+     * find the threads with the same stack in the given dumps. The threads are matched
+     * by their timelines, the stacks are compared by their fingerprints in parallel,
+     * only the threads found are rendered.
+     */
+    protected void diffDumps(String prefix, DefaultMutableTreeNode root, TreePath[] dumps, int minOccurence, String regex) {
+        List<ThreadDumpInfo> tdis = getDumps(dumps);
+        if (tdis.isEmpty()) {
+            return;
+        }
+        Vector keys = new Vector(tdis.size());
+        for (ThreadDumpInfo tdi : tdis) {
+            String dumpName = tdi.toString().trim();
             if(dumpName.indexOf(" at") > 0) {
                 dumpName = dumpName.substring(0, dumpName.indexOf(" at"));
             } else if(dumpName.indexOf(" around") > 0) {
@@ -115,50 +428,55 @@ public abstract class AbstractDumpParser implements DumpParser {
         root.add(catMerge);
         int threadCount = 0;
         
-        if(dumpStore.get(keys.get(0)) != null) {
-            Iterator dumpIter = ((Map) dumpStore.get(keys.get(0))).keySet().iterator();
-            
-            while(dumpIter.hasNext()) {
-                String threadKey = (String) dumpIter.next();
-                int occurence = 1; 
-                
-                if(regex == null || regex.equals("") || threadKey.matches(regex)) {
-                    for(int i = 1; i < dumps.length; i++) {
-                        Map threads = (Map) dumpStore.get(keys.get(i));
-                        if(threads != null && threads.containsKey(threadKey)) {
-                            String content1 = (String) ((Map) dumpStore.get(keys.get(0))).get(threadKey);
-                            String content2 = (String) threads.get(threadKey);
-                            if (content1 != null && content2 != null && content1.equals(content2)) {
-                                occurence++;
-                            }
-                        }
+        Pattern pattern = regex == null || regex.equals("") ? null : Pattern.compile(regex);
+        ThreadTimeline[] timelines = buildTimelines(tdis).values().stream()
+                .filter(timeline -> timeline.getDump(0) == 0).toArray(ThreadTimeline[]::new);
+        int[] occurences = new int[timelines.length];
+
+        IntStream.range(0, timelines.length).parallel().forEach(t -> {
+            ThreadTimeline timeline = timelines[t];
+            ThreadStack content1 = timeline.getThread(0).getStack();
+            if(content1 != null && (pattern == null || pattern.matcher(content1.getTitle()).matches())) {
+                int occurence = 1;
+                for(int i = 1; i < timeline.size(); i++) {
+                    ThreadStack content2 = timeline.getThread(i).getStack();
+                    if (content2 != null && timeline.getFingerprint(0) == timeline.getFingerprint(i)
+                            && content1.hasSameLines(content2)) {
+                        occurence++;
                     }
-                
-                    if(occurence >= minOccurence) {
-                        threadCount++;
-                        StringBuffer content = new StringBuffer("<body bgcolor=\"ffffff\"><b><font size=").append(TDA.getFontSizeModifier(-1)).
-                                append(">").append((String) keys.get(0)).append("</b></font><hr><pre><font size=").
-                                append(TDA.getFontSizeModifier(-1)).append(">").
-                                append(fixMonitorLinks((String) ((Map) dumpStore.get(keys.get(0))).get(threadKey), (String) keys.get(0)));
-
-                        int maxLines = 0;
-                        for(int i = 1; i < dumps.length; i++) {
-                            if(((Map)dumpStore.get(keys.get(i))).containsKey(threadKey)) {
-                                content.append("\n\n</pre><b><font size=");
-                                content.append(TDA.getFontSizeModifier(-1));
-                                content.append(">");
-                                content.append(keys.get(i));
-                                content.append("</font></b><hr><pre><font size=");
-                                content.append(TDA.getFontSizeModifier(-1));
-                                content.append(">");
-                                content.append(fixMonitorLinks((String) ((Map)dumpStore.get(keys.get(i))).get(threadKey), (String) keys.get(i)));
-                                int countLines = countLines(((String) ((Map)dumpStore.get(keys.get(i))).get(threadKey)));
-                                maxLines = maxLines > countLines ? maxLines : countLines;
-                            }
-                        }
-                        addToCategory(catMerge, threadKey, null, content.toString(), maxLines, true);
+                }
+                occurences[t] = occurence;
+            }
+        });
+
+        for(int t = 0; t < timelines.length; t++) {
+            ThreadTimeline timeline = timelines[t];
+            if(occurences[t] > 0 && occurences[t] >= minOccurence) {
+                threadCount++;
+                ThreadStack first = timeline.getThread(0).getStack();
+                StringBuffer content = new StringBuffer("<body bgcolor=\"ffffff\"><b><font size=").append(TDA.getFontSizeModifier(-1)).
+                        append(">").append((String) keys.get(0)).append("</b></font><hr><pre><font size=").
+                        append(TDA.getFontSizeModifier(-1)).append(">").
+                        append(fixMonitorLinks(StackRenderer.renderLines(first.toString()), (String) keys.get(0)));
+
+                int maxLines = 0;
+                for(int i = 1; i < timeline.size(); i++) {
+                    ThreadStack stack = timeline.getThread(i).getStack();
+                    String key = (String) keys.get(timeline.getDump(i));
+                    if(stack != null) {
+                        content.append("\n\n</pre><b><font size=");
+                        content.append(TDA.getFontSizeModifier(-1));
+                        content.append(">");
+                        content.append(key);
+                        content.append("</font></b><hr><pre><font size=");
+                        content.append(TDA.getFontSizeModifier(-1));
+                        content.append(">");
+                        content.append(fixMonitorLinks(StackRenderer.renderLines(stack.toString()), key));
+                        int countLines = stack.getLineCount() + 1;
+                        maxLines = maxLines > countLines ? maxLines : countLines;
                     }
                 }
+                addToCategory(catMerge, first.getTitle(), null, content.toString(), maxLines, true);
             }
         }
         
@@ -166,22 +484,6 @@ public abstract class AbstractDumpParser implements DumpParser {
         
     }
 
-    /**
-     * count lines of input string.
-     * @param input
-     * @return line count
-     */
-    private int countLines(String input) {
-        int pos = 0;
-        int count = 0;
-        while(input.indexOf('\n', pos) > 0) {
-            count++;
-            pos = input.indexOf('\n', pos) +1;
-        }
-
-        return(count);
-    }
-    
     /**
      * generate statistical information concerning the merge on long running thread detection.
      * @param keys the dump node keys
@@ -250,6 +552,20 @@ public abstract class AbstractDumpParser implements DumpParser {
         top.add(threadInfo);
     }
     
+    /**
+     * create a tree node for a thread, only the raw stack is stored, the html
+     * is rendered when the thread is displayed.
+     * @param top the parent node the new node should be added to.
+     * @param title the title of the new node
+     * @param stack the raw stack of the thread.
+     * @see ThreadInfo
+     */
+    protected void createStackNode(DefaultMutableTreeNode top, String title, ThreadStack stack) {
+        ThreadInfo ti = new ThreadInfo(title, null, null, 0, getThreadTokens(title));
+        ti.setStack(stack);
+        top.add(new DefaultMutableTreeNode(ti));
+    }
+
     /**
      * create a category entry for a category (categories are "Monitors", "Threads waiting", e.g.). A ThreadInfo
      * instance will be created with the passed information.
@@ -271,6 +587,50 @@ public abstract class AbstractDumpParser implements DumpParser {
         }
     }
 
+    /**
+     * create the thread info for a thread with an already parsed title. Only the raw
+     * stack is stored, the html is rendered when the thread is displayed. The thread info
+     * is created once per thread and shared by all categories the thread is listed in.
+     * @param title the title of the thread
+     * @param stack the raw stack of the thread.
+     * @param lineCount the line count of the thread stack.
+     * @param header the parsed title of the thread.
+     */
+    protected ThreadInfo createThreadInfo(String title, ThreadStack stack, int lineCount, ThreadHeader header) {
+        ThreadInfo ti = new ThreadInfo(title, null, null, lineCount, null);
+        ti.setHeader(header);
+        ti.setStack(stack);
+        return (ti);
+    }
+
+    /**
+     * create a category entry for a thread with already parsed thread tokens. Only the raw
+     * stack is stored, the html is rendered when the thread is displayed.
+     * @param category the category the node should be added to.
+     * @param title the title of the new node
+     * @param stack the raw stack of the thread.
+     * @param lineCount the line count of the thread stack.
+     * @param tokens the parsed thread tokens of the title.
+     */
+    protected void addToCategory(DefaultMutableTreeNode category, String title, ThreadStack stack, int lineCount, String[] tokens) {
+        ThreadInfo ti = new ThreadInfo(title, null, null, lineCount, tokens);
+        ti.setStack(stack);
+        addToCategory(category, ti);
+    }
+
+    /**
+     * add an already created thread info to the passed category.
+     * @param category the category the node should be added to.
+     * @param ti the thread info.
+     */
+    protected void addToCategory(DefaultMutableTreeNode category, ThreadInfo ti) {
+        Category cat = (Category) category.getUserObject();
+        cat.addToCatNodes(new DefaultMutableTreeNode(ti));
+        if (!(cat instanceof TableCategory)) {
+            category.add(new DefaultMutableTreeNode(ti));
+        }
+    }
+
     /**
      * get the stream to parse
      * @return stream or null if none is set up
@@ -391,6 +751,32 @@ public abstract class AbstractDumpParser implements DumpParser {
         this.millisTimeStamp = millisTimeStamp;
     }
 
+    /**
+     * virtual threads are grouped by their stack if a dump contains more virtual threads than this.
+     * @return the threshold, 0 if virtual threads shouldn't be grouped.
+     */
+    public int getVirtualThreadGroupThreshold() {
+        return virtualThreadGroupThreshold;
+    }
+
+    public void setVirtualThreadGroupThreshold(int virtualThreadGroupThreshold) {
+        this.virtualThreadGroupThreshold = virtualThreadGroupThreshold;
+    }
+
+    /**
+     * create the category for the grouped virtual threads of a dump.
+     * @param groups the grouped virtual threads.
+     * @return the category node.
+     */
+    protected DefaultMutableTreeNode createVirtualThreadGroupsCategory(VirtualThreadAggregator groups) {
+        TableCategory cat = new TableCategory("Virtual Thread Groups (" + groups.getThreadCount() + " Virtual Threads in "
+                + groups.getGroupCount() + " Groups)", IconFactory.THREADS);
+        for (VirtualThreadGroup group : groups.getGroups()) {
+            cat.addToCatNodes(new DefaultMutableTreeNode(group));
+        }
+        return (new DefaultMutableTreeNode(cat));
+    }
+
     public DateMatcher getDm() {
         return dm;
     }
@@ -398,6 +784,21 @@ public abstract class AbstractDumpParser implements DumpParser {
     public void setDm(DateMatcher dm) {
         this.dm = dm;
     }
+
+    /**
+     * get the dictionary of the stack lines of the parsed log file.
+     */
+    public FrameDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * share the dictionary of another parser of the same log file, e.g. if its dumps are
+     * parsed by several parsers.
+     */
+    public void setDictionary(FrameDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
     
     /**
      * check threads in given thread dump and add appropriate 
@@ -409,17 +810,12 @@ public abstract class AbstractDumpParser implements DumpParser {
         Category threads = tdi.getThreads();
         ListModel cats = PrefManager.get().getCategories();
         for(int i = 0; i < cats.getSize(); i++) {
-            Category cat = new TableCategory(((CustomCategory) cats.getElementAt(i)).getName(), IconFactory.CUSTOM_CATEGORY);
+            CustomCategory customCat = (CustomCategory) cats.getElementAt(i);
+            Category cat = new TableCategory(customCat.getName(), IconFactory.CUSTOM_CATEGORY);
+            FilterChain chain = FilterChain.compile(customCat.getFilters(), true);
             for(int j = 0; j < threads.getNodeCount(); j++) {
-                Iterator filterIter = ((CustomCategory) cats.getElementAt(i)).iterOfFilters();
-                boolean matches = true;
                 ThreadInfo ti = (ThreadInfo) threads.getNodeAt(j).getUserObject();
-                while (matches && filterIter.hasNext()) {
-                    Filter filter = (Filter) filterIter.next();
-                    matches = filter.matches(ti, true);
-                }
-                
-                if(matches) {
+                if(chain.check(ti)) {
                     cat.addToCatNodes(new DefaultMutableTreeNode(ti));
                 }
             }
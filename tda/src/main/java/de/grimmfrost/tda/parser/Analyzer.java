@@ -54,6 +54,7 @@ public class Analyzer implements Serializable {
         
         StringBuffer statData = new StringBuffer();
         int deadlocks = tdi.getDeadlocks() == null ? 0 : tdi.getDeadlocks().getNodeCount();
+        int lockCycles = tdi.getLockCycles() == null ? 0 : tdi.getLockCycles().getNodeCount();
         int threadCount = tdi.getThreads() == null ? 0 : tdi.getThreads().getNodeCount();
         int waiting = tdi.getWaitingThreads() == null ? 0 : tdi.getWaitingThreads().getNodeCount();
         int sleeping = tdi.getSleepingThreads() == null ? 0 : tdi.getSleepingThreads().getNodeCount();
@@ -78,6 +79,14 @@ public class Analyzer implements Serializable {
                     .append(deadlocks).append(" deadlock(s) in the thread dump. You should check the <br><a style=\"color: ").append(linkColor).append(";\" href=\"dead://\">deadlocks</a> for further information.</p><br>");
         }
 
+        // deadlocks of e.g. ReentrantLocks aren't reported by the jvm.
+        if ((deadlocks == 0) && (lockCycles > 0)) {
+            statData.append("<tr bgcolor=\"#ffffff\"<td></td></tr>");
+            statData.append("<tr bgcolor=\"").append(altRowColor).append("\"><td colspan=2><font face=System color=\"").append(textColor).append("\"><p>")
+                    .append(lockCycles).append(" cycle(s) of threads waiting for each other were found in the monitors of the thread dump.<br>");
+            statData.append("The JVM didn't report them as deadlock, you should check the lock cycles for further information.</p><br></td></tr>");
+        }
+
         // check if a lot of threads are in state "waiting"
         if ((threadCount > 0) && ((sleeping / (threadCount / 100.0)) > 25.0)) {
             statData.append("<tr bgcolor=\"#ffffff\"<td></td></tr>");
@@ -117,7 +126,7 @@ public class Analyzer implements Serializable {
             for (int i = 0; i < threadCount; i++) {
                 javax.swing.tree.DefaultMutableTreeNode node = (javax.swing.tree.DefaultMutableTreeNode) threadsCat.getNodeAt(i);
                 ThreadInfo ti = (ThreadInfo) node.getUserObject();
-                if (ti.getContent().contains("carrier thread seems to be stuck in application code")) {
+                if (ti.getStackText().contains("carrier thread seems to be stuck in application code")) {
                     stuckCarrierThreads++;
                 }
             }
@@ -0,0 +1,318 @@
+/*
+ * DumpIndex.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.parser;
+
+import de.grimmfrost.tda.utils.LogManager;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Index of the dumps of a large log file, stored in a cache directory. It
+ * contains the byte offsets of the dump segments found by the
+ * ParallelSunJDKParser and a short summary (line, timestamp and thread count)
+ * of every dump, so reopening the same log file doesn't need to scan it again. The index is only valid for
+ * the log file with the same path, size, modification time and content hash.
+ *
+ * @author irockel
+ */
+public class DumpIndex {
+    private static final Logger LOGGER = LogManager.getLogger(DumpIndex.class);
+
+    private static final int MAGIC = 0x54444149;
+
+    private static final int VERSION = 3;
+
+    /**
+     * thread count of a dump, which wasn't parsed while the index was created.
+     */
+    public static final int UNKNOWN_THREAD_COUNT = -1;
+
+    /**
+     * amount of bytes at the start and the end of the log file used for the content hash.
+     */
+    private static final int HASH_SAMPLE_SIZE = 65536;
+
+    private final String path;
+    private final long size;
+    private final long lastModified;
+    private final long contentHash;
+    private final String charset;
+    private final boolean wrapped;
+    private final List<Segment> segments = new ArrayList<>();
+
+    /**
+     * create a new (empty) index for the passed log file.
+     * @param logFile the indexed log file.
+     * @param charset the charset of the log file.
+     * @param wrapped true, if the log file was written by the Tanuki Service Wrapper.
+     * @throws IOException if the content hash couldn't be calculated.
+     */
+    public DumpIndex(File logFile, Charset charset, boolean wrapped) throws IOException {
+        this(logFile.getCanonicalPath(), logFile.length(), logFile.lastModified(), calculateContentHash(logFile),
+                charset.name(), wrapped);
+    }
+
+    private DumpIndex(String path, long size, long lastModified, long contentHash, String charset, boolean wrapped) {
+        this.path = path;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.contentHash = contentHash;
+        this.charset = charset;
+        this.wrapped = wrapped;
+    }
+
+    /**
+     * get the default location of the index of the passed log file in the cache directory.
+     * @param logFile the log file.
+     * @param cacheDir the cache directory for the indexes.
+     * @return the index file, might not exist.
+     */
+    public static File getIndexFile(File logFile, File cacheDir) throws IOException {
+        String canonicalPath = logFile.getCanonicalPath();
+        return (new File(cacheDir, logFile.getName() + "-" + Integer.toHexString(canonicalPath.hashCode()) + ".idx"));
+    }
+
+    /**
+     * load the index of the passed log file.
+     * @param logFile the indexed log file.
+     * @param indexFile the file the index is stored in.
+     * @return the index or null, if no index exists or the log file changed since the index was written.
+     */
+    public static DumpIndex load(File logFile, File indexFile) {
+        if (!indexFile.isFile()) {
+            return (null);
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                LOGGER.log(Level.INFO, "ignoring index " + indexFile + " with unknown format");
+                return (null);
+            }
+            DumpIndex index = new DumpIndex(in.readUTF(), in.readLong(), in.readLong(), in.readLong(), in.readUTF(),
+                    in.readBoolean());
+            if (!index.path.equals(logFile.getCanonicalPath()) || index.size != logFile.length()
+                    || index.lastModified != logFile.lastModified() || index.contentHash != calculateContentHash(logFile)) {
+                LOGGER.log(Level.INFO, "index " + indexFile + " is outdated");
+                return (null);
+            }
+            int segmentCount = in.readInt();
+            for (int i = 0; i < segmentCount; i++) {
+                Segment segment = index.addSegment(in.readLong(), in.readLong(), in.readInt());
+                int dumpCount = in.readInt();
+                for (int j = 0; j < dumpCount; j++) {
+                    int logLine = in.readInt();
+                    String startTime = in.readBoolean() ? in.readUTF() : null;
+                    segment.addDump(logLine, startTime, in.readInt());
+                }
+            }
+            return (index);
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "couldn't read index " + indexFile, ex);
+            return (null);
+        }
+    }
+
+    /**
+     * write this index to the passed file. The index is written to a temporary file first,
+     * so concurrent readers never see a partially written index.
+     * @param indexFile the file to write the index to.
+     * @throws IOException if the index couldn't be written.
+     */
+    public void save(File indexFile) throws IOException {
+        File dir = indexFile.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("couldn't create index directory " + dir);
+        }
+        File tmpFile = File.createTempFile(indexFile.getName(), ".tmp", dir);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(path);
+                out.writeLong(size);
+                out.writeLong(lastModified);
+                out.writeLong(contentHash);
+                out.writeUTF(charset);
+                out.writeBoolean(wrapped);
+                out.writeInt(segments.size());
+                for (Segment segment : segments) {
+                    out.writeLong(segment.start);
+                    out.writeLong(segment.end);
+                    out.writeInt(segment.logLine);
+                    out.writeInt(segment.dumps.size());
+                    for (DumpSummary dump : segment.dumps) {
+                        out.writeInt(dump.logLine);
+                        out.writeBoolean(dump.startTime != null);
+                        if (dump.startTime != null) {
+                            out.writeUTF(dump.startTime);
+                        }
+                        out.writeInt(dump.threadCount);
+                    }
+                }
+            }
+            Files.move(tmpFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            tmpFile.delete();
+        }
+    }
+
+    /**
+     * add a dump segment to this index.
+     * @param start the byte offset of the segment.
+     * @param end the byte offset after the segment.
+     * @param logLine the index of the first line of the segment.
+     * @return the added segment.
+     */
+    public Segment addSegment(long start, long end, int logLine) {
+        Segment segment = new Segment(start, end, logLine);
+        segments.add(segment);
+        return (segment);
+    }
+
+    public List<Segment> getSegments() {
+        return (Collections.unmodifiableList(segments));
+    }
+
+    /**
+     * get the amount of dumps of all segments.
+     */
+    public int getDumpCount() {
+        int count = 0;
+        for (Segment segment : segments) {
+            count += segment.dumps.size();
+        }
+        return (count);
+    }
+
+    public Charset getCharset() {
+        return (Charset.forName(charset));
+    }
+
+    public boolean isWrapped() {
+        return (wrapped);
+    }
+
+    /**
+     * hash of the size and of the first and last bytes of the log file. Hashing the whole
+     * file would take as long as scanning it, the modification time covers the rest.
+     */
+    static long calculateContentHash(File logFile) throws IOException {
+        CRC32 crc = new CRC32();
+        try (RandomAccessFile raf = new RandomAccessFile(logFile, "r")) {
+            long length = raf.length();
+            byte[] buffer = new byte[(int) Math.min(HASH_SAMPLE_SIZE, length)];
+            raf.readFully(buffer);
+            crc.update(buffer);
+            if (length > HASH_SAMPLE_SIZE) {
+                buffer = new byte[(int) Math.min(HASH_SAMPLE_SIZE, length - HASH_SAMPLE_SIZE)];
+                raf.seek(length - buffer.length);
+                raf.readFully(buffer);
+                crc.update(buffer);
+            }
+            return ((length << 32) ^ crc.getValue());
+        }
+    }
+
+    /**
+     * a segment of the log file containing (usually) one dump.
+     */
+    public static class Segment {
+        private final long start;
+        private final long end;
+        private final int logLine;
+        private final List<DumpSummary> dumps = new ArrayList<>();
+
+        private Segment(long start, long end, int logLine) {
+            this.start = start;
+            this.end = end;
+            this.logLine = logLine;
+        }
+
+        /**
+         * add the summary of a dump found in this segment.
+         * @param threadCount the amount of threads of the dump, UNKNOWN_THREAD_COUNT if the dump wasn't parsed.
+         */
+        public void addDump(int logLine, String startTime, int threadCount) {
+            dumps.add(new DumpSummary(logLine, startTime, threadCount));
+        }
+
+        public long getStart() {
+            return (start);
+        }
+
+        public long getEnd() {
+            return (end);
+        }
+
+        public int getLogLine() {
+            return (logLine);
+        }
+
+        public List<DumpSummary> getDumps() {
+            return (Collections.unmodifiableList(dumps));
+        }
+    }
+
+    /**
+     * summary of a dump, which can be displayed without parsing the dump.
+     */
+    public static class DumpSummary {
+        private final int logLine;
+        private final String startTime;
+        private final int threadCount;
+
+        private DumpSummary(int logLine, String startTime, int threadCount) {
+            this.logLine = logLine;
+            this.startTime = startTime;
+            this.threadCount = threadCount;
+        }
+
+        public int getLogLine() {
+            return (logLine);
+        }
+
+        public String getStartTime() {
+            return (startTime);
+        }
+
+        /**
+         * @return the amount of threads of the dump, UNKNOWN_THREAD_COUNT if the dump wasn't parsed.
+         */
+        public int getThreadCount() {
+            return (threadCount);
+        }
+    }
+}
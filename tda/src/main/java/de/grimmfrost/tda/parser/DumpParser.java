@@ -22,9 +22,9 @@
 
 package de.grimmfrost.tda.parser;
 
+import de.grimmfrost.tda.model.CallTreeCategory;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Map;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.MutableTreeNode;
 import javax.swing.tree.TreePath;
@@ -41,9 +41,21 @@ public interface DumpParser {
     
     public void close() throws IOException;
     
-    public void findLongRunningThreads(DefaultMutableTreeNode root, Map<String, Map<String, String>> dumpStore, TreePath[] paths, int minOccurrence, String regex);
+    public void findLongRunningThreads(DefaultMutableTreeNode root, TreePath[] paths, int minOccurrence, String regex);
     
-    public void mergeDumps(DefaultMutableTreeNode root, Map<String, Map<String, String>> dumpStore, TreePath[] dumps, int minOccurrence, String regex);
+    public void mergeDumps(DefaultMutableTreeNode root, TreePath[] dumps, int minOccurrence, String regex);
+
+    public void findTopBlockers(DefaultMutableTreeNode root, TreePath[] dumps);
+
+    public void findHotThreads(DefaultMutableTreeNode root, TreePath[] dumps);
+
+    public void findStackClusters(DefaultMutableTreeNode root, TreePath[] dumps);
+
+    public void findCallTree(DefaultMutableTreeNode root, TreePath[] dumps, String state);
+
+    public CallTreeCategory createCallTree(TreePath[] dumps, String state);
+
+    public void findStateSeries(DefaultMutableTreeNode root, TreePath[] dumps);
 
     public boolean isFoundClassHistograms();
     
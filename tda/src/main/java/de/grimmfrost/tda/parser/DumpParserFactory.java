@@ -26,12 +26,13 @@ import de.grimmfrost.tda.utils.LogManager;
 import de.grimmfrost.tda.utils.PrefManager;
 import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -66,13 +67,11 @@ public class DumpParserFactory {
      * parses the given logfile for thread dumps and return a proper jdk parser (either for Sun VM's or
      * for JRockit/Bea VM's) and initializes the DumpParser with the stream.
      * @param dumpFileStream the file stream to use for dump parsing.
-     * @param threadStore the map to store the found thread dumps.
      * @param withCurrentTimeStamp only used by SunJDKParser for running in JConsole-Plugin-Mode,  it then uses
      *                             the current time stamp instead of a parsed one.
      * @return a proper dump parser for the given log file, null if no proper parser was found.
      */
-    public DumpParser getDumpParserForLogfile(InputStream dumpFileStream, Map<String, Map<String, String>> threadStore,
-                                              boolean withCurrentTimeStamp, int startCounter) {
+    public DumpParser getDumpParserForLogfile(InputStream dumpFileStream, boolean withCurrentTimeStamp, int startCounter) {
         BufferedReader bis = null;
         int readAheadLimit = PrefManager.get().getStreamResetBuffer();
         int lineCounter = 0;
@@ -91,14 +90,14 @@ public class DumpParserFactory {
                 if (line == null) break;
                 dm.checkForDateMatch(line);
                 if (JCmdJSONParser.checkForSupportedThreadDump(line)) {
-                    currentDumpParser = new JCmdJSONParser(bis, threadStore, lineCounter, dm);
+                    currentDumpParser = new JCmdJSONParser(bis, lineCounter, dm);
                 } else {
                     // check next lines if it is a JSON dump which doesn't start with "threadDump" in the first line
                     for (int i=0; i < 10 && bis.ready(); i++) {
                         String nextLine = bis.readLine();
                         if (nextLine == null) break;
                         if (JCmdJSONParser.checkForSupportedThreadDump(nextLine)) {
-                            currentDumpParser = new JCmdJSONParser(bis, threadStore, lineCounter, dm);
+                            currentDumpParser = new JCmdJSONParser(bis, lineCounter, dm);
                             break;
                         }
                     }
@@ -111,9 +110,9 @@ public class DumpParserFactory {
 
                 if (currentDumpParser == null) {
                     if (WrappedSunJDKParser.checkForSupportedThreadDump(line)) {
-                        currentDumpParser = new WrappedSunJDKParser(bis, threadStore, lineCounter, withCurrentTimeStamp, startCounter, dm);
+                        currentDumpParser = new WrappedSunJDKParser(bis, lineCounter, withCurrentTimeStamp, startCounter, dm);
                     } else if(SunJDKParser.checkForSupportedThreadDump(line)) {
-                        currentDumpParser = new SunJDKParser(bis, threadStore, lineCounter, withCurrentTimeStamp, startCounter, dm);
+                        currentDumpParser = new SunJDKParser(bis, lineCounter, withCurrentTimeStamp, startCounter, dm);
                     }
                 }
                 lineCounter++;
@@ -128,6 +127,62 @@ public class DumpParserFactory {
         return currentDumpParser;
     }
 
+    /**
+     * parses the given logfile for thread dumps and returns a proper dump parser for it.
+     * @param dumpFile the log file to parse.
+     * @param startCounter the number of the first dump found.
+     * @return a proper dump parser for the given log file, null if no proper parser was found.
+     * @throws IOException if the file couldn't be opened.
+     * @see #getDumpParserForFile(File, InputStream, int)
+     */
+    public DumpParser getDumpParserForFile(File dumpFile, int startCounter) throws IOException {
+        return getDumpParserForFile(dumpFile, new FileInputStream(dumpFile), startCounter);
+    }
+
+    /**
+     * parses the given logfile for thread dumps and returns a proper dump parser for it. Large
+     * logfiles containing Sun JDK thread dumps are memory mapped and their dumps parsed in parallel
+     * if enabled in the preferences, all other files are parsed sequentially from the passed stream.
+     * If a valid index of the log file exists in the index directory, the log file isn't scanned for
+     * dumps again, the dump segments are taken from the index.
+     * @param dumpFile the log file to parse.
+     * @param dumpFileStream the opened stream of the log file, closed if the file is parsed in parallel.
+     * @param startCounter the number of the first dump found.
+     * @return a proper dump parser for the given log file, null if no proper parser was found.
+     * @throws IOException if the file couldn't be read.
+     */
+    public DumpParser getDumpParserForFile(File dumpFile, InputStream dumpFileStream, int startCounter) throws IOException {
+        File indexFile = null;
+        if (PrefManager.get().getParallelParsing() && PrefManager.get().getDumpIndex()) {
+            indexFile = DumpIndex.getIndexFile(dumpFile, PrefManager.get().getDumpIndexDirectory());
+            DumpIndex dumpIndex = DumpIndex.load(dumpFile, indexFile);
+            if (dumpIndex != null) {
+                dumpFileStream.close();
+                LOGGER.log(Level.INFO, "parsing dumps of logfile in parallel using index " + indexFile);
+                return new ParallelSunJDKParser(dumpFile, dumpIndex, startCounter);
+            }
+        }
+
+        DumpParser dumpParser = getDumpParserForLogfile(dumpFileStream, false, startCounter);
+
+        if (dumpParser != null && PrefManager.get().getParallelParsing()
+                && (dumpFile.length() >= PrefManager.get().getParallelParsingMinSize() * 1024)
+                && (dumpParser.getClass() == SunJDKParser.class || dumpParser.getClass() == WrappedSunJDKParser.class)) {
+            Charset charset;
+            try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(dumpFile))) {
+                charset = detectCharset(bis);
+            }
+            if (ParallelSunJDKParser.isSupportedCharset(charset)) {
+                boolean wrapped = dumpParser instanceof WrappedSunJDKParser;
+                dumpParser.close();
+                dumpParser = new ParallelSunJDKParser(dumpFile, charset, wrapped, startCounter);
+                ((ParallelSunJDKParser) dumpParser).setIndexFile(indexFile);
+                LOGGER.log(Level.INFO, "parsing dumps of logfile in parallel");
+            }
+        }
+        return dumpParser;
+    }
+
     private Charset detectCharset(BufferedInputStream bis) throws IOException {
         bis.mark(4);
         byte[] bom = new byte[4];
@@ -0,0 +1,146 @@
+/*
+ * HistogramLineParser.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.parser;
+
+import de.grimmfrost.tda.utils.HistogramTableModel;
+
+/**
+ * Parses the lines of a class histogram, e.g.
+ * <code>  1:     15660     3695576  [C</code> or with the module column of
+ * newer jdks <code>  1:     15660     3695576  [B (java.base@11.0.2)</code>.
+ * The columns are scanned in place, the numbers are parsed without creating
+ * substrings.
+ *
+ * @author irockel
+ */
+public final class HistogramLineParser {
+
+    private HistogramLineParser() {
+    }
+
+    /**
+     * parse a histogram entry and add it to the passed histogram.
+     * @param line the trimmed line.
+     * @param histogram the histogram to add the entry to.
+     * @return false, if the line isn't a histogram entry.
+     */
+    public static boolean parseEntry(String line, HistogramTableModel histogram) {
+        int length = line.length();
+
+        // the rank, e.g. "1:"
+        int pos = skipBlanks(line, 0);
+        int end = nextBlank(line, pos);
+        if (end == pos || line.charAt(end - 1) != ':') {
+            return (false);
+        }
+
+        pos = skipBlanks(line, end);
+        end = nextBlank(line, pos);
+        long instances = parseLong(line, pos, end);
+
+        pos = skipBlanks(line, end);
+        end = nextBlank(line, pos);
+        long bytes = parseLong(line, pos, end);
+
+        pos = skipBlanks(line, end);
+        if (instances < 0 || bytes < 0 || pos >= length) {
+            return (false);
+        }
+
+        // the class name is the rest of the line, as it might contain blanks (e.g. "<no name>").
+        String className = line.substring(pos).trim();
+        String module = null;
+        if (className.endsWith(")")) {
+            int moduleStart = className.lastIndexOf(" (");
+            if (moduleStart > 0) {
+                module = className.substring(moduleStart + 2, className.length() - 1);
+                className = className.substring(0, moduleStart).trim();
+            }
+        }
+        if (className.endsWith(";")) {
+            // object arrays, e.g. "[Ljava.lang.Object;"
+            className = className.substring(0, className.length() - 1);
+        }
+        histogram.addEntry(className, module, instances, bytes);
+        return (true);
+    }
+
+    /**
+     * parse the total line of the histogram, e.g. <code>Total   183155    16330872</code>
+     * @param line the trimmed line.
+     * @param histogram the histogram to set the total values in.
+     * @return false, if the line isn't a total line.
+     */
+    public static boolean parseTotal(String line, HistogramTableModel histogram) {
+        int pos = skipBlanks(line, 0);
+        int end = nextBlank(line, pos);
+        if (!line.startsWith("Total", pos)) {
+            return (false);
+        }
+
+        pos = skipBlanks(line, end);
+        end = nextBlank(line, pos);
+        long instances = parseLong(line, pos, end);
+
+        pos = skipBlanks(line, end);
+        end = nextBlank(line, pos);
+        long bytes = parseLong(line, pos, end);
+        if (instances < 0 || bytes < 0) {
+            return (false);
+        }
+        histogram.setInstances(instances);
+        histogram.setBytes(bytes);
+        return (true);
+    }
+
+    private static int skipBlanks(String line, int pos) {
+        while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
+            pos++;
+        }
+        return (pos);
+    }
+
+    private static int nextBlank(String line, int pos) {
+        while (pos < line.length() && !Character.isWhitespace(line.charAt(pos))) {
+            pos++;
+        }
+        return (pos);
+    }
+
+    /**
+     * parse a positive decimal number.
+     * @return the number or -1 if the passed range isn't a number.
+     */
+    private static long parseLong(String line, int from, int to) {
+        if (from >= to) {
+            return (-1);
+        }
+        long result = 0;
+        for (int i = from; i < to; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                return (-1);
+            }
+            result = result * 10 + (c - '0');
+        }
+        return (result);
+    }
+}
@@ -1,18 +1,17 @@
 package de.grimmfrost.tda.parser;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import de.grimmfrost.tda.TDA;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import de.grimmfrost.tda.model.*;
 import de.grimmfrost.tda.utils.DateMatcher;
 import de.grimmfrost.tda.utils.IconFactory;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Map;
+import java.util.BitSet;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import de.grimmfrost.tda.utils.LogManager;
@@ -24,15 +23,29 @@ import javax.swing.tree.MutableTreeNode;
  */
 public class JCmdJSONParser extends AbstractDumpParser {
     private static final Logger LOGGER = LogManager.getLogger(JCmdJSONParser.class);
-    private static final Gson gson = new Gson();
     private boolean hasMore = true;
     private int counter = 1;
 
-    private Map<String, Map<String, String>> threadStore;
+    private static final String ROOT_CONTAINER = "<root>";
 
-    public JCmdJSONParser(BufferedReader bis, Map<String, Map<String, String>> threadStore, int lineCounter, DateMatcher dm) {
+    /**
+     * the virtual threads of the dump currently parsed, grouped by container and stack.
+     */
+    private VirtualThreadAggregator virtualThreadGroups;
+
+    /**
+     * the threads of the dump currently parsed in dump order as long as it isn't clear
+     * if the virtual threads are displayed individually, null afterwards.
+     */
+    private List<ThreadInfo> pendingThreads;
+
+    /**
+     * the positions of the virtual threads in the pending threads.
+     */
+    private BitSet pendingVirtualThreads;
+
+    public JCmdJSONParser(BufferedReader bis, int lineCounter, DateMatcher dm) {
         super(bis, dm);
-        this.threadStore = threadStore;
     }
 
     @Override
@@ -46,67 +59,212 @@ public class JCmdJSONParser extends AbstractDumpParser {
             return null;
         }
 
+        hasMore = false; // JSON jcmd output is typically one big dump
+
+        // the dump is read with a pull parser, only the parsed threads are kept in memory
+        // and not the json tree of the whole file.
         try {
-            StringBuilder jsonContent = new StringBuilder();
-            String line;
-            while ((line = getBis().readLine()) != null) {
-                jsonContent.append(line);
+            JsonReader reader = new JsonReader(getBis());
+            DefaultMutableTreeNode threadDump = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (threadDump == null && "threadDump".equals(name)) {
+                    threadDump = parseThreadDump(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            return threadDump;
+        } catch (IOException | IllegalStateException e) {
+            LOGGER.log(Level.SEVERE, "error parsing JSON thread dump", e);
+            return null;
+        }
+    }
+
+    /**
+     * parse the threadDump object, the threads of all thread containers are added
+     * to the threads category while they are read.
+     */
+    private DefaultMutableTreeNode parseThreadDump(JsonReader reader) throws IOException {
+        ThreadDumpInfo overallTDI = new ThreadDumpInfo("Dump No. " + counter++, 0);
+        DefaultMutableTreeNode threadDump = new DefaultMutableTreeNode(overallTDI);
+
+        Category threadsCat = new TableCategory("Threads", IconFactory.THREADS);
+        DefaultMutableTreeNode catThreads = new DefaultMutableTreeNode(threadsCat);
+        threadDump.add(catThreads);
+        overallTDI.setThreads(threadsCat);
+
+        // threads are kept back until it is clear if the virtual threads need to be grouped.
+        virtualThreadGroups = getVirtualThreadGroupThreshold() > 0 ? new VirtualThreadAggregator() : null;
+        pendingThreads = virtualThreadGroups != null ? new ArrayList<>() : null;
+        pendingVirtualThreads = new BitSet();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("time".equals(name)) {
+                String time = nextString(reader);
+                if (time != null) {
+                    overallTDI.setStartTime(time);
+                }
+            } else if ("threadContainers".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    parseThreadContainer(reader, catThreads);
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
             }
-            hasMore = false; // JSON jcmd output is typically one big dump
+        }
+        reader.endObject();
 
-            JsonObject rootObj = gson.fromJson(jsonContent.toString(), JsonObject.class);
-            if (rootObj == null || !rootObj.has("threadDump")) {
-                return null;
+        if (pendingThreads != null) {
+            for (ThreadInfo ti : pendingThreads) {
+                addToCategory(catThreads, ti);
             }
+        } else if (virtualThreadGroups != null) {
+            DefaultMutableTreeNode catVirtualThreadGroups = createVirtualThreadGroupsCategory(virtualThreadGroups);
+            overallTDI.setVirtualThreadGroups((Category) catVirtualThreadGroups.getUserObject());
+            threadDump.add(catVirtualThreadGroups);
+        }
+        virtualThreadGroups = null;
+        pendingThreads = null;
+        pendingVirtualThreads = null;
+        return threadDump;
+    }
 
-            JsonObject dumpObj = rootObj.getAsJsonObject("threadDump");
-            String time = dumpObj.has("time") ? dumpObj.get("time").getAsString() : null;
-            
-            ThreadDumpInfo overallTDI = new ThreadDumpInfo("Dump No. " + counter++, 0);
-            if (time != null) {
-                overallTDI.setStartTime(time);
+    /**
+     * parse one entry of the threadContainers array.
+     */
+    private void parseThreadContainer(JsonReader reader, DefaultMutableTreeNode catThreads) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+        String container = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("container".equals(name)) {
+                container = nextString(reader);
+            } else if ("threads".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    parseThread(reader, catThreads, container);
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
             }
-            DefaultMutableTreeNode threadDump = new DefaultMutableTreeNode(overallTDI);
-
-            Category threadsCat = new TableCategory("Threads", IconFactory.THREADS);
-            DefaultMutableTreeNode catThreads = new DefaultMutableTreeNode(threadsCat);
-            threadDump.add(catThreads);
-            overallTDI.setThreads(threadsCat);
-
-            if (dumpObj.has("threadContainers")) {
-                JsonArray containers = dumpObj.getAsJsonArray("threadContainers");
-                for (JsonElement containerEl : containers) {
-                    JsonObject container = containerEl.getAsJsonObject();
-                    if (container.has("threads")) {
-                        JsonArray threads = container.getAsJsonArray("threads");
-                        for (JsonElement threadEl : threads) {
-                            JsonObject thread = threadEl.getAsJsonObject();
-                            String name = thread.has("name") ? thread.get("name").getAsString() : "Unknown";
-                            String tid = thread.has("tid") ? thread.get("tid").getAsString() : "";
-                            
-                            StringBuilder content = new StringBuilder("<body bgcolor=\"ffffff\"><pre><font size=" + TDA.getFontSizeModifier(-1) + ">");
-                            String title = "\"" + name + "\" tid=" + tid;
-                            content.append(title).append("\n");
-                            
-                            if (thread.has("stack")) {
-                                JsonArray stack = thread.getAsJsonArray("stack");
-                                for (JsonElement frameEl : stack) {
-                                    content.append("   at ").append(frameEl.getAsString()).append("\n");
-                                }
-                            }
-                            content.append("</pre></pre></body>");
-                            
-                            addToCategory(catThreads, title, null, content.toString(), 0, true);
-                        }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * parse one thread object and add it to the threads category.
+     * @param container the name of the thread container, virtual threads are grouped by it.
+     */
+    private void parseThread(JsonReader reader, DefaultMutableTreeNode catThreads, String container) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+        String name = null;
+        String tid = null;
+        boolean virtual = false;
+        List<String> frames = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if ("name".equals(field)) {
+                name = nextString(reader);
+            } else if ("tid".equals(field)) {
+                tid = nextString(reader);
+            } else if ("virtual".equals(field) && reader.peek() == JsonToken.BOOLEAN) {
+                virtual = reader.nextBoolean();
+            } else if ("stack".equals(field) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    String frame = nextString(reader);
+                    if (frame != null) {
+                        frames.add(frame);
                     }
                 }
+                reader.endArray();
+            } else {
+                reader.skipValue();
             }
+        }
+        reader.endObject();
 
-            return threadDump;
-        } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "IO error parsing JSON thread dump", e);
-            return null;
+        String title = "\"" + (name != null ? name : "Unknown") + "\" tid=" + (tid != null ? tid : "");
+        ThreadStack.Builder content = new ThreadStack.Builder(getDictionary(), title, frames.size());
+        for (String frame : frames) {
+            content.addFrame("   at " + frame);
+        }
+        ThreadStack stack = content.build();
+        ThreadInfo ti = new ThreadInfo(title, null, null, 0, getThreadTokens(title));
+        ti.setHeader(new ThreadHeader(name != null ? name : "", title, false, false, -1, -1, -1, -1, parseId(tid), -1, "", ""));
+        ti.setStack(stack);
+
+        // newer jdks flag virtual threads, older ones only print them unnamed in their executor's container.
+        if (virtualThreadGroups != null && (virtual || ((name == null || name.isEmpty()) && container != null && !ROOT_CONTAINER.equals(container)))) {
+            virtualThreadGroups.add(container, stack, "");
+            if (pendingThreads != null) {
+                pendingVirtualThreads.set(pendingThreads.size());
+                pendingThreads.add(ti);
+                if (virtualThreadGroups.getThreadCount() > getVirtualThreadGroupThreshold()) {
+                    addPendingThreads(catThreads);
+                }
+            }
+        } else if (pendingThreads != null) {
+            pendingThreads.add(ti);
+        } else {
+            addToCategory(catThreads, ti);
+        }
+    }
+
+    /**
+     * the virtual threads are grouped, add the other pending threads in their
+     * original order and add all following threads directly.
+     */
+    private void addPendingThreads(DefaultMutableTreeNode catThreads) {
+        for (int i = 0; i < pendingThreads.size(); i++) {
+            if (!pendingVirtualThreads.get(i)) {
+                addToCategory(catThreads, pendingThreads.get(i));
+            }
+        }
+        pendingThreads = null;
+    }
+
+    /**
+     * parse the thread id, it identifies the thread in the timelines of a series of dumps.
+     * @return the id or -1 if it is missing or not a number.
+     */
+    private static long parseId(String tid) {
+        if (tid == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(tid.trim());
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * read a string or number value, other values are skipped.
+     * @return the value or null if it isn't a string or number.
+     */
+    private static String nextString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
         }
+        reader.skipValue();
+        return null;
     }
 
     @Override
@@ -0,0 +1,194 @@
+/*
+ * LazyDumpNode.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.parser;
+
+import de.grimmfrost.tda.model.FrameDictionary;
+import de.grimmfrost.tda.model.ThreadDumpInfo;
+import de.grimmfrost.tda.utils.LogManager;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.MutableTreeNode;
+
+/**
+ * Tree node of a dump, which is parsed on request. Until it is loaded, the node
+ * only contains a ThreadDumpInfo with the name, line and timestamp of the dump
+ * and, if known from the dump index, the amount of its threads.
+ * Loading is split into parsing the dump (which can be done in background) and
+ * taking over the parsed dump, which modifies the tree and needs to be done in
+ * the event dispatch thread. A loaded dump can be unloaded again to free memory.
+ * This node parses its dump from a segment of the log file, subclasses might
+ * read the dump from elsewhere.
+ *
+ * @author irockel
+ */
+public class LazyDumpNode extends DefaultMutableTreeNode {
+    private static final Logger LOGGER = LogManager.getLogger(LazyDumpNode.class);
+
+    private final File file;
+    private final String charset;
+    private final boolean wrapped;
+    private final long[] segment;
+    private final int startCounter;
+    private final ThreadDumpInfo header;
+    private final FrameDictionary dictionary;
+    private int threadCount = DumpIndex.UNKNOWN_THREAD_COUNT;
+    private boolean loaded = false;
+
+    /**
+     * @param file the log file containing the dump.
+     * @param charset the charset of the log file.
+     * @param wrapped true, if the log file was written by the Tanuki Service Wrapper.
+     * @param segment start offset, end offset, index of the first line and number of the segment of the dump.
+     * @param startCounter the number of the first dump of the log file.
+     * @param header the info of the not yet parsed dump.
+     * @param dictionary the dictionary of the stack lines of the log file.
+     */
+    public LazyDumpNode(File file, Charset charset, boolean wrapped, long[] segment, int startCounter,
+                        ThreadDumpInfo header, FrameDictionary dictionary) {
+        super(header);
+        this.file = file;
+        this.charset = charset.name();
+        this.wrapped = wrapped;
+        this.segment = segment;
+        this.startCounter = startCounter;
+        this.header = header;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * constructor for subclasses, which don't read the dump from a log file.
+     * @param header the info of the not yet parsed dump.
+     * @param dictionary the dictionary the stack lines of the dump are added to.
+     */
+    protected LazyDumpNode(ThreadDumpInfo header, FrameDictionary dictionary) {
+        super(header);
+        this.file = null;
+        this.charset = null;
+        this.wrapped = false;
+        this.segment = null;
+        this.startCounter = 0;
+        this.header = header;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * get the info of the dump, which is displayed while the dump isn't loaded.
+     */
+    public ThreadDumpInfo getHeader() {
+        return (header);
+    }
+
+    /**
+     * get the dictionary the stack lines of the dump are added to.
+     */
+    protected FrameDictionary getDictionary() {
+        return (dictionary);
+    }
+
+    public boolean isLoaded() {
+        return (loaded);
+    }
+
+    /**
+     * set the amount of threads of the dump, e.g. taken from the dump index, it is displayed
+     * while the dump isn't loaded.
+     * @param threadCount the amount of threads, DumpIndex.UNKNOWN_THREAD_COUNT if not known.
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    public int getThreadCount() {
+        return (threadCount);
+    }
+
+    /**
+     * the header of a dump not loaded yet shows the thread count, if it is known.
+     */
+    public String toString() {
+        if (!loaded && threadCount != DumpIndex.UNKNOWN_THREAD_COUNT) {
+            return (header + " (" + threadCount + " threads)");
+        }
+        return (super.toString());
+    }
+
+    /**
+     * a dump which isn't loaded yet is displayed as expandable node.
+     */
+    public boolean isLeaf() {
+        return (loaded && super.isLeaf());
+    }
+
+    /**
+     * parse the dump of this node, doesn't modify the node.
+     * @return the parsed dump, pass it to {@link #setDump(DefaultMutableTreeNode)}.
+     * @throws IOException if the log file couldn't be read.
+     */
+    public DefaultMutableTreeNode parseDump() throws IOException {
+        ParallelSunJDKParser.SegmentResult result;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            result = ParallelSunJDKParser.parseSegment(channel, Charset.forName(charset), wrapped, segment, startCounter, dictionary);
+        }
+        if (result.dumps.isEmpty()) {
+            throw new IOException("no dump found at line " + header.getLogLine() + " of " + file);
+        } else if (result.dumps.size() > 1) {
+            LOGGER.log(Level.WARNING, "found " + result.dumps.size() + " dumps at line " + header.getLogLine()
+                    + " of " + file + ", only the first one is displayed");
+        }
+        DefaultMutableTreeNode dump = (DefaultMutableTreeNode) result.dumps.get(0);
+        ((ThreadDumpInfo) dump.getUserObject()).setName(header.getName());
+        return (dump);
+    }
+
+    /**
+     * take over the info and the categories of the passed parsed dump.
+     * @param dump the dump returned by {@link #parseDump()}.
+     */
+    public void setDump(DefaultMutableTreeNode dump) {
+        removeAllChildren();
+        List<MutableTreeNode> children = new ArrayList<>();
+        for (int i = 0; i < dump.getChildCount(); i++) {
+            children.add((MutableTreeNode) dump.getChildAt(i));
+        }
+        for (MutableTreeNode child : children) {
+            add(child);
+        }
+        setUserObject(dump.getUserObject());
+        loaded = true;
+    }
+
+    /**
+     * drop the parsed dump, only the header info is kept.
+     */
+    public void unload() {
+        removeAllChildren();
+        setUserObject(header);
+        loaded = false;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * LineClassifier.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.parser;
+
+/**
+ * Classifies the lines of a Sun JDK thread dump. The type of a line is determined
+ * from its first non-whitespace characters in one pass, the line is never scanned
+ * completely. Works on the decoded lines, as the parser keeps the frames as interned
+ * strings anyway and needs the decoded line for them.
+ *
+ * @author irockel
+ */
+public final class LineClassifier {
+
+    /**
+     * line which doesn't belong to any of the other types.
+     */
+    public static final int OTHER = 0;
+
+    /**
+     * title line of a thread, starts with the quoted thread name.
+     */
+    public static final int THREAD_TITLE = 1;
+
+    /**
+     * stack frame line ("at ...").
+     */
+    public static final int STACK_FRAME = 2;
+
+    /**
+     * thread state line ("java.lang.Thread.State: ...").
+     */
+    public static final int THREAD_STATE = 3;
+
+    /**
+     * start of the locked ownable synchronizers of the thread.
+     */
+    public static final int LOCKED_SYNCHRONIZERS = 4;
+
+    /**
+     * thread sleeping on a monitor in Object.wait() ("- waiting on ...").
+     */
+    public static final int WAITING_ON = 5;
+
+    /**
+     * thread parked on a java.util.concurrent lock ("- parking to wait for ...").
+     */
+    public static final int PARKING = 6;
+
+    /**
+     * thread blocked on a monitor ("- waiting to lock ...").
+     */
+    public static final int WAITING_TO_LOCK = 7;
+
+    /**
+     * monitor locked by the thread ("- locked ...").
+     */
+    public static final int LOCKED = 8;
+
+    /**
+     * platform thread carrying a virtual thread ("Carrying virtual thread #...").
+     */
+    public static final int CARRYING_VIRTUAL_THREAD = 9;
+
+    /**
+     * any other annotation line starting with "- ", e.g. an ownable synchronizer.
+     */
+    public static final int ANNOTATION = 10;
+
+    /**
+     * start of the SMR info of a dump ("Threads class SMR info:").
+     */
+    public static final int SMR_INFO = 11;
+
+    private static final String FRAME_PREFIX = "at ";
+    private static final String STATE_PREFIX = "java.lang.Thread.State";
+    private static final String SYNCHRONIZERS_PREFIX = "Locked ownable synchronizers:";
+    private static final String WAITING_ON_PREFIX = "- waiting on";
+    private static final String PARKING_PREFIX = "- parking to wait";
+    private static final String WAITING_TO_PREFIX = "- waiting to";
+    private static final String LOCKED_PREFIX = "- locked";
+    private static final String CARRYING_PREFIX = "Carrying virtual thread";
+    private static final String SMR_INFO_PREFIX = "Threads class SMR info:";
+
+    private LineClassifier() {
+    }
+
+    /**
+     * classify the passed line.
+     * @param line the line to classify.
+     * @return the type of the line.
+     */
+    public static int classify(CharSequence line) {
+        int length = line.length();
+        if (length == 0) {
+            return (OTHER);
+        }
+        if (line.charAt(0) == '"') {
+            return (THREAD_TITLE);
+        }
+
+        int pos = 0;
+        while (pos < length && (line.charAt(pos) == ' ' || line.charAt(pos) == '\t')) {
+            pos++;
+        }
+        if (pos == length) {
+            return (OTHER);
+        }
+
+        switch (line.charAt(pos)) {
+            case 'a':
+                return (startsWith(line, pos, FRAME_PREFIX) ? STACK_FRAME : OTHER);
+            case 'j':
+                return (startsWith(line, pos, STATE_PREFIX) ? THREAD_STATE : OTHER);
+            case 'L':
+                return (startsWith(line, pos, SYNCHRONIZERS_PREFIX) ? LOCKED_SYNCHRONIZERS : OTHER);
+            case 'C':
+                return (startsWith(line, pos, CARRYING_PREFIX) ? CARRYING_VIRTUAL_THREAD : OTHER);
+            case 'T':
+                return (startsWith(line, pos, SMR_INFO_PREFIX) ? SMR_INFO : OTHER);
+            case '-':
+                if (pos + 1 >= length || line.charAt(pos + 1) != ' ') {
+                    return (OTHER);
+                }
+                if (pos + 2 < length) {
+                    switch (line.charAt(pos + 2)) {
+                        case 'w':
+                            if (startsWith(line, pos, WAITING_ON_PREFIX)) {
+                                return (WAITING_ON);
+                            } else if (startsWith(line, pos, WAITING_TO_PREFIX)) {
+                                return (WAITING_TO_LOCK);
+                            }
+                            break;
+                        case 'p':
+                            if (startsWith(line, pos, PARKING_PREFIX)) {
+                                return (PARKING);
+                            }
+                            break;
+                        case 'l':
+                            if (startsWith(line, pos, LOCKED_PREFIX)) {
+                                return (LOCKED);
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                }
+                return (ANNOTATION);
+            default:
+                return (OTHER);
+        }
+    }
+
+    private static boolean startsWith(CharSequence line, int pos, String prefix) {
+        int length = prefix.length();
+        if (line.length() - pos < length) {
+            return (false);
+        }
+        for (int i = 0; i < length; i++) {
+            if (line.charAt(pos + i) != prefix.charAt(i)) {
+                return (false);
+            }
+        }
+        return (true);
+    }
+}
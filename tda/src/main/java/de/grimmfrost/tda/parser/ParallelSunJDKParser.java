@@ -0,0 +1,620 @@
+/*
+ * ParallelSunJDKParser.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.parser;
+
+import de.grimmfrost.tda.model.FrameDictionary;
+import de.grimmfrost.tda.model.ThreadDumpInfo;
+import de.grimmfrost.tda.utils.DateMatcher;
+import de.grimmfrost.tda.utils.LogManager;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.MutableTreeNode;
+
+/**
+ * Parses huge SunJDK log files containing lots of thread dumps. The log file is
+ * memory mapped and scanned once for the "Full thread dump" markers, afterwards
+ * every dump segment is parsed by its own SunJDKParser on a fork join pool.
+ * The parsed dumps are returned in the order they appear in the log file.
+ * If an index file is set, the found segments are stored in a DumpIndex after
+ * the whole file was parsed (or, in lazy mode, after all dump headers were read),
+ * a passed DumpIndex replaces the scan. In lazy mode the segments aren't parsed
+ * at all, LazyDumpNodes are returned which parse their dump on request.
+ *
+ * @author irockel
+ */
+public class ParallelSunJDKParser extends SunJDKParser {
+    private static final Logger LOGGER = LogManager.getLogger(ParallelSunJDKParser.class);
+
+    private static final byte[] DUMP_MARKER = "Full thread dump".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * maximum size of one mapping while scanning for dump boundaries.
+     */
+    private static final int SCAN_WINDOW = 1 << 28;
+
+    /**
+     * maximum amount of lines in front of a dump marker, which are passed to the
+     * parser of the dump for timestamp detection.
+     */
+    private static final int LOOKBACK_LINES = 5;
+
+    private final File file;
+    private final Charset charset;
+    private final boolean wrapped;
+    private final int startCounter;
+
+    private DumpIndex dumpIndex = null;
+    private DumpIndex newIndex = null;
+    private File indexFile = null;
+    private boolean indexComplete = true;
+    private boolean lazy = false;
+
+    private FileChannel channel = null;
+    private List<long[]> segments = null;
+    private ForkJoinPool pool = null;
+    private List<ForkJoinTask<SegmentResult>> segmentTasks = null;
+    private int nextSegment = 0;
+    private int dumpCounter;
+    private final LinkedList<MutableTreeNode> parsedDumps = new LinkedList<>();
+    private boolean foundClassHistograms = false;
+
+    /**
+     * Creates a new instance of ParallelSunJDKParser
+     * @param file the log file to parse.
+     * @param charset the charset of the log file, needs to be ascii compatible.
+     * @param wrapped true, if the log file was written by the Tanuki Service Wrapper.
+     * @param startCounter the number of the first dump found.
+     */
+    public ParallelSunJDKParser(File file, Charset charset, boolean wrapped, int startCounter) {
+        super(null, 0, false, startCounter, new DateMatcher());
+        this.file = file;
+        this.charset = charset;
+        this.wrapped = wrapped;
+        this.startCounter = startCounter;
+        this.dumpCounter = startCounter;
+    }
+
+    /**
+     * Creates a new instance of ParallelSunJDKParser, which takes the dump segments from
+     * the passed index instead of scanning the log file.
+     * @param file the log file to parse.
+     * @param dumpIndex a valid index of the log file.
+     * @param startCounter the number of the first dump found.
+     */
+    public ParallelSunJDKParser(File file, DumpIndex dumpIndex, int startCounter) {
+        this(file, dumpIndex.getCharset(), dumpIndex.isWrapped(), startCounter);
+        this.dumpIndex = dumpIndex;
+    }
+
+    /**
+     * set the file to store the index of the log file in after parsing it, if
+     * the segments weren't taken from an index.
+     * @param indexFile the index file, null for not writing an index.
+     */
+    public void setIndexFile(File indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * enable the lazy mode, only the dump boundaries and the headers of the dumps are read
+     * and every dump is returned as LazyDumpNode.
+     * @param lazy true, if dumps should be parsed on request.
+     */
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    /**
+     * get the index of the log file, either the passed one or the one created while
+     * parsing.
+     * @return the index, null if no index was passed and the file isn't completely parsed yet.
+     */
+    public DumpIndex getDumpIndex() {
+        return (dumpIndex);
+    }
+
+    /**
+     * check if the passed charset can be used for scanning the raw bytes of the log file.
+     * @param charset the charset to check.
+     * @return true, if dump markers and line feeds are encoded as plain ascii.
+     */
+    public static boolean isSupportedCharset(Charset charset) {
+        return (Arrays.equals("Full thread dump\n".getBytes(charset), "Full thread dump\n".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * returns true if at least one more dump available, already loads it
+     * (this will be returned on next call of parseNext)
+     */
+    public boolean hasMoreDumps() {
+        fillParsedDumps();
+        return (!parsedDumps.isEmpty());
+    }
+
+    /**
+     * @return true, if a class histogram was found and added during parsing.
+     */
+    public boolean isFoundClassHistograms() {
+        return (foundClassHistograms);
+    }
+
+    /**
+     * returns the next parsed thread dump of the log file, blocks until the segment
+     * containing it is parsed.
+     * @return null if no more thread dumps were found.
+     */
+    public MutableTreeNode parseNext() {
+        fillParsedDumps();
+        return (parsedDumps.isEmpty() ? null : parsedDumps.removeFirst());
+    }
+
+    /**
+     * close this dump parser, shuts down the parsing threads.
+     */
+    public void close() throws IOException {
+        if (segmentTasks != null) {
+            for (int i = nextSegment; i < segmentTasks.size(); i++) {
+                segmentTasks.get(i).cancel(true);
+            }
+        }
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * wait for the next segment(s) until at least one dump is available or all
+     * segments are processed.
+     */
+    private void fillParsedDumps() {
+        if (segmentTasks == null) {
+            startParsing();
+        }
+        if (lazy) {
+            while (parsedDumps.isEmpty() && segments != null && nextSegment < segments.size()) {
+                parsedDumps.add(createLazyDump(segments.get(nextSegment++)));
+                if (nextSegment == segments.size()) {
+                    saveIndex();
+                }
+            }
+            return;
+        }
+        while (parsedDumps.isEmpty() && nextSegment < segmentTasks.size()) {
+            try {
+                SegmentResult result = segmentTasks.get(nextSegment).join();
+                addResult(result);
+                addToIndex(segments.get(nextSegment), result);
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.SEVERE, "error parsing dump segment " + nextSegment + " of " + file, ex);
+                indexComplete = false;
+            }
+            segmentTasks.set(nextSegment++, null);
+            if (nextSegment == segmentTasks.size()) {
+                saveIndex();
+            }
+        }
+    }
+
+    /**
+     * add the segment and the summaries of its dumps to the index being created.
+     */
+    private void addToIndex(long[] segment, SegmentResult result) {
+        if (newIndex != null) {
+            DumpIndex.Segment indexSegment = newIndex.addSegment(segment[0], segment[1], (int) segment[2]);
+            for (MutableTreeNode dump : result.dumps) {
+                ThreadDumpInfo tdi = (ThreadDumpInfo) ((DefaultMutableTreeNode) dump).getUserObject();
+                indexSegment.addDump(tdi.getLogLine(), tdi.getStartTime(),
+                        tdi.getThreads() != null ? tdi.getThreads().getNodeCount() : 0);
+            }
+        }
+    }
+
+    /**
+     * store the created index, if the whole log file was parsed without errors.
+     */
+    private void saveIndex() {
+        if (newIndex != null && indexComplete) {
+            try {
+                newIndex.save(indexFile);
+                dumpIndex = newIndex;
+                LOGGER.log(Level.INFO, "stored index of " + file + " in " + indexFile);
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "couldn't store index of " + file, ex);
+            }
+        }
+        newIndex = null;
+    }
+
+    /**
+     * scan the file for dump boundaries and submit the segments for parsing.
+     */
+    private void startParsing() {
+        segmentTasks = new ArrayList<>();
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            if (dumpIndex != null) {
+                segments = getDumpSegments(dumpIndex);
+                LOGGER.log(Level.INFO, "took " + segments.size() + " dump segments of " + file + " from index");
+            } else {
+                if (indexFile != null) {
+                    newIndex = new DumpIndex(file, charset, wrapped);
+                }
+                segments = findDumpSegments(channel);
+                LOGGER.log(Level.INFO, "found " + segments.size() + " dump segments in " + file);
+            }
+            if (!segments.isEmpty() && !lazy) {
+                pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+                for (long[] segment : segments) {
+                    segmentTasks.add(pool.submit(() -> parseSegment(segment)));
+                }
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "IO error scanning logfile " + file, ex);
+        }
+    }
+
+    /**
+     * add the dumps of the segment to the list of parsed dumps. The dumps are renumbered if a
+     * segment didn't deliver exactly one dump.
+     * @param result the parsed segment.
+     */
+    private void addResult(SegmentResult result) {
+        for (MutableTreeNode dump : result.dumps) {
+            ThreadDumpInfo tdi = (ThreadDumpInfo) ((DefaultMutableTreeNode) dump).getUserObject();
+            String name = "Dump No. " + dumpCounter++;
+            if (!name.equals(tdi.getName())) {
+                tdi.setName(name);
+            }
+            parsedDumps.add(dump);
+        }
+        if (result.foundClassHistograms) {
+            foundClassHistograms = true;
+        }
+    }
+
+    /**
+     * create the node of a dump, which isn't parsed yet. The timestamp and the line of the
+     * dump are taken from the index, otherwise the lines up to the dump marker are read and
+     * added to the index being created.
+     * @param segment the segment of the dump.
+     * @return the lazy node.
+     */
+    private LazyDumpNode createLazyDump(long[] segment) {
+        ThreadDumpInfo tdi = new ThreadDumpInfo("Dump No. " + dumpCounter++, 0);
+        LazyDumpNode node = new LazyDumpNode(file, charset, wrapped, segment, startCounter, tdi, getDictionary());
+        List<DumpIndex.DumpSummary> summaries = dumpIndex != null ? dumpIndex.getSegments().get((int) segment[3]).getDumps() : null;
+        if (summaries != null && !summaries.isEmpty()) {
+            tdi.setLogLine(summaries.get(0).getLogLine());
+            tdi.setStartTime(summaries.get(0).getStartTime());
+            node.setThreadCount(summaries.get(0).getThreadCount());
+        } else if (readDumpHeader(segment, tdi)) {
+            if (newIndex != null) {
+                // the threads aren't counted without parsing the dump.
+                newIndex.addSegment(segment[0], segment[1], (int) segment[2]).addDump(tdi.getLogLine(), tdi.getStartTime(),
+                        DumpIndex.UNKNOWN_THREAD_COUNT);
+            }
+        } else {
+            indexComplete = false;
+        }
+        return (node);
+    }
+
+    /**
+     * read the lines of the segment up to the dump marker for finding the line and the
+     * timestamp of the dump.
+     * @return true, if the dump marker was found.
+     */
+    private boolean readDumpHeader(long[] segment, ThreadDumpInfo tdi) {
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, segment[0],
+                    Math.min(segment[1] - segment[0], 8192));
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteBufferInputStream(buffer), charset));
+            DateMatcher dm = new DateMatcher();
+            String line;
+            int lineCounter = (int) segment[2];
+            while ((line = reader.readLine()) != null) {
+                lineCounter++;
+                if (line.contains("Full thread dump")) {
+                    tdi.setLogLine(lineCounter);
+                    if (dm.getLastMatch() != null) {
+                        tdi.setStartTime(dm.getLastMatch().group(1));
+                    }
+                    return (true);
+                } else if (!dm.isPatternError()) {
+                    dm.checkForDateMatch(line);
+                }
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "couldn't read header of dump segment " + segment[3] + " of " + file, ex);
+        }
+        return (false);
+    }
+
+    /**
+     * parse a single segment of the log file.
+     * @param segment start offset, end offset, index of the first line and number of the segment.
+     * @return the result of the segment.
+     */
+    private SegmentResult parseSegment(long[] segment) throws IOException {
+        return (parseSegment(channel, charset, wrapped, segment, startCounter, getDictionary()));
+    }
+
+    /**
+     * parse a single segment of a log file.
+     * @param channel the opened log file.
+     * @param charset the charset of the log file.
+     * @param wrapped true, if the log file was written by the Tanuki Service Wrapper.
+     * @param segment start offset, end offset, index of the first line and number of the segment.
+     * @param startCounter the number of the first dump of the log file.
+     * @param dictionary the dictionary of the stack lines of the log file.
+     * @return the result of the segment.
+     */
+    static SegmentResult parseSegment(FileChannel channel, Charset charset, boolean wrapped, long[] segment,
+                                      int startCounter, FrameDictionary dictionary) throws IOException {
+        SegmentResult result = new SegmentResult();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new MappedInputStream(channel, segment[0], segment[1], SCAN_WINDOW), charset));
+        int counter = startCounter + (int) segment[3];
+        SunJDKParser parser = wrapped ? new WrappedSunJDKParser(reader, (int) segment[2], false, counter, new DateMatcher())
+                : new SunJDKParser(reader, (int) segment[2], false, counter, new DateMatcher());
+        parser.setDictionary(dictionary);
+        while (parser.hasMoreDumps()) {
+            result.dumps.add(parser.parseNext());
+            if (parser.isFoundClassHistograms()) {
+                result.foundClassHistograms = true;
+            }
+        }
+        parser.close();
+        return (result);
+    }
+
+    /**
+     * scan the whole channel for lines containing the dump marker. Every segment starts some lines
+     * before the marker (to be able to find the timestamp of the dump) and ends where the next one starts.
+     * @param channel the channel to scan.
+     * @return list of segments: start offset, end offset, index of the first line and number of the segment.
+     * @throws IOException in case of read errors.
+     */
+    static List<long[]> findDumpSegments(FileChannel channel) throws IOException {
+        List<long[]> markers = new ArrayList<>();
+        long size = channel.size();
+        long lineStart = 0;
+        long lineIndex = 0;
+        long lastMarkerLine = -1;
+        int matched = 0;
+
+        for (long windowStart = 0; windowStart < size; windowStart += SCAN_WINDOW) {
+            int windowSize = (int) Math.min(SCAN_WINDOW, size - windowStart);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+            for (int i = 0; i < windowSize; i++) {
+                byte b = window.get(i);
+                if (b == '\n') {
+                    lineIndex++;
+                    lineStart = windowStart + i + 1;
+                    matched = 0;
+                } else if (b == DUMP_MARKER[matched]) {
+                    if (++matched == DUMP_MARKER.length) {
+                        if (lastMarkerLine != lineIndex) {
+                            markers.add(new long[]{lineStart, lineIndex});
+                            lastMarkerLine = lineIndex;
+                        }
+                        matched = 0;
+                    }
+                } else {
+                    matched = (b == DUMP_MARKER[0]) ? 1 : 0;
+                }
+            }
+        }
+
+        List<long[]> segments = new ArrayList<>(markers.size());
+        long previousMarker = 0;
+        for (int i = 0; i < markers.size(); i++) {
+            long[] start = findSegmentStart(channel, markers.get(i)[0], markers.get(i)[1], previousMarker);
+            if (!segments.isEmpty()) {
+                segments.get(segments.size() - 1)[1] = start[0];
+            }
+            segments.add(new long[]{start[0], size, start[1], i});
+            previousMarker = markers.get(i)[0];
+        }
+        return (segments);
+    }
+
+    /**
+     * get the dump segments stored in the passed index.
+     * @return list of segments: start offset, end offset, index of the first line and number of the segment.
+     */
+    static List<long[]> getDumpSegments(DumpIndex dumpIndex) {
+        List<long[]> segments = new ArrayList<>(dumpIndex.getSegments().size());
+        for (DumpIndex.Segment segment : dumpIndex.getSegments()) {
+            segments.add(new long[]{segment.getStart(), segment.getEnd(), segment.getLogLine(), segments.size()});
+        }
+        return (segments);
+    }
+
+    /**
+     * walk back from the line of a dump marker to include the lines in front of it, which might
+     * contain the timestamp of the dump. Stops at lines which obviously belong to the previous dump.
+     * @param lowerBound start of the line of the previous dump marker (or start of file).
+     * @return offset and line index of the first line of the segment.
+     */
+    private static long[] findSegmentStart(FileChannel channel, long markerOffset, long markerLine, long lowerBound) throws IOException {
+        int maxLookback = (int) Math.min(markerOffset - lowerBound, 4096);
+        if (maxLookback <= 0) {
+            return (new long[]{markerOffset, markerLine});
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(maxLookback);
+        channel.read(buffer, markerOffset - maxLookback);
+        byte[] bytes = buffer.array();
+
+        long start = markerOffset;
+        long line = markerLine;
+        int nonEmptyLines = 0;
+        // bytes[end - 1] is the line feed in front of the current start.
+        int end = maxLookback;
+        while (end > 0 && nonEmptyLines < LOOKBACK_LINES) {
+            int begin = end - 1;
+            while (begin > 0 && bytes[begin - 1] != '\n') {
+                begin--;
+            }
+            if (begin == 0 && markerOffset - maxLookback > lowerBound) {
+                // line doesn't fit into the lookback buffer.
+                break;
+            }
+            String prevLine = new String(bytes, begin, end - 1 - begin, StandardCharsets.US_ASCII).trim();
+            if (prevLine.length() == 0) {
+                if (nonEmptyLines > 0) {
+                    break;
+                }
+            } else if (prevLine.contains("Full thread dump") || prevLine.startsWith("\"") || prevLine.startsWith("Total ") || prevLine.startsWith("Found ")
+                    || prevLine.startsWith("JNI global") || prevLine.contains("<EndOfDump>")) {
+                break;
+            } else {
+                nonEmptyLines++;
+            }
+            start = markerOffset - maxLookback + begin;
+            line--;
+            end = begin;
+        }
+        return (new long[]{start, line});
+    }
+
+    /**
+     * the parse result of one segment.
+     */
+    static class SegmentResult {
+        final List<MutableTreeNode> dumps = new ArrayList<>();
+        boolean foundClassHistograms = false;
+    }
+
+    /**
+     * input stream reading a part of a channel through successive mappings, a single
+     * mapping is limited to 2GB while a dump segment might be larger.
+     */
+    static class MappedInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private final int windowSize;
+        private long position;
+        private ByteBuffer buffer = ByteBuffer.allocate(0);
+
+        /**
+         * @param channel the channel to read.
+         * @param start the offset of the first byte to read.
+         * @param end the offset after the last byte to read.
+         * @param windowSize the maximum size of one mapping.
+         */
+        MappedInputStream(FileChannel channel, long start, long end, int windowSize) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+            this.windowSize = windowSize;
+        }
+
+        /**
+         * map the next window if the current one is read completely.
+         * @return false, if the end is reached.
+         */
+        private boolean fill() throws IOException {
+            if (buffer.hasRemaining()) {
+                return (true);
+            }
+            if (position >= end) {
+                return (false);
+            }
+            int size = (int) Math.min(windowSize, end - position);
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+            position += size;
+            return (true);
+        }
+
+        public int read() throws IOException {
+            return (fill() ? buffer.get() & 0xff : -1);
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return (0);
+            }
+            if (!fill()) {
+                return (-1);
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return (count);
+        }
+
+        public int available() {
+            return ((int) Math.min(Integer.MAX_VALUE, buffer.remaining() + end - position));
+        }
+    }
+
+    /**
+     * simple input stream reading from a (mapped) byte buffer.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        public int read() {
+            return (buffer.hasRemaining() ? buffer.get() & 0xff : -1);
+        }
+
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return (0);
+            }
+            if (!buffer.hasRemaining()) {
+                return (-1);
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return (count);
+        }
+
+        public int available() {
+            return (buffer.remaining());
+        }
+    }
+}
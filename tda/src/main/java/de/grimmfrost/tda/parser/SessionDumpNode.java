@@ -0,0 +1,76 @@
+/*
+ * SessionDumpNode.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.parser;
+
+import de.grimmfrost.tda.model.FrameDictionary;
+import de.grimmfrost.tda.model.ThreadDumpInfo;
+import java.io.File;
+import java.io.IOException;
+import javax.swing.tree.DefaultMutableTreeNode;
+
+/**
+ * Tree node of a dump stored in a session file. The dump is read from its
+ * chunk in the session file when it is selected.
+ *
+ * @author irockel
+ */
+public class SessionDumpNode extends LazyDumpNode {
+    private File file;
+    private long offset;
+    private int length;
+
+    /**
+     * @param file the session file.
+     * @param offset the position of the chunk of the dump.
+     * @param length the length of the chunk of the dump.
+     * @param header the info of the not yet loaded dump.
+     * @param dictionary the dictionary of the stack lines of the session.
+     */
+    SessionDumpNode(File file, long offset, int length, ThreadDumpInfo header, FrameDictionary dictionary) {
+        super(header, dictionary);
+        this.file = file;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * read the dump of this node from the session file, doesn't modify the node.
+     */
+    public DefaultMutableTreeNode parseDump() throws IOException {
+        return (SessionFile.readDump(file, offset, length, this));
+    }
+
+    /**
+     * get the compressed chunk of the dump as stored in the session file.
+     */
+    byte[] readRawChunk() throws IOException {
+        return (SessionFile.readChunk(file, offset, length));
+    }
+
+    /**
+     * the chunk of the dump was written to another session file.
+     */
+    void relocate(File file, long offset, int length) {
+        this.file = file;
+        this.offset = offset;
+        this.length = length;
+    }
+}
@@ -0,0 +1,1027 @@
+/*
+ * SessionFile.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.parser;
+
+import de.grimmfrost.tda.model.AbstractCategory;
+import de.grimmfrost.tda.model.BlockerInfo;
+import de.grimmfrost.tda.model.CallTree;
+import de.grimmfrost.tda.model.CallTreeCategory;
+import de.grimmfrost.tda.model.Category;
+import de.grimmfrost.tda.model.FrameDictionary;
+import de.grimmfrost.tda.model.HeapInfo;
+import de.grimmfrost.tda.model.HistogramInfo;
+import de.grimmfrost.tda.model.HotThreadInfo;
+import de.grimmfrost.tda.model.LogFileContent;
+import de.grimmfrost.tda.model.Logfile;
+import de.grimmfrost.tda.model.StackCluster;
+import de.grimmfrost.tda.model.StateSeriesCategory;
+import de.grimmfrost.tda.model.TableCategory;
+import de.grimmfrost.tda.model.ThreadDumpInfo;
+import de.grimmfrost.tda.model.ThreadInfo;
+import de.grimmfrost.tda.model.ThreadHeader;
+import de.grimmfrost.tda.model.ThreadStack;
+import de.grimmfrost.tda.model.ThreadStateCounts;
+import de.grimmfrost.tda.model.TreeCategory;
+import de.grimmfrost.tda.model.VirtualThreadGroup;
+import de.grimmfrost.tda.utils.DateMatcher;
+import de.grimmfrost.tda.utils.HistogramTableModel;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import javax.swing.tree.DefaultMutableTreeNode;
+
+/**
+ * Reads and writes sessions in a versioned binary format. Every dump is stored
+ * as its own compressed chunk, the chunks are encoded in parallel. At the end
+ * of the file a table of contents holds the tree of the log files with the
+ * position and the header of every dump chunk and the results of the analyses
+ * of the dumps (merges, call trees...). Reading a session only reads
+ * the table of contents, the dumps are returned as SessionDumpNodes which read
+ * their chunk when the dump is selected.
+ * <p>
+ * Layout: magic, version, dump chunks, table of contents, offset of the table
+ * of contents, magic.
+ *
+ * @author irockel
+ */
+public class SessionFile {
+    private static final int MAGIC = 0x54444153;
+
+    private static final int VERSION = 2;
+
+    private static final int NODE_NULL = 0;
+    private static final int NODE_STRING = 1;
+    private static final int NODE_LOGFILE = 2;
+    private static final int NODE_LOGFILE_CONTENT = 3;
+    private static final int NODE_DUMP = 4;
+    private static final int NODE_THREAD = 5;
+    private static final int NODE_THREAD_REF = 6;
+    private static final int NODE_VIRTUAL_THREAD_GROUP = 7;
+    private static final int NODE_TABLE_CATEGORY = 8;
+    private static final int NODE_TREE_CATEGORY = 9;
+    private static final int NODE_HISTOGRAM = 10;
+    private static final int NODE_BLOCKER = 11;
+    private static final int NODE_HOT_THREAD = 12;
+    private static final int NODE_STACK_CLUSTER = 13;
+    private static final int NODE_CALL_TREE = 14;
+    private static final int NODE_STATE_SERIES = 15;
+
+    /**
+     * the field of the ThreadDumpInfo a category of a dump is set to.
+     */
+    private static final int ROLE_NONE = 0;
+    private static final int ROLE_THREADS = 1;
+    private static final int ROLE_WAITING = 2;
+    private static final int ROLE_SLEEPING = 3;
+    private static final int ROLE_LOCKING = 4;
+    private static final int ROLE_MONITORS = 5;
+    private static final int ROLE_MONITORS_WITHOUT_LOCKS = 6;
+    private static final int ROLE_VIRTUAL_THREADS = 7;
+    private static final int ROLE_VIRTUAL_THREAD_GROUPS = 8;
+    private static final int ROLE_DEADLOCKS = 9;
+    private static final int ROLE_BLOCKING_MONITORS = 10;
+    private static final int ROLE_LOCK_CYCLES = 11;
+    private static final int ROLE_TOP_BLOCKERS = 12;
+
+    private final String dumpFile;
+    private final Vector<DefaultMutableTreeNode> topNodes;
+
+    private SessionFile(String dumpFile, Vector<DefaultMutableTreeNode> topNodes) {
+        this.dumpFile = dumpFile;
+        this.topNodes = topNodes;
+    }
+
+    /**
+     * get the name of the dump file stored with the session.
+     */
+    public String getDumpFile() {
+        return (dumpFile);
+    }
+
+    /**
+     * get the top nodes (the log files) of the session.
+     */
+    public Vector<DefaultMutableTreeNode> getTopNodes() {
+        return (topNodes);
+    }
+
+    /**
+     * check if the passed file is a session in this format.
+     * @param file the file to check.
+     * @return false, if the file is a session in the old serialized format.
+     */
+    public static boolean isSessionFile(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return (raf.length() >= 8 && raf.readInt() == MAGIC);
+        }
+    }
+
+    /**
+     * write a session. The session is written to a temporary file first and moved over the
+     * passed file afterwards, as the chunks of unloaded dumps might be copied from it.
+     * @param file the file to write the session to.
+     * @param dumpFile the name of the current dump file.
+     * @param topNodes the top nodes (the log files) to store.
+     * @throws IOException if a dump couldn't be read or the session couldn't be written.
+     */
+    public static void write(File file, String dumpFile, List<DefaultMutableTreeNode> topNodes) throws IOException {
+        List<DefaultMutableTreeNode> dumps = new ArrayList<>();
+        for (DefaultMutableTreeNode top : topNodes) {
+            collectDumps(top, dumps);
+        }
+
+        long[] offsets = new long[dumps.size()];
+        int[] lengths = new int[dumps.size()];
+        File dir = file.getAbsoluteFile().getParentFile();
+        File tmpFile = File.createTempFile(file.getName(), ".tmp", dir);
+        try {
+            writeSession(tmpFile, dumpFile, topNodes, dumps, offsets, lengths);
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            tmpFile.delete();
+        }
+
+        // dumps not loaded yet are read from the new file from now on.
+        for (int i = 0; i < dumps.size(); i++) {
+            if (dumps.get(i) instanceof SessionDumpNode && !((SessionDumpNode) dumps.get(i)).isLoaded()) {
+                ((SessionDumpNode) dumps.get(i)).relocate(file, offsets[i], lengths[i]);
+            }
+        }
+    }
+
+    /**
+     * write the chunks of the passed dumps and the table of contents to the passed file.
+     * @param offsets filled with the offsets of the written chunks.
+     * @param lengths filled with the lengths of the written chunks.
+     */
+    private static void writeSession(File file, String dumpFile, List<DefaultMutableTreeNode> topNodes,
+                                     List<DefaultMutableTreeNode> dumps, long[] offsets, int[] lengths) throws IOException {
+        // encode and compress the dumps in parallel, unloaded session dumps are copied as they are.
+        // Each chunk is written as soon as it's encoded, so only a few chunks are held in memory.
+        int window = Runtime.getRuntime().availableProcessors() * 2;
+        ArrayDeque<Future<byte[]>> chunks = new ArrayDeque<>();
+        CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try (DataOutputStream out = new DataOutputStream(counter)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            try {
+                int next = 0;
+                for (int i = 0; i < dumps.size(); i++) {
+                    for (; next < dumps.size() && next < i + window; next++) {
+                        int index = next;
+                        chunks.add(ForkJoinPool.commonPool().submit(() -> encodeDump(dumps.get(index))));
+                    }
+                    byte[] chunk = getChunk(chunks.poll());
+                    offsets[i] = counter.getPosition();
+                    lengths[i] = chunk.length;
+                    out.write(chunk);
+                }
+            } finally {
+                for (Future<byte[]> chunk : chunks) {
+                    chunk.cancel(true);
+                }
+            }
+            long tocOffset = counter.getPosition();
+            DataOutputStream toc = new DataOutputStream(new DeflaterOutputStream(new NonClosingOutputStream(out)));
+            writeString(toc, dumpFile);
+            toc.writeInt(dumps.size());
+            for (int i = 0; i < dumps.size(); i++) {
+                toc.writeLong(offsets[i]);
+                toc.writeInt(lengths[i]);
+            }
+            IdentityHashMap<DefaultMutableTreeNode, Integer> dumpIndexes = new IdentityHashMap<>();
+            for (int i = 0; i < dumps.size(); i++) {
+                dumpIndexes.put(dumps.get(i), i);
+            }
+            toc.writeInt(topNodes.size());
+            for (DefaultMutableTreeNode top : topNodes) {
+                writeTocNode(toc, top, dumpIndexes);
+            }
+            toc.close();
+            out.writeLong(tocOffset);
+            out.writeInt(MAGIC);
+        }
+    }
+
+    /**
+     * wait for an encoded chunk of a dump.
+     */
+    private static byte[] getChunk(Future<byte[]> chunk) throws IOException {
+        try {
+            return (chunk.get());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while writing session");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException("couldn't encode dump", ex.getCause());
+        }
+    }
+
+    /**
+     * read the table of contents of a session.
+     * @param file the session file.
+     * @return the session, the dumps are loaded on request.
+     * @throws IOException if the session couldn't be read.
+     */
+    public static SessionFile read(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.length() < 20 || raf.readInt() != MAGIC) {
+                throw new IOException(file + " is no session file");
+            }
+            int version = raf.readInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported session version " + version + " of " + file);
+            }
+            raf.seek(raf.length() - 12);
+            long tocOffset = raf.readLong();
+            if (raf.readInt() != MAGIC) {
+                throw new IOException("session file " + file + " is truncated");
+            }
+            byte[] tocBytes = new byte[(int) (raf.length() - 12 - tocOffset)];
+            raf.seek(tocOffset);
+            raf.readFully(tocBytes);
+
+            DataInputStream toc = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(tocBytes)));
+            String dumpFile = readString(toc);
+            int dumpCount = toc.readInt();
+            long[] offsets = new long[dumpCount];
+            int[] lengths = new int[dumpCount];
+            for (int i = 0; i < dumpCount; i++) {
+                offsets[i] = toc.readLong();
+                lengths[i] = toc.readInt();
+            }
+            // the stacks of all dumps of the session share a dictionary, which is dropped with the session.
+            FrameDictionary dictionary = new FrameDictionary();
+            Vector<DefaultMutableTreeNode> topNodes = new Vector<>();
+            int topCount = toc.readInt();
+            for (int i = 0; i < topCount; i++) {
+                topNodes.add(readTocNode(toc, file, offsets, lengths, dictionary));
+            }
+            return (new SessionFile(dumpFile, topNodes));
+        }
+    }
+
+    /**
+     * read and decode a dump chunk.
+     * @param file the session file.
+     * @param offset the position of the chunk.
+     * @param length the length of the chunk.
+     * @param node the node the dump is read for.
+     * @return the tree of the dump.
+     */
+    static DefaultMutableTreeNode readDump(File file, long offset, int length, SessionDumpNode node) throws IOException {
+        DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(readChunk(file, offset, length))));
+        FrameDictionary dictionary = node.getDictionary();
+        ThreadDumpInfo tdi = new ThreadDumpInfo(readString(in), 0);
+        tdi.setLogLine(in.readInt());
+        tdi.setStartTime(readString(in));
+        tdi.setSmrInfo(readString(in));
+        tdi.setOverallThreadsWaitingWithoutLocksCount(in.readInt());
+        String heapInfo = readString(in);
+        if (heapInfo != null) {
+            tdi.setHeapInfo(new HeapInfo(heapInfo));
+        }
+
+        List<ThreadInfo> threadInfos = null;
+        int threadCount = in.readInt();
+        if (threadCount >= 0) {
+            threadInfos = new ArrayList<>(threadCount);
+            for (int i = 0; i < threadCount; i++) {
+                threadInfos.add((ThreadInfo) readUserObject(in, in.readByte(), null, dictionary));
+            }
+            tdi.setThreadInfos(threadInfos);
+        }
+
+        DefaultMutableTreeNode dump = new DefaultMutableTreeNode(tdi);
+        int childCount = in.readInt();
+        for (int i = 0; i < childCount; i++) {
+            int role = in.readByte();
+            DefaultMutableTreeNode child = readNode(in, threadInfos, dictionary);
+            if (role != ROLE_NONE) {
+                setCategory(tdi, role, (Category) child.getUserObject());
+            }
+            dump.add(child);
+        }
+        return (dump);
+    }
+
+    /**
+     * read the raw bytes of a chunk.
+     */
+    static byte[] readChunk(File file, long offset, int length) throws IOException {
+        byte[] chunk = new byte[length];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(offset);
+            raf.readFully(chunk);
+        }
+        return (chunk);
+    }
+
+    private static void collectDumps(DefaultMutableTreeNode node, List<DefaultMutableTreeNode> dumps) {
+        if (node.getUserObject() instanceof ThreadDumpInfo) {
+            dumps.add(node);
+            return;
+        }
+        for (int i = 0; i < node.getChildCount(); i++) {
+            collectDumps((DefaultMutableTreeNode) node.getChildAt(i), dumps);
+        }
+    }
+
+    /**
+     * encode and compress a dump, dumps not loaded yet are parsed (or read) first.
+     */
+    private static byte[] encodeDump(DefaultMutableTreeNode node) throws IOException {
+        DefaultMutableTreeNode dump = node;
+        if (node instanceof LazyDumpNode && !((LazyDumpNode) node).isLoaded()) {
+            if (node instanceof SessionDumpNode) {
+                return (((SessionDumpNode) node).readRawChunk());
+            }
+            dump = ((LazyDumpNode) node).parseDump();
+        }
+        ThreadDumpInfo tdi = (ThreadDumpInfo) dump.getUserObject();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            writeString(out, tdi.getName());
+            out.writeInt(tdi.getLogLine());
+            writeString(out, tdi.getStartTime());
+            writeString(out, tdi.getSmrInfo());
+            out.writeInt(tdi.getOverallThreadsWaitingWithoutLocksCount());
+            writeString(out, tdi.getHeapInfo() != null ? tdi.getHeapInfo().getHeapInfo() : null);
+
+            List<ThreadInfo> threadInfos = tdi.getThreadInfos();
+            IdentityHashMap<Object, Integer> refs = new IdentityHashMap<>();
+            if (threadInfos != null) {
+                out.writeInt(threadInfos.size());
+                for (int i = 0; i < threadInfos.size(); i++) {
+                    ThreadInfo ti = threadInfos.get(i);
+                    writeUserObject(out, ti, null);
+                    refs.put(ti, i);
+                }
+            } else {
+                out.writeInt(-1);
+            }
+
+            out.writeInt(dump.getChildCount());
+            for (int i = 0; i < dump.getChildCount(); i++) {
+                DefaultMutableTreeNode child = (DefaultMutableTreeNode) dump.getChildAt(i);
+                out.writeByte(getRole(tdi, child.getUserObject()));
+                writeNode(out, child, threadInfos, refs);
+            }
+        }
+        return (bytes.toByteArray());
+    }
+
+    private static void writeTocNode(DataOutput out, DefaultMutableTreeNode node,
+                                     IdentityHashMap<DefaultMutableTreeNode, Integer> dumpIndexes) throws IOException {
+        Object userObject = node.getUserObject();
+        if (userObject instanceof ThreadDumpInfo) {
+            ThreadDumpInfo header = node instanceof LazyDumpNode ? ((LazyDumpNode) node).getHeader() : (ThreadDumpInfo) userObject;
+            out.writeByte(NODE_DUMP);
+            out.writeInt(dumpIndexes.get(node));
+            writeString(out, header.getName());
+            out.writeInt(header.getLogLine());
+            writeString(out, header.getStartTime());
+            return;
+        } else if (userObject instanceof Logfile) {
+            out.writeByte(NODE_LOGFILE);
+            writeString(out, userObject.toString());
+        } else if (userObject instanceof LogFileContent) {
+            out.writeByte(NODE_LOGFILE_CONTENT);
+            writeString(out, ((LogFileContent) userObject).getLogfile());
+        } else if (userObject instanceof AbstractCategory) {
+            // results of an analysis of the dumps (merge, call tree...), they don't reference the threads of a dump.
+            writeNode(out, node, null, null);
+            return;
+        } else {
+            writeUserObject(out, userObject, null);
+        }
+        out.writeInt(node.getChildCount());
+        for (int i = 0; i < node.getChildCount(); i++) {
+            writeTocNode(out, (DefaultMutableTreeNode) node.getChildAt(i), dumpIndexes);
+        }
+    }
+
+    private static DefaultMutableTreeNode readTocNode(DataInput in, File file, long[] offsets, int[] lengths,
+                                                      FrameDictionary dictionary) throws IOException {
+        int type = in.readByte();
+        DefaultMutableTreeNode node;
+        if (type == NODE_DUMP) {
+            int index = in.readInt();
+            ThreadDumpInfo header = new ThreadDumpInfo(readString(in), 0);
+            header.setLogLine(in.readInt());
+            header.setStartTime(readString(in));
+            return (new SessionDumpNode(file, offsets[index], lengths[index], header, dictionary));
+        } else if (type == NODE_LOGFILE) {
+            Logfile logfile = new Logfile(readString(in));
+            SunJDKParser parser = new SunJDKParser(null, 0, false, 0, new DateMatcher());
+            parser.setDictionary(dictionary);
+            logfile.setUsedParser(parser);
+            node = new DefaultMutableTreeNode(logfile);
+        } else if (type == NODE_LOGFILE_CONTENT) {
+            node = new DefaultMutableTreeNode(new LogFileContent(readString(in)));
+        } else if (isCategory(type)) {
+            return (readNode(in, type, null, dictionary));
+        } else {
+            node = new DefaultMutableTreeNode(readUserObject(in, type, null, dictionary));
+        }
+        int childCount = in.readInt();
+        for (int i = 0; i < childCount; i++) {
+            node.add(readTocNode(in, file, offsets, lengths, dictionary));
+        }
+        return (node);
+    }
+
+    /**
+     * write a node of a dump and its children.
+     * @param threadInfos the threads of the dump.
+     * @param refs the index of every thread of the dump, threads of the dump are only referenced.
+     */
+    private static void writeNode(DataOutput out, DefaultMutableTreeNode node, List<ThreadInfo> threadInfos,
+                                  IdentityHashMap<Object, Integer> refs) throws IOException {
+        Object userObject = node.getUserObject();
+        if (userObject instanceof CallTreeCategory) {
+            writeCallTree(out, (CallTreeCategory) userObject);
+        } else if (userObject instanceof StateSeriesCategory) {
+            writeStateSeries(out, (StateSeriesCategory) userObject);
+        } else if (userObject instanceof AbstractCategory) {
+            writeCategory(out, (AbstractCategory) userObject, threadInfos, refs);
+        } else {
+            writeUserObject(out, userObject, refs);
+        }
+        out.writeInt(node.getChildCount());
+        for (int i = 0; i < node.getChildCount(); i++) {
+            writeNode(out, (DefaultMutableTreeNode) node.getChildAt(i), threadInfos, refs);
+        }
+    }
+
+    private static DefaultMutableTreeNode readNode(DataInput in, List<ThreadInfo> threadInfos,
+                                                   FrameDictionary dictionary) throws IOException {
+        return (readNode(in, in.readByte(), threadInfos, dictionary));
+    }
+
+    private static DefaultMutableTreeNode readNode(DataInput in, int type, List<ThreadInfo> threadInfos,
+                                                   FrameDictionary dictionary) throws IOException {
+        DefaultMutableTreeNode node = new DefaultMutableTreeNode(type == NODE_TABLE_CATEGORY || type == NODE_TREE_CATEGORY
+                ? readCategory(in, type, threadInfos, dictionary) : readUserObject(in, type, threadInfos, dictionary));
+        int childCount = in.readInt();
+        for (int i = 0; i < childCount; i++) {
+            node.add(readNode(in, threadInfos, dictionary));
+        }
+        return (node);
+    }
+
+    private static boolean isCategory(int type) {
+        return (type == NODE_TABLE_CATEGORY || type == NODE_TREE_CATEGORY || type == NODE_CALL_TREE || type == NODE_STATE_SERIES);
+    }
+
+    private static void writeCategory(DataOutput out, AbstractCategory category, List<ThreadInfo> threadInfos,
+                                      IdentityHashMap<Object, Integer> refs) throws IOException {
+        out.writeByte(category instanceof TreeCategory ? NODE_TREE_CATEGORY : NODE_TABLE_CATEGORY);
+        writeString(out, category.getName());
+        out.writeInt(category.getIconID());
+        out.writeBoolean(category.isFilterEnabled());
+        writeString(out, category.getInfo());
+
+        // categories which are views on the threads of the dump only store the thread indexes.
+        boolean view = category instanceof TableCategory && threadInfos != null
+                && ((TableCategory) category).getThreadList() == threadInfos;
+        out.writeBoolean(view);
+        if (view) {
+            long[] members = ((TableCategory) category).getMembers().toLongArray();
+            out.writeInt(members.length);
+            for (long member : members) {
+                out.writeLong(member);
+            }
+        } else {
+            out.writeInt(category.getNodeCount());
+            for (int i = 0; i < category.getNodeCount(); i++) {
+                writeNode(out, category.getNodeAt(i), threadInfos, refs);
+            }
+        }
+    }
+
+    private static AbstractCategory readCategory(DataInput in, int type, List<ThreadInfo> threadInfos,
+                                                 FrameDictionary dictionary) throws IOException {
+        String name = readString(in);
+        int iconID = in.readInt();
+        boolean filtering = in.readBoolean();
+        String info = readString(in);
+        AbstractCategory category;
+        if (in.readBoolean()) {
+            long[] members = new long[in.readInt()];
+            for (int i = 0; i < members.length; i++) {
+                members[i] = in.readLong();
+            }
+            TableCategory tableCategory = new TableCategory(name, iconID, threadInfos);
+            BitSet memberSet = BitSet.valueOf(members);
+            for (int i = memberSet.nextSetBit(0); i >= 0; i = memberSet.nextSetBit(i + 1)) {
+                tableCategory.addThread(i);
+            }
+            category = tableCategory;
+        } else {
+            category = type == NODE_TREE_CATEGORY ? new TreeCategory(name, iconID, filtering) : new TableCategory(name, iconID, filtering);
+            int nodeCount = in.readInt();
+            for (int i = 0; i < nodeCount; i++) {
+                category.addToCatNodes(readNode(in, threadInfos, dictionary));
+            }
+        }
+        if (info != null) {
+            category.setInfo(info);
+        }
+        return (category);
+    }
+
+    /**
+     * write a user object, which isn't a category.
+     * @param refs the index of every thread of the dump, null if threads are always written.
+     */
+    private static void writeUserObject(DataOutput out, Object userObject, IdentityHashMap<Object, Integer> refs) throws IOException {
+        if (userObject == null) {
+            out.writeByte(NODE_NULL);
+        } else if (refs != null && refs.containsKey(userObject)) {
+            out.writeByte(NODE_THREAD_REF);
+            out.writeInt(refs.get(userObject));
+        } else if (userObject instanceof BlockerInfo) {
+            BlockerInfo blocker = (BlockerInfo) userObject;
+            out.writeByte(NODE_BLOCKER);
+            writeString(out, blocker.getThread());
+            out.writeInt(blocker.getBlockedCount());
+            out.writeInt(blocker.getDirectlyBlockedCount());
+            out.writeInt(blocker.getDumpCount());
+            out.writeBoolean(blocker.getStack() != null);
+            if (blocker.getStack() != null) {
+                writeStack(out, blocker.getStack());
+            }
+        } else if (userObject instanceof HotThreadInfo) {
+            HotThreadInfo hotThread = (HotThreadInfo) userObject;
+            out.writeByte(NODE_HOT_THREAD);
+            writeString(out, hotThread.getThread());
+            writeString(out, hotThread.getInterval());
+            out.writeDouble(hotThread.getCpuMillis());
+            out.writeDouble(hotThread.getElapsedSeconds());
+            out.writeBoolean(hotThread.getStack() != null);
+            if (hotThread.getStack() != null) {
+                writeStack(out, hotThread.getStack());
+            }
+        } else if (userObject instanceof StackCluster) {
+            StackCluster cluster = (StackCluster) userObject;
+            out.writeByte(NODE_STACK_CLUSTER);
+            out.writeInt(cluster.getThreadCount());
+            out.writeInt(cluster.getDumpCount());
+            writeCounts(out, cluster.getStates());
+            writeCounts(out, cluster.getMembers());
+            out.writeBoolean(cluster.getStack() != null);
+            if (cluster.getStack() != null) {
+                writeStack(out, cluster.getStack());
+            }
+        } else if (userObject instanceof VirtualThreadGroup) {
+            VirtualThreadGroup group = (VirtualThreadGroup) userObject;
+            out.writeByte(NODE_VIRTUAL_THREAD_GROUP);
+            writeString(out, group.getContainer());
+            writeString(out, group.getState());
+            out.writeInt(group.getThreadCount());
+            writeStack(out, group.getStack());
+        } else if (userObject instanceof ThreadInfo) {
+            ThreadInfo ti = (ThreadInfo) userObject;
+            out.writeByte(NODE_THREAD);
+            writeString(out, ti.getName());
+            writeString(out, ti.getInfo());
+            out.writeInt(ti.getStackLines());
+            out.writeBoolean(ti.areALotOfWaiting());
+            out.writeInt(ti.getChildCount());
+            // the tokens are created from the header, which is parsed again from the name.
+            out.writeBoolean(ti.getHeader() != null);
+            if (ti.getHeader() == null) {
+                String[] tokens = ti.getTokens();
+                out.writeInt(tokens != null ? tokens.length : -1);
+                for (int i = 0; tokens != null && i < tokens.length; i++) {
+                    writeString(out, tokens[i]);
+                }
+            }
+            out.writeBoolean(ti.getStack() != null);
+            if (ti.getStack() != null) {
+                writeStack(out, ti.getStack());
+            } else {
+                writeString(out, ti.getContent());
+            }
+        } else if (userObject instanceof HistogramInfo) {
+            HistogramInfo histogramInfo = (HistogramInfo) userObject;
+            HistogramTableModel histogram = (HistogramTableModel) histogramInfo.content;
+            out.writeByte(NODE_HISTOGRAM);
+            writeString(out, histogramInfo.threadDumpName);
+            out.writeLong(histogram.getInstances());
+            out.writeLong(histogram.getBytes());
+            out.writeBoolean(histogram.isIncomplete());
+            out.writeInt(histogram.getEntryCount());
+            for (int i = 0; i < histogram.getEntryCount(); i++) {
+                writeString(out, histogram.getClassName(i));
+                writeString(out, histogram.getModule(i));
+                out.writeLong(histogram.getInstanceCount(i));
+                out.writeLong(histogram.getByteCount(i));
+            }
+        } else {
+            out.writeByte(NODE_STRING);
+            writeString(out, userObject.toString());
+        }
+    }
+
+    private static Object readUserObject(DataInput in, int type, List<ThreadInfo> threadInfos,
+                                         FrameDictionary dictionary) throws IOException {
+        switch (type) {
+            case NODE_NULL:
+                return (null);
+            case NODE_THREAD_REF:
+                return (threadInfos.get(in.readInt()));
+            case NODE_BLOCKER: {
+                String thread = readString(in);
+                int blockedCount = in.readInt();
+                int directlyBlockedCount = in.readInt();
+                int dumpCount = in.readInt();
+                ThreadStack stack = in.readBoolean() ? readStack(in, dictionary) : null;
+                ThreadHeader header = ThreadHeaderParser.parse(thread);
+                BlockerInfo blocker = new BlockerInfo(thread, header, stack, dumpCount > 0 ? 0 : blockedCount,
+                        dumpCount > 0 ? 0 : directlyBlockedCount);
+                // a blocker of a series is restored by adding the summed up counts.
+                for (int i = 0; i < dumpCount; i++) {
+                    blocker.addDump(new BlockerInfo(thread, header, stack, i == 0 ? blockedCount : 0,
+                            i == 0 ? directlyBlockedCount : 0));
+                }
+                return (blocker);
+            }
+            case NODE_HOT_THREAD: {
+                String thread = readString(in);
+                String interval = readString(in);
+                double cpuMillis = in.readDouble();
+                double elapsedSeconds = in.readDouble();
+                ThreadStack stack = in.readBoolean() ? readStack(in, dictionary) : null;
+                return (new HotThreadInfo(thread, stack, interval, cpuMillis, elapsedSeconds));
+            }
+            case NODE_CALL_TREE:
+                return (readCallTree(in, dictionary));
+            case NODE_STATE_SERIES:
+                return (readStateSeries(in));
+            case NODE_STACK_CLUSTER: {
+                int threadCount = in.readInt();
+                int dumpCount = in.readInt();
+                Map<String, Integer> states = readCounts(in);
+                Map<String, Integer> members = readCounts(in);
+                ThreadStack stack = in.readBoolean() ? readStack(in, dictionary) : null;
+                return (new StackCluster(stack, threadCount, dumpCount, states, members));
+            }
+            case NODE_VIRTUAL_THREAD_GROUP: {
+                String container = readString(in);
+                String state = readString(in);
+                int threadCount = in.readInt();
+                VirtualThreadGroup group = new VirtualThreadGroup(container, readStack(in, dictionary), state);
+                for (int i = 0; i < threadCount; i++) {
+                    group.addThread();
+                }
+                return (group);
+            }
+            case NODE_THREAD: {
+                String name = readString(in);
+                String info = readString(in);
+                int stackLines = in.readInt();
+                boolean aLotOfWaiting = in.readBoolean();
+                int childCount = in.readInt();
+                String[] tokens = null;
+                boolean hasHeader = in.readBoolean();
+                if (!hasHeader) {
+                    int tokenCount = in.readInt();
+                    if (tokenCount >= 0) {
+                        tokens = new String[tokenCount];
+                        for (int i = 0; i < tokenCount; i++) {
+                            tokens[i] = readString(in);
+                        }
+                    }
+                }
+                ThreadInfo ti = new ThreadInfo(name, info, null, stackLines, tokens);
+                if (hasHeader) {
+                    ti.setHeader(ThreadHeaderParser.parse(name));
+                }
+                if (in.readBoolean()) {
+                    ti.setStack(readStack(in, dictionary));
+                } else {
+                    ti.setContent(readString(in));
+                }
+                ti.setALotOfWaiting(aLotOfWaiting);
+                ti.setChildCount(childCount);
+                return (ti);
+            }
+            case NODE_HISTOGRAM: {
+                String name = readString(in);
+                HistogramTableModel histogram = new HistogramTableModel();
+                histogram.setInstances(in.readLong());
+                histogram.setBytes(in.readLong());
+                histogram.setIncomplete(in.readBoolean());
+                int entryCount = in.readInt();
+                for (int i = 0; i < entryCount; i++) {
+                    histogram.addEntry(readString(in), readString(in), in.readLong(), in.readLong());
+                }
+                return (new HistogramInfo(name, histogram));
+            }
+            case NODE_STRING:
+                return (readString(in));
+            default:
+                throw new IOException("unknown node type " + type + " in session");
+        }
+    }
+
+    private static void writeStack(DataOutput out, ThreadStack stack) throws IOException {
+        writeString(out, stack.getTitle());
+        out.writeInt(stack.getLineCount());
+        for (int i = 0; i < stack.getLineCount(); i++) {
+            out.writeBoolean(stack.getLineId(i) < 0);
+            writeString(out, stack.getLine(i));
+        }
+    }
+
+    private static ThreadStack readStack(DataInput in, FrameDictionary dictionary) throws IOException {
+        String title = readString(in);
+        int lineCount = in.readInt();
+        ThreadStack.Builder stack = new ThreadStack.Builder(dictionary, title, lineCount);
+        for (int i = 0; i < lineCount; i++) {
+            if (in.readBoolean()) {
+                stack.addAnnotation(readString(in));
+            } else {
+                stack.addFrame(readString(in));
+            }
+        }
+        return (stack.build());
+    }
+
+    /**
+     * write a call tree category, the tree nodes of the category are created from the call tree.
+     */
+    private static void writeCallTree(DataOutput out, CallTreeCategory category) throws IOException {
+        CallTree tree = category.getTree();
+        out.writeByte(NODE_CALL_TREE);
+        writeString(out, category.getName());
+        out.writeInt(category.getIconID());
+        writeString(out, tree.getState());
+        out.writeInt(tree.getThreadCount());
+        out.writeInt(tree.getExclusiveCount(CallTree.ROOT));
+        out.writeInt(tree.size());
+        // parents are always created before their children.
+        for (int node = 1; node < tree.size(); node++) {
+            out.writeInt(tree.getParent(node));
+            writeString(out, tree.getFrame(node));
+            out.writeInt(tree.getInclusiveCount(node));
+            out.writeInt(tree.getExclusiveCount(node));
+        }
+    }
+
+    private static CallTreeCategory readCallTree(DataInput in, FrameDictionary dictionary) throws IOException {
+        String name = readString(in);
+        int iconID = in.readInt();
+        CallTree tree = new CallTree(dictionary, readString(in));
+        tree.restoreRoot(in.readInt(), in.readInt());
+        int size = in.readInt();
+        for (int node = 1; node < size; node++) {
+            tree.restoreNode(in.readInt(), readString(in), in.readInt(), in.readInt());
+        }
+        return (new CallTreeCategory(name, iconID, tree));
+    }
+
+    private static void writeStateSeries(DataOutput out, StateSeriesCategory category) throws IOException {
+        out.writeByte(NODE_STATE_SERIES);
+        writeString(out, category.getName());
+        out.writeInt(category.getIconID());
+        out.writeInt(category.getSeries().size());
+        out.writeInt(ThreadStateCounts.COUNT_NAMES.length);
+        for (ThreadStateCounts counts : category.getSeries()) {
+            writeString(out, counts.getDump());
+            writeString(out, counts.getTime());
+            for (int i = 0; i < ThreadStateCounts.COUNT_NAMES.length; i++) {
+                out.writeInt(counts.getCount(i));
+            }
+        }
+    }
+
+    private static StateSeriesCategory readStateSeries(DataInput in) throws IOException {
+        String name = readString(in);
+        int iconID = in.readInt();
+        int size = in.readInt();
+        int countSize = in.readInt();
+        List<ThreadStateCounts> series = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String dump = readString(in);
+            String time = readString(in);
+            int[] counts = new int[ThreadStateCounts.COUNT_NAMES.length];
+            for (int j = 0; j < countSize; j++) {
+                int count = in.readInt();
+                if (j < counts.length) {
+                    counts[j] = count;
+                }
+            }
+            series.add(new ThreadStateCounts(dump, time, counts));
+        }
+        return (new StateSeriesCategory(name, iconID, series));
+    }
+
+    private static void writeCounts(DataOutput out, Map<String, Integer> counts) throws IOException {
+        out.writeInt(counts.size());
+        for (Map.Entry<String, Integer> count : counts.entrySet()) {
+            writeString(out, count.getKey());
+            out.writeInt(count.getValue());
+        }
+    }
+
+    private static Map<String, Integer> readCounts(DataInput in) throws IOException {
+        int size = in.readInt();
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            counts.put(readString(in), in.readInt());
+        }
+        return (counts);
+    }
+
+    private static int getRole(ThreadDumpInfo tdi, Object category) {
+        if (category == null) {
+            return (ROLE_NONE);
+        } else if (category == tdi.getThreads()) {
+            return (ROLE_THREADS);
+        } else if (category == tdi.getWaitingThreads()) {
+            return (ROLE_WAITING);
+        } else if (category == tdi.getSleepingThreads()) {
+            return (ROLE_SLEEPING);
+        } else if (category == tdi.getLockingThreads()) {
+            return (ROLE_LOCKING);
+        } else if (category == tdi.getMonitors()) {
+            return (ROLE_MONITORS);
+        } else if (category == tdi.getMonitorsWithoutLocks()) {
+            return (ROLE_MONITORS_WITHOUT_LOCKS);
+        } else if (category == tdi.getVirtualThreads()) {
+            return (ROLE_VIRTUAL_THREADS);
+        } else if (category == tdi.getVirtualThreadGroups()) {
+            return (ROLE_VIRTUAL_THREAD_GROUPS);
+        } else if (category == tdi.getDeadlocks()) {
+            return (ROLE_DEADLOCKS);
+        } else if (category == tdi.getBlockingMonitors()) {
+            return (ROLE_BLOCKING_MONITORS);
+        } else if (category == tdi.getLockCycles()) {
+            return (ROLE_LOCK_CYCLES);
+        } else if (category == tdi.getTopBlockers()) {
+            return (ROLE_TOP_BLOCKERS);
+        }
+        return (ROLE_NONE);
+    }
+
+    private static void setCategory(ThreadDumpInfo tdi, int role, Category category) {
+        switch (role) {
+            case ROLE_THREADS:
+                tdi.setThreads(category);
+                break;
+            case ROLE_WAITING:
+                tdi.setWaitingThreads(category);
+                break;
+            case ROLE_SLEEPING:
+                tdi.setSleepingThreads(category);
+                break;
+            case ROLE_LOCKING:
+                tdi.setLockingThreads(category);
+                break;
+            case ROLE_MONITORS:
+                tdi.setMonitors(category);
+                break;
+            case ROLE_MONITORS_WITHOUT_LOCKS:
+                tdi.setMonitorsWithoutLocks(category);
+                break;
+            case ROLE_VIRTUAL_THREADS:
+                tdi.setVirtualThreads(category);
+                break;
+            case ROLE_VIRTUAL_THREAD_GROUPS:
+                tdi.setVirtualThreadGroups(category);
+                break;
+            case ROLE_DEADLOCKS:
+                tdi.setDeadlocks(category);
+                break;
+            case ROLE_BLOCKING_MONITORS:
+                tdi.setBlockingMonitors(category);
+                break;
+            case ROLE_LOCK_CYCLES:
+                tdi.setLockCycles(category);
+                break;
+            case ROLE_TOP_BLOCKERS:
+                tdi.setTopBlockers(category);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * strings are written with an int length, as thread stacks might exceed the
+     * length supported by writeUTF.
+     */
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return (null);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return (new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * output stream, which doesn't close the underlying stream, so the compressed
+     * table of contents can be finished and the trailer appended.
+     */
+    /**
+     * keeps track of the position in the written file, as the offsets of the chunks may exceed
+     * the int range of DataOutputStream.size().
+     */
+    private static class CountingOutputStream extends java.io.FilterOutputStream {
+        private long position;
+
+        CountingOutputStream(java.io.OutputStream out) {
+            super(out);
+        }
+
+        long getPosition() {
+            return (position);
+        }
+
+        public void write(int b) throws IOException {
+            out.write(b);
+            position++;
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            position += len;
+        }
+    }
+
+    private static class NonClosingOutputStream extends java.io.FilterOutputStream {
+        NonClosingOutputStream(java.io.OutputStream out) {
+            super(out);
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * StackClusterer.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.parser;
+
+import de.grimmfrost.tda.model.FrameDictionary;
+import de.grimmfrost.tda.model.StackCluster;
+import de.grimmfrost.tda.model.ThreadHeader;
+import de.grimmfrost.tda.model.ThreadInfo;
+import de.grimmfrost.tda.model.ThreadStack;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups the threads of one or more dumps by the frames of their stacks. Lock
+ * annotations are ignored, optionally also the line numbers and the module
+ * versions of the frames, so the same code in different builds or on different
+ * JDKs ends up in one cluster. The normalized frames are cached per dictionary
+ * id, so each thread is only a lookup of its frame ids.
+ *
+ * @author irockel
+ */
+public class StackClusterer {
+    private final boolean ignoreLineNumbers;
+    private final boolean ignoreModules;
+    private final Map<String, Integer> frameIds = new HashMap<>();
+    private final Map<ClusterKey, StackCluster> clusters = new HashMap<>();
+    private final List<StackCluster> clusterList = new ArrayList<>();
+    private FrameDictionary dictionary;
+    // normalized frame id + 1 per dictionary id, 0 if not yet normalized, -1 if no frame.
+    private int[] cache = new int[1024];
+    private int[] frames = new int[64];
+    private int threadCount;
+
+    /**
+     * @param ignoreLineNumbers if true, frames only differing in line numbers are the same.
+     * @param ignoreModules if true, frames only differing in class loader and module are the same.
+     */
+    public StackClusterer(boolean ignoreLineNumbers, boolean ignoreModules) {
+        this.ignoreLineNumbers = ignoreLineNumbers;
+        this.ignoreModules = ignoreModules;
+    }
+
+    /**
+     * add a thread, the threads have to be added in dump order.
+     * @param dump the index of the dump of the thread.
+     * @param thread the thread to add.
+     */
+    public void add(int dump, ThreadInfo thread) {
+        ThreadStack stack = thread.getStack();
+        int frameCount = 0;
+        for (int i = 0; stack != null && i < stack.getLineCount(); i++) {
+            int id = getFrameId(stack, i);
+            if (id >= 0) {
+                if (frameCount == frames.length) {
+                    frames = Arrays.copyOf(frames, frameCount * 2);
+                }
+                frames[frameCount++] = id;
+            }
+        }
+
+        ClusterKey key = new ClusterKey(Arrays.copyOf(frames, frameCount));
+        StackCluster cluster = clusters.get(key);
+        if (cluster == null) {
+            cluster = new StackCluster(stack);
+            clusters.put(key, cluster);
+            clusterList.add(cluster);
+        }
+        ThreadHeader header = thread.getHeader();
+        String name = header != null ? header.getName() : thread.getName();
+        String state = header != null && header.getState() != null ? header.getState() : "UNKNOWN";
+        cluster.addThread(dump, name, state);
+        threadCount++;
+    }
+
+    /**
+     * get the amount of added threads.
+     */
+    public int getThreadCount() {
+        return (threadCount);
+    }
+
+    /**
+     * get the clusters, the biggest cluster first. Clusters of the same size are
+     * returned in the order of their first thread.
+     */
+    public List<StackCluster> getClusters() {
+        List<StackCluster> sorted = new ArrayList<>(clusterList);
+        sorted.sort((c1, c2) -> Integer.compare(c2.getThreadCount(), c1.getThreadCount()));
+        return (sorted);
+    }
+
+    /**
+     * get the normalized frame id of a line of a stack.
+     * @return the id or -1 if the line isn't a frame.
+     */
+    private int getFrameId(ThreadStack stack, int index) {
+        int lineId = stack.getLineId(index);
+        if (lineId < 0) {
+            return (-1);
+        }
+        if (dictionary == null) {
+            dictionary = stack.getDictionary();
+        }
+        if (stack.getDictionary() != dictionary) {
+            // stacks restored from another session, not worth caching.
+            return (normalize(stack.getLine(index)));
+        }
+        if (lineId >= cache.length) {
+            cache = Arrays.copyOf(cache, Math.max(lineId + 1, cache.length * 2));
+        }
+        if (cache[lineId] == 0) {
+            int id = normalize(stack.getLine(index));
+            cache[lineId] = id >= 0 ? id + 1 : -1;
+        }
+        return (cache[lineId] > 0 ? cache[lineId] - 1 : -1);
+    }
+
+    private int normalize(String line) {
+        String frame = normalizeFrame(line, ignoreLineNumbers, ignoreModules);
+        if (frame == null) {
+            return (-1);
+        }
+        Integer id = frameIds.get(frame);
+        if (id == null) {
+            id = frameIds.size();
+            frameIds.put(frame, id);
+        }
+        return (id);
+    }
+
+    /**
+     * normalize a frame of a stack.
+     * @param line the line of the stack.
+     * @param ignoreLineNumbers if true, the line number is removed.
+     * @param ignoreModules if true, the class loader and module (like app// or java.base@17.0.2/) are removed.
+     * @return the normalized frame without the leading "at " or null if the line isn't a frame.
+     */
+    public static String normalizeFrame(String line, boolean ignoreLineNumbers, boolean ignoreModules) {
+        String frame = line.trim();
+        if (!frame.startsWith("at ")) {
+            return (null);
+        }
+        frame = frame.substring(3);
+        int paren = frame.indexOf('(');
+        if (paren < 0) {
+            return (frame);
+        }
+        if (ignoreModules) {
+            // the class loader is printed before the method, the module in the parentheses.
+            int slash = frame.lastIndexOf('/', paren);
+            if (slash >= 0) {
+                frame = frame.substring(slash + 1);
+                paren -= slash + 1;
+            }
+            slash = frame.lastIndexOf('/');
+            if (slash > paren) {
+                frame = frame.substring(0, paren + 1) + frame.substring(slash + 1);
+            }
+        }
+        if (ignoreLineNumbers) {
+            int colon = frame.lastIndexOf(':');
+            if (colon > paren && frame.endsWith(")")) {
+                frame = frame.substring(0, colon) + ")";
+            }
+        }
+        return (frame);
+    }
+
+    /**
+     * key of a cluster, the normalized frame ids of the stack.
+     */
+    private static class ClusterKey {
+        private final int[] frames;
+        private final int hash;
+
+        private ClusterKey(int[] frames) {
+            this.frames = frames;
+            this.hash = Arrays.hashCode(frames);
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof ClusterKey)) {
+                return (false);
+            }
+            ClusterKey other = (ClusterKey) o;
+            return (hash == other.hash && Arrays.equals(frames, other.frames));
+        }
+
+        public int hashCode() {
+            return (hash);
+        }
+    }
+}
@@ -26,19 +26,19 @@ import de.grimmfrost.tda.utils.DateMatcher;
 import de.grimmfrost.tda.utils.LogManager;
 import de.grimmfrost.tda.utils.HistogramTableModel;
 import de.grimmfrost.tda.utils.IconFactory;
+import de.grimmfrost.tda.utils.StackRenderer;
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.Enumeration;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
 import java.util.Stack;
 import java.util.Vector;
 import java.util.regex.Matcher;
+import java.util.stream.IntStream;
 import javax.swing.JOptionPane;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -54,8 +54,12 @@ import javax.swing.tree.MutableTreeNode;
 public class SunJDKParser extends AbstractDumpParser {
     private static final Logger LOGGER = LogManager.getLogger(SunJDKParser.class);
 
+    /**
+     * dumps with at least this amount of threads get their threads parsed in parallel.
+     */
+    private static final int PARALLEL_BLOCK_THRESHOLD = 2000;
+
     private MutableTreeNode nextDump = null;
-    private Map<String, Map<String, String>> threadStore = null;
     private int counter = 1;
     private int lineCounter = 0;
     private boolean foundClassHistograms = false;
@@ -64,9 +68,8 @@ public class SunJDKParser extends AbstractDumpParser {
     /** 
      * Creates a new instance of SunJDKParser 
      */
-    public SunJDKParser(BufferedReader bis, Map<String, Map<String, String>> threadStore, int lineCounter, boolean withCurrentTimeStamp, int startCounter, DateMatcher dm) {
+    public SunJDKParser(BufferedReader bis, int lineCounter, boolean withCurrentTimeStamp, int startCounter, DateMatcher dm) {
         super(bis, dm);
-        this.threadStore = threadStore;
         this.withCurrentTimeStamp = withCurrentTimeStamp;
         this.lineCounter = lineCounter;
         this.counter = startCounter;
@@ -88,17 +91,6 @@ public class SunJDKParser extends AbstractDumpParser {
         return (foundClassHistograms);
     }
 
-    private String normalizeTitle(String title) {
-        if (title == null) {
-            return null;
-        }
-        String normalizedTitle = title;
-        if (normalizedTitle.contains(" cpu=") && normalizedTitle.contains(" elapsed=")) {
-            normalizedTitle = normalizedTitle.replaceAll(" cpu=[\\d\\.]+ms", "").replaceAll(" elapsed=[\\d\\.]+s", "");
-        }
-        return normalizedTitle;
-    }
-
     /**
      * parse the next thread dump from the stream passed with the constructor.
      * @return null if no more thread dumps were found.
@@ -124,23 +116,26 @@ public class SunJDKParser extends AbstractDumpParser {
             DefaultMutableTreeNode catVirtualThreads = null;
 
             try {
-                Map<String, String> threads = new HashMap<>();
                 overallTDI = new ThreadDumpInfo("Dump No. " + counter++, 0);
                 if (withCurrentTimeStamp) {
                     overallTDI.setStartTime((new Date(System.currentTimeMillis())).toString());
                 }
                 threadDump = new DefaultMutableTreeNode(overallTDI);
 
-                catThreads = new DefaultMutableTreeNode(new TableCategory("Threads", IconFactory.THREADS));
+                // all thread categories are views on the threads of the dump.
+                List<ThreadInfo> threadInfos = new ArrayList<>();
+                overallTDI.setThreadInfos(threadInfos);
+
+                catThreads = new DefaultMutableTreeNode(new TableCategory("Threads", IconFactory.THREADS, threadInfos));
                 threadDump.add(catThreads);
 
-                catWaiting = new DefaultMutableTreeNode(new TableCategory("Threads waiting for Monitors", IconFactory.THREADS_WAITING));
+                catWaiting = new DefaultMutableTreeNode(new TableCategory("Threads waiting for Monitors", IconFactory.THREADS_WAITING, threadInfos));
 
-                catSleeping = new DefaultMutableTreeNode(new TableCategory("Threads sleeping on Monitors", IconFactory.THREADS_SLEEPING));
+                catSleeping = new DefaultMutableTreeNode(new TableCategory("Threads sleeping on Monitors", IconFactory.THREADS_SLEEPING, threadInfos));
 
-                catLocking = new DefaultMutableTreeNode(new TableCategory("Threads locking Monitors", IconFactory.THREADS_LOCKING));
+                catLocking = new DefaultMutableTreeNode(new TableCategory("Threads locking Monitors", IconFactory.THREADS_LOCKING, threadInfos));
 
-                catVirtualThreads = new DefaultMutableTreeNode(new TableCategory("Virtual Threads", IconFactory.THREADS));
+                catVirtualThreads = new DefaultMutableTreeNode(new TableCategory("Virtual Threads", IconFactory.THREADS, threadInfos));
 
                 // create category for monitors with disabled filtering.
                 // NOTE:  These strings are "magic" in that the methods
@@ -149,13 +144,8 @@ public class SunJDKParser extends AbstractDumpParser {
                 catMonitors = new DefaultMutableTreeNode(new TreeCategory("Monitors", IconFactory.MONITORS, false));
                 catMonitorsLocks = new DefaultMutableTreeNode(new TreeCategory("Monitors without locking thread", IconFactory.MONITORS_NOLOCKS, false));
 
-                String title = null;
-                String dumpKey = null;
-                StringBuffer content = null;
-                boolean inLocking = false;
-                boolean inSleeping = false;
-                boolean inWaiting = false;
-                boolean isVirtualThread = false;
+                List<ThreadBlock> blocks = new ArrayList<>();
+                ThreadBlock block = null;
                 int threadCount = 0;
                 int waiting = 0;
                 int locking = 0;
@@ -166,10 +156,7 @@ public class SunJDKParser extends AbstractDumpParser {
                 StringBuilder smrInfo = new StringBuilder();
                 boolean finished = false;
                 MonitorMap mmap = new MonitorMap();
-                Stack monitorStack = new Stack();
                 long startTime = 0;
-                int singleLineCounter = 0;
-                boolean concurrentSyncsFlag = false;
                 Matcher matched = getDm().getLastMatch();
 
                 while (getBis().ready() && !finished) {
@@ -178,7 +165,6 @@ public class SunJDKParser extends AbstractDumpParser {
                         break;
                     }
                     lineCounter++;
-                    singleLineCounter++;
                     if (locked) {
                         if (line.indexOf("Full thread dump") >= 0) {
                             locked = false;
@@ -212,7 +198,6 @@ public class SunJDKParser extends AbstractDumpParser {
                                     getDm().resetLastMatch();
                                 }
                             }
-                            dumpKey = overallTDI.getName();
                         } else if (!getDm().isPatternError() && (getDm().getRegexPattern() != null)) {
                             Matcher m = getDm().checkForDateMatch(line);
                             if (m != null) {
@@ -220,13 +205,14 @@ public class SunJDKParser extends AbstractDumpParser {
                             }
                         }
                     } else {
-                        if (line.indexOf("Threads class SMR info:") >= 0) {
+                        int lineType = LineClassifier.classify(line);
+                        if (lineType == LineClassifier.SMR_INFO) {
                             inSmrInfo = true;
                             smrInfo.append(line).append("\n");
                             continue;
                         }
                         if (inSmrInfo) {
-                            if (line.trim().length() == 0 || line.startsWith("\"")) {
+                            if (line.trim().length() == 0 || lineType == LineClassifier.THREAD_TITLE) {
                                 inSmrInfo = false;
                                 overallTDI.setSmrInfo(smrInfo.toString().trim());
                             } else {
@@ -234,145 +220,18 @@ public class SunJDKParser extends AbstractDumpParser {
                                 continue;
                             }
                         }
-                        if (line.startsWith("\"")) {
-                            // We are starting a group of lines for a different thread
-                            // First, flush state for the previous thread (if any)
-                            concurrentSyncsFlag = false;
-                            String stringContent = content != null ? content.toString() : null;
-                            if (title != null) {
-                                String threadContentStr = content.toString();
-                                threads.put(normalizeTitle(title), threadContentStr);
-                                content.append("</pre></pre>");
-                                addToCategory(catThreads, title, null, threadContentStr, singleLineCounter, true);
-                                
-                                // Add to virtual threads category if applicable
-                                if (isVirtualThread) {
-                                    addToCategory(catVirtualThreads, title, null, threadContentStr, singleLineCounter, true);
-                                }
-                                
-                                threadCount++;
-
-                                if (inWaiting) {
-                                    addToCategory(catWaiting, title, null, threadContentStr, singleLineCounter, true);
-                                    inWaiting = false;
-                                    waiting++;
-                                }
-                                if (inSleeping) {
-                                    addToCategory(catSleeping, title, null, threadContentStr, singleLineCounter, true);
-                                    inSleeping = false;
-                                    sleeping++;
-                                }
-                                if (inLocking) {
-                                    addToCategory(catLocking, title, null, threadContentStr, singleLineCounter, true);
-                                    inLocking = false;
-                                    locking++;
-                                }
-                                if (isVirtualThread) {
-                                    virtualThreads++;
-                                    // Reset isVirtualThread here as we are moving to next thread
-                                    isVirtualThread = false;
-                                }
-                            }
-                            singleLineCounter = 0;
-                            while (!monitorStack.empty()) {
-                                mmap.parseAndAddThread((String) monitorStack.pop(), title, content.toString());
-                            }
-
-                            // Second, initialize state for this new thread
-                            title = line;
-                            content = new StringBuffer("<body bgcolor=\"ffffff\"><pre><font size=" + TDA.getFontSizeModifier(-1) + ">");
-                            content.append(normalizeTitle(line));
-                            content.append("\n");
-                            
-                            // Reset and check if this is a virtual thread
-                            isVirtualThread = (line.indexOf("virtual") > 0) || (line.indexOf("Virtual Thread") > 0);
-                            
-                        } else if (line.indexOf("at ") >= 0) {
-                            content.append(line);
-                            content.append("\n");
-                        } else if (line.indexOf("java.lang.Thread.State") >= 0) {
-                            content.append(line);
-                            content.append("\n");
-                            if (title.indexOf("t@") > 0) {
-                                // in this case the title line is missing state informations
-                                String state = line.substring(line.indexOf(':') + 1).trim();
-                                if (state.indexOf(' ') > 0) {
-                                    title += " state=" + state.substring(0, state.indexOf(' '));
-                                } else {
-                                    title += " state=" + state;
-                                }
-                            }
-                        } else if (line.indexOf("Locked ownable synchronizers:") >= 0) {
-                            concurrentSyncsFlag = true;
-                            content.append(line);
-                            content.append("\n");
-                        } else if (line.indexOf("- waiting on") >= 0) {
-                            content.append(linkifyMonitor(line));
-                            monitorStack.push(line);
-                            inSleeping = true;
-                            content.append("\n");
-                        } else if (line.indexOf("- parking to wait") >= 0) {
-                            content.append(linkifyMonitor(line));
-                            monitorStack.push(line);
-                            inSleeping = true;
-                            content.append("\n");
-                        } else if (line.indexOf("- waiting to") >= 0) {
-                            content.append(linkifyMonitor(line));
-                            monitorStack.push(line);
-                            inWaiting = true;
-                            content.append("\n");
-                        } else if (line.indexOf("- locked") >= 0) {
-                            content.append(linkifyMonitor(line));
-                            inLocking = true;
-                            monitorStack.push(line);
-                            content.append("\n");
-                        } else if (line.indexOf("Carrying virtual thread") >= 0) {
-                            // Handle virtual thread information
-                            content.append("<font color=\"#0000ff\"><b>");
-                            content.append(line);
-                            content.append("</b></font>");
-                            content.append("\n");
-                            
-                            // Check if carrier thread has issues (like being stuck in application code)
-                            String contentStr = content.toString();
-                            int atIdx = contentStr.indexOf("at ");
-                            if (atIdx > 0) {
-                                String stackTrace = contentStr.substring(atIdx);
-                                String[] lines = stackTrace.split("\n");
-                                boolean foundAppCode = false;
-                                for (String stackLine : lines) {
-                                    if (stackLine.contains("at ") 
-                                            && !stackLine.contains("java.lang.VirtualThread.run")
-                                            && !stackLine.contains("java.util.concurrent.ForkJoinPool")
-                                            && !stackLine.contains("java.util.concurrent.ForkJoinWorkerThread")
-                                            && !stackLine.contains("java.base@")
-                                            && !stackLine.contains("jdk.internal")) {
-                                        foundAppCode = true;
-                                        break;
-                                    }
-                                }
-                                if (foundAppCode) {
-                                    content.append("<font color=\"#ff0000\"><b>Note: carrier thread seems to be stuck in application code.</b></font>\n");
-                                }
-                            }
-
-                            // Mark this platform thread as carrying a virtual thread
-                            isVirtualThread = true;
-                            
-                        } else if (line.indexOf("- ") >= 0) {
-                            if (concurrentSyncsFlag) {
-                                content.append(linkifyMonitor(line));
-                                monitorStack.push(line);
-                            } else {
-                                content.append(line);
-                            }
-                            content.append("\n");
+                        if (lineType == LineClassifier.THREAD_TITLE) {
+                            // a new thread starts, the lines of the threads are collected and
+                            // parsed after the whole dump was read.
+                            block = new ThreadBlock(line);
+                            blocks.add(block);
+                        } else if (block != null) {
+                            block.lines.add(line);
                         }
-
                         // last thread reached?
-                        if ((line.indexOf("\"Suspend Checker Thread\"") >= 0)
-                                || (line.indexOf("\"VM Periodic Task Thread\"") >= 0)
-                                || (line.indexOf("<EndOfDump>") >= 0)) {
+                        if ((lineType == LineClassifier.THREAD_TITLE && (line.startsWith("\"Suspend Checker Thread\"")
+                                || line.startsWith("\"VM Periodic Task Thread\"")))
+                                || (lineType == LineClassifier.OTHER && line.indexOf("<EndOfDump>") >= 0)) {
                             finished = true;
                             getBis().mark(getMarkSize());
                             if ((checkForDeadlocks(threadDump)) == 0) {
@@ -394,48 +253,59 @@ public class SunJDKParser extends AbstractDumpParser {
                         }
                     }
                 }
-                // last thread
-                if (title != null) {
-                    String threadContentStr = content.toString();
-                    threads.put(normalizeTitle(title), threadContentStr);
-                    content.append("</pre></pre>");
-                    addToCategory(catThreads, title, null, threadContentStr, singleLineCounter, true);
-                    
-                    // Add to virtual threads category if applicable
-                    if (isVirtualThread) {
-                        addToCategory(catVirtualThreads, title, null, threadContentStr, singleLineCounter, true);
+                // parse the collected threads, big dumps are parsed in parallel.
+                IntStream blockIndexes = IntStream.range(0, blocks.size());
+                if (blocks.size() >= getParallelBlockThreshold()) {
+                    blockIndexes = blockIndexes.parallel();
+                }
+                blockIndexes.forEach(i -> parseThreadBlock(blocks.get(i), i < blocks.size() - 1));
+
+                // huge amounts of virtual threads are only kept grouped by their stack.
+                VirtualThreadAggregator virtualThreadGroups = null;
+                if (getVirtualThreadGroupThreshold() > 0) {
+                    int virtualOnly = 0;
+                    for (ThreadBlock parsedBlock : blocks) {
+                        if (parsedBlock.virtualThread && !parsedBlock.carrier) {
+                            virtualOnly++;
+                        }
                     }
+                    if (virtualOnly > getVirtualThreadGroupThreshold()) {
+                        virtualThreadGroups = new VirtualThreadAggregator();
+                    }
+                }
 
-                    // Add to custom categories if applicable
-                    // addCustomCategories(title, threadContentStr, singleLineCounter);
-                    
+                // merge the parsed threads in dump order.
+                for (ThreadBlock parsedBlock : blocks) {
+                    if (virtualThreadGroups != null && parsedBlock.virtualThread && !parsedBlock.carrier) {
+                        virtualThreadGroups.add(null, parsedBlock.stack, parsedBlock.header.getState().trim());
+                        addMonitors(mmap, parsedBlock);
+                        continue;
+                    }
+                    int index = threadInfos.size();
+                    threadInfos.add(createThreadInfo(parsedBlock.title, parsedBlock.stack, parsedBlock.lineCount, parsedBlock.header));
+                    ((TableCategory) catThreads.getUserObject()).addThread(index);
                     threadCount++;
 
-                    if (inWaiting) {
-                        addToCategory(catWaiting, title, null, threadContentStr, singleLineCounter, true);
-                        inWaiting = false;
+                    if (parsedBlock.virtualThread) {
+                        ((TableCategory) catVirtualThreads.getUserObject()).addThread(index);
+                        virtualThreads++;
+                    }
+                    if (parsedBlock.waiting) {
+                        ((TableCategory) catWaiting.getUserObject()).addThread(index);
                         waiting++;
                     }
-                    if (inSleeping) {
-                        addToCategory(catSleeping, title, null, threadContentStr, singleLineCounter, true);
-                        inSleeping = false;
+                    if (parsedBlock.sleeping) {
+                        ((TableCategory) catSleeping.getUserObject()).addThread(index);
                         sleeping++;
                     }
-                    if (inLocking) {
-                        addToCategory(catLocking, title, null, threadContentStr, singleLineCounter, true);
-                        inLocking = false;
+                    if (parsedBlock.locking) {
+                        ((TableCategory) catLocking.getUserObject()).addThread(index);
                         locking++;
                     }
-                    if (isVirtualThread) {
-                        virtualThreads++;
-                        isVirtualThread = false;
-                    }
-                }
-                singleLineCounter = 0;
-                while (!monitorStack.empty()) {
-                    mmap.parseAndAddThread((String) monitorStack.pop(), title, content.toString());
+                    addMonitors(mmap, parsedBlock);
                 }
 
+
                 int monitorCount = mmap.size();
 
                 int monitorsWithoutLocksCount = 0;
@@ -447,6 +317,15 @@ public class SunJDKParser extends AbstractDumpParser {
 
                 }
 
+                // the jvm doesn't report deadlocks of all kinds of locks, so check the wait-for graph.
+                DefaultMutableTreeNode catLockCycles = null;
+                DefaultMutableTreeNode catTopBlockers = null;
+                if (mmap.size() > 0) {
+                    WaitForGraph graph = new WaitForGraph(mmap);
+                    catLockCycles = createLockCyclesCategory(graph);
+                    catTopBlockers = createTopBlockersCategory(graph);
+                }
+
                 // display nodes with stuff to display
                 if (waiting > 0) {
                     overallTDI.setWaitingThreads((Category) catWaiting.getUserObject());
@@ -469,6 +348,12 @@ public class SunJDKParser extends AbstractDumpParser {
                     threadDump.add(catVirtualThreads);
                 }
 
+                if (virtualThreadGroups != null) {
+                    DefaultMutableTreeNode catVirtualThreadGroups = createVirtualThreadGroupsCategory(virtualThreadGroups);
+                    overallTDI.setVirtualThreadGroups((Category) catVirtualThreadGroups.getUserObject());
+                    threadDump.add(catVirtualThreadGroups);
+                }
+
                 if (monitorCount > 0) {
                     overallTDI.setMonitors((Category) catMonitors.getUserObject());
                     threadDump.add(catMonitors);
@@ -478,6 +363,16 @@ public class SunJDKParser extends AbstractDumpParser {
                     overallTDI.setMonitorsWithoutLocks((Category) catMonitorsLocks.getUserObject());
                     threadDump.add(catMonitorsLocks);
                 }
+
+                if (catLockCycles != null) {
+                    overallTDI.setLockCycles((Category) catLockCycles.getUserObject());
+                    threadDump.add(catLockCycles);
+                }
+
+                if (catTopBlockers != null) {
+                    overallTDI.setTopBlockers((Category) catTopBlockers.getUserObject());
+                    threadDump.add(catTopBlockers);
+                }
                 overallTDI.setThreads((Category) catThreads.getUserObject());
 
                 ((Category) catThreads.getUserObject()).setName(((Category) catThreads.getUserObject()) + " (" + threadCount + " Threads overall)");
@@ -488,15 +383,10 @@ public class SunJDKParser extends AbstractDumpParser {
                 ((Category) catMonitorsLocks.getUserObject()).setName(((Category) catMonitorsLocks.getUserObject()) + " (" + monitorsWithoutLocksCount
                         + " Monitors)");
 
-                // add thread dump to passed dump store.
-                if ((threadCount > 0) && (dumpKey != null)) {
-                    threadStore.put(dumpKey.trim(), threads);
-                }
-
                 // check custom categories
                 addCustomCategories(threadDump);
 
-                return (threadCount > 0 ? threadDump : null);
+                return (threadCount > 0 || virtualThreadGroups != null ? threadDump : null);
             } catch (FileNotFoundException e) {
                 e.printStackTrace();
             } catch (StringIndexOutOfBoundsException e) {
@@ -517,28 +407,128 @@ public class SunJDKParser extends AbstractDumpParser {
     }
 
     /**
-     * add a monitor link for monitor navigation
-     * @param line containing monitor
+     * parse the collected lines of a single thread. Doesn't touch any state of the parser,
+     * so the threads of a dump can be parsed in parallel.
+     * @param block the thread to parse, the results are stored in the block.
+     * @param hasSuccessor true, if another thread follows this thread in the dump.
      */
-    private String linkifyMonitor(String line) {
-        if (line != null && line.indexOf('<') >= 0) {
-            String begin = line.substring(0, line.indexOf('<'));
-            String monitor = line.substring(line.indexOf('<'), line.indexOf('>') + 1);
-            String end = line.substring(line.indexOf('>') + 1);
-            monitor = monitor.replaceAll("<", "<a href=\"monitor://" + monitor + "\">&lt;");
-            monitor = monitor.substring(0, monitor.length() - 1) + "&gt;</a>";
-            return (begin + monitor + end);
-        } else if (line != null && line.indexOf('@') >= 0) {
-            String begin = line.substring(0, line.indexOf('@') + 1);
-            String monitor = line.substring(line.indexOf('@'));
-            monitor = monitor.replaceAll("@", "@<a href=\"monitor://<" + monitor.substring(1) + ">\">");
-            monitor = monitor.substring(0, monitor.length() - 1) + "</a>";
-            return (begin + monitor);
-        } else {
-            return (line);
+    private void parseThreadBlock(ThreadBlock block, boolean hasSuccessor) {
+        String title = block.title;
+        ThreadHeader header = ThreadHeaderParser.parse(title);
+        ThreadStack.Builder stack = new ThreadStack.Builder(getDictionary(), header.getNormalizedTitle(), block.lines.size());
+        boolean concurrentSyncsFlag = false;
+        Stack<String> monitorStack = new Stack<>();
+        block.virtualThread = (title.indexOf("virtual") > 0) || (title.indexOf("Virtual Thread") > 0);
+
+        for (String line : block.lines) {
+            switch (LineClassifier.classify(line)) {
+                case LineClassifier.STACK_FRAME:
+                    stack.addFrame(line);
+                    break;
+                case LineClassifier.THREAD_STATE:
+                    stack.addFrame(line);
+                    if (title.indexOf("t@") > 0) {
+                        // in this case the title line is missing state informations
+                        String state = line.substring(line.indexOf(':') + 1).trim();
+                        if (state.indexOf(' ') > 0) {
+                            title += " state=" + state.substring(0, state.indexOf(' '));
+                        } else {
+                            title += " state=" + state;
+                        }
+                    }
+                    break;
+                case LineClassifier.LOCKED_SYNCHRONIZERS:
+                    concurrentSyncsFlag = true;
+                    stack.addFrame(line);
+                    break;
+                case LineClassifier.WAITING_ON:
+                case LineClassifier.PARKING:
+                    stack.addAnnotation(line);
+                    monitorStack.push(line);
+                    block.sleeping = true;
+                    break;
+                case LineClassifier.WAITING_TO_LOCK:
+                    stack.addAnnotation(line);
+                    monitorStack.push(line);
+                    block.waiting = true;
+                    break;
+                case LineClassifier.LOCKED:
+                    stack.addAnnotation(line);
+                    block.locking = true;
+                    monitorStack.push(line);
+                    break;
+                case LineClassifier.CARRYING_VIRTUAL_THREAD:
+                    // Handle virtual thread information
+                    stack.addAnnotation(line);
+
+                    // Check if carrier thread has issues (like being stuck in application code)
+                    if (isStuckInApplicationCode(stack)) {
+                        stack.addAnnotation(StackRenderer.STUCK_CARRIER_NOTE);
+                    }
+
+                    // Mark this platform thread as carrying a virtual thread
+                    block.virtualThread = true;
+                    block.carrier = true;
+                    break;
+                case LineClassifier.ANNOTATION:
+                    if (line.indexOf('<') >= 0) {
+                        stack.addAnnotation(line);
+                    } else {
+                        // e.g. "- None", same for all threads.
+                        stack.addFrame(line);
+                    }
+                    if (concurrentSyncsFlag) {
+                        monitorStack.push(line);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if (!title.equals(block.title)) {
+            // the state was added to the title.
+            header = ThreadHeaderParser.parse(title);
+        }
+        block.title = title;
+        block.header = header;
+        block.stack = stack.build();
+        block.lineCount = block.lines.size() + (hasSuccessor ? 1 : 0);
+        block.lines = null;
+
+        while (!monitorStack.empty()) {
+            block.monitors.add(monitorStack.pop());
         }
     }
 
+    /**
+     * check if the stack of a carrier thread contains frames of application code.
+     * @param stack the stack of the thread parsed so far.
+     * @return true, if a frame outside of the jdk and the fork join pool was found.
+     */
+    private boolean isStuckInApplicationCode(ThreadStack.Builder stack) {
+        for (int i = 0; i < stack.getLineCount(); i++) {
+            String stackLine = stack.getLine(i);
+            if (stackLine.contains("at ")
+                    && !stackLine.contains("java.lang.VirtualThread.run")
+                    && !stackLine.contains("java.util.concurrent.ForkJoinPool")
+                    && !stackLine.contains("java.util.concurrent.ForkJoinWorkerThread")
+                    && !stackLine.contains("java.base@")
+                    && !stackLine.contains("jdk.internal")) {
+                return (true);
+            }
+        }
+        return (false);
+    }
+
+    /**
+     * the minimum amount of threads in a dump for parsing the threads in parallel.
+     * @return thread count.
+     */
+    protected int getParallelBlockThreshold() {
+        return (PARALLEL_BLOCK_THRESHOLD);
+    }
+
     /**
      * add a monitor link for monitor navigation
      * @param line containing monitor
@@ -615,28 +605,13 @@ public class SunJDKParser extends AbstractDumpParser {
                 }
             } else if (found) {
                 if (line.startsWith("Total ")) {
-                    // split string.
-                    String newLine = line.replaceAll("(\\s)+", ";");
-                    String[] elems = newLine.split(";");
-                    classHistogram.setBytes(Long.parseLong(elems[2]));
-                    classHistogram.setInstances(Long.parseLong(elems[1]));
+                    HistogramLineParser.parseTotal(line, classHistogram);
                     finished = true;
                 } else if (!line.startsWith("-------")) {
-                    // removed blank, breaks splitting using blank...
-                    String newLine = line.replaceAll("<no name>", "<no-name>");
-
-                    // split string.
-                    newLine = newLine.replaceAll("(\\s)+", ";");
-                    String[] elems = newLine.split(";");
-
-                    if (elems.length == 4) {
-                        classHistogram.addEntry(elems[3].trim(), Integer.parseInt(elems[2].trim()),
-                                Integer.parseInt(elems[1].trim()));
-                    } else {
+                    if (!HistogramLineParser.parseEntry(line, classHistogram)) {
                         classHistogram.setIncomplete(true);
                         finished = true;
                     }
-
                 }
             }
         }
@@ -755,7 +730,7 @@ public class SunJDKParser extends AbstractDumpParser {
                         || (line.indexOf("- locked") >= 0)
                         || (line.indexOf("- parking to wait") >= 0)) {
 
-                    dContent.append(linkifyMonitor(line));
+                    dContent.append(StackRenderer.linkifyMonitor(line));
                     dContent.append("\n");
 
                 } else if (line.trim().startsWith("\"")) {
@@ -789,47 +764,55 @@ public class SunJDKParser extends AbstractDumpParser {
     }
 
     /**
-     * dump the monitor information
+     * add the monitor lines of a parsed thread to the monitors of the dump.
+     */
+    private void addMonitors(MonitorMap mmap, ThreadBlock block) {
+        if (!block.monitors.isEmpty()) {
+            int thread = mmap.addThread(block.title, block.header, block.stack);
+            for (String line : block.monitors) {
+                mmap.parseAndAddThread(line, thread);
+            }
+        }
+    }
+
+    /**
+     * dump the monitor information. The thread nodes are created once per monitor
+     * and shared by the monitor nodes of both categories.
      * @param catMonitors
      * @param catMonitorsLocks
      * @param mmap
      * @return
      */
     private int[] dumpMonitors(DefaultMutableTreeNode catMonitors, DefaultMutableTreeNode catMonitorsLocks, MonitorMap mmap) {
-        Iterator iter = mmap.iterOfKeys();
         int monitorsWithoutLocksCount = 0;
         int overallThreadsWaiting = 0;
-        while (iter.hasNext()) {
-            String monitor = (String) iter.next();
-            Map[] threads = mmap.getFromMonitorMap(monitor);
-            ThreadInfo mi = new ThreadInfo(monitor, null, "", 0, null);
-            DefaultMutableTreeNode monitorNode = new DefaultMutableTreeNode(mi);
+        List<ThreadInfo> threadInfos = new ArrayList<>();
+        for (int monitor = 0; monitor < mmap.size(); monitor++) {
+            ThreadInfo mi = new ThreadInfo(mmap.getMonitor(monitor), null, "", 0, null);
+            threadInfos.clear();
 
             // first the locks
-            Iterator iterLocks = threads[MonitorMap.LOCK_THREAD_POS].keySet().iterator();
+            int[] lockThreads = mmap.getThreads(monitor, MonitorMap.LOCK_THREAD_POS);
             int locks = 0;
             int sleeps = 0;
             int waits = 0;
-            while (iterLocks.hasNext()) {
-                String thread = (String) iterLocks.next();
-                String stackTrace = (String) threads[MonitorMap.LOCK_THREAD_POS].get(thread);
-                if (threads[MonitorMap.SLEEP_THREAD_POS].containsKey(thread)) {
-                    createNode(monitorNode, "locks and sleeps on monitor: " + thread, null, stackTrace, 0);
+            for (int thread : lockThreads) {
+                String title = mmap.getThreadTitle(thread);
+                if (mmap.hasThread(monitor, MonitorMap.SLEEP_THREAD_POS, thread)) {
+                    threadInfos.add(createStackInfo("locks and sleeps on monitor: " + title, mmap.getThreadStack(thread)));
                     sleeps++;
-                } else if (threads[MonitorMap.WAIT_THREAD_POS].containsKey(thread)) {
-                    createNode(monitorNode, "locks and waits on monitor: " + thread, null, stackTrace, 0);
+                } else if (mmap.hasThread(monitor, MonitorMap.WAIT_THREAD_POS, thread)) {
+                    threadInfos.add(createStackInfo("locks and waits on monitor: " + title, mmap.getThreadStack(thread)));
                     sleeps++;
                 } else {
-                    createNode(monitorNode, "locked by " + thread, null, stackTrace, 0);
+                    threadInfos.add(createStackInfo("locked by " + title, mmap.getThreadStack(thread)));
                 }
                 locks++;
             }
 
-            Iterator iterWaits = threads[MonitorMap.WAIT_THREAD_POS].keySet().iterator();
-            while (iterWaits.hasNext()) {
-                String thread = (String) iterWaits.next();
-                if (!threads[MonitorMap.LOCK_THREAD_POS].containsKey(thread)) {
-                    createNode(monitorNode, "waits on monitor: " + thread, null, (String) threads[MonitorMap.WAIT_THREAD_POS].get(thread), 0);
+            for (int thread : mmap.getThreads(monitor, MonitorMap.WAIT_THREAD_POS)) {
+                if (!mmap.hasThread(monitor, MonitorMap.LOCK_THREAD_POS, thread)) {
+                    threadInfos.add(createStackInfo("waits on monitor: " + mmap.getThreadTitle(thread), mmap.getThreadStack(thread)));
                     waits++;
                 }
             }
@@ -839,122 +822,101 @@ public class SunJDKParser extends AbstractDumpParser {
             if (ThreadDumpInfo.areALotOfWaiting(waits)) {
                 mi.setALotOfWaiting(true);
             }
-            mi.setChildCount(monitorNode.getChildCount());
+            mi.setChildCount(threadInfos.size());
 
-            ((Category) catMonitors.getUserObject()).addToCatNodes(copyNode(monitorNode));
+            ((Category) catMonitors.getUserObject()).addToCatNodes(createMonitorNode(mi, threadInfos));
             if (locks == 0) {
                 monitorsWithoutLocksCount++;
                 overallThreadsWaiting += waits;
-                ((Category) catMonitorsLocks.getUserObject()).addToCatNodes(copyNode(monitorNode));
+                ((Category) catMonitorsLocks.getUserObject()).addToCatNodes(createMonitorNode(mi, threadInfos));
             }
         }
         return new int[]{monitorsWithoutLocksCount, overallThreadsWaiting};
     }
 
-    private void renormalizeThreadDepth(DefaultMutableTreeNode threadNode1) {
-        for (Enumeration e = threadNode1.children(); e.hasMoreElements();) {
-            DefaultMutableTreeNode monitorNode2 = (DefaultMutableTreeNode) e.nextElement();
-            for (int ii = 0; ii < monitorNode2.getChildCount(); ii++) {
-                renormalizeMonitorDepth(monitorNode2, ii);
-            }
-        }
+    private ThreadInfo createStackInfo(String title, ThreadStack stack) {
+        ThreadInfo ti = new ThreadInfo(title, null, null, 0, getThreadTokens(title));
+        ti.setStack(stack);
+        return (ti);
     }
 
-    private void renormalizeMonitorDepth(DefaultMutableTreeNode monitorNode, int index) {
-        // First, remove all duplicates of the item at index "index"
-        DefaultMutableTreeNode threadNode1 = (DefaultMutableTreeNode) monitorNode.getChildAt(index);
-        ThreadInfo mi1 = (ThreadInfo) threadNode1.getUserObject();
-        int i = index + 1;
-        while (i < monitorNode.getChildCount()) {
-            DefaultMutableTreeNode threadNode2 = (DefaultMutableTreeNode) monitorNode.getChildAt(i);
-            ThreadInfo mi2 = (ThreadInfo) threadNode2.getUserObject();
-            if (mi1.getName().equals(mi2.getName())) {
-                if (threadNode2.getChildCount() > 0) {
-                    threadNode1.add((DefaultMutableTreeNode) threadNode2.getFirstChild());
-                    monitorNode.remove(i);
-                    continue;
-                }
-            }
-            i++;
+    private DefaultMutableTreeNode createMonitorNode(ThreadInfo mi, List<ThreadInfo> threadInfos) {
+        DefaultMutableTreeNode monitorNode = new DefaultMutableTreeNode(mi);
+        for (ThreadInfo ti : threadInfos) {
+            monitorNode.add(new DefaultMutableTreeNode(ti));
         }
-
-        // Second, recurse into item "index"
-        renormalizeThreadDepth(threadNode1);
+        return (monitorNode);
     }
 
-    private boolean checkForDuplicateThreadItem(Map directChildMap, DefaultMutableTreeNode node1) {
-        ThreadInfo mi1 = (ThreadInfo) node1.getUserObject();
-        String name1 = mi1.getName();
-
-        for (Iterator iter2 = directChildMap.entrySet().iterator(); iter2.hasNext();) {
-            DefaultMutableTreeNode node2 = (DefaultMutableTreeNode) ((Map.Entry) iter2.next()).getValue();
-            if (node1 == node2) {
-                continue;
-            }
-
-            ThreadInfo mi2 = (ThreadInfo) node2.getUserObject();
-            if (name1.equals(mi2.getName()) && node2.getChildCount() > 0) {
-                node1.add((MutableTreeNode) node2.getFirstChild());
-                iter2.remove();
-                return true;
-            }
+    /**
+     * create a category with the cycles found in the wait-for graph of the dump.
+     * @param graph the wait-for graph of the monitors of the dump.
+     * @return the category or null, if no cycle was found.
+     */
+    private DefaultMutableTreeNode createLockCyclesCategory(WaitForGraph graph) {
+        List<int[]> cycles = graph.findCycles();
+        if (cycles.isEmpty()) {
+            return (null);
         }
-
-        return false;
-    }
-
-    private int fillBlockingThreadMaps(MonitorMap mmap, Map directChildMap) {
-        int blockedThread = 0;
-        for (Iterator iter = mmap.iterOfKeys(); iter.hasNext();) {
-            String monitor = (String) iter.next();
-            Map[] threads = mmap.getFromMonitorMap(monitor);
-
-            // Only one thread can really be holding this monitor, so find the thread
-            String threadLine = getLockingThread(threads);
-            ThreadInfo tmi = new ThreadInfo("Thread - " + threadLine, null, "", 0, null);
-            DefaultMutableTreeNode threadNode = new DefaultMutableTreeNode(tmi);
-
-            ThreadInfo mmi = new ThreadInfo("Monitor - " + monitor, null, "", 0, null);
-            DefaultMutableTreeNode monitorNode = new DefaultMutableTreeNode(mmi);
-            threadNode.add(monitorNode);
-
-            // Look over all threads blocked on this monitor
-            for (Iterator iterWaits = threads[MonitorMap.WAIT_THREAD_POS].keySet().iterator(); iterWaits.hasNext();) {
-                String thread = (String) iterWaits.next();
-                // Skip the thread that has this monitor locked
-                if (!threads[MonitorMap.LOCK_THREAD_POS].containsKey(thread)) {
-                    blockedThread++;
-                    createNode(monitorNode, "Thread - " + thread, null, (String) threads[MonitorMap.WAIT_THREAD_POS].get(thread), 0);
+        TreeCategory cat = new TreeCategory("Lock Cycles (" + cycles.size() + (cycles.size() == 1 ? " deadlock)" : " deadlocks)"),
+                IconFactory.DEADLOCKS, false);
+        for (int i = 0; i < cycles.size(); i++) {
+            int[] cycle = cycles.get(i);
+            StringBuilder content = new StringBuilder();
+            content.append("<body bgcolor=\"ffffff\"><font size=").append(TDA.getFontSizeModifier(-1)).append("><b>");
+            content.append("Found a cycle of threads waiting for each other");
+            content.append("</b><hr></font><pre>\n");
+            ThreadInfo ci = new ThreadInfo("Deadlock No. " + (i + 1) + ": " + ((cycle.length + 1) / 2) + " threads in cycle",
+                    null, null, 0, null);
+            DefaultMutableTreeNode cycleNode = new DefaultMutableTreeNode(ci);
+            for (int node : cycle) {
+                if (graph.isThread(node)) {
+                    content.append(graph.getThread(node)).append("\n");
+                    createStackNode(cycleNode, graph.getThread(node), graph.getStack(node));
+                } else {
+                    content.append("    waits for ").append(StackRenderer.linkifyMonitor(graph.getMonitor(node)));
+                    content.append(", which is held by\n");
                 }
             }
-
-            String blockingStackFrame = (String) threads[MonitorMap.LOCK_THREAD_POS].get(threadLine);
-            tmi.setContent(blockingStackFrame);
-            mmi.setContent("This monitor (" + linkifyMonitor(monitor)
-                    + ") is held in the following stack frame:\n\n" + blockingStackFrame);
-
-            // If no-one is blocked on or waiting for this monitor, don't show it
-            if (monitorNode.getChildCount() > 0) {
-                directChildMap.put(monitor, threadNode);
-            }
+            content.append(graph.getThread(cycle[0])).append("\n</pre>");
+            ci.setContent(content.toString());
+            ci.setChildCount(cycleNode.getChildCount());
+            cat.addToCatNodes(cycleNode);
         }
-        return blockedThread;
+        return (new DefaultMutableTreeNode(cat));
     }
 
-    private String getLockingThread(Map[] threads) {
-        int lockingThreadCount = threads[MonitorMap.LOCK_THREAD_POS].keySet().size();
-        if (lockingThreadCount == 1) {
-            return (String) threads[MonitorMap.LOCK_THREAD_POS].keySet().iterator().next();
+    /**
+     * create a table of the threads blocking other threads, ranked by the amount of
+     * threads they block directly or transitively.
+     * @param graph the wait-for graph of the monitors of the dump.
+     * @return the category or null, if no thread blocks another thread.
+     */
+    private DefaultMutableTreeNode createTopBlockersCategory(WaitForGraph graph) {
+        int[] blocking = graph.getBlockingThreads();
+        int[] counts = WaitForGraph.getBlockedCounts(blocking);
+        int[] directCounts = new int[blocking.length];
+        for (int blocker : blocking) {
+            if (blocker >= 0) {
+                directCounts[blocker]++;
+            }
         }
-
-        for (Iterator iterLocks = threads[MonitorMap.LOCK_THREAD_POS].keySet().iterator(); iterLocks.hasNext();) {
-            String thread = (String) iterLocks.next();
-            if (!threads[MonitorMap.SLEEP_THREAD_POS].containsKey(thread)) {
-                return thread;
+        List<BlockerInfo> blockers = new ArrayList<>();
+        for (int thread = 0; thread < counts.length; thread++) {
+            if (counts[thread] > 0) {
+                blockers.add(new BlockerInfo(graph.getThread(thread), graph.getHeader(thread), graph.getStack(thread),
+                        counts[thread], directCounts[thread]));
             }
         }
-
-        return "";
+        if (blockers.isEmpty()) {
+            return (null);
+        }
+        blockers.sort((b1, b2) -> Integer.compare(b2.getBlockedCount(), b1.getBlockedCount()));
+        TableCategory cat = new TableCategory("Top Blockers (" + blockers.size() + " threads blocking other threads)", IconFactory.MONITORS);
+        for (BlockerInfo blocker : blockers) {
+            cat.addToCatNodes(new DefaultMutableTreeNode(blocker));
+        }
+        return (new DefaultMutableTreeNode(cat));
     }
 
     /**
@@ -994,117 +956,7 @@ public class SunJDKParser extends AbstractDumpParser {
      * @return thread tokens.
      */
     public String[] getThreadTokens(String name) {
-        String[] tokens = null;
-        
-        if (name.indexOf("prio") > 0) {
-            tokens = new String[7];
-            
-            // Initialize all tokens to empty strings to prevent null values
-            for (int i = 0; i < tokens.length; i++) {
-                tokens[i] = "";
-            }
-
-            tokens[0] = name.substring(1, name.lastIndexOf('"') == 0 ? 
-                    name.length() - 1 : 
-                    name.lastIndexOf('"'));
-            tokens[1] = name.indexOf("daemon") > 0 ? "Daemon" : "Task";
-
-            String strippedToken = name.substring(name.lastIndexOf('"') + 1);
-
-            if (strippedToken.contains("tid=")) {
-                int tidIndex = strippedToken.indexOf("tid=") - 1;
-                int osPrioIndex = strippedToken.indexOf("os_prio=") - 1;
-                int cpuIndex = strippedToken.indexOf("cpu=") - 1;
-                int endIndex = osPrioIndex > 0 ? osPrioIndex : cpuIndex > 0 ? cpuIndex : tidIndex;
-                tokens[2] = strippedToken.substring(strippedToken.indexOf("prio=") + 5, endIndex);                
-            } else {
-                tokens[2] = strippedToken.substring(strippedToken.indexOf("prio=") + 5);
-            }
-
-            if ((strippedToken.contains("tid=")) && (strippedToken.contains("nid="))) {
-                tokens[3] = String.valueOf(Long.parseLong(strippedToken.substring(strippedToken.indexOf("tid=") + 6,
-                        strippedToken.indexOf("nid=") - 1), 16));
-            } else if (strippedToken.contains("tid=")) {
-                // Handle virtual thread format: tid=0x0000fffef57b0000  [0x0000fffeb1eae000]
-                int tidStart = strippedToken.indexOf("tid=") + 6; // Skip "tid=0x"
-                String tidSubstring = strippedToken.substring(tidStart);
-                
-                // Find the end of the tid value (at space, bracket, or end of string)
-                int tidEnd = tidSubstring.length();
-                int spaceIndex = tidSubstring.indexOf(' ');
-                int bracketIndex = tidSubstring.indexOf('[');
-                
-                if (spaceIndex >= 0) {
-                    tidEnd = Math.min(tidEnd, spaceIndex);
-                }
-                if (bracketIndex >= 0) {
-                    tidEnd = Math.min(tidEnd, bracketIndex);
-                }
-                
-                String tidValue = tidSubstring.substring(0, tidEnd).trim();
-                tokens[3] = String.valueOf(Long.parseLong(tidValue, 16));
-            }
-
-            // default for token 6 is:
-            tokens[6] = "<no address range>";
-
-            if ((strippedToken.contains("nid=")) && (strippedToken.indexOf(" ", strippedToken.indexOf("nid="))) >= 0) {
-                if (strippedToken.indexOf("nid=0x") > 0) { // is hexadecimal
-                    String nidToken = strippedToken.substring(strippedToken.indexOf("nid=") + 6,
-                            strippedToken.indexOf(" ", strippedToken.indexOf("nid=")));
-                    tokens[4] = String.valueOf(Long.parseLong(nidToken, 16));
-                } else { // is decimal
-                    String nidToken = strippedToken.substring(strippedToken.indexOf("nid=") + 4,
-                            strippedToken.indexOf(" ", strippedToken.indexOf("nid=")));
-                    tokens[4] = nidToken;
-                }
-
-                if (strippedToken.lastIndexOf('[') > strippedToken.indexOf("nid=")) {
-                    if (strippedToken.indexOf("lwp_id=") > 0) {
-                        tokens[5] = strippedToken.substring(strippedToken.indexOf(" ", strippedToken.indexOf("lwp_id=")) + 1, strippedToken.lastIndexOf('[') - 1);
-                    } else {
-                        tokens[5] = strippedToken.substring(strippedToken.indexOf(" ", strippedToken.indexOf("nid=")) + 1, strippedToken.lastIndexOf('[') - 1);
-                    }
-                    tokens[6] = strippedToken.substring(strippedToken.lastIndexOf('['));
-                } else {
-                    tokens[5] = strippedToken.substring(strippedToken.indexOf(" ", strippedToken.indexOf("nid=")) + 1);
-                }
-            } else if (strippedToken.indexOf("nid=") >= 0) {
-                String nidToken = strippedToken.substring(strippedToken.indexOf("nid=") + 6);
-                // nid is at the end.
-                if (nidToken.indexOf("0x") > 0) { // is hexadecimal
-                    tokens[4] = String.valueOf(Long.parseLong(nidToken, 16));
-                } else {
-                    tokens[4] = nidToken;
-                }
-            }
-        } else {
-            tokens = new String[3];
-            
-            // Initialize all tokens to empty strings to prevent null values
-            for (int i = 0; i < tokens.length; i++) {
-                tokens[i] = "";
-            }
-            
-            tokens[0] = name.substring(1, name.lastIndexOf('"') == 0 ? 
-                    name.length() - 1 : 
-                    name.lastIndexOf('"'));
-            if (name.indexOf("nid=") > 0) {
-                tokens[1] = name.substring(name.indexOf("nid=") + 4, name.indexOf("state=") - 1);
-                tokens[2] = name.substring(name.indexOf("state=") + 6);
-            } else if (name.indexOf("t@") > 0) {
-                tokens[1] = name.substring(name.indexOf("t@") + 2, name.indexOf("state=") - 1);
-                tokens[2] = name.substring(name.indexOf("state=") + 6);
-            } else if (name.indexOf("id=") > 0) {
-                tokens[1] = name.substring(name.indexOf("id=") + 3, name.indexOf(" in"));
-                tokens[2] = name.substring(name.indexOf(" in") + 3);
-            } else {
-                tokens[1] = "";
-                tokens[2] = "";
-            }
-        }
-
-        return (tokens);
+        return (ThreadHeaderParser.parse(name).toTokens());
     }
 
     /**
@@ -1120,4 +972,25 @@ public class SunJDKParser extends AbstractDumpParser {
     protected String getNextLine() throws IOException {
         return getBis().readLine();
     }
+
+    /**
+     * the lines of a single thread in a dump and the results of parsing them.
+     */
+    private static class ThreadBlock {
+        private String title;
+        private List<String> lines = new ArrayList<>();
+        private ThreadStack stack;
+        private ThreadHeader header;
+        private int lineCount;
+        private boolean waiting;
+        private boolean sleeping;
+        private boolean locking;
+        private boolean virtualThread;
+        private boolean carrier;
+        private final List<String> monitors = new ArrayList<>();
+
+        private ThreadBlock(String title) {
+            this.title = title;
+        }
+    }
 }
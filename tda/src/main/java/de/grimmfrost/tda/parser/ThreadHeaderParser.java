@@ -0,0 +1,258 @@
+/*
+ * ThreadHeaderParser.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.parser;
+
+import de.grimmfrost.tda.model.ThreadHeader;
+
+/**
+ * Parses the title line of a thread in a Sun JDK thread dump into a ThreadHeader.
+ * The attributes after the thread name are scanned once from left to right, the
+ * numeric values are parsed in place without creating substrings.
+ *
+ * @author irockel
+ */
+public final class ThreadHeaderParser {
+
+    private ThreadHeaderParser() {
+    }
+
+    /**
+     * parse the passed thread title.
+     * @param title the title line of the thread, starting with the quoted thread name.
+     * @return the parsed header.
+     */
+    public static ThreadHeader parse(String title) {
+        int lastQuote = title.lastIndexOf('"');
+        String name = title.substring(1, lastQuote == 0 ? title.length() - 1 : lastQuote);
+
+        if (title.indexOf("prio") > 0) {
+            return (parseDetailed(title, name, lastQuote + 1));
+        } else {
+            return (parseShort(title, name));
+        }
+    }
+
+    /**
+     * parse titles like <code>"main" #1 prio=5 os_prio=0 cpu=1.23ms elapsed=4.56s tid=0x... nid=0x... runnable [0x...]</code>
+     */
+    private static ThreadHeader parseDetailed(String title, String name, int start) {
+        boolean daemon = false;
+        int prio = -1;
+        int osPrio = -1;
+        double cpuMillis = -1;
+        double elapsedSeconds = -1;
+        long tid = -1;
+        long nid = -1;
+        int cpuStart = -1;
+        int cpuEnd = -1;
+        int elapsedStart = -1;
+        int elapsedEnd = -1;
+        int nidStart = -1;
+        int afterNid = -1;
+        int afterLwp = -1;
+
+        int length = title.length();
+        int pos = start;
+        while (pos < length) {
+            if (afterNid >= 0) {
+                // everything after the native id (and the lwp id) is the state.
+                if (title.startsWith("lwp_id=", pos)) {
+                    int end = title.indexOf(' ', pos);
+                    afterLwp = end < 0 ? length : end + 1;
+                }
+                break;
+            }
+            if (title.charAt(pos) == ' ') {
+                pos++;
+                continue;
+            }
+            int end = title.indexOf(' ', pos);
+            if (end < 0) {
+                end = length;
+            }
+
+            if (end - pos == 6 && title.startsWith("daemon", pos)) {
+                daemon = true;
+            } else if (title.startsWith("prio=", pos)) {
+                prio = (int) parseDecimal(title, pos + 5, end);
+            } else if (title.startsWith("os_prio=", pos)) {
+                osPrio = (int) parseDecimal(title, pos + 8, end);
+            } else if (title.startsWith("cpu=", pos) && title.startsWith("ms", end - 2)) {
+                cpuMillis = parseDouble(title, pos + 4, end - 2);
+                if (cpuMillis >= 0) {
+                    cpuStart = pos;
+                    cpuEnd = end;
+                }
+            } else if (title.startsWith("elapsed=", pos) && title.charAt(end - 1) == 's') {
+                elapsedSeconds = parseDouble(title, pos + 8, end - 1);
+                if (elapsedSeconds >= 0) {
+                    elapsedStart = pos;
+                    elapsedEnd = end;
+                }
+            } else if (title.startsWith("tid=", pos)) {
+                int valueEnd = pos + 4;
+                while (valueEnd < end && title.charAt(valueEnd) != '[') {
+                    valueEnd++;
+                }
+                tid = parseHex(title, pos + 4, valueEnd);
+            } else if (title.startsWith("nid=", pos)) {
+                nid = title.startsWith("0x", pos + 4) ? parseHex(title, pos + 4, end) : parseDecimal(title, pos + 4, end);
+                nidStart = pos;
+                if (end < length) {
+                    // the state starts directly after the separating blank.
+                    afterNid = end + 1;
+                }
+            }
+            pos = end + 1;
+        }
+
+        String state = "";
+        String addressRange = ThreadHeader.NO_ADDRESS_RANGE;
+        if (afterNid >= 0) {
+            int lastBracket = title.lastIndexOf('[');
+            if (lastBracket > nidStart) {
+                int stateStart = afterLwp >= 0 ? afterLwp : afterNid;
+                state = title.substring(stateStart, Math.max(stateStart, lastBracket - 1));
+                addressRange = title.substring(lastBracket);
+            } else {
+                state = title.substring(afterNid);
+            }
+        }
+
+        return (new ThreadHeader(name, normalizeTitle(title, cpuStart, cpuEnd, elapsedStart, elapsedEnd), false, daemon,
+                prio, osPrio, cpuMillis, elapsedSeconds, tid, nid, state, addressRange));
+    }
+
+    /**
+     * parse titles only containing an id and a state, e.g. <code>"main" id=1 in RUNNABLE</code>.
+     */
+    private static ThreadHeader parseShort(String title, String name) {
+        int idStart = -1;
+        int idEnd = -1;
+        int stateStart = -1;
+        if (title.indexOf("nid=") > 0) {
+            idStart = title.indexOf("nid=") + 4;
+            idEnd = title.indexOf("state=") - 1;
+            stateStart = title.indexOf("state=") + 6;
+        } else if (title.indexOf("t@") > 0) {
+            idStart = title.indexOf("t@") + 2;
+            idEnd = title.indexOf("state=") - 1;
+            stateStart = title.indexOf("state=") + 6;
+        } else if (title.indexOf("id=") > 0) {
+            idStart = title.indexOf("id=") + 3;
+            idEnd = title.indexOf(" in");
+            stateStart = title.indexOf(" in") + 3;
+        }
+
+        long id = -1;
+        String state = "";
+        if (idStart >= 0 && idEnd >= idStart && stateStart > idEnd) {
+            id = title.startsWith("0x", idStart) ? parseHex(title, idStart, idEnd) : parseDecimal(title, idStart, idEnd);
+            state = title.substring(stateStart);
+        }
+        return (new ThreadHeader(name, title, true, false, -1, -1, -1, -1, id, -1, state, ""));
+    }
+
+    /**
+     * remove cpu and elapsed time from the title, they change from dump to dump while
+     * the title is used to identify the thread over several dumps.
+     */
+    private static String normalizeTitle(String title, int cpuStart, int cpuEnd, int elapsedStart, int elapsedEnd) {
+        if (cpuStart < 0 || elapsedStart < 0) {
+            return (title);
+        }
+        StringBuilder normalized = new StringBuilder(title.length());
+        if (cpuStart < elapsedStart) {
+            normalized.append(title, 0, cpuStart - 1).append(title, cpuEnd, elapsedStart - 1).append(title, elapsedEnd, title.length());
+        } else {
+            normalized.append(title, 0, elapsedStart - 1).append(title, elapsedEnd, cpuStart - 1).append(title, cpuEnd, title.length());
+        }
+        return (normalized.toString());
+    }
+
+    /**
+     * parse a decimal number.
+     * @return the number or -1 if the passed range isn't a number.
+     */
+    private static long parseDecimal(String s, int from, int to) {
+        if (from >= to) {
+            return (-1);
+        }
+        long result = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return (-1);
+            }
+            result = result * 10 + (c - '0');
+        }
+        return (result);
+    }
+
+    /**
+     * parse a hexadecimal number with optional 0x prefix.
+     * @return the number or -1 if the passed range isn't a number.
+     */
+    private static long parseHex(String s, int from, int to) {
+        if (s.startsWith("0x", from)) {
+            from += 2;
+        }
+        if (from >= to) {
+            return (-1);
+        }
+        long result = 0;
+        for (int i = from; i < to; i++) {
+            int digit = Character.digit(s.charAt(i), 16);
+            if (digit < 0) {
+                return (-1);
+            }
+            result = (result << 4) | digit;
+        }
+        return (result);
+    }
+
+    /**
+     * parse a decimal fraction like 1234.56
+     * @return the number or -1 if the passed range isn't a number.
+     */
+    private static double parseDouble(String s, int from, int to) {
+        if (from >= to) {
+            return (-1);
+        }
+        long mantissa = 0;
+        long divisor = 1;
+        boolean fraction = false;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c == '.' && !fraction) {
+                fraction = true;
+            } else if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                if (fraction) {
+                    divisor *= 10;
+                }
+            } else {
+                return (-1);
+            }
+        }
+        return ((double) mantissa / divisor);
+    }
+}
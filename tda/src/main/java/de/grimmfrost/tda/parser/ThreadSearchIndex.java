@@ -0,0 +1,338 @@
+/*
+ * ThreadSearchIndex.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.parser;
+
+import de.grimmfrost.tda.model.FrameDictionary;
+import de.grimmfrost.tda.model.ThreadDumpInfo;
+import de.grimmfrost.tda.model.ThreadInfo;
+import de.grimmfrost.tda.model.ThreadStack;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+import javax.swing.tree.DefaultMutableTreeNode;
+
+/**
+ * Inverted index over the threads of the loaded dumps. The names of the threads,
+ * the classes and methods of their frames and the classes of their locks are split
+ * into lower case tokens, each token has the sorted list of the threads it occurs
+ * in. A search looks up the tokens starting with the search terms by binary search
+ * instead of scanning the threads.
+ * <p>
+ * Every dump has its own segment of the index, so dumps can be indexed in background
+ * while the index is used and be dropped if they are closed or unloaded.
+ *
+ * @author irockel
+ */
+public class ThreadSearchIndex {
+    private final Map<DefaultMutableTreeNode, Segment> segments = new LinkedHashMap<>();
+
+    // the tokens of the lines of a frame dictionary by line id, the lines repeat over threads and dumps.
+    private final Map<FrameDictionary, Map<Integer, String[]>> lineTokens = new WeakHashMap<>();
+
+    /**
+     * a thread found by a search.
+     */
+    public static class Hit {
+        private final DefaultMutableTreeNode dump;
+        private final ThreadInfo thread;
+
+        Hit(DefaultMutableTreeNode dump, ThreadInfo thread) {
+            this.dump = dump;
+            this.thread = thread;
+        }
+
+        /**
+         * get the tree node of the dump of the thread.
+         */
+        public DefaultMutableTreeNode getDump() {
+            return (dump);
+        }
+
+        public ThreadInfo getThread() {
+            return (thread);
+        }
+
+        public String toString() {
+            return (getThreadName(thread) + " in " + ((ThreadDumpInfo) dump.getUserObject()).getName());
+        }
+    }
+
+    /**
+     * the index of the threads of one dump.
+     */
+    private static class Segment {
+        private final ThreadDumpInfo tdi;
+        private final List<ThreadInfo> threads;
+        private final String[] tokens;
+        private final int[][] postings;
+
+        Segment(ThreadDumpInfo tdi, List<ThreadInfo> threads, String[] tokens, int[][] postings) {
+            this.tdi = tdi;
+            this.threads = threads;
+            this.tokens = tokens;
+            this.postings = postings;
+        }
+
+        /**
+         * find the threads with tokens starting with all of the passed terms.
+         */
+        BitSet search(String[] terms) {
+            BitSet result = null;
+            for (String term : terms) {
+                BitSet matches = new BitSet(threads.size());
+                int pos = Arrays.binarySearch(tokens, term);
+                for (int i = pos >= 0 ? pos : -pos - 1; i < tokens.length && tokens[i].startsWith(term); i++) {
+                    for (int thread : postings[i]) {
+                        matches.set(thread);
+                    }
+                }
+                if (result == null) {
+                    result = matches;
+                } else {
+                    result.and(matches);
+                }
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            return (result != null ? result : new BitSet());
+        }
+    }
+
+    /**
+     * the postings of a token while indexing a dump.
+     */
+    private static class Postings {
+        private int[] threads = new int[4];
+        private int size;
+
+        void add(int thread) {
+            if (size > 0 && threads[size - 1] == thread) {
+                return;
+            }
+            if (size == threads.length) {
+                threads = Arrays.copyOf(threads, size * 2);
+            }
+            threads[size++] = thread;
+        }
+    }
+
+    /**
+     * take over the currently loaded dumps. Dumps which aren't loaded anymore are
+     * dropped from the index, the search results follow the order of the passed dumps.
+     * @param dumps the tree nodes of the loaded dumps.
+     * @return the dumps which aren't indexed yet, pass them to {@link #addDump(DefaultMutableTreeNode)}.
+     */
+    public synchronized List<DefaultMutableTreeNode> update(List<DefaultMutableTreeNode> dumps) {
+        Map<DefaultMutableTreeNode, Segment> current = new LinkedHashMap<>(segments);
+        segments.clear();
+        List<DefaultMutableTreeNode> missing = new ArrayList<>();
+        for (DefaultMutableTreeNode dump : dumps) {
+            Segment segment = current.get(dump);
+            if (segment == null || segment.tdi != dump.getUserObject()) {
+                segment = null;
+                missing.add(dump);
+            }
+            // pending dumps keep their position until they are indexed.
+            segments.put(dump, segment);
+        }
+        return (missing);
+    }
+
+    /**
+     * index the threads of a dump, can be called in background.
+     * @param dump the tree node of the dump.
+     */
+    public void addDump(DefaultMutableTreeNode dump) {
+        ThreadDumpInfo tdi = (ThreadDumpInfo) dump.getUserObject();
+        List<ThreadInfo> threads = AbstractDumpParser.getThreads(tdi);
+        Map<String, Postings> index = new HashMap<>();
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < threads.size(); i++) {
+            ThreadInfo thread = threads.get(i);
+            tokens.clear();
+            addNameTokens(getThreadName(thread), tokens);
+            ThreadStack stack = thread.getStack();
+            for (int line = 0; stack != null && line < stack.getLineCount(); line++) {
+                int id = stack.getLineId(line);
+                String[] lineTokens = id >= 0 ? getLineTokens(stack.getDictionary(), id) : tokenizeLine(stack.getLine(line));
+                tokens.addAll(Arrays.asList(lineTokens));
+            }
+            for (String token : tokens) {
+                index.computeIfAbsent(token, t -> new Postings()).add(i);
+            }
+        }
+        String[] sorted = index.keySet().toArray(new String[0]);
+        Arrays.sort(sorted);
+        int[][] postings = new int[sorted.length][];
+        for (int i = 0; i < sorted.length; i++) {
+            Postings p = index.get(sorted[i]);
+            postings[i] = Arrays.copyOf(p.threads, p.size);
+        }
+        Segment segment = new Segment(tdi, threads, sorted, postings);
+        synchronized (this) {
+            if (dump.getUserObject() == tdi) {
+                segments.put(dump, segment);
+            }
+        }
+    }
+
+    /**
+     * get the amount of dumps which are indexed.
+     */
+    public synchronized int getDumpCount() {
+        int count = 0;
+        for (Segment segment : segments.values()) {
+            count += segment != null ? 1 : 0;
+        }
+        return (count);
+    }
+
+    /**
+     * find the threads of all indexed dumps with tokens starting with all terms of the
+     * query. The terms are separated by whitespace, the case is ignored.
+     * @param query e.g. "pool-1 SocketInputStream.read".
+     * @return the threads in dump order.
+     */
+    public synchronized List<Hit> search(String query) {
+        List<Hit> hits = new ArrayList<>();
+        String[] terms = getTerms(query);
+        if (terms.length == 0) {
+            return (hits);
+        }
+        for (Map.Entry<DefaultMutableTreeNode, Segment> entry : segments.entrySet()) {
+            Segment segment = entry.getValue();
+            if (segment == null || segment.tdi != entry.getKey().getUserObject()) {
+                continue;
+            }
+            BitSet matches = segment.search(terms);
+            for (int thread = matches.nextSetBit(0); thread >= 0; thread = matches.nextSetBit(thread + 1)) {
+                hits.add(new Hit(entry.getKey(), segment.threads.get(thread)));
+            }
+        }
+        return (hits);
+    }
+
+    static String[] getTerms(String query) {
+        List<String> terms = new ArrayList<>();
+        for (String term : query.trim().toLowerCase(Locale.ROOT).split("\\s+")) {
+            term = term.replace("<", "").replace(">", "");
+            if (term.length() > 0) {
+                terms.add(term);
+            }
+        }
+        return (terms.toArray(new String[0]));
+    }
+
+    static String getThreadName(ThreadInfo thread) {
+        return (thread.getHeader() != null ? thread.getHeader().getName() : thread.getName());
+    }
+
+    private String[] getLineTokens(FrameDictionary dictionary, int id) {
+        Map<Integer, String[]> cache;
+        synchronized (lineTokens) {
+            cache = lineTokens.computeIfAbsent(dictionary, d -> new HashMap<>());
+        }
+        String[] tokens;
+        synchronized (cache) {
+            tokens = cache.get(id);
+        }
+        if (tokens == null) {
+            tokens = tokenizeLine(dictionary.getFrame(id));
+            synchronized (cache) {
+                cache.put(id, tokens);
+            }
+        }
+        return (tokens);
+    }
+
+    /**
+     * split the name of a thread into the whole name and its words.
+     */
+    static void addNameTokens(String name, List<String> tokens) {
+        if (name == null) {
+            return;
+        }
+        String lower = name.toLowerCase(Locale.ROOT);
+        tokens.add(lower);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean letter = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                if (start > 0 || i < lower.length()) {
+                    tokens.add(lower.substring(start, i));
+                }
+                start = -1;
+            }
+        }
+    }
+
+    /**
+     * get the tokens of a line of a stack. A frame has a token for every suffix of
+     * its qualified method name, starting after a '.' or '$', so
+     * "at com.foo.Bar$Inner.run(Bar.java:12)" can be found by "com.foo", "bar",
+     * "inner.run" or "run". Locks have the same tokens for their class and their
+     * address as token.
+     */
+    static String[] tokenizeLine(String line) {
+        List<String> tokens = new ArrayList<>();
+        String text = line.trim();
+        if (text.startsWith("at ")) {
+            int end = text.indexOf('(');
+            String name = end > 0 ? text.substring(3, end) : text.substring(3);
+            // module or class loader, e.g. "java.base@21/java.lang.Thread.run"
+            addSuffixTokens(name.substring(name.lastIndexOf('/') + 1), tokens);
+        } else if (text.startsWith("- ")) {
+            int address = text.indexOf("<0x");
+            if (address >= 0 && text.indexOf('>', address) > 0) {
+                tokens.add(text.substring(address + 1, text.indexOf('>', address)).toLowerCase(Locale.ROOT));
+            }
+            int start = text.indexOf("(a ");
+            if (start >= 0) {
+                int end = text.indexOf(')', start);
+                addSuffixTokens(end > start ? text.substring(start + 3, end) : text.substring(start + 3), tokens);
+            }
+        }
+        return (tokens.toArray(new String[0]));
+    }
+
+    private static void addSuffixTokens(String name, List<String> tokens) {
+        String lower = name.trim().toLowerCase(Locale.ROOT);
+        if (lower.isEmpty()) {
+            return;
+        }
+        tokens.add(lower);
+        for (int i = 0; i < lower.length() - 1; i++) {
+            char c = lower.charAt(i);
+            if (c == '.' || c == '$') {
+                tokens.add(lower.substring(i + 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * VirtualThreadAggregator.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.parser;
+
+import de.grimmfrost.tda.model.ThreadStack;
+import de.grimmfrost.tda.model.VirtualThreadGroup;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Groups the virtual threads of a dump by thread container and stack while
+ * parsing. Per group only the thread count and the first stack are kept, so
+ * dumps with a huge amount of virtual threads don't need an object per thread.
+ *
+ * @author irockel
+ */
+public class VirtualThreadAggregator {
+    private final Map<GroupKey, VirtualThreadGroup> groups = new HashMap<>();
+    private final List<VirtualThreadGroup> groupList = new ArrayList<>();
+    private int threadCount;
+
+    /**
+     * add a virtual thread.
+     * @param container the thread container of the thread, null if unknown.
+     * @param stack the stack of the thread.
+     * @param state the state of the thread.
+     */
+    public void add(String container, ThreadStack stack, String state) {
+        GroupKey key = new GroupKey(container, stack);
+        VirtualThreadGroup group = groups.get(key);
+        if (group == null) {
+            group = new VirtualThreadGroup(container, stack, state);
+            groups.put(key, group);
+            groupList.add(group);
+        }
+        group.addThread();
+        threadCount++;
+    }
+
+    /**
+     * get the amount of added threads.
+     */
+    public int getThreadCount() {
+        return (threadCount);
+    }
+
+    /**
+     * get the amount of groups.
+     */
+    public int getGroupCount() {
+        return (groupList.size());
+    }
+
+    /**
+     * get the groups, the biggest group first. Groups of the same size are
+     * returned in the order of their first thread.
+     */
+    public List<VirtualThreadGroup> getGroups() {
+        List<VirtualThreadGroup> sorted = new ArrayList<>(groupList);
+        sorted.sort((g1, g2) -> Integer.compare(g2.getThreadCount(), g1.getThreadCount()));
+        return (sorted);
+    }
+
+    /**
+     * key of a group, the container and the frames of the stack.
+     */
+    private static class GroupKey {
+        private final String container;
+        private final ThreadStack stack;
+        private final int hash;
+
+        private GroupKey(String container, ThreadStack stack) {
+            this.container = container;
+            this.stack = stack;
+            this.hash = 31 * Objects.hashCode(container) + stack.frameHashCode();
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof GroupKey)) {
+                return (false);
+            }
+            GroupKey other = (GroupKey) o;
+            return (hash == other.hash && Objects.equals(container, other.container) && stack.hasSameFrames(other.stack));
+        }
+
+        public int hashCode() {
+            return (hash);
+        }
+    }
+}
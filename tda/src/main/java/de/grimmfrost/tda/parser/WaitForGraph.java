@@ -0,0 +1,307 @@
+/*
+ * WaitForGraph.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.parser;
+
+import de.grimmfrost.tda.model.MonitorMap;
+import de.grimmfrost.tda.model.ThreadHeader;
+import de.grimmfrost.tda.model.ThreadStack;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wait-for graph of the threads and monitors of a dump. A thread waiting for
+ * a monitor has an edge to the monitor, a monitor has an edge to the thread
+ * owning it. Threads which released a monitor by calling Object.wait() don't
+ * own it. The edges are stored as primitive adjacency arrays, cycles (deadlocks)
+ * are found with Tarjan's algorithm for strongly connected components in linear
+ * time, so also dumps with a huge amount of threads can be checked.
+ * <p>
+ * Nodes 0 to getThreadCount() - 1 are threads, the following nodes are monitors.
+ *
+ * @author irockel
+ */
+public class WaitForGraph {
+    private final MonitorMap mmap;
+    private final int threadCount;
+    private int[] edgeStart;
+    private int[] edges;
+
+    /**
+     * build the graph from the monitors of a dump. The node ids of the threads
+     * are their indexes in the monitor map.
+     * @param mmap the monitors and their locking, waiting and sleeping threads.
+     */
+    public WaitForGraph(MonitorMap mmap) {
+        this.mmap = mmap;
+        threadCount = mmap.getThreadCount();
+        int[] from = new int[16];
+        int[] to = new int[16];
+        int edgeCount = 0;
+
+        for (int monitor = 0; monitor < mmap.size(); monitor++) {
+            int monitorId = threadCount + monitor;
+            for (int thread : mmap.getThreads(monitor, MonitorMap.LOCK_THREAD_POS)) {
+                if (!mmap.hasThread(monitor, MonitorMap.SLEEP_THREAD_POS, thread)
+                        && !mmap.hasThread(monitor, MonitorMap.WAIT_THREAD_POS, thread)) {
+                    if (edgeCount == from.length) {
+                        from = Arrays.copyOf(from, edgeCount * 2);
+                        to = Arrays.copyOf(to, edgeCount * 2);
+                    }
+                    from[edgeCount] = monitorId;
+                    to[edgeCount++] = thread;
+                }
+            }
+            for (int thread : mmap.getThreads(monitor, MonitorMap.WAIT_THREAD_POS)) {
+                if (!mmap.hasThread(monitor, MonitorMap.LOCK_THREAD_POS, thread)) {
+                    if (edgeCount == from.length) {
+                        from = Arrays.copyOf(from, edgeCount * 2);
+                        to = Arrays.copyOf(to, edgeCount * 2);
+                    }
+                    from[edgeCount] = thread;
+                    to[edgeCount++] = monitorId;
+                }
+            }
+        }
+
+        int nodeCount = threadCount + mmap.size();
+        edgeStart = new int[nodeCount + 1];
+        for (int i = 0; i < edgeCount; i++) {
+            edgeStart[from[i] + 1]++;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            edgeStart[i + 1] += edgeStart[i];
+        }
+        edges = new int[edgeCount];
+        int[] pos = Arrays.copyOf(edgeStart, nodeCount);
+        for (int i = 0; i < edgeCount; i++) {
+            edges[pos[from[i]]++] = to[i];
+        }
+    }
+
+    /**
+     * get the amount of threads locking, waiting or sleeping on a monitor.
+     */
+    public int getThreadCount() {
+        return (threadCount);
+    }
+
+    public int getMonitorCount() {
+        return (mmap.size());
+    }
+
+    /**
+     * get the title of the thread with the passed node id.
+     */
+    public String getThread(int node) {
+        return (mmap.getThreadTitle(node));
+    }
+
+    /**
+     * get the parsed title of the thread with the passed node id, might be null.
+     */
+    public ThreadHeader getHeader(int node) {
+        return (mmap.getThreadHeader(node));
+    }
+
+    public ThreadStack getStack(int node) {
+        return (mmap.getThreadStack(node));
+    }
+
+    /**
+     * get the monitor with the passed node id.
+     */
+    public String getMonitor(int node) {
+        return (mmap.getMonitor(node - threadCount));
+    }
+
+    public boolean isThread(int node) {
+        return (node < threadCount);
+    }
+
+    /**
+     * get the nodes the passed node has an edge to, the monitor a thread waits for
+     * or the thread owning a monitor.
+     */
+    public int[] getEdges(int node) {
+        return (Arrays.copyOfRange(edges, edgeStart[node], edgeStart[node + 1]));
+    }
+
+    /**
+     * get the thread owning the monitor each thread waits for.
+     * @return the blocking thread per thread, -1 if the thread doesn't wait or the monitor has no owner.
+     */
+    public int[] getBlockingThreads() {
+        int[] blocking = new int[threadCount];
+        Arrays.fill(blocking, -1);
+        for (int thread = 0; thread < threadCount; thread++) {
+            for (int i = edgeStart[thread]; i < edgeStart[thread + 1] && blocking[thread] < 0; i++) {
+                int monitor = edges[i];
+                if (edgeStart[monitor] < edgeStart[monitor + 1] && edges[edgeStart[monitor]] != thread) {
+                    blocking[thread] = edges[edgeStart[monitor]];
+                }
+            }
+        }
+        return (blocking);
+    }
+
+    /**
+     * count the threads each thread blocks directly or transitively. The counts are
+     * summed up from the waiting threads to their blocking threads in topological
+     * order, which is linear in the amount of threads. Threads in a cycle only count
+     * the threads waiting for them from outside of the cycle.
+     * @param blocking the blocking thread per thread, see {@link #getBlockingThreads()}.
+     * @return the amount of blocked threads per thread.
+     */
+    public static int[] getBlockedCounts(int[] blocking) {
+        int threadCount = blocking.length;
+        int[] counts = new int[threadCount];
+        int[] pending = new int[threadCount];
+        for (int thread = 0; thread < threadCount; thread++) {
+            if (blocking[thread] >= 0) {
+                pending[blocking[thread]]++;
+            }
+        }
+        int[] queue = new int[threadCount];
+        int head = 0;
+        int tail = 0;
+        for (int thread = 0; thread < threadCount; thread++) {
+            if (pending[thread] == 0) {
+                queue[tail++] = thread;
+            }
+        }
+        while (head < tail) {
+            int thread = queue[head++];
+            int blocker = blocking[thread];
+            if (blocker >= 0) {
+                counts[blocker] += counts[thread] + 1;
+                if (--pending[blocker] == 0) {
+                    queue[tail++] = blocker;
+                }
+            }
+        }
+        return (counts);
+    }
+
+    /**
+     * find all cycles of threads waiting for each other.
+     * @return one cycle per strongly connected component with more than one node,
+     *         the cycle alternates between threads and the monitors they wait for.
+     */
+    public List<int[]> findCycles() {
+        int nodeCount = edgeStart.length - 1;
+        int[] index = new int[nodeCount];
+        int[] low = new int[nodeCount];
+        int[] component = new int[nodeCount];
+        Arrays.fill(index, -1);
+        Arrays.fill(component, -1);
+        boolean[] onStack = new boolean[nodeCount];
+        int[] stack = new int[nodeCount];
+        int stackSize = 0;
+        // explicit call stack, the graph might be too deep for recursion.
+        int[] callNode = new int[nodeCount];
+        int[] callEdge = new int[nodeCount];
+        int nextIndex = 0;
+        int componentCount = 0;
+        List<int[]> cycles = new ArrayList<>();
+
+        for (int root = 0; root < nodeCount; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            int depth = 0;
+            callNode[0] = root;
+            callEdge[0] = edgeStart[root];
+            index[root] = low[root] = nextIndex++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0) {
+                int node = callNode[depth];
+                if (callEdge[depth] < edgeStart[node + 1]) {
+                    int target = edges[callEdge[depth]++];
+                    if (index[target] < 0) {
+                        index[target] = low[target] = nextIndex++;
+                        stack[stackSize++] = target;
+                        onStack[target] = true;
+                        depth++;
+                        callNode[depth] = target;
+                        callEdge[depth] = edgeStart[target];
+                    } else if (onStack[target]) {
+                        low[node] = Math.min(low[node], index[target]);
+                    }
+                    continue;
+                }
+
+                if (low[node] == index[node]) {
+                    int size = 0;
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        onStack[member] = false;
+                        component[member] = componentCount;
+                        size++;
+                    } while (member != node);
+                    if (size > 1) {
+                        cycles.add(getCycle(node, component, componentCount));
+                    }
+                    componentCount++;
+                }
+                depth--;
+                if (depth >= 0) {
+                    low[callNode[depth]] = Math.min(low[callNode[depth]], low[node]);
+                }
+            }
+        }
+        return (cycles);
+    }
+
+    /**
+     * follow the edges inside of a component until a node is visited again.
+     * @return the cycle starting with a thread.
+     */
+    private int[] getCycle(int start, int[] component, int componentNo) {
+        List<Integer> path = new ArrayList<>();
+        Map<Integer, Integer> visited = new HashMap<>();
+        int node = start;
+        while (!visited.containsKey(node)) {
+            visited.put(node, path.size());
+            path.add(node);
+            for (int i = edgeStart[node]; i < edgeStart[node + 1]; i++) {
+                if (component[edges[i]] == componentNo) {
+                    node = edges[i];
+                    break;
+                }
+            }
+        }
+        int base = visited.get(node);
+        int length = path.size() - base;
+        // start the cycle with a thread, not with a monitor.
+        int shift = isThread(node) ? 0 : 1;
+        int[] cycle = new int[length];
+        for (int i = 0; i < length; i++) {
+            cycle[i] = path.get(base + (shift + i) % length);
+        }
+        return (cycle);
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * FlameGraphPanel.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.utils;
+
+import de.grimmfrost.tda.model.CallTree;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.Arrays;
+import java.util.Locale;
+import javax.swing.JComponent;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+
+/**
+ * Icicle view of a call tree: the root is at the top, the callees of a frame
+ * below it, the width of a frame is its share of the samples. Clicking a frame
+ * zooms into it, clicking one of the callers above zooms out again.
+ *
+ * @author irockel
+ */
+public class FlameGraphPanel extends JComponent implements Scrollable {
+    private static final int ROW_HEIGHT = 16;
+
+    private final CallTree tree;
+    private int zoomNode = CallTree.ROOT;
+
+    // the frames painted last, for finding the frame below the mouse.
+    private int[] paintedNodes = new int[256];
+    private int[] paintedX = new int[256];
+    private int[] paintedWidths = new int[256];
+    private int paintedCount;
+
+    /**
+     * @param tree the call tree to show.
+     */
+    public FlameGraphPanel(CallTree tree) {
+        this.tree = tree;
+        setBackground(Color.WHITE);
+        setOpaque(true);
+        setToolTipText("");
+        addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent e) {
+                int node = getNodeAt(e.getX(), e.getY());
+                if (node >= 0) {
+                    zoomNode = node;
+                    revalidate();
+                    repaint();
+                }
+            }
+        });
+    }
+
+    public String getToolTipText(MouseEvent e) {
+        int node = getNodeAt(e.getX(), e.getY());
+        if (node < 0) {
+            return null;
+        }
+        String frame = node == CallTree.ROOT ? "all threads" : tree.getFrame(node);
+        return String.format(Locale.ROOT, "<html>%s<br>%d samples (%.1f%%), %d self</html>",
+                frame.replace("<", "&lt;").replace(">", "&gt;"), tree.getInclusiveCount(node),
+                tree.getThreadCount() > 0 ? tree.getInclusiveCount(node) * 100.0 / tree.getThreadCount() : 0,
+                tree.getExclusiveCount(node));
+    }
+
+    public Dimension getPreferredSize() {
+        return new Dimension(400, (tree.getMaxDepth() + 1) * ROW_HEIGHT);
+    }
+
+    protected void paintComponent(Graphics g) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, getWidth(), getHeight());
+        paintedCount = 0;
+        if (tree.getThreadCount() == 0) {
+            return;
+        }
+        // the callers of the zoomed frame span the full width.
+        for (int node = zoomNode; ; node = tree.getParent(node)) {
+            paintFrame(g, node, 0, getWidth());
+            if (node == CallTree.ROOT) {
+                break;
+            }
+        }
+        paintChildren(g, zoomNode, 0, getWidth());
+    }
+
+    private void paintChildren(Graphics g, int node, int x, int width) {
+        double scale = (double) width / tree.getInclusiveCount(node);
+        int childX = x;
+        for (int child : tree.getChildren(node)) {
+            int childWidth = (int) (tree.getInclusiveCount(child) * scale);
+            if (childWidth < 1) {
+                // the children are sorted by their samples, all following are smaller.
+                break;
+            }
+            paintFrame(g, child, childX, childWidth);
+            paintChildren(g, child, childX, childWidth);
+            childX += childWidth;
+        }
+    }
+
+    private void paintFrame(Graphics g, int node, int x, int width) {
+        Rectangle clip = g.getClipBounds();
+        int y = tree.getDepth(node) * ROW_HEIGHT;
+        if (paintedCount == paintedNodes.length) {
+            paintedNodes = Arrays.copyOf(paintedNodes, paintedCount * 2);
+            paintedX = Arrays.copyOf(paintedX, paintedCount * 2);
+            paintedWidths = Arrays.copyOf(paintedWidths, paintedCount * 2);
+        }
+        paintedNodes[paintedCount] = node;
+        paintedX[paintedCount] = x;
+        paintedWidths[paintedCount++] = width;
+        if (clip != null && !clip.intersects(x, y, width, ROW_HEIGHT)) {
+            return;
+        }
+
+        String frame = node == CallTree.ROOT ? "all threads" : tree.getFrame(node);
+        g.setColor(getColor(frame));
+        g.fillRect(x, y, width, ROW_HEIGHT - 1);
+        g.setColor(Color.WHITE);
+        g.drawLine(x + width - 1, y, x + width - 1, y + ROW_HEIGHT - 1);
+
+        FontMetrics metrics = g.getFontMetrics();
+        if (width > metrics.charWidth('m') * 3) {
+            g.setColor(Color.BLACK);
+            String label = frame;
+            if (metrics.stringWidth(label) > width - 4) {
+                int chars = label.length() * (width - 4) / metrics.stringWidth(label) - 2;
+                label = chars > 2 ? label.substring(0, chars) + ".." : "";
+            }
+            g.drawString(label, x + 2, y + ROW_HEIGHT - 4);
+        }
+    }
+
+    /**
+     * warm colors by the hash of the class, so the frames of one class have the same color.
+     */
+    private static Color getColor(String frame) {
+        int method = frame.indexOf('(');
+        String owner = method > 0 && frame.lastIndexOf('.', method) > 0 ? frame.substring(0, frame.lastIndexOf('.', method)) : frame;
+        int hash = owner.hashCode();
+        return new Color(205 + (hash & 0x31), 90 + ((hash >>> 8) & 0x7f), 40 + ((hash >>> 16) & 0x37));
+    }
+
+    private int getNodeAt(int x, int y) {
+        int depth = y / ROW_HEIGHT;
+        for (int i = 0; i < paintedCount; i++) {
+            int node = paintedNodes[i];
+            if (tree.getDepth(node) == depth && x >= paintedX[i] && x < paintedX[i] + paintedWidths[i]) {
+                return node;
+            }
+        }
+        return -1;
+    }
+
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return ROW_HEIGHT;
+    }
+
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height - ROW_HEIGHT : visibleRect.width;
+    }
+
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    public boolean getScrollableTracksViewportHeight() {
+        return getParent() != null && getParent().getHeight() > getPreferredSize().height;
+    }
+}
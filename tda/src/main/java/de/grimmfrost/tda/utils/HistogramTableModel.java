@@ -23,20 +23,39 @@
  */
 package de.grimmfrost.tda.utils;
 
-import java.util.Vector;
+import java.util.Arrays;
 import javax.swing.table.AbstractTableModel;
 
 /**
- * Provides table data model for the display of class histograms.
+ * Provides table data model for the display of class histograms. The
+ * entries are stored column wise in arrays, a filter is a list of row
+ * indexes.
  *
  * @author irockel
  */
 public class HistogramTableModel extends AbstractTableModel {
     private static int DEFINED_ROWS = 3;
+
+    private static final int INITIAL_CAPACITY = 256;
     
-    private Vector elements = new Vector();
+    private String[] classNames = new String[INITIAL_CAPACITY];
+
+    private String[] modules = new String[INITIAL_CAPACITY];
+
+    private long[] instanceCounts = new long[INITIAL_CAPACITY];
+
+    private long[] byteCounts = new long[INITIAL_CAPACITY];
+
+    /**
+     * the class names formatted for display, created on first access.
+     */
+    private String[] displayNames;
+
+    private int size = 0;
     
-    private Vector filteredElements = null;
+    private int[] filteredRows = null;
+
+    private int filteredSize = 0;
 
     private String[] columnNames = {"class name",
                                     "instance count",
@@ -62,42 +81,90 @@ public class HistogramTableModel extends AbstractTableModel {
     public HistogramTableModel() {
     }
     
-    public void addEntry(String className, int instanceCount, int bytes) {
-        elements.addElement(new Entry(className, instanceCount, bytes));
+    /**
+     * add an entry of the histogram.
+     * @param className the name of the class.
+     * @param module the module of the class, null if the histogram has no module column.
+     * @param instanceCount the number of instances of the class.
+     * @param byteCount the bytes used by the instances.
+     */
+    public void addEntry(String className, String module, long instanceCount, long byteCount) {
+        if (size == classNames.length) {
+            int capacity = size * 2;
+            classNames = Arrays.copyOf(classNames, capacity);
+            modules = Arrays.copyOf(modules, capacity);
+            instanceCounts = Arrays.copyOf(instanceCounts, capacity);
+            byteCounts = Arrays.copyOf(byteCounts, capacity);
+        }
+        classNames[size] = className;
+        modules[size] = module;
+        instanceCounts[size] = instanceCount;
+        byteCounts[size] = byteCount;
+        size++;
+        displayNames = null;
     }
 
     public Object getValueAt(int rowIndex, int columnIndex) {
-        if(filteredElements != null) {
-            return(getValueAt(filteredElements, rowIndex, columnIndex));
-        } else {
-            return(getValueAt(elements, rowIndex, columnIndex));
-        }
-    }
-    
-    private Object getValueAt(Vector elements, int rowIndex, int columnIndex) {
+        int row = filteredRows != null ? filteredRows[rowIndex] : rowIndex;
         switch(columnIndex) {
             case 0 : {
-                return ((Entry) elements.elementAt(rowIndex)).className;
+                return getDisplayName(row);
             }
             case 1 : {
-                return new Integer(((Entry) elements.elementAt(rowIndex)).bytes);
+                return Long.valueOf(instanceCounts[row]);
             } 
             case 2 : {
-                return new Integer(((Entry) elements.elementAt(rowIndex)).instanceCount);
+                return Long.valueOf(byteCounts[row]);
             }
         }
         return null;
     }
+
+    /**
+     * get the raw class name of the passed row of the unfiltered histogram.
+     */
+    public String getClassName(int row) {
+        return classNames[row];
+    }
+
+    /**
+     * get the module of the passed row of the unfiltered histogram.
+     * @return the module or null if the histogram has no module column.
+     */
+    public String getModule(int row) {
+        return modules[row];
+    }
+
+    /**
+     * get the instance count of the passed row of the unfiltered histogram.
+     */
+    public long getInstanceCount(int row) {
+        return instanceCounts[row];
+    }
+
+    /**
+     * get the bytes of the passed row of the unfiltered histogram.
+     */
+    public long getByteCount(int row) {
+        return byteCounts[row];
+    }
+
+    /**
+     * get the number of entries of the unfiltered histogram.
+     */
+    public int getEntryCount() {
+        return size;
+    }
     
     public String getColumnName(int col) {
         return columnNames[col];
     }
 
     public int getRowCount() {
-        if(filteredElements != null) {
-            return filteredElements.size();
+        if(filteredRows != null) {
+            return filteredSize;
         } else {
-            return elements.size();
+            return size;
         }
     }
 
@@ -106,7 +173,7 @@ public class HistogramTableModel extends AbstractTableModel {
     }
     
     public Class getColumnClass(int c) {
-        return getValueAt(0, c).getClass();
+        return c == 0 ? String.class : Long.class;
     }
     
     private void setOOM(boolean value) {
@@ -148,25 +215,26 @@ public class HistogramTableModel extends AbstractTableModel {
      */
     public void setFilter(String value) {        
         filter = value;
+        if(value == null) {
+            value = "";
+        }
         if(isIgnoreCase()) {
             value = value.toLowerCase();
         }
         
-        if(((value) == null || value.equals("")) && isShowHotspotClasses()) {
-            filteredElements = null;
+        if(value.equals("") && isShowHotspotClasses()) {
+            filteredRows = null;
         } else {
-            filteredElements = new Vector();
-            for(int i = 0; i < elements.size(); i++) {
-                if(isIgnoreCase()) {
-                    if(((Entry)elements.get(i)).className.toLowerCase().indexOf(value) >= 0) {
-                        filteredElements.add(elements.get(i));
-                    }
-                } else {
-                    if(isNotHotspotClass(((Entry)elements.get(i)).className) && (value.equals("") || (((Entry)elements.get(i)).className.indexOf(value) >= 0))) {
-                        filteredElements.add(elements.get(i));
-                    }
+            int[] rows = new int[size];
+            int count = 0;
+            for(int i = 0; i < size; i++) {
+                String className = isIgnoreCase() ? classNames[i].toLowerCase() : classNames[i];
+                if(isNotHotspotClass(classNames[i]) && (value.equals("") || className.indexOf(value) >= 0)) {
+                    rows[count++] = i;
                 }
             }
+            filteredRows = rows;
+            filteredSize = count;
         }
     }
     
@@ -175,8 +243,7 @@ public class HistogramTableModel extends AbstractTableModel {
      * @param className the name of the class
      */
     private boolean isNotHotspotClass(String className) {
-        //System.out.println("className" + className + " eval=" + (!isShowHotspotClasses() && className.startsWith("<")));
-        return(isShowHotspotClasses() || !(className.indexOf("[internal HotSpot]") >= 0));
+        return(isShowHotspotClasses() || !className.trim().startsWith("<"));
     }
     
     public void setShowHotspotClasses(boolean value) {
@@ -206,48 +273,52 @@ public class HistogramTableModel extends AbstractTableModel {
         return(ignoreCase);
     }
 
-    public class Entry {
-        private String className;
-        private int instanceCount;
-        private int bytes;
-        
-        public Entry(String className, int instanceCount, int bytes) {
-            this.className = parseClassName(className);
-            
-            this.instanceCount = instanceCount;
-            this.bytes = bytes;
+    /**
+     * get the class name of the passed row formatted for display.
+     */
+    private String getDisplayName(int row) {
+        if(displayNames == null) {
+            displayNames = new String[size];
         }
-        
-        /**
-         * resolve classname to something more human readable.
-         */
-        private String parseClassName(String className) {
-            String result = className;
-            if(className.trim().endsWith("[I")) {
-                result = "<html><body><b>int[]</b></body></html>";
-            } else if (className.trim().endsWith("[B")) {
-                result = "<html><body><b>byte[]</b></body></html>";
-            } else if (className.trim().endsWith("[C")) {
-                result = "<html><body><b>char[]</b></body></html>";
-            } else if (className.trim().endsWith("[L")) {
-                result = "<html><body><b>long[]</b></body></html>";
-            } else if (className.trim().startsWith("<")) {
-                className = className.replaceAll("<", "&lt;");
-                className = className.replaceAll(">", "&gt;");
-                result = "<html><body><i><b>" + className + "</i></b> [internal HotSpot]</i></body></html>";
-            } else if (className.lastIndexOf('.') > 0) {
-                /*if(className.indexOf("OutOfMemory") >= 0) {
-                    setOOM(true);
-                }*/ // that doesn't work this way
-                
-                result = "<html><body>" + className.substring(0, className.lastIndexOf('.')+1) + "<b>" + 
-                         className.substring(className.lastIndexOf('.')+1) + "</b></body></html>";
-            }
-            if(className.trim().startsWith("[[")) {
-                result = result.replaceAll("\\[\\]", "[][]");
+        if(displayNames[row] == null) {
+            String result = parseClassName(classNames[row]);
+            if(modules[row] != null) {
+                if(result.endsWith("</body></html>")) {
+                    result = result.substring(0, result.length() - 14) + " (" + modules[row] + ")</body></html>";
+                } else {
+                    result = result + " (" + modules[row] + ")";
+                }
             }
-            
-            return(result);
+            displayNames[row] = result;
         }
+        return displayNames[row];
+    }
+
+    /**
+     * resolve classname to something more human readable.
+     */
+    private static String parseClassName(String className) {
+        String result = className;
+        if(className.trim().endsWith("[I")) {
+            result = "<html><body><b>int[]</b></body></html>";
+        } else if (className.trim().endsWith("[B")) {
+            result = "<html><body><b>byte[]</b></body></html>";
+        } else if (className.trim().endsWith("[C")) {
+            result = "<html><body><b>char[]</b></body></html>";
+        } else if (className.trim().endsWith("[L")) {
+            result = "<html><body><b>long[]</b></body></html>";
+        } else if (className.trim().startsWith("<")) {
+            className = className.replaceAll("<", "&lt;");
+            className = className.replaceAll(">", "&gt;");
+            result = "<html><body><i><b>" + className + "</i></b> [internal HotSpot]</i></body></html>";
+        } else if (className.lastIndexOf('.') > 0) {
+            result = "<html><body>" + className.substring(0, className.lastIndexOf('.')+1) + "<b>" + 
+                     className.substring(className.lastIndexOf('.')+1) + "</b></body></html>";
+        }
+        if(className.trim().startsWith("[[")) {
+            result = result.replaceAll("\\[\\]", "[][]");
+        }
+        
+        return(result);
     }
 }
@@ -25,7 +25,6 @@ package de.grimmfrost.tda.utils;
 
 import de.grimmfrost.tda.model.CustomCategory;
 import de.grimmfrost.tda.filter.Filter;
-import de.grimmfrost.tda.filter.FilterChecker;
 import java.awt.Dimension;
 import java.awt.Point;
 import java.io.File;
@@ -129,6 +128,82 @@ public class PrefManager {
     }
     
 
+    public boolean getParallelParsing() {
+        return(toolPrefs.getBoolean("parallelParsing", true));
+    }
+
+    public void setParallelParsing(boolean value) {
+        toolPrefs.putBoolean("parallelParsing", value);
+    }
+
+    /**
+     * minimum size in kbytes of a logfile for parsing its dumps in parallel.
+     */
+    public long getParallelParsingMinSize() {
+        return(toolPrefs.getInt("parallelParsingMinSize", 4096));
+    }
+
+    public void setParallelParsingMinSize(int size) {
+        toolPrefs.putInt("parallelParsingMinSize", size);
+    }
+
+    /**
+     * store an index of the dumps of logfiles parsed in parallel, to not scan them again on reopen.
+     */
+    public boolean getDumpIndex() {
+        return(toolPrefs.getBoolean("dumpIndex", true));
+    }
+
+    public void setDumpIndex(boolean value) {
+        toolPrefs.putBoolean("dumpIndex", value);
+    }
+
+    /**
+     * only read the dump boundaries of logfiles parsed in parallel and parse the dumps when selected.
+     */
+    public boolean getLazyDumpLoading() {
+        return(toolPrefs.getBoolean("lazyDumpLoading", false));
+    }
+
+    public void setLazyDumpLoading(boolean value) {
+        toolPrefs.putBoolean("lazyDumpLoading", value);
+    }
+
+    /**
+     * ignore line numbers, class loaders and module versions of the frames when clustering stacks.
+     */
+    public boolean getClusterIgnoreVersions() {
+        return(toolPrefs.getBoolean("clusterIgnoreVersions", true));
+    }
+
+    public void setClusterIgnoreVersions(boolean value) {
+        toolPrefs.putBoolean("clusterIgnoreVersions", value);
+    }
+
+    /**
+     * directory the dump indexes of logfiles are stored in.
+     */
+    public File getDumpIndexDirectory() {
+        return(new File(toolPrefs.get("dumpIndexDirectory", System.getProperty("user.home") + File.separator
+                + ".tda" + File.separator + "index")));
+    }
+
+    public void setDumpIndexDirectory(File directory) {
+        toolPrefs.put("dumpIndexDirectory", directory.getAbsolutePath());
+    }
+
+    /**
+     * virtual threads are grouped by their stack if a dump contains more virtual
+     * threads than this, 0 disables grouping.
+     */
+    public int getVirtualThreadGroupThreshold() {
+        return(toolPrefs.getInt("virtualThreadGroupThreshold", 1000));
+    }
+
+    public void setVirtualThreadGroupThreshold(int threshold) {
+        toolPrefs.putInt("virtualThreadGroupThreshold", threshold);
+    }
+
     public int getStreamResetBuffer() {
         return(toolPrefs.getInt("streamResetBuffer", 16384));
     }
@@ -370,7 +445,6 @@ public class PrefManager {
                 String[] sCategories = categoryString.split(PARAM_DELIM);
                 categories.ensureCapacity(sCategories.length);
                 try {
-                    FilterChecker fc = FilterChecker.getFilterChecker();
                     for (int i = 0; i < sCategories.length; i++) {
                         String[] catData = sCategories[i].split(FILTER_SEP);
                         CustomCategory newCat = new CustomCategory(catData[0]);
@@ -0,0 +1,155 @@
+/*
+ * StackRenderer.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.utils;
+
+import de.grimmfrost.tda.TDA;
+import de.grimmfrost.tda.model.ThreadStack;
+import de.grimmfrost.tda.parser.LineClassifier;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Renders the stack of a thread into the html displayed in the content
+ * pane. The parsers only keep the plain stack, the markup is generated
+ * when a thread is displayed. The last rendered stacks are kept in a small
+ * lru cache, as users usually switch between a few threads.
+ *
+ * @author irockel
+ */
+public final class StackRenderer {
+
+    /**
+     * note added to the raw stack of a carrier thread which seems to be stuck.
+     */
+    public static final String STUCK_CARRIER_NOTE = "Note: carrier thread seems to be stuck in application code.";
+
+    private static final int CACHE_SIZE = 64;
+
+    private static final Map<ThreadStack, String> cache = new LinkedHashMap<ThreadStack, String>(CACHE_SIZE, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<ThreadStack, String> eldest) {
+            return (size() > CACHE_SIZE);
+        }
+    };
+
+    private static String cachedFontSize;
+
+    private StackRenderer() {
+    }
+
+    /**
+     * get the html for the passed stack, uses the cache.
+     * @param stack the stack of the thread.
+     * @return the html content for display.
+     */
+    public static String render(ThreadStack stack) {
+        String fontSize = TDA.getFontSizeModifier(-1);
+        synchronized (cache) {
+            if (!fontSize.equals(cachedFontSize)) {
+                cache.clear();
+                cachedFontSize = fontSize;
+            }
+            String html = cache.get(stack);
+            if (html == null) {
+                html = "<body bgcolor=\"ffffff\"><pre><font size=" + fontSize + ">" + renderLines(stack.toString());
+                cache.put(stack, html);
+            }
+            return (html);
+        }
+    }
+
+    /**
+     * render the lines of the passed raw stack without surrounding html, used for
+     * embedding stacks of several threads into one page.
+     * @param stack the raw stack text.
+     * @return the stack lines with markup.
+     */
+    public static String renderLines(String stack) {
+        StringBuilder html = new StringBuilder(stack.length() + (stack.length() >> 2));
+        boolean concurrentSyncsFlag = false;
+        int pos = 0;
+        int length = stack.length();
+        while (pos < length) {
+            int end = stack.indexOf('\n', pos);
+            if (end < 0) {
+                end = length;
+            }
+            String line = stack.substring(pos, end);
+            if (pos == 0) {
+                // the title line
+                html.append(line);
+            } else {
+                switch (LineClassifier.classify(line)) {
+                    case LineClassifier.LOCKED_SYNCHRONIZERS:
+                        concurrentSyncsFlag = true;
+                        html.append(line);
+                        break;
+                    case LineClassifier.WAITING_ON:
+                    case LineClassifier.PARKING:
+                    case LineClassifier.WAITING_TO_LOCK:
+                    case LineClassifier.LOCKED:
+                        html.append(linkifyMonitor(line));
+                        break;
+                    case LineClassifier.CARRYING_VIRTUAL_THREAD:
+                        html.append("<font color=\"#0000ff\"><b>").append(line).append("</b></font>");
+                        break;
+                    case LineClassifier.ANNOTATION:
+                        html.append(concurrentSyncsFlag ? linkifyMonitor(line) : line);
+                        break;
+                    default:
+                        if (line.equals(STUCK_CARRIER_NOTE)) {
+                            html.append("<font color=\"#ff0000\"><b>").append(line).append("</b></font>");
+                        } else {
+                            html.append(line);
+                        }
+                        break;
+                }
+            }
+            if (end < length) {
+                html.append('\n');
+            }
+            pos = end + 1;
+        }
+        return (html.toString());
+    }
+
+    /**
+     * add a monitor link for monitor navigation
+     * @param line containing monitor
+     */
+    public static String linkifyMonitor(String line) {
+        if (line != null && line.indexOf('<') >= 0) {
+            String begin = line.substring(0, line.indexOf('<'));
+            String monitor = line.substring(line.indexOf('<'), line.indexOf('>') + 1);
+            String end = line.substring(line.indexOf('>') + 1);
+            monitor = monitor.replaceAll("<", "<a href=\"monitor://" + monitor + "\">&lt;");
+            monitor = monitor.substring(0, monitor.length() - 1) + "&gt;</a>";
+            return (begin + monitor + end);
+        } else if (line != null && line.indexOf('@') >= 0) {
+            String begin = line.substring(0, line.indexOf('@') + 1);
+            String monitor = line.substring(line.indexOf('@'));
+            monitor = monitor.replaceAll("@", "@<a href=\"monitor://<" + monitor.substring(1) + ">\">");
+            monitor = monitor.substring(0, monitor.length() - 1) + "</a>";
+            return (begin + monitor);
+        } else {
+            return (line);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * StateSeriesChart.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.utils;
+
+import de.grimmfrost.tda.model.ThreadStateCounts;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import javax.swing.JComponent;
+import javax.swing.JFileChooser;
+import javax.swing.JMenuItem;
+import javax.swing.JOptionPane;
+import javax.swing.JPopupMenu;
+
+/**
+ * Line chart of the thread states of a series of dumps, one point per dump.
+ * The series can be exported as csv or json from the popup menu.
+ *
+ * @author irockel
+ */
+public class StateSeriesChart extends JComponent {
+    private static final int[] SERIES = {ThreadStateCounts.RUNNABLE, ThreadStateCounts.BLOCKED, ThreadStateCounts.WAITING,
+            ThreadStateCounts.TIMED_WAITING, ThreadStateCounts.VIRTUAL_THREADS, ThreadStateCounts.MONITORS_WITHOUT_OWNER,
+            ThreadStateCounts.DEADLOCKS};
+    private static final Color[] COLORS = {new Color(0x28a745), new Color(0xdc3545), new Color(0xffc107),
+            new Color(0xfd7e14), new Color(0x6f42c1), new Color(0x17a2b8), Color.BLACK};
+    private static final int MARGIN = 40;
+    private static final int LEGEND_HEIGHT = 20;
+
+    private final List<ThreadStateCounts> series;
+
+    /**
+     * @param series the counts of the dumps in dump order.
+     */
+    public StateSeriesChart(List<ThreadStateCounts> series) {
+        this.series = series;
+        setBackground(Color.WHITE);
+        setOpaque(true);
+        setToolTipText("");
+
+        JPopupMenu popup = new JPopupMenu();
+        JMenuItem csv = new JMenuItem("Export as CSV...");
+        csv.addActionListener(e -> export("csv"));
+        popup.add(csv);
+        JMenuItem json = new JMenuItem("Export as JSON...");
+        json.addActionListener(e -> export("json"));
+        popup.add(json);
+        setComponentPopupMenu(popup);
+    }
+
+    public String getToolTipText(MouseEvent e) {
+        int dump = getDumpAt(e.getX());
+        if (dump < 0) {
+            return null;
+        }
+        ThreadStateCounts counts = series.get(dump);
+        StringBuilder text = new StringBuilder("<html><b>").append(counts.getDump()).append("</b>");
+        if (counts.getTime() != null) {
+            text.append("<br>").append(counts.getTime());
+        }
+        for (int i = 0; i < SERIES.length; i++) {
+            text.append("<br>").append(ThreadStateCounts.COUNT_NAMES[SERIES[i]].replace('_', ' ')).append(": ")
+                    .append(counts.getCount(SERIES[i]));
+        }
+        return text.append("</html>").toString();
+    }
+
+    public Dimension getPreferredSize() {
+        return new Dimension(400, 300);
+    }
+
+    protected void paintComponent(Graphics g) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, getWidth(), getHeight());
+        if (series.isEmpty()) {
+            return;
+        }
+        ((Graphics2D) g).setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        FontMetrics metrics = g.getFontMetrics();
+
+        // legend
+        int x = MARGIN;
+        for (int i = 0; i < SERIES.length; i++) {
+            String label = ThreadStateCounts.COUNT_NAMES[SERIES[i]].replace('_', ' ');
+            g.setColor(COLORS[i]);
+            g.fillRect(x, 6, 10, 10);
+            g.setColor(Color.DARK_GRAY);
+            g.drawString(label, x + 14, 15);
+            x += metrics.stringWidth(label) + 28;
+        }
+
+        int max = 1;
+        for (ThreadStateCounts counts : series) {
+            for (int index : SERIES) {
+                max = Math.max(max, counts.getCount(index));
+            }
+        }
+        int top = LEGEND_HEIGHT + 10;
+        int bottom = getHeight() - MARGIN;
+        int left = MARGIN;
+        int right = getWidth() - MARGIN / 2;
+        if (bottom <= top || right <= left) {
+            return;
+        }
+
+        // axes with the maximum and the names of the first and the last dump
+        g.setColor(Color.LIGHT_GRAY);
+        g.drawLine(left, top, left, bottom);
+        g.drawLine(left, bottom, right, bottom);
+        g.setColor(Color.DARK_GRAY);
+        g.drawString(String.valueOf(max), left - metrics.stringWidth(String.valueOf(max)) - 4, top + metrics.getAscent() / 2);
+        g.drawString("0", left - metrics.stringWidth("0") - 4, bottom + metrics.getAscent() / 2);
+        g.drawString(getLabel(0), left, bottom + metrics.getHeight() + 2);
+        if (series.size() > 1) {
+            String last = getLabel(series.size() - 1);
+            g.drawString(last, right - metrics.stringWidth(last), bottom + metrics.getHeight() + 2);
+        }
+
+        for (int i = 0; i < SERIES.length; i++) {
+            g.setColor(COLORS[i]);
+            int lastX = -1;
+            int lastY = -1;
+            for (int dump = 0; dump < series.size(); dump++) {
+                int pointX = getX(dump, left, right);
+                int pointY = bottom - (int) ((long) series.get(dump).getCount(SERIES[i]) * (bottom - top) / max);
+                if (lastX >= 0) {
+                    g.drawLine(lastX, lastY, pointX, pointY);
+                }
+                g.fillOval(pointX - 2, pointY - 2, 5, 5);
+                lastX = pointX;
+                lastY = pointY;
+            }
+        }
+    }
+
+    private String getLabel(int dump) {
+        ThreadStateCounts counts = series.get(dump);
+        return counts.getTime() != null ? counts.getTime() : counts.getDump();
+    }
+
+    private int getX(int dump, int left, int right) {
+        return series.size() > 1 ? left + (int) ((long) dump * (right - left) / (series.size() - 1)) : left + (right - left) / 2;
+    }
+
+    private int getDumpAt(int x) {
+        if (series.isEmpty()) {
+            return -1;
+        }
+        int left = MARGIN;
+        int right = getWidth() - MARGIN / 2;
+        int nearest = -1;
+        int distance = Integer.MAX_VALUE;
+        for (int dump = 0; dump < series.size(); dump++) {
+            int d = Math.abs(getX(dump, left, right) - x);
+            if (d < distance) {
+                distance = d;
+                nearest = dump;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * export the series into a file chosen by the user.
+     * @param format "csv" or "json".
+     */
+    private void export(String format) {
+        JFileChooser fc = new JFileChooser();
+        if (fc.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = fc.getSelectedFile();
+        if (file.getName().indexOf('.') < 0) {
+            file = new File(file.getAbsolutePath() + "." + format);
+        }
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            if ("json".equals(format)) {
+                ThreadStateCounts.writeJson(series, out);
+            } else {
+                ThreadStateCounts.writeCsv(series, out);
+            }
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Error exporting to " + file + ": " + ex.getMessage() + ".",
+                    "Export failed", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
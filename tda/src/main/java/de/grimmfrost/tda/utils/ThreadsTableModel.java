@@ -21,7 +21,12 @@
  */
 package de.grimmfrost.tda.utils;
 
+import de.grimmfrost.tda.model.ThreadHeader;
 import de.grimmfrost.tda.model.ThreadInfo;
+import de.grimmfrost.tda.model.BlockerInfo;
+import de.grimmfrost.tda.model.HotThreadInfo;
+import de.grimmfrost.tda.model.StackCluster;
+import de.grimmfrost.tda.model.VirtualThreadGroup;
 
 import java.util.Vector;
 import javax.swing.table.AbstractTableModel;
@@ -37,6 +42,12 @@ public class ThreadsTableModel extends AbstractTableModel {
     private Vector elements;
     
     private String[] columnNames = null;
+
+    private boolean blockers = false;
+
+    private boolean hotThreads = false;
+
+    private boolean clusters = false;
     
     /**
      * 
@@ -51,7 +62,19 @@ public class ThreadsTableModel extends AbstractTableModel {
                 elements.add(childNode.getUserObject());
                 ThreadInfo ti = (ThreadInfo) childNode.getUserObject();
                 if(columnNames == null) {
-                    if(ti.getTokens().length > 3) {
+                    if(ti instanceof VirtualThreadGroup) {
+                        columnNames = new String[] {"Stack", "Threads", "State"};
+                    } else if(ti instanceof BlockerInfo) {
+                        columnNames = ti.getTokens().length > 3 ? new String[] {"Name", "Blocked Threads", "Directly Blocked", "Dumps"}
+                                : new String[] {"Name", "Blocked Threads", "Directly Blocked"};
+                        blockers = true;
+                    } else if(ti instanceof HotThreadInfo) {
+                        columnNames = new String[] {"Name", "Interval", "CPU Time (ms)", "CPU Usage (%)"};
+                        hotThreads = true;
+                    } else if(ti instanceof StackCluster) {
+                        columnNames = new String[] {"Stack", "Threads", "Dumps", "States"};
+                        clusters = true;
+                    } else if(ti.getHeader() != null ? !ti.getHeader().isShortFormat() : ti.getTokens().length > 3) {
                         columnNames = new String[] {"Name", "Type", "Prio", "Thread-ID", "Native-ID", "State", "Address Range"};
                     } else {
                         columnNames = new String[] {"Name", "Thread-ID", "State"};
@@ -75,7 +98,24 @@ public class ThreadsTableModel extends AbstractTableModel {
 
     public Object getValueAt(int rowIndex, int columnIndex) {
         ThreadInfo ti = ((ThreadInfo) elements.elementAt(rowIndex));
+        if(hotThreads) {
+            HotThreadInfo hti = (HotThreadInfo) ti;
+            switch(columnIndex) {
+                case 0: return hti.getTokens()[0];
+                case 1: return hti.getInterval();
+                case 2: return Double.valueOf(hti.getCpuMillis());
+                default: return Double.valueOf(hti.getCpuUsage());
+            }
+        }
+        if(ti.getHeader() != null) {
+            return getHeaderValue(ti.getHeader(), columnIndex);
+        }
         String[] columns = ti.getTokens();
+        if(blockers) {
+            return columnIndex == 0 ? (Object) columns[0] : (Object) Long.valueOf(columns[columnIndex]);
+        } else if(clusters) {
+            return columnIndex == 1 || columnIndex == 2 ? (Object) Long.valueOf(columns[columnIndex]) : (Object) columns[columnIndex];
+        }
         //System.out.println("Info: " + ti.getInfo() + ", rowIndex"  + rowIndex + ", columnIndex: " + columnIndex);
         if(getColumnCount() > 3) {
             if (columnIndex > 1 && columnIndex < 5) {
@@ -111,6 +151,29 @@ public class ThreadsTableModel extends AbstractTableModel {
         }
     }
     
+    /**
+     * get the column value from the parsed thread header.
+     */
+    private Object getHeaderValue(ThreadHeader header, int columnIndex) {
+        if(getColumnCount() > 3) {
+            switch(columnIndex) {
+                case 0: return header.getName();
+                case 1: return header.isDaemon() ? "Daemon" : "Task";
+                case 2: return Long.valueOf(Math.max(header.getDisplayPrio(), 0));
+                case 3: return Long.valueOf(Math.max(header.getTid(), 0));
+                case 4: return Long.valueOf(Math.max(header.getNid(), 0));
+                case 5: return header.getState();
+                default: return header.getAddressRange();
+            }
+        } else {
+            switch(columnIndex) {
+                case 0: return header.getName();
+                case 1: return Long.valueOf(Math.max(header.getTid(), 0));
+                default: return header.getState();
+            }
+        }
+    }
+    
     /**
      * get the thread info object at the specified line
      * @param rowIndex the row index
@@ -124,7 +187,13 @@ public class ThreadsTableModel extends AbstractTableModel {
      * {@inheritDoc}
      */
     public Class getColumnClass(int columnIndex) {
-        if(columnIndex > 1 && columnIndex < 5) {
+        if(blockers) {
+            return columnIndex > 0 ? Long.class : String.class;
+        } else if(hotThreads) {
+            return columnIndex > 1 ? Double.class : String.class;
+        } else if(clusters) {
+            return columnIndex == 1 || columnIndex == 2 ? Long.class : String.class;
+        } else if(columnIndex > 1 && columnIndex < 5) {
             return Integer.class;
         } else {
             return String.class;
@@ -142,7 +211,8 @@ public class ThreadsTableModel extends AbstractTableModel {
         int i = startRow;
         boolean found = false;
         while(!found && (i < getRowCount())) {
-            found = getInfoObjectAtRow(i++).getTokens()[0].indexOf(name) >= 0;
+            ThreadInfo ti = getInfoObjectAtRow(i++);
+            found = (ti.getHeader() != null ? ti.getHeader().getName() : ti.getTokens()[0]).indexOf(name) >= 0;
         }
         
         return(found ? i-1 : -1);
@@ -0,0 +1,95 @@
+/*
+ * FilterChainTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.filter;
+
+import de.grimmfrost.tda.model.ThreadInfo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test compiling filters to a chain and checking threads with it.
+ */
+public class FilterChainTest {
+
+    private static final String WAITING_STACK = "\tat java.lang.Object.wait(Native Method)\n"
+            + "\t- waiting on <0x00000000f0a1b2c3> (a java.util.LinkedList)\n"
+            + "\tat java.lang.Object.wait(Object.java:502)\n";
+
+    private static final String LOCKING_STACK = "\tat java.net.SocketInputStream.read(SocketInputStream.java:129)\n"
+            + "\t- locked <0x000000071580c0b8> (a java.io.BufferedInputStream)\n"
+            + "\tat com.foo.Worker.run(Worker.java:42)\n";
+
+    @Test
+    public void testOrderAndResults() {
+        List<Filter> filters = new ArrayList<>();
+        filters.add(new Filter("stack", "java\\.net\\.", Filter.HAS_IN_STACK_RULE, true, false, true));
+        filters.add(new Filter("title", "worker", Filter.HAS_IN_TITLE_RULE, true, false, true));
+        filters.add(new Filter("locked", "<0x0+71580c0b8>.*", Filter.LOCKING_RULE, true, false, true));
+        filters.add(new Filter("idle", "", Filter.SLEEPING_RULE, true, true, true));
+        filters.add(new Filter("length", "1", Filter.STACK_IS_LONGER_THAN_RULE, true, false, true));
+        filters.add(new Filter("disabled", "nothing", Filter.HAS_IN_TITLE_RULE, true, false, false));
+
+        FilterChain chain = FilterChain.compile(filters, false);
+        assertEquals(5, chain.size());
+        assertArrayEquals(new int[] {Filter.STACK_IS_LONGER_THAN_RULE, Filter.SLEEPING_RULE, Filter.HAS_IN_TITLE_RULE,
+                Filter.LOCKING_RULE, Filter.HAS_IN_STACK_RULE}, chain.getRules());
+        assertEquals(6, FilterChain.compile(filters, true).size());
+
+        List<ThreadInfo> threads = Arrays.asList(
+                new ThreadInfo("\"worker-1\" runnable", null, LOCKING_STACK, 5, null),
+                new ThreadInfo("\"worker-2\" in Object.wait()", null, WAITING_STACK, 5, null),
+                new ThreadInfo("\"reader\" runnable", null, LOCKING_STACK, 5, null),
+                new ThreadInfo("\"worker-3\" runnable", null, LOCKING_STACK.replace("71580c0b8", "71580c0b9"), 5, null),
+                new ThreadInfo("\"worker-4\" runnable", null, "", 2, null));
+        for (ThreadInfo ti : threads) {
+            boolean expected = true;
+            for (Filter filter : filters) {
+                expected &= filter.matches(ti);
+            }
+            assertEquals(expected, chain.check(ti), ti.getName());
+        }
+        assertTrue(chain.check(threads.get(0)));
+        assertFalse(chain.check(threads.get(1)));
+    }
+
+    @Test
+    public void testSnapshot() {
+        Filter filter = new Filter("title", "worker", Filter.HAS_IN_TITLE_RULE, true, false, true);
+        FilterChain chain = FilterChain.compile(Arrays.asList(filter), false);
+        ThreadInfo reader = new ThreadInfo("\"reader\" runnable", null, LOCKING_STACK, 5, null);
+        assertFalse(chain.check(reader));
+
+        // changing the filter doesn't change the compiled chain.
+        filter.setFilterExpression("reader");
+        filter.setEnabled(false);
+        assertFalse(chain.check(reader));
+        assertTrue(FilterChain.compile(null, false).check(reader));
+
+        FilterChecker checker = new FilterChecker(null);
+        checker.addToFilters(new Filter("waiting", "<0x0+f0a1b2c3>.*", Filter.WAITING_ON_RULE, false, false, true));
+        assertFalse(checker.check(reader));
+        assertTrue(checker.check(new ThreadInfo("\"worker-2\" in Object.wait()", null, WAITING_STACK, 5, null)));
+    }
+}
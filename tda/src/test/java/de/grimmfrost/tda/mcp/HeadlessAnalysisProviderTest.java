@@ -1,14 +1,23 @@
 package de.grimmfrost.tda.mcp;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.*;
 import java.util.*;
 import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import javax.swing.tree.DefaultMutableTreeNode;
 import de.grimmfrost.tda.*;
+import de.grimmfrost.tda.model.CallTree;
 
 public class HeadlessAnalysisProviderTest {
 
+    @TempDir
+    Path tempDir;
+
     @Test
     public void testDeadlockDetection() throws Exception {
         HeadlessAnalysisProvider provider = new HeadlessAnalysisProvider();
@@ -98,6 +107,101 @@ public class HeadlessAnalysisProviderTest {
         assertTrue(foundSpecific, "Should find specific native method with library info");
     }
 
+    @Test
+    public void testThreadTimeline() throws Exception {
+        HeadlessAnalysisProvider provider = new HeadlessAnalysisProvider();
+        provider.parseLogFile("src/test/resources/jdk11_long_running.log");
+
+        List<Map<String, Object>> timeline = provider.getThreadTimeline("C2 CompilerThread0");
+        assertEquals(2, timeline.size());
+        assertEquals("tid=0x7f4b3883d000 nid=0x10854", timeline.get(0).get("thread"));
+        assertEquals(55652.75, (Double) timeline.get(0).get("cpuMillis"), 0.001);
+        assertEquals(55652.76, (Double) timeline.get(1).get("cpuMillis"), 0.001);
+        assertEquals(Boolean.FALSE, timeline.get(1).get("stackChanged"));
+        assertNotEquals(timeline.get(0).get("dump"), timeline.get(1).get("dump"));
+    }
+
+    @Test
+    public void testHotThreads() throws Exception {
+        HeadlessAnalysisProvider provider = new HeadlessAnalysisProvider();
+        provider.parseLogFile("src/test/resources/jdk11_long_running.log");
+
+        List<Map<String, Object>> hotThreads = provider.findHotThreads();
+        assertEquals(2, hotThreads.size());
+        assertTrue(hotThreads.get(0).get("thread").toString().contains("VM Periodic Task Thread"));
+        assertEquals(1.0, (Double) hotThreads.get(0).get("cpuMillis"), 0.001);
+        assertEquals(2.31, (Double) hotThreads.get(0).get("elapsedSeconds"), 0.001);
+        assertEquals(100.0 / 2310, (Double) hotThreads.get(0).get("cpuUsagePercent"), 0.0001);
+        assertTrue(hotThreads.get(1).get("thread").toString().contains("C2 CompilerThread0"));
+    }
+
+    @Test
+    public void testHotFrames() throws Exception {
+        HeadlessAnalysisProvider provider = new HeadlessAnalysisProvider();
+        provider.parseLogFile("src/test/resources/java21dump.log");
+
+        List<Map<String, Object>> hotFrames = provider.getHotFrames("RUNNABLE");
+        assertFalse(hotFrames.isEmpty());
+        int previous = Integer.MAX_VALUE;
+        for (Map<String, Object> frame : hotFrames) {
+            int selfSamples = (Integer) frame.get("selfSamples");
+            assertTrue(selfSamples <= previous);
+            assertTrue(selfSamples <= (Integer) frame.get("samples"));
+            previous = selfSamples;
+        }
+        assertTrue(provider.getHotFrames(null).get(0).get("selfSamples") instanceof Integer);
+    }
+
+    @Test
+    public void testExportFoldedStacks() throws Exception {
+        HeadlessAnalysisProvider provider = new HeadlessAnalysisProvider();
+        provider.parseLogFile("src/test/resources/java21dump.log");
+
+        StringWriter out = new StringWriter();
+        CallTree tree = provider.exportFoldedStacks(out, null);
+        int samples = 0;
+        for (String line : out.toString().split("\n")) {
+            assertFalse(line.contains("\tat "));
+            samples += Integer.parseInt(line.substring(line.lastIndexOf(' ') + 1));
+        }
+        // threads without frames aren't exported.
+        assertEquals(tree.getThreadCount() - tree.getExclusiveCount(CallTree.ROOT), samples);
+    }
+
+    @Test
+    public void testSearchThreads() throws Exception {
+        HeadlessAnalysisProvider provider = new HeadlessAnalysisProvider();
+        provider.parseLogFile("src/test/resources/java21dump.log");
+
+        List<Map<String, Object>> results = provider.searchThreads("ReferenceQueue.remove");
+        assertEquals(1, results.size());
+        assertEquals("Finalizer", results.get(0).get("threadName"));
+        assertEquals("WAITING", results.get(0).get("state"));
+        assertEquals(0, results.get(0).get("dumpIndex"));
+        assertTrue(provider.searchThreads("NoSuchClass").isEmpty());
+    }
+
+    @Test
+    public void testStateSeries() throws Exception {
+        HeadlessAnalysisProvider provider = new HeadlessAnalysisProvider();
+        provider.parseLogFile("src/test/resources/java21dump.log");
+
+        List<Map<String, Object>> series = provider.getStateSeries();
+        assertEquals(1, series.size());
+        Map<String, Object> counts = series.get(0);
+        assertEquals("2024-08-20 14:25:30", counts.get("time"));
+        assertEquals(6, counts.get("runnable"));
+        assertEquals(5, counts.get("waiting"));
+        assertEquals(5, counts.get("virtual_threads"));
+
+        File file = tempDir.resolve("states.json").toFile();
+        Map<String, Object> result = provider.exportStateSeries(file.getAbsolutePath(), null);
+        assertEquals("json", result.get("format"));
+        String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertTrue(json.trim().startsWith("["));
+        assertTrue(json.contains("\"monitors_without_owner\": 3"));
+    }
+
     @Test
     public void testZombieThreadAnalysis() throws Exception {
         HeadlessAnalysisProvider provider = new HeadlessAnalysisProvider();
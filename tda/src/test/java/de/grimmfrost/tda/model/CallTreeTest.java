@@ -0,0 +1,156 @@
+/*
+ * CallTreeTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.model;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test merging stacks into a call tree.
+ */
+public class CallTreeTest {
+
+    @Test
+    public void testCounts() {
+        FrameDictionary dictionary = new FrameDictionary();
+        CallTree tree = new CallTree(dictionary, null);
+        assertTrue(tree.addThread(createThread(dictionary, "RUNNABLE", "Worker.compute", "Worker.run")));
+        assertTrue(tree.addThread(createThread(dictionary, "RUNNABLE", "Worker.compute", "Worker.run")));
+        assertTrue(tree.addThread(createThread(dictionary, "WAITING", "Worker.take", "Worker.run")));
+        assertTrue(tree.addThread(createThread(dictionary, "RUNNABLE", "Worker.run")));
+
+        assertEquals(4, tree.getThreadCount());
+        assertEquals(4, tree.getInclusiveCount(CallTree.ROOT));
+        int[] roots = tree.getChildren(CallTree.ROOT);
+        assertEquals(1, roots.length);
+        assertEquals("java.lang.Thread.run(Thread.java:1583)", tree.getFrame(roots[0]));
+        int[] run = tree.getChildren(roots[0]);
+        assertEquals(1, run.length);
+        assertEquals(4, tree.getInclusiveCount(run[0]));
+        assertEquals(1, tree.getExclusiveCount(run[0]));
+        int[] callees = tree.getChildren(run[0]);
+        assertEquals(2, callees.length);
+        assertEquals("com.example.Worker.compute(Worker.java:1)", tree.getFrame(callees[0]));
+        assertEquals(2, tree.getInclusiveCount(callees[0]));
+        assertEquals(2, tree.getExclusiveCount(callees[0]));
+        assertEquals(3, tree.getDepth(callees[0]));
+        assertEquals(3, tree.getMaxDepth());
+        assertEquals(5, tree.size());
+    }
+
+    @Test
+    public void testGrowingCategory() {
+        FrameDictionary dictionary = new FrameDictionary();
+        CallTreeCategory category = new CallTreeCategory("Call Tree", 0, new CallTree(dictionary, null));
+        assertEquals(0, category.getNodeCount());
+
+        // threads are added while the dumps are parsed.
+        category.getTree().addThread(createThread(dictionary, "RUNNABLE", "Worker.compute", "Worker.run"));
+        category.refresh();
+        assertEquals(1, category.getNodeCount());
+        assertEquals(1, category.getTree().getThreadCount());
+        assertTrue(category.getInfo().contains("1 samples"));
+    }
+
+    @Test
+    public void testStateFilter() {
+        FrameDictionary dictionary = new FrameDictionary();
+        CallTree tree = new CallTree(dictionary, "RUNNABLE");
+        assertTrue(tree.addThread(createThread(dictionary, "RUNNABLE", "Worker.compute", "Worker.run")));
+        assertFalse(tree.addThread(createThread(dictionary, "WAITING", "Worker.take", "Worker.run")));
+        assertEquals(1, tree.getThreadCount());
+        assertEquals(4, tree.size());
+
+        // stacks of another dictionary (e.g. of a session) are merged by their text.
+        FrameDictionary other = new FrameDictionary();
+        assertTrue(tree.addThread(createThread(other, "RUNNABLE", "Worker.compute", "Worker.run")));
+        assertEquals(4, tree.size());
+        assertEquals(2, tree.getInclusiveCount(tree.getChildren(CallTree.ROOT)[0]));
+    }
+
+    @Test
+    public void testCallPath() {
+        FrameDictionary dictionary = new FrameDictionary();
+        CallTree tree = new CallTree(dictionary, null);
+        tree.addThread(createThread(dictionary, "RUNNABLE", "Worker.compute", "Worker.run"));
+        int node = CallTree.ROOT;
+        while (tree.getChildren(node).length > 0) {
+            node = tree.getChildren(node)[0];
+        }
+        CallTreeNode leaf = new CallTreeNode(tree, node);
+        assertEquals(100.0, leaf.getShare(), 0.001);
+        assertEquals("100.0% com.example.Worker.compute(Worker.java:1) (1 samples, 1 self)", leaf.getName());
+        assertEquals("Call path\n\tat com.example.Worker.compute(Worker.java:1)\n\tat com.example.Worker.run(Worker.java:1)\n"
+                + "\tat java.lang.Thread.run(Thread.java:1583)\n", leaf.getStackText());
+    }
+
+    @Test
+    public void testWriteFolded() throws IOException {
+        FrameDictionary dictionary = new FrameDictionary();
+        CallTree tree = new CallTree(dictionary, null);
+        tree.addThread(createThread(dictionary, "RUNNABLE", "Worker.compute", "Worker.run"));
+        tree.addThread(createThread(dictionary, "RUNNABLE", "Worker.compute", "Worker.run"));
+        tree.addThread(createThread(dictionary, "WAITING", "Worker.take", "Worker.run"));
+        tree.addThread(createThread(dictionary, "RUNNABLE", "Worker.run"));
+
+        StringWriter out = new StringWriter();
+        assertEquals(3, tree.writeFolded(out));
+        List<String> lines = Arrays.asList(out.toString().split("\n"));
+        assertEquals(3, lines.size());
+        String run = "java.lang.Thread.run(Thread.java:1583);com.example.Worker.run(Worker.java:1)";
+        assertTrue(lines.contains(run + " 1"));
+        assertTrue(lines.contains(run + ";com.example.Worker.compute(Worker.java:1) 2"));
+        assertTrue(lines.contains(run + ";com.example.Worker.take(Worker.java:1) 1"));
+    }
+
+    @Test
+    public void testWriteFoldedDeepTree() throws IOException {
+        FrameDictionary dictionary = new FrameDictionary();
+        CallTree tree = new CallTree(dictionary, null);
+        String[] methods = new String[5000];
+        for (int i = 0; i < methods.length; i++) {
+            methods[i] = "Recursion.call" + i;
+        }
+        tree.addThread(createThread(dictionary, "RUNNABLE", methods));
+        StringWriter out = new StringWriter();
+        assertEquals(1, tree.writeFolded(out));
+        assertTrue(out.toString().startsWith("java.lang.Thread.run(Thread.java:1583);com.example.Recursion.call4999(Worker.java:1);"));
+        assertTrue(out.toString().endsWith("com.example.Recursion.call0(Worker.java:1) 1\n"));
+    }
+
+    private ThreadInfo createThread(FrameDictionary dictionary, String state, String... methods) {
+        ThreadStack.Builder stack = new ThreadStack.Builder(dictionary, "\"worker\" runnable", methods.length + 2);
+        stack.addFrame("   java.lang.Thread.State: " + state);
+        for (String method : methods) {
+            stack.addFrame("\tat com.example." + method + "(Worker.java:1)");
+        }
+        stack.addAnnotation("\t- locked <0x1> (a java.lang.Object)");
+        stack.addFrame("\tat java.lang.Thread.run(Thread.java:1583)");
+        ThreadInfo thread = new ThreadInfo("\"worker\" runnable", null, null, methods.length + 2, null);
+        thread.setStack(stack.build());
+        return thread;
+    }
+}
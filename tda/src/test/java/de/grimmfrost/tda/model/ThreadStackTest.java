@@ -0,0 +1,96 @@
+/*
+ * ThreadStackTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test the compact thread stacks and the frame dictionary.
+ */
+public class ThreadStackTest {
+
+    private static final String TITLE = "\"worker-1\" prio=5 tid=0x1 nid=0x2 waiting for monitor entry";
+
+    @Test
+    public void testFramesAreInterned() {
+        FrameDictionary dictionary = new FrameDictionary();
+        ThreadStack first = createStack(dictionary, "<0x1>");
+        ThreadStack second = createStack(dictionary, "<0x1>");
+
+        assertEquals(3, dictionary.size());
+        assertSame(first.getLine(0), second.getLine(0));
+        assertEquals(first.getLineId(0), second.getLineId(0));
+        assertTrue(first.getLineId(1) < 0);
+        assertEquals("\t- waiting to lock <0x1> (a java.lang.Object)", first.getLine(1));
+        assertEquals(TITLE + "\n\tat com.example.Worker.run(Worker.java:42)\n\t- waiting to lock <0x1> (a java.lang.Object)\n"
+                + "\tat java.lang.Thread.run(Thread.java:750)\n\t- None\n", first.toString());
+    }
+
+    @Test
+    public void testEquals() {
+        FrameDictionary dictionary = new FrameDictionary();
+        ThreadStack stack = createStack(dictionary, "<0x1>");
+
+        assertEquals(stack, createStack(dictionary, "<0x1>"));
+        assertNotEquals(stack, createStack(dictionary, "<0x2>"));
+
+        // stacks of different dictionaries are compared by their text.
+        ThreadStack other = createStack(new FrameDictionary(), "<0x1>");
+        assertEquals(stack, other);
+        assertEquals(stack.hashCode(), other.hashCode());
+        assertEquals(stack.toString().hashCode(), stack.hashCode());
+    }
+
+    @Test
+    public void testFingerprint() throws Exception {
+        FrameDictionary dictionary = new FrameDictionary();
+        ThreadStack stack = createStack(dictionary, "<0x1>");
+
+        assertEquals(stack.getFingerprint(), createStack(new FrameDictionary(), "<0x1>").getFingerprint());
+        assertNotEquals(stack.getFingerprint(), createStack(dictionary, "<0x2>").getFingerprint());
+
+        // the fingerprint of a deserialized stack is computed from its lines.
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(stack);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+            ThreadStack restored = (ThreadStack) ois.readObject();
+            assertEquals(stack.getFingerprint(), restored.getFingerprint());
+            assertEquals(stack, restored);
+        }
+    }
+
+    private ThreadStack createStack(FrameDictionary dictionary, String monitor) {
+        return new ThreadStack.Builder(dictionary, TITLE, 4)
+                .addFrame("\tat com.example.Worker.run(Worker.java:42)")
+                .addAnnotation("\t- waiting to lock " + monitor + " (a java.lang.Object)")
+                .addFrame("\tat java.lang.Thread.run(Thread.java:750)")
+                .addFrame("\t- None")
+                .build();
+    }
+}
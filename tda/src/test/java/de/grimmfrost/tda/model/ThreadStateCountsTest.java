@@ -0,0 +1,105 @@
+/*
+ * ThreadStateCountsTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.model;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import de.grimmfrost.tda.parser.DumpParser;
+import de.grimmfrost.tda.parser.DumpParserFactory;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import javax.swing.tree.DefaultMutableTreeNode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test counting the thread states of dumps and exporting them.
+ */
+public class ThreadStateCountsTest {
+
+    @Test
+    public void testCount() throws IOException {
+        ThreadDumpInfo tdi;
+        try (FileInputStream fis = new FileInputStream("src/test/resources/java21dump.log")) {
+            DumpParser instance = DumpParserFactory.get().getDumpParserForLogfile(fis, false, 0);
+            tdi = (ThreadDumpInfo) ((DefaultMutableTreeNode) instance.parseNext()).getUserObject();
+            instance.close();
+        }
+        ThreadStateCounts counts = tdi.getStateCounts();
+        assertSame(counts, tdi.getStateCounts());
+        assertEquals("Dump No. 0", counts.getDump());
+        assertEquals("2024-08-20 14:25:30", counts.getTime());
+        assertEquals(LocalDateTime.of(2024, 8, 20, 14, 25, 30).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                counts.getTimeMillis());
+        assertEquals(18, counts.getCount(ThreadStateCounts.THREADS));
+        assertEquals(6, counts.getCount(ThreadStateCounts.RUNNABLE));
+        assertEquals(0, counts.getCount(ThreadStateCounts.BLOCKED));
+        assertEquals(5, counts.getCount(ThreadStateCounts.WAITING));
+        assertEquals(1, counts.getCount(ThreadStateCounts.TIMED_WAITING));
+        // threads without a state line, e.g. the gc threads.
+        assertEquals(6, counts.getCount(ThreadStateCounts.OTHER));
+        assertEquals(5, counts.getCount(ThreadStateCounts.VIRTUAL_THREADS));
+        assertEquals(3, counts.getCount(ThreadStateCounts.MONITORS_WITHOUT_OWNER));
+        assertEquals(0, counts.getCount(ThreadStateCounts.DEADLOCKS));
+    }
+
+    @Test
+    public void testWriteCsv() throws IOException {
+        StringWriter out = new StringWriter();
+        ThreadStateCounts.writeCsv(createSeries(), out);
+        String[] lines = out.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("dump,time,time_millis,threads,runnable,blocked,waiting,timed_waiting,other,virtual_threads,"
+                + "monitors_without_owner,deadlocks", lines[0]);
+        assertTrue(lines[1].startsWith("Dump No. 1,Wed Jan 31 12:34:56 UTC 2024,1706704496000,10,4,"));
+        assertEquals("\"Dump, \"\"second\"\"\",,,12,2,6,2,1,1,0,0,1", lines[2]);
+    }
+
+    @Test
+    public void testWriteJson() throws IOException {
+        StringWriter out = new StringWriter();
+        ThreadStateCounts.writeJson(createSeries(), out);
+        JsonArray series = JsonParser.parseString(out.toString()).getAsJsonArray();
+        assertEquals(2, series.size());
+        JsonObject first = series.get(0).getAsJsonObject();
+        assertEquals("Dump No. 1", first.get("dump").getAsString());
+        assertEquals(1706704496000L, first.get("time_millis").getAsLong());
+        assertEquals(4, first.get("runnable").getAsInt());
+        assertEquals(3, first.get("virtual_threads").getAsInt());
+        JsonObject second = series.get(1).getAsJsonObject();
+        assertTrue(second.get("time").isJsonNull());
+        assertTrue(second.get("time_millis").isJsonNull());
+        assertEquals(6, second.get("blocked").getAsInt());
+        assertEquals(1, second.get("deadlocks").getAsInt());
+    }
+
+    private List<ThreadStateCounts> createSeries() {
+        return Arrays.asList(new ThreadStateCounts("Dump No. 1", "Wed Jan 31 12:34:56 UTC 2024", new int[] {10, 4, 1, 3, 2, 0, 3, 1, 0}),
+                new ThreadStateCounts("Dump, \"second\"", null, new int[] {12, 2, 6, 2, 1, 1, 0, 0, 1}));
+    }
+}
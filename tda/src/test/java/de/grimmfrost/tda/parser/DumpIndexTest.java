@@ -0,0 +1,131 @@
+/*
+ * DumpIndexTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.parser;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.tree.DefaultMutableTreeNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test storing and reusing the index of the dumps of a log file.
+ */
+public class DumpIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testReopenWithIndex() throws IOException {
+        File logFile = tempDir.resolve("test.log").toFile();
+        Files.copy(new File("src/test/resources/test.log").toPath(), logFile.toPath());
+        File indexFile = DumpIndex.getIndexFile(logFile, tempDir.resolve("index").toFile());
+
+        ParallelSunJDKParser parser = new ParallelSunJDKParser(logFile, StandardCharsets.UTF_8, false, 0);
+        parser.setIndexFile(indexFile);
+        List<String> dumps = parseAll(parser);
+        assertEquals(3, dumps.size());
+        assertTrue(indexFile.isFile());
+
+        DumpIndex index = DumpIndex.load(logFile, indexFile);
+        assertNotNull(index);
+        assertEquals(3, index.getDumpCount());
+        assertEquals(StandardCharsets.UTF_8, index.getCharset());
+        DumpIndex.DumpSummary summary = index.getSegments().get(0).getDumps().get(0);
+        assertTrue(summary.getLogLine() > 0);
+        assertTrue(summary.getThreadCount() > 0);
+
+        assertEquals(dumps, parseAll(new ParallelSunJDKParser(logFile, index, 0)));
+
+        // lazy dumps show the thread count of the index without being parsed.
+        parser = new ParallelSunJDKParser(logFile, index, 0);
+        parser.setLazy(true);
+        try {
+            LazyDumpNode dump = (LazyDumpNode) parser.parseNext();
+            assertFalse(dump.isLoaded());
+            assertEquals(summary.getThreadCount(), dump.getThreadCount());
+            assertTrue(dump.toString().endsWith("(" + summary.getThreadCount() + " threads)"));
+        } finally {
+            parser.close();
+        }
+    }
+
+    @Test
+    public void testLazyWithIndex() throws IOException {
+        File logFile = tempDir.resolve("test.log").toFile();
+        Files.copy(new File("src/test/resources/test.log").toPath(), logFile.toPath());
+        File indexFile = DumpIndex.getIndexFile(logFile, tempDir.resolve("index").toFile());
+
+        ParallelSunJDKParser parser = new ParallelSunJDKParser(logFile, StandardCharsets.UTF_8, false, 0);
+        parser.setIndexFile(indexFile);
+        parser.setLazy(true);
+        List<String> dumps = parseAll(parser);
+        assertEquals(3, dumps.size());
+        assertTrue(indexFile.isFile());
+
+        DumpIndex index = DumpIndex.load(logFile, indexFile);
+        assertNotNull(index);
+        assertEquals(3, index.getDumpCount());
+        assertEquals(DumpIndex.UNKNOWN_THREAD_COUNT, index.getSegments().get(0).getDumps().get(0).getThreadCount());
+
+        parser = new ParallelSunJDKParser(logFile, index, 0);
+        parser.setLazy(true);
+        assertEquals(dumps, parseAll(parser));
+    }
+
+    @Test
+    public void testChangedLogFile() throws IOException {
+        File logFile = tempDir.resolve("test.log").toFile();
+        Files.copy(new File("src/test/resources/test.log").toPath(), logFile.toPath());
+        File indexFile = tempDir.resolve("test.idx").toFile();
+
+        DumpIndex index = new DumpIndex(logFile, StandardCharsets.UTF_8, false);
+        index.addSegment(0, logFile.length(), 0).addDump(3, null, 10);
+        index.save(indexFile);
+        assertNotNull(DumpIndex.load(logFile, indexFile));
+
+        try (FileWriter writer = new FileWriter(logFile, true)) {
+            writer.write("appended line\n");
+        }
+        assertNull(DumpIndex.load(logFile, indexFile));
+    }
+
+    private List<String> parseAll(DumpParser parser) throws IOException {
+        List<String> dumps = new ArrayList<>();
+        try {
+            while (parser.hasMoreDumps()) {
+                dumps.add(((DefaultMutableTreeNode) parser.parseNext()).getUserObject().toString());
+            }
+        } finally {
+            parser.close();
+        }
+        return (dumps);
+    }
+}
@@ -27,8 +27,6 @@ import java.io.FileNotFoundException;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
 import java.io.InputStream;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * test if the dump parser factory selects the right dump parser for the provided log files.
@@ -59,10 +57,9 @@ public class DumpParserFactoryTest {
     @Test
     public void testGetDumpParserForSunLogfile() throws FileNotFoundException {
         InputStream dumpFileStream = new FileInputStream("src/test/resources/test.log");
-        Map<String, Map<String, String>> threadStore = new HashMap<>();
         DumpParserFactory instance = DumpParserFactory.get();
         
-        DumpParser result = instance.getDumpParserForLogfile(dumpFileStream, threadStore, false, 0);
+        DumpParser result = instance.getDumpParserForLogfile(dumpFileStream, false, 0);
         assertNotNull(result);
 
         assertInstanceOf(SunJDKParser.class, result);
@@ -74,10 +71,9 @@ public class DumpParserFactoryTest {
     @Test
     public void testGetDumpParserForJSONLogfile() throws FileNotFoundException {
         InputStream dumpFileStream = new FileInputStream("src/test/resources/intellij_dump.json");
-        Map<String, Map<String, String>> threadStore = new HashMap<>();
         DumpParserFactory instance = DumpParserFactory.get();
 
-        DumpParser result = instance.getDumpParserForLogfile(dumpFileStream, threadStore, false, 0);
+        DumpParser result = instance.getDumpParserForLogfile(dumpFileStream, false, 0);
         assertNotNull(result);
 
         assertInstanceOf(JCmdJSONParser.class, result);
@@ -89,10 +85,9 @@ public class DumpParserFactoryTest {
     @Test
     public void testGetDumpParserForUTF16Logfile() throws FileNotFoundException {
         InputStream dumpFileStream = new FileInputStream("src/test/resources/java21dump_utf16.log");
-        Map<String, Map<String, String>> threadStore = new HashMap<>();
         DumpParserFactory instance = DumpParserFactory.get();
 
-        DumpParser result = instance.getDumpParserForLogfile(dumpFileStream, threadStore, false, 0);
+        DumpParser result = instance.getDumpParserForLogfile(dumpFileStream, false, 0);
         assertNotNull(result);
 
         assertInstanceOf(SunJDKParser.class, result);
@@ -0,0 +1,86 @@
+/*
+ * HistogramLineParserTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.parser;
+
+import de.grimmfrost.tda.utils.HistogramTableModel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test parsing of class histogram lines.
+ */
+public class HistogramLineParserTest {
+
+    @Test
+    public void testParseEntry() {
+        HistogramTableModel histogram = new HistogramTableModel();
+        assertTrue(HistogramLineParser.parseEntry("1:     15660     3695576  [C", histogram));
+        assertTrue(HistogramLineParser.parseEntry("2:     28591     3246576  <no name>", histogram));
+        assertTrue(HistogramLineParser.parseEntry("3:   1250     81768  [Ljava.lang.Object;", histogram));
+        assertTrue(HistogramLineParser.parseEntry("4:  3000000000  96000000000  [B (java.base@11.0.2)", histogram));
+
+        assertEquals(4, histogram.getRowCount());
+        assertEquals("[C", histogram.getClassName(0));
+        assertEquals(15660, histogram.getInstanceCount(0));
+        assertEquals(3695576, histogram.getByteCount(0));
+        assertEquals("<no name>", histogram.getClassName(1));
+        assertEquals("[Ljava.lang.Object", histogram.getClassName(2));
+        assertNull(histogram.getModule(2));
+        assertEquals("[B", histogram.getClassName(3));
+        assertEquals("java.base@11.0.2", histogram.getModule(3));
+        assertEquals(3000000000L, histogram.getValueAt(3, 1));
+        assertEquals(96000000000L, histogram.getValueAt(3, 2));
+        assertEquals("<html><body><b>byte[]</b> (java.base@11.0.2)</body></html>", histogram.getValueAt(3, 0));
+    }
+
+    @Test
+    public void testParseInvalidLines() {
+        HistogramTableModel histogram = new HistogramTableModel();
+        assertFalse(HistogramLineParser.parseEntry("", histogram));
+        assertFalse(HistogramLineParser.parseEntry("1:     15660", histogram));
+        assertFalse(HistogramLineParser.parseEntry("1:     15660     abc  [C", histogram));
+        assertEquals(0, histogram.getRowCount());
+
+        assertTrue(HistogramLineParser.parseTotal("Total   183155    16330872", histogram));
+        assertEquals(183155, histogram.getInstances());
+        assertEquals(16330872, histogram.getBytes());
+    }
+
+    @Test
+    public void testFilter() {
+        HistogramTableModel histogram = new HistogramTableModel();
+        for (int i = 0; i < 300; i++) {
+            HistogramLineParser.parseEntry((i + 1) + ": 1 2 com.example.Class" + i, histogram);
+        }
+        HistogramLineParser.parseEntry("301: 1 2 <symbolKlass>", histogram);
+        assertEquals(301, histogram.getRowCount());
+
+        histogram.setFilter("");
+        assertEquals(300, histogram.getRowCount());
+        histogram.setFilter("Class29");
+        assertEquals(11, histogram.getRowCount());
+        assertEquals("<html><body>com.example.<b>Class29</b></body></html>", histogram.getValueAt(0, 0));
+        histogram.setIgnoreCase(true);
+        histogram.setFilter("class29");
+        assertEquals(11, histogram.getRowCount());
+    }
+}
@@ -3,12 +3,13 @@ package de.grimmfrost.tda.parser;
 import de.grimmfrost.tda.model.Category;
 import de.grimmfrost.tda.model.ThreadDumpInfo;
 import de.grimmfrost.tda.model.ThreadInfo;
+import de.grimmfrost.tda.utils.DateMatcher;
 import org.junit.jupiter.api.Test;
 import javax.swing.tree.DefaultMutableTreeNode;
+import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.InputStream;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.StringReader;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class JCmdJSONParserTest {
@@ -16,8 +17,7 @@ public class JCmdJSONParserTest {
     @Test
     public void testJSONDumpParsing() throws Exception {
         InputStream dumpFileStream = new FileInputStream("src/test/resources/intellij_dump.json");
-        Map<String, Map<String, String>> threadStore = new HashMap<>();
-        DumpParser instance = DumpParserFactory.get().getDumpParserForLogfile(dumpFileStream, threadStore, false, 0);
+        DumpParser instance = DumpParserFactory.get().getDumpParserForLogfile(dumpFileStream, false, 0);
 
         assertInstanceOf(JCmdJSONParser.class, instance);
         
@@ -47,4 +47,73 @@ public class JCmdJSONParserTest {
         
         assertFalse(instance.hasMoreDumps());
     }
+
+    @Test
+    public void testParseSeveralContainers() {
+        String json = "{\"threadDump\": {\"threadContainers\": ["
+                + "{\"container\": \"<root>\", \"parent\": null, \"threads\": ["
+                + "{\"tid\": 1, \"name\": \"main\", \"extra\": {\"a\": [1, 2]}, \"stack\": [\"java.lang.Thread.sleep(Native Method)\"]}]},"
+                + "{\"container\": \"java.util.concurrent.ThreadPerTaskExecutor@1\", \"threads\": ["
+                + "{\"tid\": \"21\", \"name\": \"\", \"stack\": []},"
+                + "{\"tid\": \"22\", \"stack\": []}]}],"
+                + "\"time\": \"2026-01-25T15:46:04Z\"}}";
+        JCmdJSONParser instance = new JCmdJSONParser(new BufferedReader(new StringReader(json)), 0, new DateMatcher());
+
+        DefaultMutableTreeNode result = (DefaultMutableTreeNode) instance.parseNext();
+        assertNotNull(result);
+        ThreadDumpInfo tdi = (ThreadDumpInfo) result.getUserObject();
+        assertEquals("2026-01-25T15:46:04Z", tdi.getStartTime());
+
+        Category threadsCat = tdi.getThreads();
+        assertEquals(3, threadsCat.getNodeCount());
+        ThreadInfo main = (ThreadInfo) threadsCat.getNodeAt(0).getUserObject();
+        assertEquals("\"main\" tid=1", main.getName());
+        assertEquals("\"main\" tid=1\n   at java.lang.Thread.sleep(Native Method)\n", main.getStackText());
+        assertEquals("22", ((ThreadInfo) threadsCat.getNodeAt(2).getUserObject()).getTokens()[3]);
+        // unnamed threads are identified by their tid.
+        assertEquals(1, main.getHeader().getTid());
+        assertEquals(21, ((ThreadInfo) threadsCat.getNodeAt(1).getUserObject()).getHeader().getTid());
+        assertNotEquals(((ThreadInfo) threadsCat.getNodeAt(1).getUserObject()).getHeader().getIdentity(),
+                ((ThreadInfo) threadsCat.getNodeAt(2).getUserObject()).getHeader().getIdentity());
+        assertNull(instance.parseNext());
+    }
+
+    @Test
+    public void testKeepOrderOfFewVirtualThreads() {
+        String json = "{\"threadDump\": {\"threadContainers\": ["
+                + "{\"container\": \"<root>\", \"threads\": [{\"tid\": \"1\", \"name\": \"main\", \"stack\": []}]},"
+                + "{\"container\": \"java.util.concurrent.ThreadPerTaskExecutor@1\", \"threads\": ["
+                + "{\"tid\": \"21\", \"name\": \"\", \"stack\": []}]},"
+                + "{\"container\": \"<root>\", \"threads\": [{\"tid\": \"2\", \"name\": \"worker\", \"stack\": []}]}]}}";
+        JCmdJSONParser instance = new JCmdJSONParser(new BufferedReader(new StringReader(json)), 0, new DateMatcher());
+        instance.setVirtualThreadGroupThreshold(2);
+
+        ThreadDumpInfo tdi = (ThreadDumpInfo) ((DefaultMutableTreeNode) instance.parseNext()).getUserObject();
+        assertNull(tdi.getVirtualThreadGroups());
+        Category threadsCat = tdi.getThreads();
+        assertEquals(3, threadsCat.getNodeCount());
+        assertEquals("\"main\" tid=1", ((ThreadInfo) threadsCat.getNodeAt(0).getUserObject()).getName());
+        assertEquals("\"\" tid=21", ((ThreadInfo) threadsCat.getNodeAt(1).getUserObject()).getName());
+        assertEquals("\"worker\" tid=2", ((ThreadInfo) threadsCat.getNodeAt(2).getUserObject()).getName());
+    }
+
+    @Test
+    public void testGroupVirtualThreads() {
+        String json = "{\"threadDump\": {\"threadContainers\": ["
+                + "{\"container\": \"<root>\", \"threads\": [{\"tid\": \"1\", \"name\": \"main\", \"stack\": []}]},"
+                + "{\"container\": \"java.util.concurrent.ThreadPerTaskExecutor@1\", \"threads\": ["
+                + "{\"tid\": \"21\", \"name\": \"\", \"stack\": [\"java.lang.VirtualThread.park(VirtualThread.java:582)\"]},"
+                + "{\"tid\": \"22\", \"name\": \"\", \"stack\": [\"java.lang.VirtualThread.park(VirtualThread.java:582)\"]},"
+                + "{\"tid\": \"23\", \"name\": \"worker\", \"virtual\": true, \"stack\": []}]}]}}";
+        JCmdJSONParser instance = new JCmdJSONParser(new BufferedReader(new StringReader(json)), 0, new DateMatcher());
+        instance.setVirtualThreadGroupThreshold(2);
+
+        ThreadDumpInfo tdi = (ThreadDumpInfo) ((DefaultMutableTreeNode) instance.parseNext()).getUserObject();
+        assertEquals(1, tdi.getThreads().getNodeCount());
+        Category groups = tdi.getVirtualThreadGroups();
+        assertNotNull(groups);
+        assertEquals(2, groups.getNodeCount());
+        assertEquals("2 virtual threads at java.lang.VirtualThread.park(VirtualThread.java:582) (java.util.concurrent.ThreadPerTaskExecutor@1)",
+                groups.getNodeAt(0).getUserObject().toString());
+    }
 }
@@ -0,0 +1,53 @@
+/*
+ * LineClassifierTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.parser;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test classification of thread dump lines.
+ */
+public class LineClassifierTest {
+
+    @Test
+    public void testClassify() {
+        assertEquals(LineClassifier.THREAD_TITLE, LineClassifier.classify("\"main\" #1 prio=5 os_prio=0 tid=0x00007f8b2c016800 nid=0x1abc runnable"));
+        assertEquals(LineClassifier.STACK_FRAME, LineClassifier.classify("\tat java.lang.Object.wait(Native Method)"));
+        assertEquals(LineClassifier.STACK_FRAME, LineClassifier.classify("        at java.lang.Object.wait(Native Method)"));
+        assertEquals(LineClassifier.THREAD_STATE, LineClassifier.classify("   java.lang.Thread.State: WAITING (on object monitor)"));
+        assertEquals(LineClassifier.LOCKED_SYNCHRONIZERS, LineClassifier.classify("   Locked ownable synchronizers:"));
+        assertEquals(LineClassifier.WAITING_ON, LineClassifier.classify("\t- waiting on <0x0000000711666830> (a java.lang.Object)"));
+        assertEquals(LineClassifier.PARKING, LineClassifier.classify("\t- parking to wait for  <0x00000000c0c0c0c0> (a java.util.concurrent.locks.ReentrantLock$NonfairSync)"));
+        assertEquals(LineClassifier.WAITING_TO_LOCK, LineClassifier.classify("\t- waiting to lock <0x0000000711666830> (a java.lang.Object)"));
+        assertEquals(LineClassifier.LOCKED, LineClassifier.classify("\t- locked <0x0000000711666830> (a java.lang.Object)"));
+        assertEquals(LineClassifier.LOCKED, LineClassifier.classify("\t- locked java.lang.Object@1234abcd"));
+        assertEquals(LineClassifier.CARRYING_VIRTUAL_THREAD, LineClassifier.classify("   Carrying virtual thread #21"));
+        assertEquals(LineClassifier.ANNOTATION, LineClassifier.classify("\t- None"));
+        assertEquals(LineClassifier.SMR_INFO, LineClassifier.classify("Threads class SMR info:"));
+        assertEquals(LineClassifier.OTHER, LineClassifier.classify(""));
+        assertEquals(LineClassifier.OTHER, LineClassifier.classify("   "));
+        assertEquals(LineClassifier.OTHER, LineClassifier.classify("JNI global references: 1234"));
+        assertEquals(LineClassifier.OTHER, LineClassifier.classify("   Locked synchronizers: count = 0"));
+        assertEquals(LineClassifier.OTHER, LineClassifier.classify("<EndOfDump>"));
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * ParallelSunJDKParserTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.parser;
+
+import de.grimmfrost.tda.model.ThreadDumpInfo;
+import de.grimmfrost.tda.model.ThreadInfo;
+import de.grimmfrost.tda.model.ThreadStack;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Vector;
+import javax.swing.tree.DefaultMutableTreeNode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test parallel parsing of log files with multiple dumps.
+ */
+public class ParallelSunJDKParserTest {
+
+    @Test
+    public void testSameResultAsSequentialParsing() throws IOException {
+        checkSameResult("src/test/resources/test.log", 3);
+        checkSameResult("src/test/resources/hpdump.log", 2);
+        checkSameResult("src/test/resources/jdk11_long_running.log", 2);
+    }
+
+    @Test
+    public void testClassHistogramFound() throws IOException {
+        DumpParser instance = new ParallelSunJDKParser(new File("src/test/resources/testwithhistogram.log"),
+                StandardCharsets.UTF_8, false, 1);
+        try {
+            assertTrue(instance.hasMoreDumps());
+            DefaultMutableTreeNode dump = (DefaultMutableTreeNode) instance.parseNext();
+            assertTrue(instance.isFoundClassHistograms());
+            assertEquals("Dump No. 1", ((ThreadDumpInfo) dump.getUserObject()).getName());
+            assertFalse(instance.hasMoreDumps());
+        } finally {
+            instance.close();
+        }
+    }
+
+    @Test
+    public void testLazyParsing() throws IOException {
+        String fileName = "src/test/resources/test.log";
+        List<DefaultMutableTreeNode> sequentialDumps = new Vector<>();
+        try (FileInputStream fis = new FileInputStream(fileName)) {
+            DumpParser instance = DumpParserFactory.get().getDumpParserForLogfile(fis, false, 0);
+            while (instance.hasMoreDumps()) {
+                sequentialDumps.add((DefaultMutableTreeNode) instance.parseNext());
+            }
+            instance.close();
+        }
+
+        List<LazyDumpNode> lazyDumps = new Vector<>();
+        ParallelSunJDKParser instance = new ParallelSunJDKParser(new File(fileName), StandardCharsets.UTF_8, false, 0);
+        instance.setLazy(true);
+        try {
+            while (instance.hasMoreDumps()) {
+                lazyDumps.add((LazyDumpNode) instance.parseNext());
+            }
+        } finally {
+            instance.close();
+        }
+
+        assertEquals(sequentialDumps.size(), lazyDumps.size());
+        for (int i = 0; i < lazyDumps.size(); i++) {
+            LazyDumpNode lazyDump = lazyDumps.get(i);
+            assertFalse(lazyDump.isLoaded());
+            assertFalse(lazyDump.isLeaf());
+            // the header shows the line and the timestamp of the dump before it is parsed.
+            assertEquals(sequentialDumps.get(i).getUserObject().toString(), lazyDump.getUserObject().toString());
+
+            lazyDump.setDump(lazyDump.parseDump());
+            assertTrue(lazyDump.isLoaded());
+            assertEquals(sequentialDumps.get(i).getChildCount(), lazyDump.getChildCount());
+            assertEquals(getStacks(sequentialDumps.get(i)), getStacks(lazyDump));
+        }
+
+        lazyDumps.get(0).unload();
+        assertFalse(lazyDumps.get(0).isLoaded());
+        assertEquals(0, lazyDumps.get(0).getChildCount());
+        assertSame(lazyDumps.get(0).getHeader(), lazyDumps.get(0).getUserObject());
+    }
+
+    @Test
+    public void testUtf16NotSupported() {
+        assertFalse(ParallelSunJDKParser.isSupportedCharset(StandardCharsets.UTF_16LE));
+        assertTrue(ParallelSunJDKParser.isSupportedCharset(StandardCharsets.UTF_8));
+        assertTrue(ParallelSunJDKParser.isSupportedCharset(StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void testReadSegmentInWindows() throws IOException {
+        File file = new File("src/test/resources/test.log");
+        byte[] expected = Files.readAllBytes(file.toPath());
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // a window size not dividing the segment, so the last window is smaller.
+            InputStream in = new ParallelSunJDKParser.MappedInputStream(channel, 100, expected.length, 4093);
+            ByteArrayOutputStream read = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1000];
+            int count;
+            while ((count = in.read(buffer, 0, buffer.length)) >= 0) {
+                read.write(buffer, 0, count);
+            }
+            assertArrayEquals(Arrays.copyOfRange(expected, 100, expected.length), read.toByteArray());
+            assertEquals(-1, in.read());
+        }
+    }
+
+    private void checkSameResult(String fileName, int expectedDumps) throws IOException {
+        List<String> sequentialDumps = new Vector<>();
+        List<List<ThreadStack>> sequentialStacks = new Vector<>();
+        try (FileInputStream fis = new FileInputStream(fileName)) {
+            DumpParser instance = DumpParserFactory.get().getDumpParserForLogfile(fis, false, 0);
+            while (instance.hasMoreDumps()) {
+                DefaultMutableTreeNode dump = (DefaultMutableTreeNode) instance.parseNext();
+                sequentialDumps.add(dump.getUserObject().toString());
+                sequentialStacks.add(getStacks(dump));
+            }
+            instance.close();
+        }
+
+        List<String> parallelDumps = new Vector<>();
+        List<List<ThreadStack>> parallelStacks = new Vector<>();
+        DumpParser instance = new ParallelSunJDKParser(new File(fileName), StandardCharsets.UTF_8, false, 0);
+        try {
+            while (instance.hasMoreDumps()) {
+                DefaultMutableTreeNode dump = (DefaultMutableTreeNode) instance.parseNext();
+                parallelDumps.add(dump.getUserObject().toString());
+                parallelStacks.add(getStacks(dump));
+            }
+        } finally {
+            instance.close();
+        }
+
+        assertEquals(expectedDumps, parallelDumps.size());
+        // dump names contain the line numbers and the parsed timestamps.
+        assertEquals(sequentialDumps, parallelDumps);
+        assertEquals(sequentialStacks, parallelStacks);
+    }
+
+    /**
+     * get the stacks of the threads of a parsed dump in dump order.
+     */
+    private List<ThreadStack> getStacks(DefaultMutableTreeNode dump) {
+        List<ThreadStack> stacks = new ArrayList<>();
+        for (ThreadInfo ti : AbstractDumpParser.getThreads((ThreadDumpInfo) dump.getUserObject())) {
+            stacks.add(ti.getStack());
+        }
+        return stacks;
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * SessionFileTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.parser;
+
+import de.grimmfrost.tda.model.CallTree;
+import de.grimmfrost.tda.model.CallTreeCategory;
+import de.grimmfrost.tda.model.Category;
+import de.grimmfrost.tda.model.Logfile;
+import de.grimmfrost.tda.model.StackCluster;
+import de.grimmfrost.tda.model.StateSeriesCategory;
+import de.grimmfrost.tda.model.TableCategory;
+import de.grimmfrost.tda.model.ThreadDumpInfo;
+import de.grimmfrost.tda.model.ThreadInfo;
+import de.grimmfrost.tda.model.ThreadStateCounts;
+import de.grimmfrost.tda.utils.DateMatcher;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.TreePath;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test writing and reading sessions.
+ */
+public class SessionFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        Vector<DefaultMutableTreeNode> topNodes = new Vector<>();
+        topNodes.add(parseLogfile("src/test/resources/testwithhistogram.log"));
+        topNodes.add(parseLogfile("src/test/resources/java21dump.log"));
+
+        File file = tempDir.resolve("test.tsf").toFile();
+        SessionFile.write(file, "java21dump.log", topNodes);
+        assertTrue(SessionFile.isSessionFile(file));
+
+        SessionFile session = SessionFile.read(file);
+        assertEquals("java21dump.log", session.getDumpFile());
+        assertEquals(2, session.getTopNodes().size());
+        for (int i = 0; i < topNodes.size(); i++) {
+            DefaultMutableTreeNode expected = topNodes.get(i);
+            DefaultMutableTreeNode actual = session.getTopNodes().get(i);
+            assertEquals(expected.getUserObject().toString(), actual.getUserObject().toString());
+            assertEquals(expected.getChildCount(), actual.getChildCount());
+
+            for (int j = 0; j < expected.getChildCount(); j++) {
+                DefaultMutableTreeNode expectedChild = (DefaultMutableTreeNode) expected.getChildAt(j);
+                DefaultMutableTreeNode actualChild = (DefaultMutableTreeNode) actual.getChildAt(j);
+                if (actualChild instanceof SessionDumpNode) {
+                    SessionDumpNode dump = (SessionDumpNode) actualChild;
+                    assertFalse(dump.isLoaded());
+                    assertEquals(expectedChild.getUserObject().toString(), dump.getUserObject().toString());
+                    dump.setDump(dump.parseDump());
+                    assertTrue(dump.isLoaded());
+                }
+                assertTree(expectedChild, actualChild);
+            }
+        }
+    }
+
+    @Test
+    public void testRewriteUnloadedSession() throws IOException {
+        Vector<DefaultMutableTreeNode> topNodes = new Vector<>();
+        topNodes.add(parseLogfile("src/test/resources/test.log"));
+
+        File file = tempDir.resolve("first.tsf").toFile();
+        SessionFile.write(file, "test.log", topNodes);
+        SessionFile session = SessionFile.read(file);
+
+        // the dumps which aren't loaded are copied from the first session.
+        File copy = tempDir.resolve("second.tsf").toFile();
+        SessionFile.write(copy, session.getDumpFile(), session.getTopNodes());
+        assertTrue(file.delete());
+
+        SessionDumpNode dump = (SessionDumpNode) session.getTopNodes().get(0).getChildAt(0);
+        dump.setDump(dump.parseDump());
+        assertTree((DefaultMutableTreeNode) topNodes.get(0).getChildAt(0), dump);
+
+        session = SessionFile.read(copy);
+        assertEquals(topNodes.get(0).getChildCount(), session.getTopNodes().get(0).getChildCount());
+    }
+
+    @Test
+    public void testOverwriteUnloadedSession() throws IOException {
+        Vector<DefaultMutableTreeNode> topNodes = new Vector<>();
+        topNodes.add(parseLogfile("src/test/resources/test.log"));
+
+        File file = tempDir.resolve("session.tsf").toFile();
+        SessionFile.write(file, "test.log", topNodes);
+        SessionFile session = SessionFile.read(file);
+
+        // the dumps which aren't loaded are copied from the file being overwritten.
+        SessionFile.write(file, session.getDumpFile(), session.getTopNodes());
+        assertEquals(1, tempDir.toFile().list().length);
+
+        DefaultMutableTreeNode top = session.getTopNodes().get(0);
+        for (int i = 0; i < top.getChildCount(); i++) {
+            SessionDumpNode dump = (SessionDumpNode) top.getChildAt(i);
+            assertFalse(dump.isLoaded());
+            dump.setDump(dump.parseDump());
+            assertTree((DefaultMutableTreeNode) topNodes.get(0).getChildAt(i), dump);
+        }
+
+        session = SessionFile.read(file);
+        top = session.getTopNodes().get(0);
+        assertEquals(topNodes.get(0).getChildCount(), top.getChildCount());
+        for (int i = 0; i < top.getChildCount(); i++) {
+            SessionDumpNode dump = (SessionDumpNode) top.getChildAt(i);
+            dump.setDump(dump.parseDump());
+            assertTree((DefaultMutableTreeNode) topNodes.get(0).getChildAt(i), dump);
+        }
+    }
+
+    @Test
+    public void testAnalysisResults() throws IOException {
+        DefaultMutableTreeNode top = parseLogfile("src/test/resources/jdk11_long_running.log");
+        TreePath[] paths = getDumpPaths(top);
+        DumpParser parser = new SunJDKParser(null, 0, false, 0, new DateMatcher());
+        parser.findLongRunningThreads(top, paths, paths.length, null);
+        parser.mergeDumps(top, paths, paths.length, null);
+
+        DefaultMutableTreeNode actual = writeAndRead(top);
+        assertEquals(top.getChildCount(), actual.getChildCount());
+        for (int i = paths.length; i < top.getChildCount(); i++) {
+            DefaultMutableTreeNode expectedResult = (DefaultMutableTreeNode) top.getChildAt(i);
+            DefaultMutableTreeNode actualResult = (DefaultMutableTreeNode) actual.getChildAt(i);
+            assertTrue(actualResult.getUserObject() instanceof TableCategory);
+            Category category = (Category) actualResult.getUserObject();
+            assertTrue(category.getNodeCount() > 0);
+            assertEquals(((Category) expectedResult.getUserObject()).getInfo(), category.getInfo());
+            assertTree(expectedResult, actualResult);
+        }
+    }
+
+    @Test
+    public void testStackClusters() throws IOException {
+        DefaultMutableTreeNode top = parseLogfile("src/test/resources/test.log");
+        new SunJDKParser(null, 0, false, 0, new DateMatcher()).findStackClusters(top, getDumpPaths(top));
+        Category expected = (Category) ((DefaultMutableTreeNode) top.getLastChild()).getUserObject();
+
+        DefaultMutableTreeNode actual = writeAndRead(top);
+        Category clusters = (Category) ((DefaultMutableTreeNode) actual.getLastChild()).getUserObject();
+        assertEquals(expected.getName(), clusters.getName());
+        assertTrue(clusters.getNodeCount() > 1);
+        assertEquals(expected.getNodeCount(), clusters.getNodeCount());
+        for (int i = 0; i < expected.getNodeCount(); i++) {
+            StackCluster expectedCluster = (StackCluster) expected.getNodeAt(i).getUserObject();
+            StackCluster cluster = (StackCluster) clusters.getNodeAt(i).getUserObject();
+            assertEquals(expectedCluster.getThreadCount(), cluster.getThreadCount());
+            assertEquals(expectedCluster.getDumpCount(), cluster.getDumpCount());
+            assertEquals(expectedCluster.getStates(), cluster.getStates());
+            assertEquals(expectedCluster.getMembers(), cluster.getMembers());
+            assertEquals(expectedCluster.getStack(), cluster.getStack());
+            assertEquals(expectedCluster.getName(), cluster.getName());
+        }
+    }
+
+    @Test
+    public void testCallTree() throws IOException {
+        DefaultMutableTreeNode top = parseLogfile("src/test/resources/java11dump.log");
+        new SunJDKParser(null, 0, false, 0, new DateMatcher()).findCallTree(top, getDumpPaths(top), "RUNNABLE");
+        CallTreeCategory expected = (CallTreeCategory) ((DefaultMutableTreeNode) top.getLastChild()).getUserObject();
+
+        DefaultMutableTreeNode actual = writeAndRead(top);
+        CallTreeCategory category = (CallTreeCategory) ((DefaultMutableTreeNode) actual.getLastChild()).getUserObject();
+        assertEquals(expected.getName(), category.getName());
+        CallTree expectedTree = expected.getTree();
+        CallTree tree = category.getTree();
+        assertTrue(tree.size() > 1);
+        assertEquals(expectedTree.size(), tree.size());
+        assertEquals(expectedTree.getState(), tree.getState());
+        assertEquals(expectedTree.getThreadCount(), tree.getThreadCount());
+        for (int i = 0; i < expectedTree.size(); i++) {
+            assertEquals(expectedTree.getFrame(i), tree.getFrame(i));
+            assertEquals(expectedTree.getParent(i), tree.getParent(i));
+            assertEquals(expectedTree.getInclusiveCount(i), tree.getInclusiveCount(i));
+            assertEquals(expectedTree.getExclusiveCount(i), tree.getExclusiveCount(i));
+        }
+    }
+
+    @Test
+    public void testStateSeries() throws IOException {
+        DefaultMutableTreeNode top = parseLogfile("src/test/resources/test.log");
+        new SunJDKParser(null, 0, false, 0, new DateMatcher()).findStateSeries(top, getDumpPaths(top));
+        StateSeriesCategory expected = (StateSeriesCategory) ((DefaultMutableTreeNode) top.getLastChild()).getUserObject();
+
+        DefaultMutableTreeNode actual = writeAndRead(top);
+        StateSeriesCategory category = (StateSeriesCategory) ((DefaultMutableTreeNode) actual.getLastChild()).getUserObject();
+        assertEquals(expected.getName(), category.getName());
+        assertTrue(category.getSeries().size() > 1);
+        assertEquals(expected.getSeries().size(), category.getSeries().size());
+        for (int i = 0; i < expected.getSeries().size(); i++) {
+            ThreadStateCounts expectedCounts = expected.getSeries().get(i);
+            ThreadStateCounts counts = category.getSeries().get(i);
+            assertEquals(expectedCounts.getDump(), counts.getDump());
+            assertEquals(expectedCounts.getTime(), counts.getTime());
+            for (int j = 0; j < ThreadStateCounts.COUNT_NAMES.length; j++) {
+                assertEquals(expectedCounts.getCount(j), counts.getCount(j));
+            }
+        }
+    }
+
+    private TreePath[] getDumpPaths(DefaultMutableTreeNode top) {
+        List<TreePath> paths = new ArrayList<>();
+        for (int i = 0; i < top.getChildCount(); i++) {
+            DefaultMutableTreeNode dump = (DefaultMutableTreeNode) top.getChildAt(i);
+            if (dump.getUserObject() instanceof ThreadDumpInfo) {
+                paths.add(new TreePath(dump.getPath()));
+            }
+        }
+        return (paths.toArray(new TreePath[0]));
+    }
+
+    /**
+     * write a session of the passed logfile and read it again.
+     * @return the logfile node of the read session.
+     */
+    private DefaultMutableTreeNode writeAndRead(DefaultMutableTreeNode top) throws IOException {
+        Vector<DefaultMutableTreeNode> topNodes = new Vector<>();
+        topNodes.add(top);
+        File file = tempDir.resolve("results.tsf").toFile();
+        SessionFile.write(file, top.getUserObject().toString(), topNodes);
+        return (SessionFile.read(file).getTopNodes().get(0));
+    }
+
+    private DefaultMutableTreeNode parseLogfile(String fileName) throws IOException {
+        DefaultMutableTreeNode top = new DefaultMutableTreeNode(new Logfile(fileName));
+        try (FileInputStream fis = new FileInputStream(fileName)) {
+            DumpParser instance = DumpParserFactory.get().getDumpParserForLogfile(fis, false, 0);
+            while (instance.hasMoreDumps()) {
+                top.add((DefaultMutableTreeNode) instance.parseNext());
+            }
+            instance.close();
+        }
+        return (top);
+    }
+
+    private void assertTree(DefaultMutableTreeNode expected, DefaultMutableTreeNode actual) {
+        Object expectedObject = expected.getUserObject();
+        Object actualObject = actual.getUserObject();
+        assertEquals(String.valueOf(expectedObject), String.valueOf(actualObject));
+        if (expectedObject instanceof ThreadDumpInfo) {
+            ThreadDumpInfo expectedTdi = (ThreadDumpInfo) expectedObject;
+            ThreadDumpInfo actualTdi = (ThreadDumpInfo) actualObject;
+            assertEquals(expectedTdi.getSmrInfo(), actualTdi.getSmrInfo());
+            assertEquals(expectedTdi.getOverview(), actualTdi.getOverview());
+            List<ThreadInfo> expectedThreads = expectedTdi.getThreadInfos();
+            if (expectedThreads != null) {
+                assertEquals(expectedThreads.size(), actualTdi.getThreadInfos().size());
+                for (int i = 0; i < expectedThreads.size(); i++) {
+                    assertThread(expectedThreads.get(i), actualTdi.getThreadInfos().get(i));
+                }
+            }
+        } else if (expectedObject instanceof ThreadInfo) {
+            assertThread((ThreadInfo) expectedObject, (ThreadInfo) actualObject);
+        } else if (expectedObject instanceof Category) {
+            Category expectedCategory = (Category) expectedObject;
+            Category actualCategory = (Category) actualObject;
+            assertEquals(expectedCategory.howManyFiltered(), actualCategory.howManyFiltered());
+            assertEquals(expectedCategory.getNodeCount(), actualCategory.getNodeCount());
+            for (int i = 0; i < expectedCategory.getNodeCount(); i++) {
+                assertTree(expectedCategory.getNodeAt(i), actualCategory.getNodeAt(i));
+            }
+        }
+        assertEquals(expected.getChildCount(), actual.getChildCount());
+        for (int i = 0; i < expected.getChildCount(); i++) {
+            assertTree((DefaultMutableTreeNode) expected.getChildAt(i), (DefaultMutableTreeNode) actual.getChildAt(i));
+        }
+    }
+
+    private void assertThread(ThreadInfo expected, ThreadInfo actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getInfo(), actual.getInfo());
+        assertEquals(expected.getContent(), actual.getContent());
+        assertEquals(expected.getStack(), actual.getStack());
+        assertArrayEquals(expected.getTokens(), actual.getTokens());
+        assertEquals(expected.getStackLines(), actual.getStackLines());
+        assertEquals(expected.areALotOfWaiting(), actual.areALotOfWaiting());
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * StackClustererTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.parser;
+
+import de.grimmfrost.tda.model.FrameDictionary;
+import de.grimmfrost.tda.model.StackCluster;
+import de.grimmfrost.tda.model.ThreadDumpInfo;
+import de.grimmfrost.tda.model.ThreadInfo;
+import de.grimmfrost.tda.model.ThreadStack;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test clustering threads by their stacks.
+ */
+public class StackClustererTest {
+
+    @Test
+    public void testNormalizeFrame() {
+        String frame = "\tat java.lang.Object.wait(java.base@17.0.2/Object.java:338)";
+        assertEquals("java.lang.Object.wait(Object.java)", StackClusterer.normalizeFrame(frame, true, true));
+        assertEquals("java.lang.Object.wait(Object.java:338)", StackClusterer.normalizeFrame(frame, false, true));
+        assertEquals("java.lang.Object.wait(java.base@17.0.2/Object.java)", StackClusterer.normalizeFrame(frame, true, false));
+        assertEquals("com.example.Worker.run(Worker.java)",
+                StackClusterer.normalizeFrame("\tat app//com.example.Worker.run(Worker.java:12)", true, true));
+        assertEquals("jdk.internal.misc.Unsafe.park(Native Method)",
+                StackClusterer.normalizeFrame("\tat jdk.internal.misc.Unsafe.park(java.base@21/Native Method)", true, true));
+        assertNull(StackClusterer.normalizeFrame("\t- locked <0x1> (a java.lang.Object)", true, true));
+    }
+
+    @Test
+    public void testClusterSeries() {
+        FrameDictionary dictionary = new FrameDictionary();
+        List<ThreadDumpInfo> dumps = new ArrayList<>();
+        dumps.add(createDump(createThread(dictionary, "worker-1", "waiting on condition", "17.0.1", 10, "<0x1>"),
+                createThread(dictionary, "worker-2", "waiting on condition", "17.0.1", 10, "<0x2>"),
+                createThread(dictionary, "main", "runnable", "17.0.1", 20, null)));
+        dumps.add(createDump(createThread(dictionary, "worker-1", "waiting for monitor entry", "17.0.2", 11, "<0x3>"),
+                createThread(dictionary, "main", "runnable", "17.0.2", 21, null)));
+
+        List<StackCluster> clusters = AbstractDumpParser.clusterStacks(dumps, true, true);
+        assertEquals(2, clusters.size());
+        StackCluster workers = clusters.get(0);
+        assertEquals(3, workers.getThreadCount());
+        assertEquals(2, workers.getDumpCount());
+        assertEquals(2, workers.getStates().get("waiting on condition"));
+        assertEquals(1, workers.getStates().get("waiting for monitor entry"));
+        assertEquals(2, workers.getMembers().size());
+        assertEquals(2, workers.getMembers().values().iterator().next());
+        assertEquals("2 waiting on condition, 1 waiting for monitor entry", workers.getStateSummary());
+        assertEquals("3 threads at java.lang.Object.wait(java.base@17.0.1/Object.java:10)", workers.getName());
+        assertArrayEquals(new String[] {workers.getName(), "3", "2", workers.getStateSummary()}, workers.getTokens());
+        assertEquals(2, clusters.get(1).getThreadCount());
+
+        // without normalization the threads of the two dumps differ.
+        assertEquals(4, AbstractDumpParser.clusterStacks(dumps, false, false).size());
+        assertEquals(4, AbstractDumpParser.clusterStacks(dumps, true, false).size());
+        assertEquals(2, AbstractDumpParser.clusterStacks(dumps.subList(0, 1), false, false).size());
+    }
+
+    @Test
+    public void testManyThreads() {
+        FrameDictionary dictionary = new FrameDictionary();
+        StackClusterer clusterer = new StackClusterer(true, true);
+        int threadCount = 100000;
+        for (int i = 0; i < threadCount; i++) {
+            ThreadStack.Builder stack = new ThreadStack.Builder(dictionary, "\"thread-" + i + "\"", 3)
+                    .addFrame("\tat com.example.Task" + (i % 10) + ".run(Task.java:" + i + ")")
+                    .addAnnotation("\t- locked <0x" + Integer.toHexString(i) + "> (a java.lang.Object)")
+                    .addFrame("\tat java.lang.Thread.run(java.base@21/Thread.java:1583)");
+            ThreadInfo thread = new ThreadInfo("\"thread-" + i + "\"", null, null, 3, null);
+            thread.setStack(stack.build());
+            clusterer.add(0, thread);
+        }
+        assertEquals(threadCount, clusterer.getThreadCount());
+        List<StackCluster> clusters = clusterer.getClusters();
+        assertEquals(10, clusters.size());
+        for (StackCluster cluster : clusters) {
+            assertEquals(threadCount / 10, cluster.getThreadCount());
+            assertEquals(1, cluster.getDumpCount());
+        }
+    }
+
+    private ThreadInfo createThread(FrameDictionary dictionary, String name, String state, String version, int line, String monitor) {
+        String title = "\"" + name + "\" #1 prio=5 tid=0x1 nid=0x1 " + state;
+        ThreadStack.Builder stack = new ThreadStack.Builder(dictionary, title, 3);
+        if (monitor != null) {
+            stack.addFrame("\tat java.lang.Object.wait(java.base@" + version + "/Object.java:" + line + ")")
+                    .addAnnotation("\t- waiting on " + monitor + " (a java.lang.Object)");
+        } else {
+            stack.addFrame("\tat com.example.Main.main(Main.java:" + line + ")");
+        }
+        stack.addFrame("\tat java.lang.Thread.run(java.base@" + version + "/Thread.java:1583)");
+        ThreadInfo thread = new ThreadInfo(title, null, null, 3, null);
+        thread.setStack(stack.build());
+        thread.setHeader(ThreadHeaderParser.parse(title));
+        return thread;
+    }
+
+    private ThreadDumpInfo createDump(ThreadInfo... threads) {
+        ThreadDumpInfo tdi = new ThreadDumpInfo("Dump", 0);
+        List<ThreadInfo> threadInfos = new ArrayList<>();
+        for (ThreadInfo thread : threads) {
+            threadInfos.add(thread);
+        }
+        tdi.setThreadInfos(threadInfos);
+        return tdi;
+    }
+}
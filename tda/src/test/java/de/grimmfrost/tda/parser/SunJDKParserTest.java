@@ -22,7 +22,8 @@
 package de.grimmfrost.tda.parser;
 
 import java.io.*;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.MutableTreeNode;
 import javax.swing.tree.TreePath;
@@ -30,6 +31,7 @@ import javax.swing.tree.TreePath;
 import de.grimmfrost.tda.model.Category;
 import de.grimmfrost.tda.model.ThreadDumpInfo;
 import de.grimmfrost.tda.model.ThreadInfo;
+import de.grimmfrost.tda.model.ThreadTimeline;
 import de.grimmfrost.tda.utils.DateMatcher;
 import org.jspecify.annotations.NonNull;
 import org.junit.jupiter.api.*;
@@ -61,9 +63,8 @@ public class SunJDKParserTest {
         
         try {
             fis = new FileInputStream("src/test/resources/test.log");
-            Map<String, Map<String, String>> dumpMap = new HashMap<>();
             Vector<MutableTreeNode> topNodes = new Vector<>();
-            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, dumpMap, false, 0);
+            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, false, 0);
 
             assertInstanceOf(SunJDKParser.class, instance);
 
@@ -90,8 +91,7 @@ public class SunJDKParserTest {
     public void testIsFoundClassHistograms() throws IOException {
         DumpParser instance = null;
         try (FileInputStream fis = new FileInputStream("src/test/resources/testwithhistogram.log")) {
-            Map<String, Map<String, String>> dumpMap = new HashMap<>();
-            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, dumpMap, false, 0);
+            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, false, 0);
             
             Vector<MutableTreeNode> topNodes = new Vector<>();
             while (instance.hasMoreDumps()) {
@@ -115,9 +115,8 @@ public class SunJDKParserTest {
         
         try {
             fis = new FileInputStream("src/test/resources/test64bit.log");
-            Map<String, Map<String, String>> dumpMap = new HashMap<>();
             Vector<MutableTreeNode> topNodes = new Vector<>();
-            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, dumpMap, false, 0);
+            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, false, 0);
 
             assertInstanceOf(SunJDKParser.class, instance);
 
@@ -144,9 +143,8 @@ public class SunJDKParserTest {
         
         try {
             fis = new FileInputStream("src/test/resources/java8dump.log");
-            Map<String, Map<String, String>> dumpMap = new HashMap<>();
             Vector<MutableTreeNode> topNodes = new Vector<>();
-            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, dumpMap, false, 0);
+            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, false, 0);
 
             assertInstanceOf(SunJDKParser.class, instance);
 
@@ -174,9 +172,8 @@ public class SunJDKParserTest {
         
         try {
             fis = new FileInputStream("src/test/resources/java11dump.log");
-            Map<String, Map<String, String>> dumpMap = new HashMap<>();
             Vector<MutableTreeNode> topNodes = new Vector<>();
-            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, dumpMap, false, 0);
+            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, false, 0);
 
             assertInstanceOf(SunJDKParser.class, instance);
 
@@ -203,9 +200,8 @@ public class SunJDKParserTest {
         
         try {
             fis = new FileInputStream("src/test/resources/hpdump.log");
-            Map<String, Map<String, String>> dumpMap = new HashMap<>();
             Vector<MutableTreeNode> topNodes = new Vector<>();
-            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, dumpMap, false, 0);
+            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, false, 0);
 
             assertInstanceOf(SunJDKParser.class, instance);
 
@@ -232,9 +228,8 @@ public class SunJDKParserTest {
 
         try {
             fis = new FileInputStream("src/test/resources/visualvmremote.log");
-            Map<String, Map<String, String>> dumpMap = new HashMap<>();
             Vector<MutableTreeNode> topNodes = new Vector<>();
-            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, dumpMap, false, 0);
+            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, false, 0);
 
             assertInstanceOf(SunJDKParser.class, instance);
 
@@ -261,9 +256,8 @@ public class SunJDKParserTest {
         
         try {
             fis = new FileInputStream("src/test/resources/urlthread.log");
-            Map<String, Map<String, String>> dumpMap = new HashMap<>();
             Vector<MutableTreeNode> topNodes = new Vector<>();
-            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, dumpMap, false, 0);
+            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, false, 0);
 
             assertInstanceOf(SunJDKParser.class, instance);
 
@@ -290,9 +284,8 @@ public class SunJDKParserTest {
         
         try {
             fis = new FileInputStream("src/test/resources/java21dump.log");
-            Map<String, Map<String, String>> dumpMap = new HashMap<>();
             Vector<MutableTreeNode> topNodes = new Vector<>();
-            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, dumpMap, false, 0);
+            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, false, 0);
 
             assertInstanceOf(SunJDKParser.class, instance);
 
@@ -319,9 +312,8 @@ public class SunJDKParserTest {
         
         try {
             fis = new FileInputStream("src/test/resources/carrier_stuck.log");
-            Map<String, Map<String, String>> dumpMap = new HashMap<>();
             Vector<MutableTreeNode> topNodes = new Vector<>();
-            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, dumpMap, false, 0);
+            instance = DumpParserFactory.get().getDumpParserForLogfile(fis, false, 0);
 
             assertInstanceOf(SunJDKParser.class, instance);
 
@@ -386,7 +378,7 @@ public class SunJDKParserTest {
     @Test
     public void testSMRInfoParsing() throws Exception {
         InputStream dumpFileStream = new FileInputStream("src/test/resources/jstack_dump.log");
-        DumpParser instance = DumpParserFactory.get().getDumpParserForLogfile(dumpFileStream, new HashMap(), false, 0);
+        DumpParser instance = DumpParserFactory.get().getDumpParserForLogfile(dumpFileStream, false, 0);
         assertInstanceOf(SunJDKParser.class, instance);
         DefaultMutableTreeNode result = (DefaultMutableTreeNode) instance.parseNext();
         assertNotNull(result);
@@ -413,7 +405,7 @@ public class SunJDKParserTest {
     @Test
     public void testSMRInfoWithUnresolved() throws Exception {
         InputStream is = getSMSInfoTextBlock();
-        SunJDKParser parser = new SunJDKParser(new BufferedReader(new InputStreamReader(is)), new HashMap<>(), 0,
+        SunJDKParser parser = new SunJDKParser(new BufferedReader(new InputStreamReader(is)), 0,
                 false, 0, new DateMatcher());
         
         DefaultMutableTreeNode result = (DefaultMutableTreeNode) parser.parseNext();
@@ -451,22 +443,13 @@ public class SunJDKParserTest {
         
         try {
             fis = new FileInputStream("src/test/resources/jdk11_long_running.log");
-            Map<String, Map<String, String>> dumpMap = new HashMap<>();
-            instance = (SunJDKParser) DumpParserFactory.get().getDumpParserForLogfile(fis, dumpMap, false, 0);
+            instance = (SunJDKParser) DumpParserFactory.get().getDumpParserForLogfile(fis, false, 0);
             
             Vector<MutableTreeNode> topNodes = new Vector<>();
             while (instance.hasMoreDumps()) {
                 MutableTreeNode node = instance.parseNext();
                 if (node != null) {
                     topNodes.add(node);
-                    
-                    // Manually populate dumpMap since we are testing diffDumps which looks there
-                    DefaultMutableTreeNode dNode = (DefaultMutableTreeNode) node;
-                    ThreadDumpInfo tdi = (ThreadDumpInfo) dNode.getUserObject();
-                    
-                    // The dumpMap is supposed to contain a map of threads for each dump name
-                    // But in this test environment, the internal threadStore of instance IS the dumpMap
-                    // so it should already be populated by parseNext().
                 }
             }
 
@@ -482,11 +465,7 @@ public class SunJDKParserTest {
             paths[0] = new TreePath(((DefaultMutableTreeNode)topNodes.get(0)).getPath());
             paths[1] = new TreePath(((DefaultMutableTreeNode)topNodes.get(1)).getPath());
             
-            // before calling findLongRunningThreads, we MUST ensure the dumpMap is correctly populated.
-            // SunJDKParser stores threads in the map passed to it, keyed by dump name.
-            // Dump name for SunJDKParser is "Dump No. X".
-            
-            instance.findLongRunningThreads(root, dumpMap, paths, 2, null);
+            instance.findLongRunningThreads(root, paths, 2, null);
             
             // Check if long running threads were found
             assertTrue(root.getChildCount() > 0, "Should have children");
@@ -507,8 +486,7 @@ public class SunJDKParserTest {
     }
     @Test
     public void testGetThreadTokensWithThreadTypeNumber() {
-        Map<String, Map<String, String>> threadStore = new HashMap<>();
-        SunJDKParser parser = new SunJDKParser(new BufferedReader(new StringReader("")), threadStore, 0, false, 0, new DateMatcher());
+        SunJDKParser parser = new SunJDKParser(new BufferedReader(new StringReader("")), 0, false, 0, new DateMatcher());
 
         // Line from carrier_stuck.log
         String line = "\"ForkJoinPool-1-worker-1\" #11 daemon [11] prio=5 os_prio=0 cpu=5678.90ms elapsed=58230.14s tid=0x00007f8b2c158000 nid=0x1ac7 runnable  [0x00007f8b234f5000]";
@@ -542,8 +520,7 @@ public class SunJDKParserTest {
                 "\n" +
                 "\"VM Periodic Task Thread\" #3 prio=5 tid=0x000000010328e340 nid=0x300 runnable\n";
 
-        Map<String, Map<String, String>> threadStore = new HashMap<>();
-        SunJDKParser parser = new SunJDKParser(new BufferedReader(new StringReader(dump)), threadStore, 0, false, 0, new DateMatcher());
+        SunJDKParser parser = new SunJDKParser(new BufferedReader(new StringReader(dump)), 0, false, 0, new DateMatcher());
 
         DefaultMutableTreeNode dumpNode = (DefaultMutableTreeNode) parser.parseNext();
         assertNotNull(dumpNode);
@@ -559,4 +536,101 @@ public class SunJDKParserTest {
         // Verify that the monitor node has children (the threads)
         assertTrue(monitorNode.getChildCount() > 0, "Monitor node in category should have children");
     }
+
+    @Test
+    public void testParallelThreadParsing() throws Exception {
+        SunJDKParser sequential = new SunJDKParser(new BufferedReader(new FileReader("src/test/resources/hpdump.log")),
+                0, false, 0, new DateMatcher());
+
+        SunJDKParser parallel = new SunJDKParser(new BufferedReader(new FileReader("src/test/resources/hpdump.log")),
+                0, false, 0, new DateMatcher()) {
+            protected int getParallelBlockThreshold() {
+                return 1;
+            }
+        };
+
+        try {
+            while (sequential.hasMoreDumps()) {
+                assertTrue(parallel.hasMoreDumps());
+                ThreadDumpInfo seqTdi = (ThreadDumpInfo) ((DefaultMutableTreeNode) sequential.parseNext()).getUserObject();
+                ThreadDumpInfo parTdi = (ThreadDumpInfo) ((DefaultMutableTreeNode) parallel.parseNext()).getUserObject();
+
+                assertEquals(seqTdi.toString(), parTdi.toString());
+                assertEquals(seqTdi.getThreads().getNodeCount(), parTdi.getThreads().getNodeCount());
+                for (int i = 0; i < seqTdi.getThreads().getNodeCount(); i++) {
+                    ThreadInfo seqTi = (ThreadInfo) seqTdi.getThreads().getNodeAt(i).getUserObject();
+                    ThreadInfo parTi = (ThreadInfo) parTdi.getThreads().getNodeAt(i).getUserObject();
+                    assertEquals(seqTi.getName(), parTi.getName());
+                    assertEquals(seqTi.getContent(), parTi.getContent());
+                    assertEquals(seqTi.getStackLines(), parTi.getStackLines());
+                    assertEquals(seqTi.getStack(), parTi.getStack());
+                }
+                assertEquals(String.valueOf(seqTdi.getMonitors()), String.valueOf(parTdi.getMonitors()));
+                assertEquals(String.valueOf(seqTdi.getWaitingThreads()), String.valueOf(parTdi.getWaitingThreads()));
+                assertEquals(String.valueOf(seqTdi.getSleepingThreads()), String.valueOf(parTdi.getSleepingThreads()));
+                assertEquals(String.valueOf(seqTdi.getLockingThreads()), String.valueOf(parTdi.getLockingThreads()));
+            }
+            assertFalse(parallel.hasMoreDumps());
+        } finally {
+            sequential.close();
+            parallel.close();
+        }
+    }
+
+    @Test
+    public void testThreadInfosAreSharedByCategories() throws Exception {
+        SunJDKParser instance = new SunJDKParser(new BufferedReader(new FileReader("src/test/resources/hpdump.log")),
+                0, false, 0, new DateMatcher());
+        try {
+            ThreadDumpInfo tdi = (ThreadDumpInfo) ((DefaultMutableTreeNode) instance.parseNext()).getUserObject();
+            assertEquals(tdi.getThreadInfos().size(), tdi.getThreads().getNodeCount());
+
+            Category locking = tdi.getLockingThreads();
+            assertNotNull(locking);
+            int count = locking.getNodeCount();
+            assertTrue(count > 0);
+            for (int i = 0; i < count; i++) {
+                ThreadInfo ti = (ThreadInfo) locking.getNodeAt(i).getUserObject();
+                int index = tdi.getThreadInfos().indexOf(ti);
+                assertTrue(index >= 0);
+                assertSame(ti, tdi.getThreads().getNodeAt(index).getUserObject());
+            }
+        } finally {
+            instance.close();
+        }
+    }
+
+    @Test
+    public void testThreadTimelines() {
+        List<ThreadDumpInfo> dumps = new ArrayList<>();
+        dumps.add(createDump("\"worker\" #12 prio=5 tid=0x1 nid=0x2 runnable", "\"pool-1\" #13 prio=5 tid=0x3 nid=0x4 runnable",
+                "\"pool-1\" #14 prio=5 tid=0x5 nid=0x6 waiting on condition"));
+        // the worker got renamed, both pool threads are still there.
+        dumps.add(createDump("\"worker-renamed\" #12 prio=5 tid=0x1 nid=0x2 runnable", "\"pool-1\" #14 prio=5 tid=0x5 nid=0x6 runnable",
+                "\"pool-1\" #13 prio=5 tid=0x3 nid=0x4 runnable"));
+
+        Map<String, ThreadTimeline> timelines = AbstractDumpParser.buildTimelines(dumps);
+        assertEquals(3, timelines.size());
+        ThreadTimeline worker = timelines.get("tid=0x1 nid=0x2");
+        assertEquals(2, worker.size());
+        assertEquals("worker", worker.getName(0));
+        assertEquals("worker-renamed", worker.getName());
+        ThreadTimeline pool = timelines.get("tid=0x5 nid=0x6");
+        assertEquals("waiting on condition", pool.getState(0));
+        assertEquals("runnable", pool.getState(1));
+        assertEquals(1, pool.getDump(1));
+        assertTrue(pool.indexOf(2) < 0);
+    }
+
+    private ThreadDumpInfo createDump(String... titles) {
+        ThreadDumpInfo tdi = new ThreadDumpInfo("Dump", 0);
+        List<ThreadInfo> threads = new ArrayList<>();
+        for (String title : titles) {
+            ThreadInfo ti = new ThreadInfo(title, null, null, 0, null);
+            ti.setHeader(ThreadHeaderParser.parse(title));
+            threads.add(ti);
+        }
+        tdi.setThreadInfos(threads);
+        return tdi;
+    }
 }
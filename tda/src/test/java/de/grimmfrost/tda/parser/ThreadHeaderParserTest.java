@@ -0,0 +1,98 @@
+/*
+ * ThreadHeaderParserTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.parser;
+
+import de.grimmfrost.tda.model.ThreadHeader;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test parsing of thread title lines.
+ */
+public class ThreadHeaderParserTest {
+
+    @Test
+    public void testParseDetailed() {
+        ThreadHeader header = ThreadHeaderParser.parse("\"main\" #1 [1] prio=5 os_prio=0 cpu=2245.67ms elapsed=58234.25s "
+                + "tid=0x00007f8b2c016800 nid=0x1abc waiting on condition  [0x00007f8b34245000]");
+
+        assertFalse(header.isShortFormat());
+        assertEquals("main", header.getName());
+        assertFalse(header.isDaemon());
+        assertEquals(5, header.getPrio());
+        assertEquals(0, header.getOsPrio());
+        assertEquals(2245.67, header.getCpuMillis(), 0.001);
+        assertEquals(58234.25, header.getElapsedSeconds(), 0.001);
+        assertEquals(0x00007f8b2c016800L, header.getTid());
+        assertEquals(0x1abc, header.getNid());
+        assertEquals("waiting on condition ", header.getState());
+        assertEquals("[0x00007f8b34245000]", header.getAddressRange());
+        assertEquals("\"main\" #1 [1] prio=5 os_prio=0 tid=0x00007f8b2c016800 nid=0x1abc waiting on condition  [0x00007f8b34245000]",
+                header.getNormalizedTitle());
+    }
+
+    @Test
+    public void testParseWithoutAddressRange() {
+        ThreadHeader header = ThreadHeaderParser.parse("\"VM Periodic Task Thread\" os_prio=0 cpu=67892.34ms elapsed=58234.15s "
+                + "tid=0x00007f8b2c18f000 nid=0x1aca waiting on condition  ");
+
+        assertEquals(-1, header.getPrio());
+        assertEquals(0, header.getDisplayPrio());
+        assertEquals("waiting on condition  ", header.getState());
+        assertEquals(ThreadHeader.NO_ADDRESS_RANGE, header.getAddressRange());
+        assertArrayEquals(new String[] {"VM Periodic Task Thread", "Task", "0", String.valueOf(0x00007f8b2c18f000L),
+            String.valueOf(0x1aca), "waiting on condition  ", ThreadHeader.NO_ADDRESS_RANGE}, header.toTokens());
+    }
+
+    @Test
+    public void testParseHPDump() {
+        ThreadHeader header = ThreadHeaderParser.parse("\"Thread-870\" daemon prio=10 tid=6000000004082ff0 nid=1190 "
+                + "lwp_id=7236519 in Object.wait() [9fffffffb8100000..9fffffffb8100c40]");
+
+        assertTrue(header.isDaemon());
+        assertEquals(0x6000000004082ff0L, header.getTid());
+        assertEquals(1190, header.getNid());
+        assertEquals("in Object.wait()", header.getState());
+        assertEquals("[9fffffffb8100000..9fffffffb8100c40]", header.getAddressRange());
+    }
+
+    @Test
+    public void testParseShort() {
+        ThreadHeader header = ThreadHeaderParser.parse("\"Main Thread\" id=1 idx=0x4 tid=29423 prio=5 alive, in native");
+        assertFalse(header.isShortFormat());
+
+        header = ThreadHeaderParser.parse("\"Finalizer\" id=3 in WAITING");
+        assertTrue(header.isShortFormat());
+        assertEquals("Finalizer", header.getName());
+        assertEquals(3, header.getTid());
+        assertEquals("WAITING", header.getState().trim());
+
+        header = ThreadHeaderParser.parse("\"Reference Handler\" t@2 state=WAITING");
+        assertTrue(header.isShortFormat());
+        assertArrayEquals(new String[] {"Reference Handler", "2", "WAITING"}, header.toTokens());
+
+        header = ThreadHeaderParser.parse("\"Signal Dispatcher\" nid=0x1a2b state=RUNNABLE");
+        assertTrue(header.isShortFormat());
+        assertEquals(0x1a2b, header.getTid());
+        assertArrayEquals(new String[] {"Signal Dispatcher", String.valueOf(0x1a2b), "RUNNABLE"}, header.toTokens());
+    }
+}
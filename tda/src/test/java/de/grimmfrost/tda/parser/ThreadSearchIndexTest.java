@@ -0,0 +1,120 @@
+/*
+ * ThreadSearchIndexTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.parser;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.swing.tree.DefaultMutableTreeNode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test searching the threads of dumps in the inverted index.
+ */
+public class ThreadSearchIndexTest {
+
+    @Test
+    public void testTokenizeLine() {
+        assertEquals(Arrays.asList("java.net.serversocket.accept", "net.serversocket.accept", "serversocket.accept", "accept"),
+                Arrays.asList(ThreadSearchIndex.tokenizeLine("\tat java.net.ServerSocket.accept(java.base@21.0.2/ServerSocket.java:533)")));
+        assertEquals(Arrays.asList("java.lang.thread.run", "lang.thread.run", "thread.run", "run"),
+                Arrays.asList(ThreadSearchIndex.tokenizeLine("\tat java.base@21.0.2/java.lang.Thread.run(Thread.java:1583)")));
+        assertEquals(Arrays.asList("0x000000076ab62208", "java.lang.ref.referencequeue$lock", "lang.ref.referencequeue$lock",
+                "ref.referencequeue$lock", "referencequeue$lock", "lock"),
+                Arrays.asList(ThreadSearchIndex.tokenizeLine("\t- locked <0x000000076ab62208> (a java.lang.ref.ReferenceQueue$Lock)")));
+        assertEquals(0, ThreadSearchIndex.tokenizeLine("   java.lang.Thread.State: RUNNABLE").length);
+
+        List<String> tokens = new ArrayList<>();
+        ThreadSearchIndex.addNameTokens("pool-1-thread-3", tokens);
+        assertEquals(Arrays.asList("pool-1-thread-3", "pool", "1", "thread", "3"), tokens);
+    }
+
+    @Test
+    public void testSearch() throws IOException {
+        List<DefaultMutableTreeNode> dumps = parseLogfile("src/test/resources/java21dump.log");
+        ThreadSearchIndex index = new ThreadSearchIndex();
+        List<DefaultMutableTreeNode> missing = index.update(dumps);
+        assertEquals(dumps, missing);
+        for (DefaultMutableTreeNode dump : missing) {
+            index.addDump(dump);
+        }
+        assertEquals(1, index.getDumpCount());
+        assertTrue(index.update(dumps).isEmpty());
+
+        assertEquals(Collections.singletonList("main"), getThreadNames(index.search("ServerSocket.accept")));
+        assertEquals(Collections.singletonList("main"), getThreadNames(index.search("MAIN webserver")));
+        assertTrue(index.search("main ReferenceQueue").isEmpty());
+        assertEquals(Collections.singletonList("Finalizer"), getThreadNames(index.search("ReferenceQueue$Lock")));
+        assertEquals(Collections.singletonList("Finalizer"), getThreadNames(index.search("<0x000000076ab62208>")));
+        assertEquals(Arrays.asList("G1 Main Marker", "G1 Conc#0", "G1 Refine#0", "G1 Service"), getThreadNames(index.search("g1")));
+        assertTrue(index.search("  ").isEmpty());
+
+        // closed dumps are dropped from the index.
+        assertTrue(index.update(new ArrayList<>()).isEmpty());
+        assertEquals(0, index.getDumpCount());
+        assertTrue(index.search("main").isEmpty());
+    }
+
+    @Test
+    public void testSearchSeveralDumps() throws IOException {
+        List<DefaultMutableTreeNode> dumps = parseLogfile("src/test/resources/test.log");
+        assertEquals(3, dumps.size());
+        ThreadSearchIndex index = new ThreadSearchIndex();
+        for (DefaultMutableTreeNode dump : index.update(dumps)) {
+            index.addDump(dump);
+        }
+        List<ThreadSearchIndex.Hit> hits = index.search("java.lang.Object.wait");
+        assertFalse(hits.isEmpty());
+        int dump = 0;
+        for (ThreadSearchIndex.Hit hit : hits) {
+            assertTrue(hit.getThread().getStackText().contains("java.lang.Object.wait"));
+            // the hits are in dump order.
+            assertTrue(dumps.indexOf(hit.getDump()) >= dump);
+            dump = dumps.indexOf(hit.getDump());
+        }
+        assertEquals(2, dump);
+    }
+
+    private List<String> getThreadNames(List<ThreadSearchIndex.Hit> hits) {
+        List<String> names = new ArrayList<>();
+        for (ThreadSearchIndex.Hit hit : hits) {
+            names.add(ThreadSearchIndex.getThreadName(hit.getThread()));
+        }
+        return names;
+    }
+
+    private List<DefaultMutableTreeNode> parseLogfile(String fileName) throws IOException {
+        List<DefaultMutableTreeNode> dumps = new ArrayList<>();
+        try (FileInputStream fis = new FileInputStream(fileName)) {
+            DumpParser instance = DumpParserFactory.get().getDumpParserForLogfile(fis, false, 0);
+            while (instance.hasMoreDumps()) {
+                dumps.add((DefaultMutableTreeNode) instance.parseNext());
+            }
+            instance.close();
+        }
+        return dumps;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * VirtualThreadAggregatorTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.parser;
+
+import de.grimmfrost.tda.model.Category;
+import de.grimmfrost.tda.model.FrameDictionary;
+import de.grimmfrost.tda.model.ThreadDumpInfo;
+import de.grimmfrost.tda.model.ThreadStack;
+import de.grimmfrost.tda.model.VirtualThreadGroup;
+import de.grimmfrost.tda.utils.DateMatcher;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.List;
+import javax.swing.tree.DefaultMutableTreeNode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test grouping of virtual threads by their stack.
+ */
+public class VirtualThreadAggregatorTest {
+
+    @Test
+    public void testGrouping() {
+        FrameDictionary dictionary = new FrameDictionary();
+        VirtualThreadAggregator aggregator = new VirtualThreadAggregator();
+        aggregator.add("pool-1", createStack(dictionary, "#21", "<0x1>", "Worker.take"), "WAITING");
+        aggregator.add("pool-1", createStack(dictionary, "#22", "<0x2>", "Worker.poll"), "WAITING");
+        aggregator.add("pool-1", createStack(dictionary, "#23", "<0x3>", "Worker.poll"), "WAITING");
+        aggregator.add("pool-2", createStack(dictionary, "#24", "<0x4>", "Worker.poll"), "WAITING");
+
+        assertEquals(4, aggregator.getThreadCount());
+        assertEquals(3, aggregator.getGroupCount());
+        List<VirtualThreadGroup> groups = aggregator.getGroups();
+        assertEquals(2, groups.get(0).getThreadCount());
+        assertEquals("2 virtual threads at jdk.internal.misc.Unsafe.park(Native Method) (pool-1)", groups.get(0).getName());
+        assertTrue(groups.get(0).getStackText().startsWith("\"#22\""));
+        assertEquals("pool-1", groups.get(1).getContainer());
+        assertEquals("pool-2", groups.get(2).getContainer());
+    }
+
+    @Test
+    public void testGroupingOfDump() throws Exception {
+        SunJDKParser instance = new SunJDKParser(new BufferedReader(new FileReader("src/test/resources/java21dump.log")),
+                0, false, 0, new DateMatcher());
+        instance.setVirtualThreadGroupThreshold(1);
+        try {
+            ThreadDumpInfo tdi = (ThreadDumpInfo) ((DefaultMutableTreeNode) instance.parseNext()).getUserObject();
+            Category groups = tdi.getVirtualThreadGroups();
+            assertNotNull(groups);
+            int grouped = 0;
+            for (int i = 0; i < groups.getNodeCount(); i++) {
+                grouped += ((VirtualThreadGroup) groups.getNodeAt(i).getUserObject()).getThreadCount();
+            }
+            assertEquals(5, grouped);
+            for (int i = 0; i < tdi.getThreads().getNodeCount(); i++) {
+                assertFalse(tdi.getThreads().getNodeAt(i).getUserObject().toString().startsWith("VirtualThread["));
+            }
+        } finally {
+            instance.close();
+        }
+    }
+
+    private ThreadStack createStack(FrameDictionary dictionary, String name, String monitor, String method) {
+        return new ThreadStack.Builder(dictionary, "\"" + name + "\" virtual", 3)
+                .addFrame("\tat jdk.internal.misc.Unsafe.park(Native Method)")
+                .addAnnotation("\t- parking to wait for  " + monitor + " (a java.util.concurrent.locks.AbstractQueuedSynchronizer$ConditionObject)")
+                .addFrame("\tat com.example." + method + "(Worker.java:1)")
+                .build();
+    }
+}
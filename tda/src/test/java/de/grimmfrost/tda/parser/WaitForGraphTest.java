@@ -0,0 +1,192 @@
+/*
+ * WaitForGraphTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.parser;
+
+import de.grimmfrost.tda.model.BlockerInfo;
+import de.grimmfrost.tda.model.Category;
+import de.grimmfrost.tda.model.MonitorMap;
+import de.grimmfrost.tda.model.TableCategory;
+import de.grimmfrost.tda.model.ThreadDumpInfo;
+import de.grimmfrost.tda.utils.IconFactory;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.tree.DefaultMutableTreeNode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test finding deadlocks and top blockers in the wait-for graph of the monitors.
+ */
+public class WaitForGraphTest {
+
+    @Test
+    public void testReentrantLockDeadlock() throws IOException {
+        DefaultMutableTreeNode dump;
+        try (FileInputStream fis = new FileInputStream("src/test/resources/reentrant_deadlock.log")) {
+            DumpParser instance = DumpParserFactory.get().getDumpParserForLogfile(fis, false, 0);
+            dump = (DefaultMutableTreeNode) instance.parseNext();
+            instance.close();
+        }
+        ThreadDumpInfo tdi = (ThreadDumpInfo) dump.getUserObject();
+        // the jvm doesn't report deadlocks of ReentrantLocks.
+        assertNull(tdi.getDeadlocks());
+
+        Category lockCycles = tdi.getLockCycles();
+        assertNotNull(lockCycles);
+        assertEquals("Lock Cycles (1 deadlock)", lockCycles.getName());
+        assertEquals(1, lockCycles.getNodeCount());
+        DefaultMutableTreeNode cycle = lockCycles.getNodeAt(0);
+        assertEquals("Deadlock No. 1: 2 threads in cycle", cycle.getUserObject().toString());
+        assertEquals(2, cycle.getChildCount());
+        String threads = cycle.getChildAt(0).toString() + cycle.getChildAt(1).toString();
+        assertTrue(threads.contains("worker-1"));
+        assertTrue(threads.contains("worker-2"));
+        assertFalse(threads.contains("worker-3"));
+    }
+
+    @Test
+    public void testChainWithoutCycle() {
+        MonitorMap mmap = new MonitorMap();
+        int length = 100000;
+        for (int i = 0; i < length; i++) {
+            assertEquals(i, mmap.addThread("thread-" + i, null));
+            mmap.addLockToMonitor("<0x" + Integer.toHexString(i) + "> (a java.lang.Object)", i);
+            if (i > 0) {
+                mmap.addWaitToMonitor("<0x" + Integer.toHexString(i - 1) + "> (a java.lang.Object)", i);
+            }
+        }
+        // a thread sleeping in Object.wait() doesn't own the monitor anymore.
+        mmap.addWaitToMonitor("<0x" + Integer.toHexString(length - 1) + "> (a java.lang.Object)", 0);
+        mmap.addSleepToMonitor("<0x" + Integer.toHexString(length - 1) + "> (a java.lang.Object)", length - 1);
+
+        WaitForGraph graph = new WaitForGraph(mmap);
+        assertEquals(length, graph.getThreadCount());
+        assertEquals(length, graph.getMonitorCount());
+        assertTrue(graph.findCycles().isEmpty());
+
+        // closing the chain creates a cycle over all threads, which is too deep for recursion.
+        mmap.addLockToMonitor("<0x" + Integer.toHexString(length) + "> (a java.lang.Object)", length - 1);
+        mmap.addWaitToMonitor("<0x" + Integer.toHexString(length) + "> (a java.lang.Object)", 0);
+        graph = new WaitForGraph(mmap);
+        List<int[]> cycles = graph.findCycles();
+        assertEquals(1, cycles.size());
+        assertEquals(2 * length, cycles.get(0).length);
+        assertTrue(graph.isThread(cycles.get(0)[0]));
+        assertFalse(graph.isThread(cycles.get(0)[1]));
+    }
+
+    @Test
+    public void testBlockedCounts() {
+        MonitorMap mmap = new MonitorMap();
+        Map<String, Integer> threads = new HashMap<>();
+        for (String thread : new String[] {"pool", "a", "b", "c", "d", "e", "f", "g"}) {
+            threads.put(thread, mmap.addThread("\"" + thread + "\"", null));
+        }
+        // "pool" owns the pool lock, three threads wait for it, one of them owns a lock two other threads wait for.
+        mmap.addLockToMonitor("<pool>", threads.get("pool"));
+        mmap.addWaitToMonitor("<pool>", threads.get("a"));
+        mmap.addWaitToMonitor("<pool>", threads.get("b"));
+        mmap.addWaitToMonitor("<pool>", threads.get("c"));
+        mmap.addLockToMonitor("<cache>", threads.get("c"));
+        mmap.addWaitToMonitor("<cache>", threads.get("d"));
+        mmap.addWaitToMonitor("<cache>", threads.get("e"));
+        // "f" waits in Object.wait() and doesn't block anybody.
+        mmap.addLockToMonitor("<queue>", threads.get("f"));
+        mmap.addSleepToMonitor("<queue>", threads.get("f"));
+        mmap.addWaitToMonitor("<queue>", threads.get("g"));
+
+        WaitForGraph graph = new WaitForGraph(mmap);
+        int[] blocking = graph.getBlockingThreads();
+        int[] counts = WaitForGraph.getBlockedCounts(blocking);
+        Map<String, Integer> blocked = new HashMap<>();
+        Map<String, String> blockers = new HashMap<>();
+        for (int i = 0; i < graph.getThreadCount(); i++) {
+            blocked.put(graph.getThread(i), counts[i]);
+            blockers.put(graph.getThread(i), blocking[i] >= 0 ? graph.getThread(blocking[i]) : null);
+        }
+        assertEquals(5, blocked.get("\"pool\""));
+        assertEquals(2, blocked.get("\"c\""));
+        assertEquals(0, blocked.get("\"a\""));
+        assertEquals(0, blocked.get("\"g\""));
+        assertNull(blockers.get("\"pool\""));
+        assertEquals("\"pool\"", blockers.get("\"c\""));
+        assertEquals("\"c\"", blockers.get("\"d\""));
+        assertNull(blockers.get("\"g\""));
+    }
+
+    @Test
+    public void testRankBlockersOfSeries() {
+        List<ThreadDumpInfo> dumps = new ArrayList<>();
+        dumps.add(createDump("Dump No. 1", createBlocker("\"pool\" #12 prio=5 tid=0x1 nid=0x2 runnable", 5, 3),
+                createBlocker("\"cache\" #13 prio=5 tid=0x3 nid=0x4 runnable", 2, 2)));
+        // the same thread with another state in the next dump.
+        dumps.add(createDump("Dump No. 2",
+                createBlocker("\"cache\" #13 prio=5 tid=0x3 nid=0x4 waiting on condition [0x00007f2a1c5fe000]", 7, 1)));
+
+        List<BlockerInfo> ranked = AbstractDumpParser.rankBlockers(dumps);
+        assertEquals(2, ranked.size());
+        assertEquals(9, ranked.get(0).getBlockedCount());
+        assertEquals(3, ranked.get(0).getDirectlyBlockedCount());
+        assertEquals(2, ranked.get(0).getDumpCount());
+        assertArrayEquals(new String[] {"cache", "9", "3", "2"}, ranked.get(0).getTokens());
+        assertEquals(5, ranked.get(1).getBlockedCount());
+        assertEquals(1, ranked.get(1).getDumpCount());
+    }
+
+    @Test
+    public void testMonitorAddresses() {
+        MonitorMap mmap = new MonitorMap();
+        int thread = mmap.addThread("\"worker\"", null);
+        mmap.parseAndAddThread("\t- locked <0x000000071580c0b8> (a java.lang.Object)", thread);
+        mmap.parseAndAddThread("\t- locked <0x000000071580c0b8> (a java.lang.Object)", thread);
+        mmap.parseAndAddThread("\t- waiting on <0x000000071580c0b8> (a java.lang.Object)", thread);
+        mmap.parseAndAddThread("\t- parking to wait for  <0x00000000f0a1b2c3> (a java.util.concurrent.locks.ReentrantLock$NonfairSync)", thread);
+        mmap.parseAndAddThread("\t- waiting to lock <no object reference available>", thread);
+
+        assertEquals(3, mmap.size());
+        assertEquals("<0x000000071580c0b8> (a java.lang.Object)", mmap.getMonitor(0));
+        assertEquals(0x71580c0b8L, mmap.getAddress(0));
+        assertArrayEquals(new int[] {thread}, mmap.getThreads(0, MonitorMap.LOCK_THREAD_POS));
+        assertTrue(mmap.hasThread(0, MonitorMap.SLEEP_THREAD_POS, thread));
+        assertEquals("<0x00000000f0a1b2c3> (a java.util.concurrent.locks.ReentrantLock$NonfairSync)", mmap.getMonitor(1));
+        assertArrayEquals(new int[] {thread}, mmap.getThreads(1, MonitorMap.WAIT_THREAD_POS));
+        assertEquals("<no object reference available>", mmap.getMonitor(2));
+    }
+
+    private BlockerInfo createBlocker(String thread, int blockedCount, int directlyBlockedCount) {
+        return new BlockerInfo(thread, ThreadHeaderParser.parse(thread), null, blockedCount, directlyBlockedCount);
+    }
+
+    private ThreadDumpInfo createDump(String name, BlockerInfo... blockers) {
+        ThreadDumpInfo tdi = new ThreadDumpInfo(name, 0);
+        TableCategory topBlockers = new TableCategory("Top Blockers", IconFactory.MONITORS);
+        for (BlockerInfo blocker : blockers) {
+            topBlockers.addToCatNodes(new DefaultMutableTreeNode(blocker));
+        }
+        tdi.setTopBlockers(topBlockers);
+        return tdi;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * StackRendererTest.java
+ *
+ * This file is part of TDA - Thread Dump Analysis Tool.
+ *
+ * TDA is free software; you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * TDA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License
+ * along with TDA; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package de.grimmfrost.tda.utils;
+
+import de.grimmfrost.tda.model.FrameDictionary;
+import de.grimmfrost.tda.model.ThreadInfo;
+import de.grimmfrost.tda.model.ThreadStack;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test rendering of raw thread stacks.
+ */
+public class StackRendererTest {
+
+    @Test
+    public void testRender() {
+        ThreadStack stack = new ThreadStack.Builder(new FrameDictionary(), "\"main\" prio=5 tid=0x1 nid=0x2 in Object.wait()", 4)
+                .addFrame("\tat java.lang.Object.wait(Native Method)")
+                .addAnnotation("\t- waiting on <0x0000000711666830> (a java.lang.Object)")
+                .addFrame("   Locked ownable synchronizers:")
+                .addAnnotation("\t- <0x00000000c0c0c0c0> (a java.util.concurrent.locks.ReentrantLock$NonfairSync)")
+                .build();
+
+        String html = StackRenderer.render(stack);
+        assertTrue(html.startsWith("<body bgcolor=\"ffffff\"><pre><font size="));
+        assertTrue(html.contains("\"main\" prio=5 tid=0x1 nid=0x2 in Object.wait()\n\tat java.lang.Object.wait(Native Method)\n"));
+        assertTrue(html.contains("\t- waiting on <a href=\"monitor://<0x0000000711666830>\">&lt;0x0000000711666830&gt;</a> (a java.lang.Object)\n"));
+        assertTrue(html.contains("\t- <a href=\"monitor://<0x00000000c0c0c0c0>\">&lt;0x00000000c0c0c0c0&gt;</a>"));
+        assertSame(html, StackRenderer.render(stack));
+    }
+
+    @Test
+    public void testRenderCarrierThread() {
+        String stack = "\"ForkJoinPool-1-worker-1\" #22 daemon prio=5\n"
+                + "   Carrying virtual thread #21\n"
+                + StackRenderer.STUCK_CARRIER_NOTE + "\n";
+
+        String lines = StackRenderer.renderLines(stack);
+        assertTrue(lines.contains("<font color=\"#0000ff\"><b>   Carrying virtual thread #21</b></font>\n"));
+        assertTrue(lines.contains("<font color=\"#ff0000\"><b>" + StackRenderer.STUCK_CARRIER_NOTE + "</b></font>\n"));
+
+        ThreadStack threadStack = new ThreadStack.Builder(new FrameDictionary(), "\"ForkJoinPool-1-worker-1\" #22 daemon prio=5", 2)
+                .addAnnotation("   Carrying virtual thread #21")
+                .addAnnotation(StackRenderer.STUCK_CARRIER_NOTE)
+                .build();
+        ThreadInfo ti = new ThreadInfo("ForkJoinPool-1-worker-1", null, null, 3, null);
+        ti.setStack(threadStack);
+        assertEquals(stack, ti.getStackText());
+        assertEquals(StackRenderer.render(threadStack), ti.getContent());
+    }
+}